@@ -1,8 +1,7 @@
 package com.lincee.config;
 
-import com.lincee.service.JwtService;
-import com.lincee.repository.UserRepository;
-import com.lincee.entity.User;
+import com.lincee.service.JwtPrincipalCache;
+import com.lincee.service.JwtPrincipalCache.TokenUser;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -24,10 +23,9 @@ import java.util.Optional;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     @Autowired
-    private JwtService jwtService;
+    private JwtPrincipalCache principalCache;
 
-    @Autowired
-    private UserRepository userRepository;
+    private final WebAuthenticationDetailsSource detailsSource = new WebAuthenticationDetailsSource();
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -35,19 +33,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && jwtService.validateToken(jwt)) {
-                String username = jwtService.getUsernameFromToken(jwt);
+            // Anonymous requests never reach the token code; the principal comes from the
+            // token's claims, so there is no database lookup per request
+            if (StringUtils.hasText(jwt)) {
+                Optional<TokenUser> user = principalCache.resolve(jwt);
+                if (user.isPresent()) {
+                    SimpleGrantedAuthority authority = new SimpleGrantedAuthority(user.get().role());
 
-                Optional<User> userOptional = userRepository.findByUsername(username);
-                if (userOptional.isPresent()) {
-                    User user = userOptional.get();
-                    
-                    // Create authority from user role
-                    SimpleGrantedAuthority authority = new SimpleGrantedAuthority(user.getRole().name());
-                    
                     UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                            user, null, Collections.singletonList(authority));
-                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                            user.get(), null, Collections.singletonList(authority));
+                    authentication.setDetails(detailsSource.buildDetails(request));
 
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                 }
@@ -0,0 +1,14 @@
+package com.lincee.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the services' @Scheduled jobs (stock hold expiry, drop and cart flushes, sweeps, order
+ * archiving, token sync) on the one task scheduler Spring Boot configures from
+ * spring.task.scheduling.*.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
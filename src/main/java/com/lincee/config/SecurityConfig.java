@@ -34,7 +34,8 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.POST, "/api/v1/stripe/webhook").permitAll()
                 // Admin-only endpoints
                 .requestMatchers("/api/v1/collections/admin/**").hasAuthority("ADMIN")
-                .requestMatchers(HttpMethod.POST, "/api/v1/products").hasAuthority("ADMIN")
+                .requestMatchers(HttpMethod.POST, "/api/v1/products/**").hasAuthority("ADMIN")
+                .requestMatchers(HttpMethod.PATCH, "/api/v1/products/*/variants/**").hasAuthority("ADMIN")
                 .requestMatchers(HttpMethod.PUT, "/api/v1/products/**").hasAuthority("ADMIN")
                 .requestMatchers(HttpMethod.DELETE, "/api/v1/products/**").hasAuthority("ADMIN")
                 // Public endpoints
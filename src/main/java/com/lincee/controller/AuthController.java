@@ -2,7 +2,11 @@ package com.lincee.controller;
 
 import com.lincee.entity.User;
 import com.lincee.repository.UserRepository;
+import com.lincee.service.JwtPrincipalCache;
 import com.lincee.service.JwtService;
+import com.lincee.service.RefreshTokenStore;
+import com.lincee.service.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -27,6 +31,15 @@ public class AuthController {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private TokenRevocationService tokenRevocations;
+    
+    @Autowired
+    private JwtPrincipalCache principalCache;
+    
+    @Autowired
+    private RefreshTokenStore refreshTokens;
+    
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     @PostMapping("/login")
@@ -62,6 +75,7 @@ public class AuthController {
                 
                 Map<String, Object> response = new HashMap<>();
                 response.put("token", token);
+                response.put("refreshToken", refreshTokens.issue(user.getId(), user.getUsername(), user.getRole().name()));
                 response.put("type", "Bearer");
                 response.put("userId", user.getId());
                 response.put("username", user.getUsername());
@@ -137,6 +151,7 @@ public class AuthController {
         response.put("role", savedUser.getRole().name());
         response.put("isAdmin", false);
         response.put("token", token);
+        response.put("refreshToken", refreshTokens.issue(savedUser.getId(), savedUser.getUsername(), savedUser.getRole().name()));
         response.put("type", "Bearer");
         response.put("redirectTo", "/");
         return ResponseEntity.ok(response);
@@ -145,21 +160,45 @@ public class AuthController {
     @PostMapping("/logout")
     @Operation(summary = "User logout", description = "Logout user and invalidate token")
     @ApiResponse(responseCode = "200", description = "Logout successful")
-    public ResponseEntity<Map<String, String>> logout() {
+    public ResponseEntity<Map<String, String>> logout(
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            @RequestBody(required = false) Map<String, String> tokenData) {
+        // The bearer token stops working on every instance until it would have expired
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            String token = authorization.substring(7);
+            Claims claims = jwtService.parseValidClaims(token);
+            if (claims != null && claims.getExpiration() != null) {
+                tokenRevocations.revoke(JwtService.tokenId(claims, token), claims.get("userId", Long.class),
+                        claims.getExpiration().getTime());
+                principalCache.revokeToken(token);
+            }
+        }
+        if (tokenData != null && tokenData.get("refreshToken") != null) {
+            refreshTokens.revoke(tokenData.get("refreshToken"));
+        }
         Map<String, String> response = new HashMap<>();
         response.put("message", "Logout successful");
         return ResponseEntity.ok(response);
     }
 
     @PostMapping("/refresh")
-    @Operation(summary = "Refresh token", description = "Refresh JWT token")
+    @Operation(summary = "Refresh token", description = "Exchange a refresh token for a new JWT token and the next refresh token")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Token refreshed successfully"),
         @ApiResponse(responseCode = "401", description = "Invalid refresh token")
     })
     public ResponseEntity<Map<String, Object>> refreshToken(@RequestBody Map<String, String> tokenData) {
+        // Each refresh token works once; presenting a used one signs the whole session out
+        Optional<RefreshTokenStore.Rotation> rotation = refreshTokens.rotate(tokenData.get("refreshToken"));
+        if (rotation.isEmpty()) {
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("message", "Invalid refresh token");
+            return ResponseEntity.status(401).body(errorResponse);
+        }
+        RefreshTokenStore.Rotation next = rotation.get();
         Map<String, Object> response = new HashMap<>();
-        response.put("token", "new-jwt-token-placeholder");
+        response.put("token", jwtService.generateToken(next.username(), next.role(), next.userId()));
+        response.put("refreshToken", next.refreshToken());
         response.put("type", "Bearer");
         response.put("message", "Token refreshed successfully");
         return ResponseEntity.ok(response);
@@ -1,7 +1,10 @@
 package com.lincee.controller;
 
+import com.lincee.dto.CartBatchResultDTO;
 import com.lincee.dto.CartDTO;
 import com.lincee.dto.CartItemDTO;
+import com.lincee.dto.CartLineOperationDTO;
+import com.lincee.service.CartBatchService;
 import com.lincee.service.CartService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -24,6 +27,9 @@ public class CartController {
     @Autowired
     private CartService cartService;
     
+    @Autowired
+    private CartBatchService cartBatchService;
+    
     @GetMapping("/user/{userId}")
     @Operation(summary = "Get or create cart", description = "Get existing cart or create a new one for user")
     @ApiResponse(responseCode = "200", description = "Cart retrieved or created successfully")
@@ -61,6 +67,23 @@ public class CartController {
         return ResponseEntity.status(HttpStatus.CREATED).body(cartItem);
     }
     
+    @PostMapping("/user/{userId}/items/batch")
+    @Operation(summary = "Change many cart lines", description = "Add, update and remove up to " + CartBatchService.MAX_LINES +
+               " cart lines in one request, e.g. to restore a saved cart or reorder a past order. All lines are applied " +
+               "or none are; the response has one result per line, in request order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "All lines applied"),
+        @ApiResponse(responseCode = "400", description = "Some lines were rejected; nothing was applied"),
+        @ApiResponse(responseCode = "404", description = "User not found"),
+        @ApiResponse(responseCode = "409", description = "The cart kept changing while the batch was applied")
+    })
+    public ResponseEntity<CartBatchResultDTO> applyCartBatch(
+            @Parameter(description = "User ID") @PathVariable Long userId,
+            @RequestBody List<CartLineOperationDTO> operations) {
+        CartBatchResultDTO result = cartBatchService.apply(userId, operations);
+        return ResponseEntity.status(result.isApplied() ? HttpStatus.OK : HttpStatus.BAD_REQUEST).body(result);
+    }
+    
     @PutMapping("/items/{cartItemId}")
     @Operation(summary = "Update cart item", description = "Update quantity of a cart item")
     @ApiResponses(value = {
@@ -105,4 +128,17 @@ public class CartController {
         CartDTO cart = cartService.clearCart(userId);
         return ResponseEntity.ok(cart);
     }
+    
+    @PostMapping("/user/{userId}/checkout-hold")
+    @Operation(summary = "Hold cart stock for checkout", description = "Refresh the time-limited stock holds on every " +
+               "product in the cart so it stays reserved while the user pays")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stock held"),
+        @ApiResponse(responseCode = "400", description = "Some products no longer have enough stock")
+    })
+    public ResponseEntity<CartDTO> holdCartForCheckout(
+            @Parameter(description = "User ID") @PathVariable Long userId) {
+        CartDTO cart = cartService.holdCartForCheckout(userId);
+        return ResponseEntity.ok(cart);
+    }
 }
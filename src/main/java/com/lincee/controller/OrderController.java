@@ -1,7 +1,13 @@
 package com.lincee.controller;
 
+import com.lincee.dto.CursorPageDTO;
 import com.lincee.dto.OrderDTO;
+import com.lincee.dto.OrderStatusBulkResultDTO;
+import com.lincee.dto.OrderStatusUpdateDTO;
 import com.lincee.entity.Order.OrderStatus;
+import com.lincee.service.IdempotencyService;
+import com.lincee.service.OrderBulkStatusService;
+import com.lincee.service.OrderExportService;
 import com.lincee.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,10 +17,15 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,18 +38,34 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
     
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
+    @Autowired
+    private OrderExportService orderExportService;
+    
+    @Autowired
+    private OrderBulkStatusService orderBulkStatusService;
+    
     @PostMapping
     @Operation(summary = "Create new order", description = "Create a new order for a user")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "201", description = "Order created successfully"),
         @ApiResponse(responseCode = "400", description = "Invalid order data"),
-        @ApiResponse(responseCode = "404", description = "User not found")
+        @ApiResponse(responseCode = "404", description = "User not found"),
+        @ApiResponse(responseCode = "409", description = "An order with this idempotency key is still being created"),
+        @ApiResponse(responseCode = "422", description = "Idempotency key was already used for a different order")
     })
     public ResponseEntity<OrderDTO> createOrder(
             @Parameter(description = "User ID") @RequestParam Long userId,
+            @Parameter(description = "Client-generated key; retries with the same key return the first response")
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @RequestBody OrderDTO orderDTO) {
-        OrderDTO createdOrder = orderService.createOrder(userId, orderDTO);
-        return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
+        return idempotencyService.execute("orders:create", idempotencyKey, Map.of("userId", userId, "order", orderDTO),
+                OrderDTO.class, () -> {
+                    OrderDTO createdOrder = orderService.createOrder(userId, orderDTO);
+                    return ResponseEntity.status(HttpStatus.CREATED).body(createdOrder);
+                });
     }
     
     @GetMapping("/{id}")
@@ -75,6 +102,19 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
     
+    @GetMapping("/user/{userId}/cursor")
+    @Operation(summary = "Get user orders by cursor", description = "Keyset-paginated order history, newest first, without a total count")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Orders retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or size")
+    })
+    public ResponseEntity<CursorPageDTO<OrderDTO>> getUserOrdersByCursor(
+            @Parameter(description = "User ID") @PathVariable Long userId,
+            @Parameter(description = "Cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (1-100, default 20)") @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(orderService.getUserOrdersByCursor(userId, cursor, size));
+    }
+    
     @GetMapping("/user/{userId}/list")
     @Operation(summary = "Get user orders list", description = "Retrieve all orders for a user as a list")
     @ApiResponse(responseCode = "200", description = "Orders retrieved successfully")
@@ -94,11 +134,47 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
     
+    @GetMapping("/status/{status}/cursor")
+    @Operation(summary = "Get orders by status by cursor", description = "Keyset-paginated orders with a status, newest first, without a total count")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Orders retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or size")
+    })
+    public ResponseEntity<CursorPageDTO<OrderDTO>> getOrdersByStatusCursor(
+            @Parameter(description = "Order Status") @PathVariable OrderStatus status,
+            @Parameter(description = "Cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (1-100, default 20)") @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(orderService.getOrdersByStatusCursor(status, cursor, size));
+    }
+    
+    @GetMapping("/export")
+    @Operation(summary = "Export orders", description = "Stream every order created in a date range as CSV (one line per item) or NDJSON (one order per line), oldest first")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Export streamed"),
+        @ApiResponse(responseCode = "400", description = "Invalid date range or format")
+    })
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @Parameter(description = "Start of the range (ISO date-time, inclusive)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @Parameter(description = "End of the range (ISO date-time, inclusive)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @Parameter(description = "csv (default) or ndjson") @RequestParam(required = false) String format) {
+        OrderExportService.Format exportFormat = OrderExportService.Format.parse(format);
+        orderExportService.validateRange(startDate, endDate);
+        String filename = "orders-" + startDate.toLocalDate() + "-to-" + endDate.toLocalDate() + "." + exportFormat.getExtension();
+        StreamingResponseBody body = out -> orderExportService.export(startDate, endDate, exportFormat, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .body(body);
+    }
+    
     @PutMapping("/{id}")
     @Operation(summary = "Update order", description = "Update order details")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Order updated successfully"),
-        @ApiResponse(responseCode = "404", description = "Order not found")
+        @ApiResponse(responseCode = "404", description = "Order not found"),
+        @ApiResponse(responseCode = "409", description = "Order changed since the given version, or the status change is not allowed")
     })
     public ResponseEntity<OrderDTO> updateOrder(
             @Parameter(description = "Order ID") @PathVariable Long id,
@@ -108,10 +184,11 @@ public class OrderController {
     }
     
     @PatchMapping("/{id}/status")
-    @Operation(summary = "Update order status", description = "Update the status of an order")
+    @Operation(summary = "Update order status", description = "Update the status of an order along an allowed transition")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Order status updated successfully"),
-        @ApiResponse(responseCode = "404", description = "Order not found")
+        @ApiResponse(responseCode = "404", description = "Order not found"),
+        @ApiResponse(responseCode = "409", description = "The order's current status does not allow this change")
     })
     public ResponseEntity<OrderDTO> updateOrderStatus(
             @Parameter(description = "Order ID") @PathVariable Long id,
@@ -120,6 +197,19 @@ public class OrderController {
         return ResponseEntity.ok(updatedOrder);
     }
     
+    @PostMapping("/status/bulk")
+    @Operation(summary = "Bulk update order status",
+            description = "Apply up to " + OrderBulkStatusService.MAX_ROWS + " status changes, each identified by orderId or orderNumber, "
+                    + "with an optional tracking number. Returns one result per row in request order.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Batch processed; see per-row results"),
+        @ApiResponse(responseCode = "400", description = "Empty or oversized batch")
+    })
+    public ResponseEntity<OrderStatusBulkResultDTO> updateOrderStatuses(
+            @RequestBody List<OrderStatusUpdateDTO> updates) {
+        return ResponseEntity.ok(orderBulkStatusService.apply(updates));
+    }
+    
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete order", description = "Delete a specific order")
     @ApiResponses(value = {
@@ -1,7 +1,14 @@
 package com.lincee.controller;
 
+import com.lincee.dto.CursorPageDTO;
+import com.lincee.dto.ProductDTO;
+import com.lincee.dto.ProductFacetResultDTO;
+import com.lincee.dto.ProductVariantDTO;
 import com.lincee.entity.Product;
-import com.lincee.repository.ProductRepository;
+import com.lincee.service.DropStockService;
+import com.lincee.service.ProductFacetIndex;
+import com.lincee.service.ProductService;
+import com.lincee.service.ProductVariantService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -15,7 +22,10 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
 
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -24,18 +34,36 @@ import java.util.Optional;
 public class ProductController {
 
     @Autowired
-    private ProductRepository productRepository;
+    private ProductService productService;
+
+    @Autowired
+    private ProductVariantService productVariantService;
+
+    @Autowired
+    private DropStockService dropStockService;
 
     @GetMapping
     @Operation(summary = "Get all products", description = "Retrieve all products or filter by active status")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved products")
-    public ResponseEntity<Page<Product>> getAllProducts(
+    public ResponseEntity<Page<ProductDTO>> getAllProducts(
             @Parameter(description = "Filter by active status") @RequestParam(required = false) Boolean active,
             @Parameter(hidden = true) Pageable pageable) {
-        if (active != null && active) {
-            return ResponseEntity.ok(productRepository.findByActiveTrue(pageable));
-        }
-        return ResponseEntity.ok(productRepository.findAll(pageable));
+        return ResponseEntity.ok(productService.getAllProducts(active, pageable));
+    }
+
+    @GetMapping("/cursor")
+    @Operation(summary = "Get products by cursor", description = "Keyset-paginated product listing without a total count. " +
+               "Pass the returned nextCursor to fetch the following page.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved products"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor, sort or size")
+    })
+    public ResponseEntity<CursorPageDTO<ProductDTO>> getProductsByCursor(
+            @Parameter(description = "Sort order: newest (default) or price") @RequestParam(required = false) String sort,
+            @Parameter(description = "Only active products") @RequestParam(required = false) Boolean active,
+            @Parameter(description = "Cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (1-100, default 20)") @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(productService.getProductsByCursor(sort, active, cursor, size));
     }
 
     @GetMapping("/{id}")
@@ -44,9 +72,9 @@ public class ProductController {
         @ApiResponse(responseCode = "200", description = "Product found"),
         @ApiResponse(responseCode = "404", description = "Product not found")
     })
-    public ResponseEntity<Product> getProductById(
+    public ResponseEntity<ProductDTO> getProductById(
             @Parameter(description = "Product ID") @PathVariable Long id) {
-        Optional<Product> product = productRepository.findById(id);
+        Optional<ProductDTO> product = productService.getProductById(id);
         return product.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
     }
 
@@ -57,7 +85,7 @@ public class ProductController {
         @ApiResponse(responseCode = "400", description = "Invalid product data")
     })
     public ResponseEntity<Product> createProduct(@Valid @RequestBody Product product) {
-        Product savedProduct = productRepository.save(product);
+        Product savedProduct = productService.createProduct(product);
         return ResponseEntity.status(HttpStatus.CREATED).body(savedProduct);
     }
 
@@ -70,27 +98,9 @@ public class ProductController {
     public ResponseEntity<Product> updateProduct(
             @Parameter(description = "Product ID") @PathVariable Long id,
             @Valid @RequestBody Product productDetails) {
-        Optional<Product> optionalProduct = productRepository.findById(id);
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            product.setName(productDetails.getName());
-            product.setDescription(productDetails.getDescription());
-            product.setPrice(productDetails.getPrice());
-            product.setDiscountPrice(productDetails.getDiscountPrice());
-            product.setCategory(productDetails.getCategory());
-            product.setSubCategory(productDetails.getSubCategory());
-            product.setBrand(productDetails.getBrand());
-            product.setStockQuantity(productDetails.getStockQuantity());
-            product.setAvailableSizes(productDetails.getAvailableSizes());
-            product.setAvailableColors(productDetails.getAvailableColors());
-            product.setImageUrls(productDetails.getImageUrls());
-            product.setActive(productDetails.getActive());
-            product.setFeatured(productDetails.getFeatured());
-            product.setWeightGrams(productDetails.getWeightGrams());
-            product.setTags(productDetails.getTags());
-            return ResponseEntity.ok(productRepository.save(product));
-        }
-        return ResponseEntity.notFound().build();
+        return productService.updateProduct(id, productDetails)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/{id}")
@@ -101,8 +111,7 @@ public class ProductController {
     })
     public ResponseEntity<Void> deleteProduct(
             @Parameter(description = "Product ID") @PathVariable Long id) {
-        if (productRepository.existsById(id)) {
-            productRepository.deleteById(id);
+        if (productService.deleteProduct(id)) {
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
@@ -111,35 +120,160 @@ public class ProductController {
     @GetMapping("/category/{category}")
     @Operation(summary = "Get products by category", description = "Retrieve products filtered by category")
     @ApiResponse(responseCode = "200", description = "Products retrieved successfully")
-    public ResponseEntity<Page<Product>> getProductsByCategory(
+    public ResponseEntity<Page<ProductDTO>> getProductsByCategory(
             @Parameter(description = "Product category") @PathVariable String category,
             @Parameter(hidden = true) Pageable pageable) {
-        return ResponseEntity.ok(productRepository.findByCategory(category, pageable));
+        return ResponseEntity.ok(productService.getProductsByCategory(category, pageable));
     }
 
     @GetMapping("/brand/{brand}")
     @Operation(summary = "Get products by brand", description = "Retrieve products filtered by brand")
     @ApiResponse(responseCode = "200", description = "Products retrieved successfully")
-    public ResponseEntity<Page<Product>> getProductsByBrand(
+    public ResponseEntity<Page<ProductDTO>> getProductsByBrand(
             @Parameter(description = "Product brand") @PathVariable String brand,
             @Parameter(hidden = true) Pageable pageable) {
-        return ResponseEntity.ok(productRepository.findByBrand(brand, pageable));
+        return ResponseEntity.ok(productService.getProductsByBrand(brand, pageable));
     }
 
     @GetMapping("/featured")
     @Operation(summary = "Get featured products", description = "Retrieve all featured products")
     @ApiResponse(responseCode = "200", description = "Featured products retrieved successfully")
-    public ResponseEntity<List<Product>> getFeaturedProducts() {
-        return ResponseEntity.ok(productRepository.findByFeaturedTrue());
+    public ResponseEntity<List<ProductDTO>> getFeaturedProducts() {
+        return ResponseEntity.ok(productService.getFeaturedProducts());
+    }
+
+    @GetMapping("/filter")
+    @Operation(summary = "Filter products by facets", description = "Combine category, sub-category, brand, size, color, " +
+               "featured and price filters. Values of one facet are OR-ed, facets are AND-ed; the response carries " +
+               "the number of matching products for every facet value.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Filtered products with facet counts"),
+        @ApiResponse(responseCode = "400", description = "Invalid page or page size"),
+        @ApiResponse(responseCode = "503", description = "Filters are still being built at startup")
+    })
+    public ResponseEntity<ProductFacetResultDTO> filterProducts(
+            @Parameter(description = "Categories") @RequestParam(required = false) List<String> category,
+            @Parameter(description = "Sub-categories") @RequestParam(required = false) List<String> subCategory,
+            @Parameter(description = "Brands") @RequestParam(required = false) List<String> brand,
+            @Parameter(description = "Available sizes") @RequestParam(required = false) List<String> size,
+            @Parameter(description = "Available colors") @RequestParam(required = false) List<String> color,
+            @Parameter(description = "Only featured (true) or non-featured (false) products") @RequestParam(required = false) Boolean featured,
+            @Parameter(description = "Minimum price, inclusive") @RequestParam(required = false) BigDecimal minPrice,
+            @Parameter(description = "Maximum price, inclusive") @RequestParam(required = false) BigDecimal maxPrice,
+            @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size (1-100, default 20)") @RequestParam(required = false) Integer pageSize) {
+        ProductFacetIndex.Filter filter = new ProductFacetIndex.Filter()
+                .select(ProductFacetIndex.Facet.CATEGORY, category)
+                .select(ProductFacetIndex.Facet.SUB_CATEGORY, subCategory)
+                .select(ProductFacetIndex.Facet.BRAND, brand)
+                .select(ProductFacetIndex.Facet.SIZE, size)
+                .select(ProductFacetIndex.Facet.COLOR, color)
+                .select(ProductFacetIndex.Facet.FEATURED, featured == null ? null : List.of(featured.toString()))
+                .priceBetween(minPrice, maxPrice);
+        return ResponseEntity.ok(productService.filterProducts(filter, page, pageSize));
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Search products", description = "Search products by name or description")
+    @Operation(summary = "Search products", description = "Relevance-ranked search over product name, description, tags, category and brand")
     @ApiResponse(responseCode = "200", description = "Search completed successfully")
-    public ResponseEntity<Page<Product>> searchProducts(
+    public ResponseEntity<Page<ProductDTO>> searchProducts(
             @Parameter(description = "Search keyword") @RequestParam String keyword,
             @Parameter(hidden = true) Pageable pageable) {
-        return ResponseEntity.ok(productRepository.searchProducts(keyword, pageable));
+        return ResponseEntity.ok(productService.searchProducts(keyword, pageable));
+    }
+
+    @GetMapping("/{id}/availability")
+    @Operation(summary = "Get available stock", description = "On-hand stock, the quantity held by carts and checkouts, " +
+               "and what is left to sell")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Availability returned"),
+        @ApiResponse(responseCode = "404", description = "Product not found")
+    })
+    public ResponseEntity<Map<String, Integer>> getAvailability(
+            @Parameter(description = "Product ID") @PathVariable Long id) {
+        return productService.getAvailability(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}/variants")
+    @Operation(summary = "Get product variants", description = "Size/color variants with their SKU, stock and price")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Variants returned"),
+        @ApiResponse(responseCode = "404", description = "Product not found")
+    })
+    public ResponseEntity<List<ProductVariantDTO>> getVariants(
+            @Parameter(description = "Product ID") @PathVariable Long id) {
+        return ResponseEntity.ok(productVariantService.getVariants(id));
+    }
+
+    @PostMapping("/{id}/variants")
+    @Operation(summary = "Create product variant", description = "Add a size/color variant with its own SKU and stock")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Variant created"),
+        @ApiResponse(responseCode = "404", description = "Product not found"),
+        @ApiResponse(responseCode = "409", description = "SKU or size/color combination already exists")
+    })
+    public ResponseEntity<ProductVariantDTO> createVariant(
+            @Parameter(description = "Product ID") @PathVariable Long id,
+            @Valid @RequestBody ProductVariantDTO variant) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(productVariantService.createVariant(id, variant));
+    }
+
+    @PatchMapping("/{id}/variants/{variantId}/stock")
+    @Operation(summary = "Update variant stock", description = "Set a variant's stock; the product total is recomputed")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stock updated successfully"),
+        @ApiResponse(responseCode = "404", description = "Variant not found")
+    })
+    public ResponseEntity<ProductVariantDTO> updateVariantStock(
+            @Parameter(description = "Product ID") @PathVariable Long id,
+            @Parameter(description = "Variant ID") @PathVariable Long variantId,
+            @Parameter(description = "New stock quantity") @RequestParam Integer quantity) {
+        return ResponseEntity.ok(productVariantService.updateStock(id, variantId, quantity));
+    }
+
+    @GetMapping("/{id}/drop-mode")
+    @Operation(summary = "Get drop mode", description = "Whether the product sells from the in-memory drop counter, and how many units it has left")
+    @ApiResponse(responseCode = "200", description = "Drop mode returned")
+    public ResponseEntity<Map<String, Object>> getDropMode(
+            @Parameter(description = "Product ID") @PathVariable Long id) {
+        return ResponseEntity.ok(dropMode(id));
+    }
+
+    @PutMapping("/{id}/drop-mode")
+    @Operation(summary = "Enable drop mode", description = "Sell the product's current stock from a striped in-memory counter " +
+               "instead of row updates, for limited releases with heavy concurrent checkout")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Drop mode enabled"),
+        @ApiResponse(responseCode = "400", description = "Product has size/color variants"),
+        @ApiResponse(responseCode = "404", description = "Product not found")
+    })
+    public ResponseEntity<Map<String, Object>> enableDropMode(
+            @Parameter(description = "Product ID") @PathVariable Long id) {
+        dropStockService.enable(id);
+        return ResponseEntity.ok(dropMode(id));
+    }
+
+    @DeleteMapping("/{id}/drop-mode")
+    @Operation(summary = "Disable drop mode", description = "Apply all drop sales to the product's stock and return to regular checkout")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Drop mode disabled"),
+        @ApiResponse(responseCode = "404", description = "Product not found"),
+        @ApiResponse(responseCode = "409", description = "Checkouts still in progress; retry")
+    })
+    public ResponseEntity<Map<String, Object>> disableDropMode(
+            @Parameter(description = "Product ID") @PathVariable Long id) {
+        dropStockService.disable(id);
+        return ResponseEntity.ok(dropMode(id));
+    }
+
+    private Map<String, Object> dropMode(Long id) {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("productId", id);
+        response.put("dropMode", dropStockService.isActive(id));
+        response.put("available", dropStockService.getAvailable(id));
+        return response;
     }
 
     @PatchMapping("/{id}/stock")
@@ -154,12 +288,8 @@ public class ProductController {
         if (quantity < 0) {
             return ResponseEntity.badRequest().build();
         }
-        Optional<Product> optionalProduct = productRepository.findById(id);
-        if (optionalProduct.isPresent()) {
-            Product product = optionalProduct.get();
-            product.setStockQuantity(quantity);
-            return ResponseEntity.ok(productRepository.save(product));
-        }
-        return ResponseEntity.notFound().build();
+        return productService.updateStock(id, quantity)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 }
\ No newline at end of file
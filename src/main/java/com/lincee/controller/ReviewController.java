@@ -1,5 +1,6 @@
 package com.lincee.controller;
 
+import com.lincee.dto.CursorPageDTO;
 import com.lincee.dto.ReviewDTO;
 import com.lincee.service.ReviewService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -64,6 +65,19 @@ public class ReviewController {
         return ResponseEntity.ok(reviews);
     }
     
+    @GetMapping("/product/{productId}/cursor")
+    @Operation(summary = "Get product reviews by cursor", description = "Keyset-paginated reviews, newest first, without a total count")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Reviews retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or size")
+    })
+    public ResponseEntity<CursorPageDTO<ReviewDTO>> getProductReviewsByCursor(
+            @Parameter(description = "Product ID") @PathVariable Long productId,
+            @Parameter(description = "Cursor from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (1-100, default 20)") @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(reviewService.getProductReviewsByCursor(productId, cursor, size));
+    }
+    
     @GetMapping("/product/{productId}/list")
     @Operation(summary = "Get product reviews list", description = "Retrieve all reviews for a product as a list")
     @ApiResponse(responseCode = "200", description = "Reviews retrieved successfully")
@@ -4,6 +4,8 @@ import com.lincee.entity.Order;
 import com.lincee.entity.Payment;
 import com.lincee.repository.OrderRepository;
 import com.lincee.repository.PaymentRepository;
+import com.lincee.service.IdempotencyService;
+import com.lincee.service.PaymentService;
 import com.lincee.service.StripeService;
 import com.stripe.exception.SignatureVerificationException;
 import com.stripe.exception.StripeException;
@@ -18,6 +20,8 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -25,7 +29,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.*;
 
 @RestController
@@ -33,15 +36,23 @@ import java.util.*;
 @Tag(name = "Stripe Payment", description = "Stripe payment gateway integration endpoints")
 public class StripeController {
 
+    private static final Logger log = LoggerFactory.getLogger(StripeController.class);
+
     @Autowired
     private StripeService stripeService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @Autowired
     private OrderRepository orderRepository;
 
     @Autowired
     private PaymentRepository paymentRepository;
 
+    @Autowired
+    private PaymentService paymentService;
+
     @Value("${stripe.webhook.secret}")
     private String webhookSecret;
 
@@ -50,10 +61,18 @@ public class StripeController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Payment Intent created successfully"),
         @ApiResponse(responseCode = "400", description = "Invalid request data"),
-        @ApiResponse(responseCode = "404", description = "Order not found")
+        @ApiResponse(responseCode = "404", description = "Order not found"),
+        @ApiResponse(responseCode = "409", description = "A request with this idempotency key is still being processed")
     })
     public ResponseEntity<Map<String, Object>> createPaymentIntent(
-            @Parameter(description = "Order ID") @RequestParam Long orderId) {
+            @Parameter(description = "Order ID") @RequestParam Long orderId,
+            @Parameter(description = "Client-generated key; retries with the same key return the first response")
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("stripe:payment-intent", idempotencyKey, Map.of("orderId", orderId), Map.class,
+                () -> doCreatePaymentIntent(orderId, idempotencyKey));
+    }
+
+    private ResponseEntity<Map<String, Object>> doCreatePaymentIntent(Long orderId, String idempotencyKey) {
         try {
             Optional<Order> orderOpt = orderRepository.findById(orderId);
             if (!orderOpt.isPresent()) {
@@ -74,7 +93,8 @@ public class StripeController {
             PaymentIntent paymentIntent = stripeService.createPaymentIntent(
                 order.getTotalAmount(),
                 "usd",
-                metadata
+                metadata,
+                idempotencyKey
             );
 
             // Create or update payment record
@@ -109,10 +129,18 @@ public class StripeController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Checkout Session created successfully"),
         @ApiResponse(responseCode = "400", description = "Invalid request data"),
-        @ApiResponse(responseCode = "404", description = "Order not found")
+        @ApiResponse(responseCode = "404", description = "Order not found"),
+        @ApiResponse(responseCode = "409", description = "A request with this idempotency key is still being processed")
     })
     public ResponseEntity<Map<String, Object>> createCheckoutSession(
-            @Parameter(description = "Order ID") @RequestParam Long orderId) {
+            @Parameter(description = "Order ID") @RequestParam Long orderId,
+            @Parameter(description = "Client-generated key; retries with the same key return the first response")
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("stripe:checkout-session", idempotencyKey, Map.of("orderId", orderId), Map.class,
+                () -> doCreateCheckoutSession(orderId, idempotencyKey));
+    }
+
+    private ResponseEntity<Map<String, Object>> doCreateCheckoutSession(Long orderId, String idempotencyKey) {
         try {
             Optional<Order> orderOpt = orderRepository.findById(orderId);
             if (!orderOpt.isPresent()) {
@@ -138,7 +166,8 @@ public class StripeController {
                 order.getId(),
                 order.getTotalAmount(),
                 customerEmail,
-                lineItems
+                lineItems,
+                idempotencyKey
             );
 
             // Create or update payment record
@@ -247,7 +276,7 @@ public class StripeController {
                 handleCheckoutSessionCompleted((Session) stripeObject);
                 break;
             default:
-                System.out.println("Unhandled event type: " + event.getType());
+                log.debug("Unhandled Stripe event type: {}", event.getType());
         }
 
         return ResponseEntity.ok("Success");
@@ -256,51 +285,24 @@ public class StripeController {
     private void handlePaymentIntentSucceeded(PaymentIntent paymentIntent) {
         String paymentIntentId = paymentIntent.getId();
         
-        Optional<Payment> paymentOpt = paymentRepository.findByTransactionId(paymentIntentId);
-        if (paymentOpt.isPresent()) {
-            Payment payment = paymentOpt.get();
-            payment.setStatus(Payment.PaymentStatus.COMPLETED);
-            payment.setPaidAt(LocalDateTime.now());
-            
-            // Update order status
-            Order order = payment.getOrder();
-            order.setStatus(Order.OrderStatus.CONFIRMED);
-            orderRepository.save(order);
-            
-            paymentRepository.save(payment);
-            System.out.println("Payment succeeded for order: " + order.getOrderNumber());
+        if (paymentService.recordGatewaySuccess(paymentIntentId, null)) {
+            log.info("Payment succeeded for payment intent {}", paymentIntentId);
         }
     }
 
     private void handlePaymentIntentFailed(PaymentIntent paymentIntent) {
         String paymentIntentId = paymentIntent.getId();
         
-        Optional<Payment> paymentOpt = paymentRepository.findByTransactionId(paymentIntentId);
-        if (paymentOpt.isPresent()) {
-            Payment payment = paymentOpt.get();
-            payment.setStatus(Payment.PaymentStatus.FAILED);
-            paymentRepository.save(payment);
-            System.out.println("Payment failed for payment intent: " + paymentIntentId);
+        if (paymentService.recordGatewayFailure(paymentIntentId)) {
+            log.info("Payment failed for payment intent {}", paymentIntentId);
         }
     }
 
     private void handleCheckoutSessionCompleted(Session session) {
         String sessionId = session.getId();
         
-        Optional<Payment> paymentOpt = paymentRepository.findByTransactionId(sessionId);
-        if (paymentOpt.isPresent()) {
-            Payment payment = paymentOpt.get();
-            payment.setStatus(Payment.PaymentStatus.COMPLETED);
-            payment.setPaidAt(LocalDateTime.now());
-            payment.setReferenceNumber(session.getPaymentIntent());
-            
-            // Update order status
-            Order order = payment.getOrder();
-            order.setStatus(Order.OrderStatus.CONFIRMED);
-            orderRepository.save(order);
-            
-            paymentRepository.save(payment);
-            System.out.println("Checkout session completed for order: " + order.getOrderNumber());
+        if (paymentService.recordGatewaySuccess(sessionId, session.getPaymentIntent())) {
+            log.info("Checkout session {} completed", sessionId);
         }
     }
 }
@@ -2,6 +2,7 @@ package com.lincee.controller;
 
 import com.lincee.entity.User;
 import com.lincee.repository.UserRepository;
+import com.lincee.service.JwtPrincipalCache;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -25,6 +26,9 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private JwtPrincipalCache principalCache;
+
     @GetMapping
     @Operation(summary = "Get all users", description = "Retrieve a list of all users")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved users")
@@ -72,7 +76,10 @@ public class UserController {
             user.setFirstName(userDetails.getFirstName());
             user.setLastName(userDetails.getLastName());
             user.setPhoneNumber(userDetails.getPhoneNumber());
-            return ResponseEntity.ok(userRepository.save(user));
+            User saved = userRepository.save(user);
+            // Tokens carry the old claims; re-check them against the users table from now on
+            principalCache.revokeUser(id);
+            return ResponseEntity.ok(saved);
         }
         return ResponseEntity.notFound().build();
     }
@@ -87,6 +94,7 @@ public class UserController {
             @Parameter(description = "User ID") @PathVariable Long id) {
         if (userRepository.existsById(id)) {
             userRepository.deleteById(id);
+            principalCache.revokeUser(id);
             return ResponseEntity.ok().build();
         }
         return ResponseEntity.notFound().build();
@@ -0,0 +1,58 @@
+package com.lincee.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Result of a batch cart change: whether it was applied, the cart totals afterwards, and one
+ * result per request line, in request order.
+ */
+public class CartBatchResultDTO {
+    private boolean applied;
+    private Integer itemCount;
+    private BigDecimal totalPrice;
+    private List<CartLineResultDTO> results;
+    
+    // Constructors
+    public CartBatchResultDTO() {}
+    
+    public CartBatchResultDTO(boolean applied, Integer itemCount, BigDecimal totalPrice, List<CartLineResultDTO> results) {
+        this.applied = applied;
+        this.itemCount = itemCount;
+        this.totalPrice = totalPrice;
+        this.results = results;
+    }
+    
+    // Getters and Setters
+    public boolean isApplied() {
+        return applied;
+    }
+    
+    public void setApplied(boolean applied) {
+        this.applied = applied;
+    }
+    
+    public Integer getItemCount() {
+        return itemCount;
+    }
+    
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
+    
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+    
+    public void setTotalPrice(BigDecimal totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+    
+    public List<CartLineResultDTO> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<CartLineResultDTO> results) {
+        this.results = results;
+    }
+}
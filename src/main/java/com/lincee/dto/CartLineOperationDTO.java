@@ -0,0 +1,81 @@
+package com.lincee.dto;
+
+/**
+ * One line of a batch cart change. ADD takes a product, quantity and optional size/color, like
+ * the single add endpoint; UPDATE and REMOVE take the id of a line already in the cart. An UPDATE
+ * to zero removes the line.
+ */
+public class CartLineOperationDTO {
+    
+    public enum Action {
+        ADD, UPDATE, REMOVE
+    }
+    
+    private Action action;
+    private Long productId;
+    private Long cartItemId;
+    private Integer quantity;
+    private String size;
+    private String color;
+    
+    // Constructors
+    public CartLineOperationDTO() {}
+    
+    public CartLineOperationDTO(Action action, Long productId, Long cartItemId, Integer quantity, String size, String color) {
+        this.action = action;
+        this.productId = productId;
+        this.cartItemId = cartItemId;
+        this.quantity = quantity;
+        this.size = size;
+        this.color = color;
+    }
+    
+    // Getters and Setters
+    public Action getAction() {
+        return action;
+    }
+    
+    public void setAction(Action action) {
+        this.action = action;
+    }
+    
+    public Long getProductId() {
+        return productId;
+    }
+    
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+    
+    public Long getCartItemId() {
+        return cartItemId;
+    }
+    
+    public void setCartItemId(Long cartItemId) {
+        this.cartItemId = cartItemId;
+    }
+    
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+    
+    public String getSize() {
+        return size;
+    }
+    
+    public void setSize(String size) {
+        this.size = size;
+    }
+    
+    public String getColor() {
+        return color;
+    }
+    
+    public void setColor(String color) {
+        this.color = color;
+    }
+}
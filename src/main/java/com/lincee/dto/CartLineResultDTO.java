@@ -0,0 +1,104 @@
+package com.lincee.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of one line of a batch cart change, at the same {@code index} as the request line.
+ * A rejected line carries the error code the single-line endpoint would have returned; when any
+ * line is rejected the others are SKIPPED and nothing is written.
+ */
+public class CartLineResultDTO {
+    
+    public enum Outcome {
+        ADDED, UPDATED, REMOVED, REJECTED, SKIPPED
+    }
+    
+    private int index;
+    private Outcome outcome;
+    private Long cartItemId;
+    private Long productId;
+    private Integer quantity;
+    private BigDecimal unitPrice;
+    private String errorCode;
+    private String message;
+    
+    // Constructors
+    public CartLineResultDTO() {}
+    
+    public CartLineResultDTO(int index, Outcome outcome, Long cartItemId, Long productId, Integer quantity,
+                             BigDecimal unitPrice, String errorCode, String message) {
+        this.index = index;
+        this.outcome = outcome;
+        this.cartItemId = cartItemId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.errorCode = errorCode;
+        this.message = message;
+    }
+    
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public Outcome getOutcome() {
+        return outcome;
+    }
+    
+    public void setOutcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+    
+    public Long getCartItemId() {
+        return cartItemId;
+    }
+    
+    public void setCartItemId(Long cartItemId) {
+        this.cartItemId = cartItemId;
+    }
+    
+    public Long getProductId() {
+        return productId;
+    }
+    
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+    
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+    
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+    
+    public void setUnitPrice(BigDecimal unitPrice) {
+        this.unitPrice = unitPrice;
+    }
+    
+    public String getErrorCode() {
+        return errorCode;
+    }
+    
+    public void setErrorCode(String errorCode) {
+        this.errorCode = errorCode;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -22,6 +22,8 @@ public class OrderDTO {
     private LocalDateTime deliveryDate;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    // Version the client last saw; when sent on update, the write only applies to that version
+    private Long version;
     
     public OrderDTO() {}
     
@@ -169,4 +171,12 @@ public class OrderDTO {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
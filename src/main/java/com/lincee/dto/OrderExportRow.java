@@ -0,0 +1,102 @@
+package com.lincee.dto;
+
+import com.lincee.entity.Order.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One order line as read by the order export: the order's columns repeated on each of its
+ * items. Orders without items come through once with the item columns null. Built directly
+ * by the export query, so rows never enter the persistence context.
+ */
+public class OrderExportRow {
+    private final Long orderId;
+    private final String orderNumber;
+    private final LocalDateTime createdAt;
+    private final OrderStatus status;
+    private final Long userId;
+    private final BigDecimal totalAmount;
+    private final Long productId;
+    private final String productName;
+    private final String size;
+    private final String color;
+    private final Integer quantity;
+    private final BigDecimal unitPrice;
+    private final BigDecimal totalPrice;
+    
+    public OrderExportRow(Long orderId, String orderNumber, LocalDateTime createdAt, OrderStatus status,
+                          Long userId, BigDecimal totalAmount, Long productId, String productName,
+                          String size, String color, Integer quantity, BigDecimal unitPrice, BigDecimal totalPrice) {
+        this.orderId = orderId;
+        this.orderNumber = orderNumber;
+        this.createdAt = createdAt;
+        this.status = status;
+        this.userId = userId;
+        this.totalAmount = totalAmount;
+        this.productId = productId;
+        this.productName = productName;
+        this.size = size;
+        this.color = color;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.totalPrice = totalPrice;
+    }
+    
+    // Getters
+    public Long getOrderId() {
+        return orderId;
+    }
+    
+    public String getOrderNumber() {
+        return orderNumber;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public OrderStatus getStatus() {
+        return status;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+    
+    public Long getProductId() {
+        return productId;
+    }
+    
+    public String getProductName() {
+        return productName;
+    }
+    
+    public String getSize() {
+        return size;
+    }
+    
+    public String getColor() {
+        return color;
+    }
+    
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+    
+    public BigDecimal getTotalPrice() {
+        return totalPrice;
+    }
+    
+    public boolean hasItem() {
+        return productId != null;
+    }
+}
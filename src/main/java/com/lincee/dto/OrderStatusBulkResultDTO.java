@@ -0,0 +1,61 @@
+package com.lincee.dto;
+
+import java.util.List;
+
+/**
+ * Result of a bulk status update: counts by outcome and one result per request row, in
+ * request order.
+ */
+public class OrderStatusBulkResultDTO {
+    private int updated;
+    private int unchanged;
+    private int failed;
+    private List<OrderStatusUpdateResultDTO> results;
+    
+    // Constructors
+    public OrderStatusBulkResultDTO() {}
+    
+    public OrderStatusBulkResultDTO(List<OrderStatusUpdateResultDTO> results) {
+        this.results = results;
+        for (OrderStatusUpdateResultDTO result : results) {
+            switch (result.getOutcome()) {
+                case UPDATED -> updated++;
+                case UNCHANGED -> unchanged++;
+                default -> failed++;
+            }
+        }
+    }
+    
+    // Getters and Setters
+    public int getUpdated() {
+        return updated;
+    }
+    
+    public void setUpdated(int updated) {
+        this.updated = updated;
+    }
+    
+    public int getUnchanged() {
+        return unchanged;
+    }
+    
+    public void setUnchanged(int unchanged) {
+        this.unchanged = unchanged;
+    }
+    
+    public int getFailed() {
+        return failed;
+    }
+    
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+    
+    public List<OrderStatusUpdateResultDTO> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<OrderStatusUpdateResultDTO> results) {
+        this.results = results;
+    }
+}
@@ -0,0 +1,55 @@
+package com.lincee.dto;
+
+/**
+ * One row of a bulk status update. The order is identified by {@code orderId} or, when that
+ * is absent, by {@code orderNumber}. A null {@code trackingNumber} keeps the current one.
+ */
+public class OrderStatusUpdateDTO {
+    private Long orderId;
+    private String orderNumber;
+    private String status;
+    private String trackingNumber;
+    
+    // Constructors
+    public OrderStatusUpdateDTO() {}
+    
+    public OrderStatusUpdateDTO(Long orderId, String orderNumber, String status, String trackingNumber) {
+        this.orderId = orderId;
+        this.orderNumber = orderNumber;
+        this.status = status;
+        this.trackingNumber = trackingNumber;
+    }
+    
+    // Getters and Setters
+    public Long getOrderId() {
+        return orderId;
+    }
+    
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+    
+    public String getOrderNumber() {
+        return orderNumber;
+    }
+    
+    public void setOrderNumber(String orderNumber) {
+        this.orderNumber = orderNumber;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public String getTrackingNumber() {
+        return trackingNumber;
+    }
+    
+    public void setTrackingNumber(String trackingNumber) {
+        this.trackingNumber = trackingNumber;
+    }
+}
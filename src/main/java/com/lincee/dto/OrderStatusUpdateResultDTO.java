@@ -0,0 +1,79 @@
+package com.lincee.dto;
+
+/**
+ * Outcome of one row of a bulk status update, at the same {@code index} as the request row.
+ */
+public class OrderStatusUpdateResultDTO {
+    
+    public enum Outcome {
+        UPDATED, UNCHANGED, NOT_FOUND, INVALID, INVALID_TRANSITION, CONFLICT, ERROR
+    }
+    
+    private int index;
+    private Long orderId;
+    private String orderNumber;
+    private Outcome outcome;
+    private String status;
+    private String message;
+    
+    // Constructors
+    public OrderStatusUpdateResultDTO() {}
+    
+    public OrderStatusUpdateResultDTO(int index, Long orderId, String orderNumber, Outcome outcome, String status, String message) {
+        this.index = index;
+        this.orderId = orderId;
+        this.orderNumber = orderNumber;
+        this.outcome = outcome;
+        this.status = status;
+        this.message = message;
+    }
+    
+    // Getters and Setters
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public Long getOrderId() {
+        return orderId;
+    }
+    
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+    
+    public String getOrderNumber() {
+        return orderNumber;
+    }
+    
+    public void setOrderNumber(String orderNumber) {
+        this.orderNumber = orderNumber;
+    }
+    
+    public Outcome getOutcome() {
+        return outcome;
+    }
+    
+    public void setOutcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
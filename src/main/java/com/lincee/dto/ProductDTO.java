@@ -0,0 +1,232 @@
+package com.lincee.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read model for product listings and detail views. Unlike the entity it carries no
+ * lazy associations, so serializing it never goes back to the database.
+ */
+public class ProductDTO {
+    
+    private Long id;
+    private String name;
+    private String description;
+    private BigDecimal price;
+    private BigDecimal discountPrice;
+    private String category;
+    private String subCategory;
+    private String brand;
+    private Integer stockQuantity;
+    private Integer minStockLevel;
+    private List<String> availableSizes = new ArrayList<>();
+    private List<String> availableColors = new ArrayList<>();
+    private List<String> imageUrls = new ArrayList<>();
+    private Boolean active;
+    private Boolean featured;
+    private Integer weightGrams;
+    private String tags;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private List<CollectionSummaryDTO> collections = new ArrayList<>();
+    private List<ProductVariantDTO> variants = new ArrayList<>();
+
+    // Nested DTO for the collections a product belongs to
+    public static class CollectionSummaryDTO {
+        private Long id;
+        private String name;
+        private String slug;
+
+        public CollectionSummaryDTO() {}
+
+        public CollectionSummaryDTO(Long id, String name, String slug) {
+            this.id = id;
+            this.name = name;
+            this.slug = slug;
+        }
+
+        // Getters and Setters
+        public Long getId() { return id; }
+        public void setId(Long id) { this.id = id; }
+        
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        
+        public String getSlug() { return slug; }
+        public void setSlug(String slug) { this.slug = slug; }
+    }
+
+    // Constructors
+    public ProductDTO() {}
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public BigDecimal getDiscountPrice() {
+        return discountPrice;
+    }
+
+    public void setDiscountPrice(BigDecimal discountPrice) {
+        this.discountPrice = discountPrice;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public String getSubCategory() {
+        return subCategory;
+    }
+
+    public void setSubCategory(String subCategory) {
+        this.subCategory = subCategory;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public void setBrand(String brand) {
+        this.brand = brand;
+    }
+
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public void setStockQuantity(Integer stockQuantity) {
+        this.stockQuantity = stockQuantity;
+    }
+
+    public Integer getMinStockLevel() {
+        return minStockLevel;
+    }
+
+    public void setMinStockLevel(Integer minStockLevel) {
+        this.minStockLevel = minStockLevel;
+    }
+
+    public List<String> getAvailableSizes() {
+        return availableSizes;
+    }
+
+    public void setAvailableSizes(List<String> availableSizes) {
+        this.availableSizes = availableSizes;
+    }
+
+    public List<String> getAvailableColors() {
+        return availableColors;
+    }
+
+    public void setAvailableColors(List<String> availableColors) {
+        this.availableColors = availableColors;
+    }
+
+    public List<String> getImageUrls() {
+        return imageUrls;
+    }
+
+    public void setImageUrls(List<String> imageUrls) {
+        this.imageUrls = imageUrls;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+
+    public Boolean getFeatured() {
+        return featured;
+    }
+
+    public void setFeatured(Boolean featured) {
+        this.featured = featured;
+    }
+
+    public Integer getWeightGrams() {
+        return weightGrams;
+    }
+
+    public void setWeightGrams(Integer weightGrams) {
+        this.weightGrams = weightGrams;
+    }
+
+    public String getTags() {
+        return tags;
+    }
+
+    public void setTags(String tags) {
+        this.tags = tags;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public List<CollectionSummaryDTO> getCollections() {
+        return collections;
+    }
+
+    public void setCollections(List<CollectionSummaryDTO> collections) {
+        this.collections = collections;
+    }
+
+    public List<ProductVariantDTO> getVariants() {
+        return variants;
+    }
+
+    public void setVariants(List<ProductVariantDTO> variants) {
+        this.variants = variants;
+    }
+}
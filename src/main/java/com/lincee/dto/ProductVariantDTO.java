@@ -0,0 +1,104 @@
+package com.lincee.dto;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+
+import java.math.BigDecimal;
+
+public class ProductVariantDTO {
+    
+    private Long id;
+    
+    @NotBlank(message = "SKU is required")
+    private String sku;
+    
+    private String size;
+    private String color;
+    
+    @Min(value = 0, message = "Stock quantity cannot be negative")
+    private Integer stockQuantity;
+    
+    @DecimalMin(value = "0.0", inclusive = false, message = "Price override must be greater than 0")
+    private BigDecimal priceOverride;
+    
+    private BigDecimal price;
+    private Boolean active;
+    private Boolean inStock;
+
+    // Constructors
+    public ProductVariantDTO() {}
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getSku() {
+        return sku;
+    }
+
+    public void setSku(String sku) {
+        this.sku = sku;
+    }
+
+    public String getSize() {
+        return size;
+    }
+
+    public void setSize(String size) {
+        this.size = size;
+    }
+
+    public String getColor() {
+        return color;
+    }
+
+    public void setColor(String color) {
+        this.color = color;
+    }
+
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public void setStockQuantity(Integer stockQuantity) {
+        this.stockQuantity = stockQuantity;
+    }
+
+    public BigDecimal getPriceOverride() {
+        return priceOverride;
+    }
+
+    public void setPriceOverride(BigDecimal priceOverride) {
+        this.priceOverride = priceOverride;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+
+    public Boolean getInStock() {
+        return inStock;
+    }
+
+    public void setInStock(Boolean inStock) {
+        this.inStock = inStock;
+    }
+}
@@ -0,0 +1,119 @@
+package com.lincee.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * A completed order moved out of the orders tables once it is past the archive age.
+ * The order, its items and its payment are kept as one gzip-compressed JSON document
+ * (see {@code OrderArchiveCodec}); only the columns used for lookups are stored as such.
+ * The id is the order's original id.
+ */
+@Entity
+@Table(name = "archived_orders", indexes = {
+    @Index(name = "idx_archived_order_user_id", columnList = "user_id"),
+    @Index(name = "idx_archived_order_created_at", columnList = "created_at")
+})
+public class ArchivedOrder {
+    
+    @Id
+    private Long id;
+    
+    @NotBlank
+    @Column(name = "order_number", unique = true, nullable = false)
+    private String orderNumber;
+    
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Order.OrderStatus status;
+    
+    @NotNull
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @NotNull
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+    
+    @NotNull
+    @Column(nullable = false, length = 1048576)
+    private byte[] payload;
+    
+    // Constructors
+    public ArchivedOrder() {}
+    
+    public ArchivedOrder(Long id, String orderNumber, Long userId, Order.OrderStatus status,
+                         LocalDateTime createdAt, LocalDateTime archivedAt, byte[] payload) {
+        this.id = id;
+        this.orderNumber = orderNumber;
+        this.userId = userId;
+        this.status = status;
+        this.createdAt = createdAt;
+        this.archivedAt = archivedAt;
+        this.payload = payload;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getOrderNumber() {
+        return orderNumber;
+    }
+    
+    public void setOrderNumber(String orderNumber) {
+        this.orderNumber = orderNumber;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+    
+    public Order.OrderStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Order.OrderStatus status) {
+        this.status = status;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getArchivedAt() {
+        return archivedAt;
+    }
+    
+    public void setArchivedAt(LocalDateTime archivedAt) {
+        this.archivedAt = archivedAt;
+    }
+    
+    public byte[] getPayload() {
+        return payload;
+    }
+    
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+}
@@ -57,20 +57,21 @@ public class Cart {
         if (!items.contains(item)) {
             items.add(item);
             item.setCart(this);
-            updateTotals();
+            applyDelta(1, item.getSubTotal());
         }
     }
     
     public void removeItem(CartItem item) {
-        items.remove(item);
-        updateTotals();
+        if (items.remove(item)) {
+            applyDelta(-1, item.getSubTotal().negate());
+        }
     }
     
-    public void updateTotals() {
-        this.itemCount = items.size();
-        this.totalPrice = items.stream()
-            .map(CartItem::getSubTotal)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // Moves the totals by one line's change; CartService does the same in SQL
+    // (CartRepository.adjustTotals) so it never has to load the items.
+    public void applyDelta(int lines, BigDecimal amount) {
+        this.itemCount = (itemCount != null ? itemCount : 0) + lines;
+        this.totalPrice = (totalPrice != null ? totalPrice : BigDecimal.ZERO).add(amount);
     }
     
     public void clearCart() {
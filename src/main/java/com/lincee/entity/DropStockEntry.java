@@ -0,0 +1,80 @@
+package com.lincee.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * A sale of a drop-mode product not yet applied to products.stock_quantity.
+ * Written in the order's transaction; DropStockService applies and deletes entries in batches.
+ */
+@Entity
+@Table(name = "drop_stock_ledger", indexes = {
+    @Index(name = "idx_drop_stock_ledger_product_id", columnList = "product_id")
+})
+public class DropStockEntry {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotNull
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    
+    @NotNull
+    @Column(nullable = false)
+    private Integer quantity;
+    
+    @Column(name = "order_number")
+    private String orderNumber;
+    
+    @NotNull
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    // Constructors
+    public DropStockEntry() {}
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Long getProductId() {
+        return productId;
+    }
+    
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+    
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+    
+    public String getOrderNumber() {
+        return orderNumber;
+    }
+    
+    public void setOrderNumber(String orderNumber) {
+        this.orderNumber = orderNumber;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
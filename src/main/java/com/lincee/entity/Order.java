@@ -4,19 +4,25 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Entity
 @Table(name = "orders", indexes = {
     @Index(name = "idx_order_user_id", columnList = "user_id"),
     @Index(name = "idx_order_status", columnList = "status"),
-    @Index(name = "idx_order_created_date", columnList = "created_at")
+    @Index(name = "idx_order_created_date", columnList = "created_at"),
+    @Index(name = "idx_order_status_created", columnList = "status, created_at")
 })
 public class Order {
     
@@ -88,6 +94,12 @@ public class Order {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
     
+    // Bumped on every write; status changes compare-and-set it (see OrderService.changeStatus)
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+    
     // Constructors
     public Order() {}
     
@@ -241,7 +253,27 @@ public class Order {
         this.updatedAt = updatedAt;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     public enum OrderStatus {
-        PENDING, CONFIRMED, PROCESSING, SHIPPED, DELIVERED, CANCELLED, RETURNED
+        PENDING, CONFIRMED, PROCESSING, SHIPPED, DELIVERED, CANCELLED, RETURNED;
+        
+        // Allowed transitions; CANCELLED and RETURNED are final
+        private static final Map<OrderStatus, Set<OrderStatus>> NEXT = new EnumMap<>(Map.of(
+                PENDING, EnumSet.of(CONFIRMED, CANCELLED),
+                CONFIRMED, EnumSet.of(PROCESSING, CANCELLED),
+                PROCESSING, EnumSet.of(SHIPPED, CANCELLED),
+                SHIPPED, EnumSet.of(DELIVERED),
+                DELIVERED, EnumSet.of(RETURNED)));
+        
+        public boolean canTransitionTo(OrderStatus status) {
+            return NEXT.getOrDefault(this, Set.of()).contains(status);
+        }
     }
 }
@@ -16,8 +16,10 @@ import java.time.LocalDateTime;
 })
 public class OrderItem {
     
+    // Pooled sequence rather than IDENTITY so Hibernate can batch the inserts of an order's lines
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_seq")
+    @SequenceGenerator(name = "order_item_seq", sequenceName = "order_items_seq", allocationSize = 20)
     private Long id;
     
     @NotNull
@@ -1,6 +1,8 @@
 package com.lincee.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.lincee.service.ProductIndexingListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
@@ -15,10 +17,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(ProductIndexingListener.class)
 @Table(name = "products", indexes = {
     @Index(name = "idx_product_name", columnList = "name"),
     @Index(name = "idx_product_category", columnList = "category"),
-    @Index(name = "idx_product_price", columnList = "price")
+    @Index(name = "idx_product_price", columnList = "price"),
+    @Index(name = "idx_product_price_id", columnList = "price, id"),
+    @Index(name = "idx_product_created_at", columnList = "created_at, id")
 })
 public class Product {
     
@@ -82,6 +87,10 @@ public class Product {
     @Column(name = "weight_grams")
     private Integer weightGrams;
     
+    // Sold from DropStockService's in-memory counter instead of row updates (limited drops)
+    @Column(name = "drop_mode")
+    private Boolean dropMode = false;
+    
     @Column(columnDefinition = "TEXT")
     private String tags;
     
@@ -106,7 +115,12 @@ public class Product {
     @JsonIgnore
     private List<Review> reviews = new ArrayList<>();
 
+    @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @JsonIgnore
+    private List<ProductVariant> variants = new ArrayList<>();
+
     @ManyToMany(mappedBy = "products", fetch = FetchType.LAZY)
+    @JsonIgnoreProperties("products")
     private List<Collection> collections = new ArrayList<>();
 
     // Constructors
@@ -168,6 +182,9 @@ public class Product {
     public Integer getWeightGrams() { return weightGrams; }
     public void setWeightGrams(Integer weightGrams) { this.weightGrams = weightGrams; }
     
+    public Boolean getDropMode() { return dropMode; }
+    public void setDropMode(Boolean dropMode) { this.dropMode = dropMode; }
+    
     public String getTags() { return tags; }
     public void setTags(String tags) { this.tags = tags; }
     
@@ -187,6 +204,9 @@ public class Product {
     public List<Review> getReviews() { return reviews; }
     public void setReviews(List<Review> reviews) { this.reviews = reviews; }
 
+    public List<ProductVariant> getVariants() { return variants; }
+    public void setVariants(List<ProductVariant> variants) { this.variants = variants; }
+
     public List<Collection> getCollections() { return collections; }
     public void setCollections(List<Collection> collections) { this.collections = collections; }
 }
\ No newline at end of file
@@ -0,0 +1,187 @@
+package com.lincee.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A sellable size/color combination of a product with its own stock.
+ * The parent product's stockQuantity is kept equal to the sum over its variants.
+ */
+@Entity
+@Table(name = "product_variants",
+    indexes = {
+        @Index(name = "idx_variant_product_id", columnList = "product_id")
+    },
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_variant_sku", columnNames = {"sku"}),
+        @UniqueConstraint(name = "uk_variant_product_size_color", columnNames = {"product_id", "size", "color"})
+    }
+)
+public class ProductVariant {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotNull
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    @JsonIgnore
+    private Product product;
+    
+    @NotBlank
+    @Column(nullable = false, length = 64)
+    private String sku;
+    
+    @Column(name = "size")
+    private String size;
+    
+    @Column(name = "color")
+    private String color;
+    
+    @NotNull
+    @Min(0)
+    @Column(name = "stock_quantity", nullable = false)
+    private Integer stockQuantity = 0;
+    
+    @DecimalMin(value = "0.0", inclusive = false)
+    @Column(name = "price_override", precision = 10, scale = 2)
+    private BigDecimal priceOverride;
+    
+    @Column(nullable = false)
+    private Boolean active = true;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    // Constructors
+    public ProductVariant() {}
+    
+    public ProductVariant(Product product, String sku, String size, String color, Integer stockQuantity) {
+        this.product = product;
+        this.sku = sku;
+        this.size = size;
+        this.color = color;
+        this.stockQuantity = stockQuantity;
+    }
+    
+    // Methods
+    public BigDecimal getEffectivePrice() {
+        if (priceOverride != null) {
+            return priceOverride;
+        }
+        return product.getDiscountPrice() != null ? product.getDiscountPrice() : product.getPrice();
+    }
+    
+    // A variant without a size or color matches any requested value for that axis
+    public boolean matches(String size, String color) {
+        return (this.size == null || this.size.equalsIgnoreCase(size))
+                && (this.color == null || this.color.equalsIgnoreCase(color));
+    }
+    
+    public String getLabel() {
+        return label(size, color, sku);
+    }
+    
+    public static String label(String size, String color, String sku) {
+        if (size != null && color != null) {
+            return size + " / " + color;
+        }
+        return size != null ? size : color != null ? color : sku;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public Product getProduct() {
+        return product;
+    }
+    
+    public void setProduct(Product product) {
+        this.product = product;
+    }
+    
+    public String getSku() {
+        return sku;
+    }
+    
+    public void setSku(String sku) {
+        this.sku = sku;
+    }
+    
+    public String getSize() {
+        return size;
+    }
+    
+    public void setSize(String size) {
+        this.size = size;
+    }
+    
+    public String getColor() {
+        return color;
+    }
+    
+    public void setColor(String color) {
+        this.color = color;
+    }
+    
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+    
+    public void setStockQuantity(Integer stockQuantity) {
+        this.stockQuantity = stockQuantity;
+    }
+    
+    public BigDecimal getPriceOverride() {
+        return priceOverride;
+    }
+    
+    public void setPriceOverride(BigDecimal priceOverride) {
+        this.priceOverride = priceOverride;
+    }
+    
+    public Boolean getActive() {
+        return active;
+    }
+    
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -41,6 +41,10 @@ public enum ErrorCode {
     EMAIL_ALREADY_EXISTS(HttpStatus.CONFLICT, "EMAIL_ALREADY_EXISTS", "Email is already registered"),
     USERNAME_ALREADY_EXISTS(HttpStatus.CONFLICT, "USERNAME_ALREADY_EXISTS", "Username is already taken"),
     DUPLICATE_PRODUCT(HttpStatus.CONFLICT, "DUPLICATE_PRODUCT", "Product already exists"),
+    IDEMPOTENCY_KEY_IN_USE(HttpStatus.CONFLICT, "IDEMPOTENCY_KEY_IN_USE", "A request with this idempotency key is still being processed"),
+    CONCURRENT_MODIFICATION(HttpStatus.CONFLICT, "CONCURRENT_MODIFICATION", "The resource was changed by another request; reload and try again"),
+    INVALID_STATUS_TRANSITION(HttpStatus.CONFLICT, "INVALID_STATUS_TRANSITION", "The requested status change is not allowed from the current status"),
+    IDEMPOTENCY_KEY_MISMATCH(HttpStatus.UNPROCESSABLE_ENTITY, "IDEMPOTENCY_KEY_MISMATCH", "Idempotency key was already used with a different request"),
     
     // Business Logic Errors (400)
     INSUFFICIENT_STOCK(HttpStatus.BAD_REQUEST, "INSUFFICIENT_STOCK", "Insufficient stock available for this product"),
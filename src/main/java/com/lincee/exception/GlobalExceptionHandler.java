@@ -2,6 +2,7 @@ package com.lincee.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -38,6 +39,21 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, ex.getErrorCode().getHttpStatus());
     }
     
+    /**
+     * Handle stock shortages, listing every short order line
+     */
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<ApiErrorResponse> handleInsufficientStock(
+            InsufficientStockException ex,
+            WebRequest request) {
+        
+        ApiErrorResponse errorResponse = new ApiErrorResponse(ex.getErrorCode(), ex.getDetails());
+        errorResponse.setFieldErrors(ex.getShortLines());
+        errorResponse.setPath(request.getDescription(false).replace("uri=", ""));
+        
+        return new ResponseEntity<>(errorResponse, ex.getErrorCode().getHttpStatus());
+    }
+    
     /**
      * Handle validation errors
      */
@@ -75,6 +91,20 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.PAYLOAD_TOO_LARGE);
     }
     
+    /**
+     * Handle writes that lost an optimistic version check
+     */
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiErrorResponse> handleOptimisticLockingFailure(
+            OptimisticLockingFailureException ex,
+            WebRequest request) {
+
+        ApiErrorResponse errorResponse = new ApiErrorResponse(ErrorCode.CONCURRENT_MODIFICATION);
+        errorResponse.setPath(request.getDescription(false).replace("uri=", ""));
+
+        return new ResponseEntity<>(errorResponse, ErrorCode.CONCURRENT_MODIFICATION.getHttpStatus());
+    }
+    
     /**
      * Handle resource not found exceptions
      */
@@ -0,0 +1,22 @@
+package com.lincee.exception;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Raised when one or more order lines cannot be reserved.
+ * Each short line is keyed by its position in the request, e.g. "orderItems[2]".
+ */
+public class InsufficientStockException extends ApiException {
+
+    private final Map<String, String> shortLines;
+
+    public InsufficientStockException(Map<String, String> shortLines) {
+        super(ErrorCode.INSUFFICIENT_STOCK, shortLines.size() + " order line(s) exceed available stock");
+        this.shortLines = new LinkedHashMap<>(shortLines);
+    }
+
+    public Map<String, String> getShortLines() {
+        return shortLines;
+    }
+}
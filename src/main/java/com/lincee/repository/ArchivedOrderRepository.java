@@ -0,0 +1,12 @@
+package com.lincee.repository;
+
+import com.lincee.entity.ArchivedOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+    Optional<ArchivedOrder> findByOrderNumber(String orderNumber);
+}
@@ -20,5 +20,11 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     @Query("SELECT ci FROM CartItem ci WHERE ci.cart.user.id = :userId")
     List<CartItem> findByUserId(@Param("userId") Long userId);
 
+    // Units of a product in the cart on lines other than excludeId
+    @Query("SELECT COALESCE(SUM(ci.quantity), 0) FROM CartItem ci "
+            + "WHERE ci.cart.id = :cartId AND ci.product.id = :productId AND ci.id <> :excludeId")
+    long sumQuantityByCartIdAndProductIdExcept(@Param("cartId") Long cartId, @Param("productId") Long productId,
+                                               @Param("excludeId") Long excludeId);
+
     void deleteByCartId(Long cartId);
 }
@@ -2,12 +2,25 @@ package com.lincee.repository;
 
 import com.lincee.entity.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUserId(Long userId);
     boolean existsByUserId(Long userId);
+
+    // Totals move by the changed lines only, as one atomic UPDATE, so the cost does not grow
+    // with the cart and concurrent edits to the same cart add up instead of overwriting
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Cart c SET c.itemCount = COALESCE(c.itemCount, 0) + :lines, "
+            + "c.totalPrice = COALESCE(c.totalPrice, 0) + :amount, c.updatedAt = :now WHERE c.id = :id")
+    int adjustTotals(@Param("id") Long id, @Param("lines") int lines, @Param("amount") BigDecimal amount,
+                     @Param("now") LocalDateTime now);
 }
@@ -1,17 +1,24 @@
 package com.lincee.repository;
 
+import com.lincee.dto.OrderExportRow;
 import com.lincee.entity.Order;
 import com.lincee.entity.Order.OrderStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -28,6 +35,110 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT o FROM Order o WHERE o.createdAt BETWEEN :startDate AND :endDate ORDER BY o.createdAt DESC")
     List<Order> findOrdersByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
+    // Order listings page over ids first and hydrate the page with findWithItemsByIdIn, so a page
+    // costs the same few statements whatever its size. Loading Order rows directly would also
+    // load each order's payment (the inverse one-to-one cannot be lazy) one statement at a time.
+    @Query(value = "SELECT o.id FROM Order o WHERE o.user.id = :userId",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.user.id = :userId")
+    Page<Long> findIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+    
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId ORDER BY o.id")
+    List<Long> findIdsByUserId(@Param("userId") Long userId);
+    
+    @Query(value = "SELECT o.id FROM Order o WHERE o.status = :status",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.status = :status")
+    Page<Long> findIdsByStatus(@Param("status") OrderStatus status, Pageable pageable);
+    
+    @Query("SELECT o.id FROM Order o WHERE o.createdAt BETWEEN :startDate AND :endDate ORDER BY o.createdAt DESC")
+    List<Long> findIdsByDateRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.payment " +
+           "LEFT JOIN FETCH o.orderItems oi LEFT JOIN FETCH oi.product WHERE o.id IN :ids")
+    List<Order> findWithItemsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.payment " +
+           "LEFT JOIN FETCH o.orderItems oi LEFT JOIN FETCH oi.product WHERE o.orderNumber = :orderNumber")
+    Optional<Order> findWithItemsByOrderNumber(@Param("orderNumber") String orderNumber);
+    
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.payment WHERE o.user.id = :userId ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findUserOrdersNewest(@Param("userId") Long userId, Pageable pageable);
+    
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.payment WHERE o.user.id = :userId " +
+           "AND o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findUserOrdersNewestAfter(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.payment WHERE o.status = :status ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findByStatusNewest(@Param("status") OrderStatus status, Pageable pageable);
+    
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.payment WHERE o.status = :status " +
+           "AND o.createdAt <= :createdAt AND (o.createdAt < :createdAt OR o.id < :id) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<Order> findByStatusNewestAfter(@Param("status") OrderStatus status, @Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") Long id, Pageable pageable);
+    
+    String EXPORT_FETCH_SIZE = "500";
+    
+    // Forward-only cursor for the order export: rows come from the driver EXPORT_FETCH_SIZE at a
+    // time and are unmanaged projections, so memory stays flat however wide the range. Must be
+    // consumed inside a transaction (PostgreSQL only honours the fetch size with autocommit off).
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.lincee.dto.OrderExportRow(o.id, o.orderNumber, o.createdAt, o.status, o.user.id, " +
+           "o.totalAmount, p.id, p.name, oi.size, oi.color, oi.quantity, oi.unitPrice, oi.totalPrice) " +
+           "FROM Order o LEFT JOIN o.orderItems oi LEFT JOIN oi.product p " +
+           "WHERE o.createdAt BETWEEN :startDate AND :endDate ORDER BY o.createdAt, o.id, oi.id")
+    Stream<OrderExportRow> streamExportRows(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+    
+    @Query("SELECT o.id FROM Order o WHERE o.status IN :statuses AND o.createdAt < :before ORDER BY o.createdAt, o.id")
+    List<Long> findIdsToArchive(@Param("statuses") Collection<OrderStatus> statuses,
+                                @Param("before") LocalDateTime before, Pageable pageable);
+    
+    // Bulk deletes for archiving; items and the payment go first because they reference the order
+    @Modifying
+    @Query("DELETE FROM OrderItem oi WHERE oi.order.id IN :ids")
+    int deleteItemsByOrderIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Modifying
+    @Query("DELETE FROM Payment p WHERE p.order.id IN :ids")
+    int deletePaymentsByOrderIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Order o WHERE o.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+    
+    interface StatusVersion {
+        OrderStatus getStatus();
+        Long getVersion();
+    }
+    
+    @Query("SELECT o.status AS status, o.version AS version FROM Order o WHERE o.id = :id")
+    Optional<StatusVersion> findStatusVersionById(@Param("id") Long id);
+    
+    interface StatusSnapshot extends StatusVersion {
+        Long getId();
+        String getOrderNumber();
+        String getTrackingNumber();
+    }
+    
+    @Query("SELECT o.id AS id, o.orderNumber AS orderNumber, o.status AS status, o.version AS version, "
+            + "o.trackingNumber AS trackingNumber FROM Order o WHERE o.id IN :ids")
+    List<StatusSnapshot> findStatusSnapshotsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT o.id AS id, o.orderNumber AS orderNumber, o.status AS status, o.version AS version, "
+            + "o.trackingNumber AS trackingNumber FROM Order o WHERE o.orderNumber IN :orderNumbers")
+    List<StatusSnapshot> findStatusSnapshotsByOrderNumberIn(@Param("orderNumbers") Collection<String> orderNumbers);
+    
+    // Compare-and-set: changes nothing unless the row is still at the version the caller read
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :status, o.version = o.version + 1, o.updatedAt = :now "
+            + "WHERE o.id = :id AND o.version = :version")
+    int updateStatusIfVersion(@Param("id") Long id, @Param("version") Long version,
+                              @Param("status") OrderStatus status, @Param("now") LocalDateTime now);
+    
     @Query("SELECT COUNT(o) FROM Order o WHERE o.status = :status")
     Long countByStatus(@Param("status") OrderStatus status);
     
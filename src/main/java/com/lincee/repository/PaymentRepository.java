@@ -3,10 +3,13 @@ package com.lincee.repository;
 import com.lincee.entity.Payment;
 import com.lincee.entity.Payment.PaymentStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +22,26 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     @Query("SELECT p FROM Payment p WHERE p.order.user.id = :userId ORDER BY p.createdAt DESC")
     List<Payment> findByUserId(@Param("userId") Long userId);
     
+    // Gateway results arrive as webhooks that can repeat or come out of order; each is one
+    // conditional update that leaves payments already in a settled status untouched
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Payment p SET p.status = :completed, p.paidAt = :paidAt, "
+            + "p.referenceNumber = COALESCE(CAST(:referenceNumber AS String), p.referenceNumber), "
+            + "p.version = p.version + 1, p.updatedAt = :paidAt "
+            + "WHERE p.transactionId = :transactionId AND p.status NOT IN :settled")
+    int markCompleted(@Param("transactionId") String transactionId, @Param("referenceNumber") String referenceNumber,
+                      @Param("paidAt") LocalDateTime paidAt, @Param("completed") PaymentStatus completed,
+                      @Param("settled") Collection<PaymentStatus> settled);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Payment p SET p.status = :failed, p.version = p.version + 1, p.updatedAt = :now "
+            + "WHERE p.transactionId = :transactionId AND p.status NOT IN :settled")
+    int markFailed(@Param("transactionId") String transactionId, @Param("now") LocalDateTime now,
+                   @Param("failed") PaymentStatus failed, @Param("settled") Collection<PaymentStatus> settled);
+    
+    @Query("SELECT p.order.id FROM Payment p WHERE p.transactionId = :transactionId")
+    Optional<Long> findOrderIdByTransactionId(@Param("transactionId") String transactionId);
+    
     @Query("SELECT COUNT(p) FROM Payment p WHERE p.status = :status")
     Long countByStatus(@Param("status") PaymentStatus status);
 }
@@ -3,11 +3,18 @@ package com.lincee.repository;
 import com.lincee.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
@@ -15,8 +22,65 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     Page<Product> findByBrand(String brand, Pageable pageable);
     Page<Product> findByActiveTrue(Pageable pageable);
     List<Product> findByFeaturedTrue();
+    List<Product> findByDropModeTrue();
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Product p WHERE p.id = :id")
+    Optional<Product> findByIdForUpdate(@Param("id") Long id);
     Long countByActiveTrue();
     
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
+    @Query("SELECT p.stockQuantity FROM Product p WHERE p.id = :id")
+    Integer findStockQuantityById(@Param("id") Long id);
+    
+    // Keyset pagination: the leading range predicate lets the index seek straight to the cursor,
+    // the second one only breaks ties on the sort value. The active and unfiltered variants are
+    // separate queries because an "(:flag = false OR ...)" predicate keeps the planner off the index.
+    @Query("SELECT p FROM Product p ORDER BY p.createdAt DESC, p.id DESC")
+    List<Product> findNewest(Pageable pageable);
+    
+    @Query("SELECT p FROM Product p WHERE p.createdAt <= :createdAt AND (p.createdAt < :createdAt OR p.id < :id) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Product> findNewestAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT p FROM Product p WHERE p.active = true ORDER BY p.createdAt DESC, p.id DESC")
+    List<Product> findNewestActive(Pageable pageable);
+    
+    @Query("SELECT p FROM Product p WHERE p.active = true " +
+           "AND p.createdAt <= :createdAt AND (p.createdAt < :createdAt OR p.id < :id) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Product> findNewestActiveAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                        Pageable pageable);
+    
+    @Query("SELECT p FROM Product p ORDER BY p.price ASC, p.id ASC")
+    List<Product> findCheapest(Pageable pageable);
+    
+    @Query("SELECT p FROM Product p WHERE p.price >= :price AND (p.price > :price OR p.id > :id) " +
+           "ORDER BY p.price ASC, p.id ASC")
+    List<Product> findCheapestAfter(@Param("price") BigDecimal price, @Param("id") Long id, Pageable pageable);
+    
+    @Query("SELECT p FROM Product p WHERE p.active = true ORDER BY p.price ASC, p.id ASC")
+    List<Product> findCheapestActive(Pageable pageable);
+    
+    @Query("SELECT p FROM Product p WHERE p.active = true " +
+           "AND p.price >= :price AND (p.price > :price OR p.id > :id) " +
+           "ORDER BY p.price ASC, p.id ASC")
+    List<Product> findCheapestActiveAfter(@Param("price") BigDecimal price, @Param("id") Long id, Pageable pageable);
+    
+    // Batch loaders for the product read model: one statement per association for a whole page
+    @Query("SELECT p.id, s FROM Product p JOIN p.availableSizes s WHERE p.id IN :ids")
+    List<Object[]> findSizesByProductIds(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.id, c FROM Product p JOIN p.availableColors c WHERE p.id IN :ids")
+    List<Object[]> findColorsByProductIds(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.id, i FROM Product p JOIN p.imageUrls i WHERE p.id IN :ids")
+    List<Object[]> findImageUrlsByProductIds(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT p.id, c.id, c.name, c.slug FROM Product p JOIN p.collections c WHERE p.id IN :ids ORDER BY c.displayOrder, c.name")
+    List<Object[]> findCollectionSummariesByProductIds(@Param("ids") Collection<Long> ids);
+    
     @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%'))")
     Page<Product> searchProducts(String keyword, Pageable pageable);
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.lincee.repository;
+
+import com.lincee.entity.ProductVariant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long> {
+    List<ProductVariant> findByProductIdOrderByIdAsc(Long productId);
+    
+    List<ProductVariant> findByProductIdIn(Collection<Long> productIds);
+    
+    boolean existsBySku(String sku);
+    boolean existsByProductId(Long productId);
+    
+    // Variant availability for a whole listing page in one statement
+    @Query("SELECT v.product.id, v.id, v.sku, v.size, v.color, v.stockQuantity, v.priceOverride " +
+           "FROM ProductVariant v WHERE v.product.id IN :ids AND v.active = true ORDER BY v.id")
+    List<Object[]> findActiveVariantRowsByProductIds(@Param("ids") Collection<Long> ids);
+    
+    @Query("SELECT COALESCE(SUM(v.stockQuantity), 0) FROM ProductVariant v WHERE v.product.id = :productId")
+    int sumStockByProductId(@Param("productId") Long productId);
+    
+    @Query("SELECT v.stockQuantity FROM ProductVariant v WHERE v.id = :id")
+    Integer findStockQuantityById(@Param("id") Long id);
+}
@@ -0,0 +1,33 @@
+package com.lincee.repository;
+
+import com.lincee.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    // Matches no row if the chain was rotated or revoked since the caller read it
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE RefreshToken t SET t.generation = t.generation + 1, t.expiresAt = :expiresAt " +
+           "WHERE t.id = :id AND t.generation = :generation AND t.revoked = false")
+    int rotate(@Param("id") Long id, @Param("generation") int generation, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE RefreshToken t SET t.revoked = true WHERE t.id = :id")
+    int revoke(@Param("id") Long id);
+
+    // Called from the sweep timer outside any service transaction
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,37 @@
+package com.lincee.repository;
+
+import com.lincee.entity.StockHold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockHoldRepository extends JpaRepository<StockHold, Long> {
+    Optional<StockHold> findByUserIdAndProductId(Long userId, Long productId);
+    
+    List<StockHold> findByExpiresAtAfter(LocalDateTime now);
+    
+    // Zero when the user has no hold on the product yet
+    @Modifying
+    @Query("UPDATE StockHold h SET h.quantity = :quantity, h.expiresAt = :expiresAt, h.updatedAt = :now " +
+           "WHERE h.userId = :userId AND h.productId = :productId")
+    int updateHold(@Param("userId") Long userId, @Param("productId") Long productId, @Param("quantity") int quantity,
+                   @Param("expiresAt") LocalDateTime expiresAt, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("DELETE FROM StockHold h WHERE h.userId = :userId AND h.productId = :productId")
+    int deleteByUserIdAndProductId(@Param("userId") Long userId, @Param("productId") Long productId);
+    
+    // Called from the expiry timer outside any service transaction
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StockHold h WHERE h.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,446 @@
+package com.lincee.service;
+
+import com.lincee.dto.CartBatchResultDTO;
+import com.lincee.dto.CartLineOperationDTO;
+import com.lincee.dto.CartLineOperationDTO.Action;
+import com.lincee.dto.CartLineResultDTO;
+import com.lincee.dto.CartLineResultDTO.Outcome;
+import com.lincee.entity.Cart;
+import com.lincee.entity.ProductVariant;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.repository.CartRepository;
+import com.lincee.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Adds, updates and removes many cart lines in one request, for restoring a saved cart or
+ * reordering a past order.
+ *
+ * The cart's lines and every product involved (with sizes, colors and variants) are read up
+ * front with a handful of IN queries, and each operation is checked in memory, in request order,
+ * with the same rules and error codes as the single-line endpoints. The batch is all or nothing:
+ * if any line is rejected nothing is written. Otherwise the changes are written in one transaction
+ * as JDBC batches. Updates and deletes only apply while a line still has the quantity that was
+ * read, so a batch that races another cart edit is re-read and checked again.
+ */
+@Service
+public class CartBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(CartBatchService.class);
+
+    public static final int MAX_LINES = 200;
+
+    private static final String CART_SQL =
+            "SELECT u.id AS user_id, c.id AS cart_id, c.item_count, c.total_price FROM users u "
+            + "LEFT JOIN carts c ON c.user_id = u.id WHERE u.id = ?";
+
+    private static final String LINES_SQL =
+            "SELECT id, product_id, quantity, unit_price, size, color FROM cart_items WHERE cart_id = ? ORDER BY id";
+
+    private static final String UPDATE_LINE_SQL =
+            "UPDATE cart_items SET quantity = ?, unit_price = ? WHERE id = ? AND quantity = ?";
+
+    private static final String DELETE_LINE_SQL = "DELETE FROM cart_items WHERE id = ? AND quantity = ?";
+
+    private record CartRow(Long cartId, Integer itemCount, BigDecimal totalPrice) {}
+
+    private record ProductRow(Long id, String name, Boolean active, BigDecimal price, BigDecimal discountPrice,
+                              int stock, Set<String> sizes, Set<String> colors, List<VariantRow> variants) {
+        BigDecimal effectivePrice() {
+            return discountPrice != null ? discountPrice : price;
+        }
+    }
+
+    private record VariantRow(Long id, String sku, String size, String color, int stock, BigDecimal priceOverride,
+                              boolean active) {
+        // Same rule as ProductVariant#matches
+        boolean matches(String size, String color) {
+            return (this.size == null || this.size.equalsIgnoreCase(size))
+                    && (this.color == null || this.color.equalsIgnoreCase(color));
+        }
+    }
+
+    // A cart line as the batch sees it; id is null for a line the batch adds
+    private static final class Line {
+        final Long id;
+        final Long productId;
+        final String size;
+        final String color;
+        final int originalQuantity;
+        final BigDecimal originalPrice;
+        int quantity;
+        BigDecimal unitPrice;
+        Long newId;
+
+        Line(Long id, Long productId, String size, String color, int quantity, BigDecimal unitPrice) {
+            this.id = id;
+            this.productId = productId;
+            this.size = size;
+            this.color = color;
+            this.originalQuantity = quantity;
+            this.originalPrice = unitPrice;
+            this.quantity = quantity;
+            this.unitPrice = unitPrice;
+        }
+
+        Long currentId() {
+            return id != null ? id : newId;
+        }
+
+        boolean changed() {
+            return quantity != originalQuantity || unitPrice.compareTo(originalPrice) != 0;
+        }
+    }
+
+    // A line's results are filled in with its id once new lines are inserted
+    private record Pending(CartLineResultDTO result, Line line) {}
+
+    // Thrown inside the transaction when a line moved since it was read, to roll the batch back
+    private static class LostRace extends RuntimeException {
+        LostRace() {
+            super(null, null, false, false);
+        }
+    }
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InventoryReservationService inventoryReservations;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WriteBehindCartStore writeBehind;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public CartBatchService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public CartBatchResultDTO apply(Long userId, List<CartLineOperationDTO> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, "At least one line is required");
+        }
+        if (operations.size() > MAX_LINES) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, "At most " + MAX_LINES + " lines per request");
+        }
+        // The batch works on the rows, so a cart held in memory is written out and let go first
+        writeBehind.flushAndEvict(userId);
+        for (int attempt = 0; attempt < CartService.ADD_ATTEMPTS; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> applyOnce(userId, operations));
+            } catch (LostRace e) {
+                log.debug("Cart batch for user {} raced another edit; retrying", userId);
+            }
+        }
+        throw new ApiException(ErrorCode.CONCURRENT_MODIFICATION, "Cart kept changing; try again");
+    }
+
+    private CartBatchResultDTO applyOnce(Long userId, List<CartLineOperationDTO> operations) {
+        CartRow cart = jdbcTemplate.query(CART_SQL, (rs, i) -> new CartRow(rs.getObject("cart_id", Long.class),
+                        rs.getObject("item_count", Integer.class), rs.getBigDecimal("total_price")), userId)
+                .stream().findFirst()
+                .orElseThrow(() -> new ApiException(ErrorCode.USER_NOT_FOUND, "User not found"));
+        Long cartId = cart.cartId();
+        if (cartId == null) {
+            cartId = cartRepository.save(new Cart(userRepository.getReferenceById(userId))).getId();
+            cart = new CartRow(cartId, 0, BigDecimal.ZERO);
+        }
+
+        List<Line> lines = new ArrayList<>(jdbcTemplate.query(LINES_SQL, (rs, i) -> new Line(rs.getLong("id"),
+                rs.getLong("product_id"), rs.getString("size"), rs.getString("color"), rs.getInt("quantity"),
+                rs.getBigDecimal("unit_price")), cartId));
+        Set<Long> productIds = new LinkedHashSet<>();
+        lines.forEach(line -> productIds.add(line.productId));
+        operations.stream()
+                .filter(op -> op != null && op.getAction() == Action.ADD && op.getProductId() != null)
+                .forEach(op -> productIds.add(op.getProductId()));
+        Map<Long, ProductRow> products = loadProducts(productIds);
+
+        Map<Long, Integer> available = new HashMap<>();
+        List<CartLineResultDTO> results = new ArrayList<>(operations.size());
+        List<Pending> pending = new ArrayList<>();
+        boolean rejected = false;
+        for (int i = 0; i < operations.size(); i++) {
+            CartLineOperationDTO op = operations.get(i);
+            CartLineResultDTO result;
+            try {
+                result = applyInMemory(i, op, userId, lines, products, available, pending);
+            } catch (ApiException e) {
+                result = new CartLineResultDTO(i, Outcome.REJECTED, op != null ? op.getCartItemId() : null,
+                        op != null ? op.getProductId() : null, null, null, e.getErrorCode().getCode(), e.getDetails());
+                rejected = true;
+            }
+            results.add(result);
+        }
+        if (rejected) {
+            for (CartLineResultDTO result : results) {
+                if (result.getOutcome() != Outcome.REJECTED) {
+                    result.setOutcome(Outcome.SKIPPED);
+                }
+            }
+            return new CartBatchResultDTO(false, cart.itemCount(), cart.totalPrice(), results);
+        }
+
+        write(cartId, lines);
+        for (Pending p : pending) {
+            p.result().setCartItemId(p.line().currentId());
+        }
+        for (Long productId : touchedProducts(lines)) {
+            inventoryReservations.hold(userId, productId, heldQuantity(lines, productId), products.get(productId).stock());
+        }
+        CartRow after = jdbcTemplate.queryForObject("SELECT id AS cart_id, item_count, total_price FROM carts WHERE id = ?",
+                (rs, i) -> new CartRow(rs.getLong("cart_id"), rs.getObject("item_count", Integer.class),
+                        rs.getBigDecimal("total_price")), cartId);
+        return new CartBatchResultDTO(true, after.itemCount(), after.totalPrice(), results);
+    }
+
+    // Check one operation against the batch's view of the cart and apply it there. Throws the
+    // ApiException the single-line endpoint would have thrown, leaving the view unchanged.
+    private CartLineResultDTO applyInMemory(int index, CartLineOperationDTO op, Long userId, List<Line> lines,
+                                            Map<Long, ProductRow> products, Map<Long, Integer> available,
+                                            List<Pending> pending) {
+        if (op == null || op.getAction() == null) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, "action is required");
+        }
+        if (op.getAction() == Action.ADD) {
+            return add(index, op, userId, lines, products, available, pending);
+        }
+        if (op.getCartItemId() == null) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, "cartItemId is required");
+        }
+        Line line = lines.stream()
+                .filter(l -> l.quantity > 0 && op.getCartItemId().equals(l.id))
+                .findFirst()
+                .orElseThrow(() -> new ApiException(ErrorCode.RESOURCE_NOT_FOUND, "Cart item not found"));
+        if (op.getAction() == Action.UPDATE && op.getQuantity() == null) {
+            throw new ApiException(ErrorCode.INVALID_QUANTITY, "Quantity is required");
+        }
+        if (op.getAction() == Action.REMOVE || op.getQuantity() <= 0) {
+            line.quantity = 0;
+            return new CartLineResultDTO(index, Outcome.REMOVED, line.id, line.productId, 0, line.unitPrice, null, null);
+        }
+        ProductRow product = products.get(line.productId);
+        int free = available(userId, product, available);
+        int held = heldQuantity(lines, line.productId) - line.quantity + op.getQuantity();
+        if (free < held) {
+            throw new ApiException(ErrorCode.INSUFFICIENT_STOCK, "Insufficient stock. Available: " + Math.max(0, free));
+        }
+        line.quantity = op.getQuantity();
+        return new CartLineResultDTO(index, Outcome.UPDATED, line.id, line.productId, line.quantity, line.unitPrice,
+                null, null);
+    }
+
+    private CartLineResultDTO add(int index, CartLineOperationDTO op, Long userId, List<Line> lines,
+                                  Map<Long, ProductRow> products, Map<Long, Integer> available, List<Pending> pending) {
+        if (op.getProductId() == null) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, "productId is required");
+        }
+        ProductRow product = products.get(op.getProductId());
+        if (product == null) {
+            throw new ApiException(ErrorCode.PRODUCT_NOT_FOUND, "Product not found");
+        }
+        if (!Boolean.TRUE.equals(product.active())) {
+            throw new ApiException(ErrorCode.PRODUCT_NOT_FOUND, "Product is not active");
+        }
+        Integer quantity = op.getQuantity();
+        if (quantity == null || quantity <= 0) {
+            throw new ApiException(ErrorCode.INVALID_QUANTITY, "Quantity must be greater than 0");
+        }
+
+        String size = op.getSize();
+        String color = op.getColor();
+        VariantRow variant = null;
+        if (!product.variants().isEmpty()) {
+            variant = product.variants().stream()
+                    .filter(v -> v.active() && v.matches(size, color))
+                    .findFirst()
+                    .orElseThrow(() -> new ApiException(ErrorCode.VALIDATION_ERROR, "Invalid size/color combination"));
+        } else if (!product.sizes().isEmpty() && (size == null || !product.sizes().contains(size))) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, "Invalid or missing size");
+        }
+        if (variant == null && color != null && !product.colors().isEmpty() && !product.colors().contains(color)) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, "Invalid color");
+        }
+
+        Line line = lines.stream()
+                .filter(l -> l.productId.equals(product.id()) && Objects.equals(l.size, size) && Objects.equals(l.color, color))
+                .findFirst()
+                .orElse(null);
+        int current = line != null ? line.quantity : 0;
+        int free = available(userId, product, available);
+        if (free < heldQuantity(lines, product.id()) + quantity) {
+            throw new ApiException(ErrorCode.INSUFFICIENT_STOCK, "Insufficient stock. Available: " + Math.max(0, free));
+        }
+        if (variant != null && variant.stock() < current + quantity) {
+            throw new ApiException(ErrorCode.INSUFFICIENT_STOCK, "Insufficient stock for "
+                    + ProductVariant.label(variant.size(), variant.color(), variant.sku()) + ". Available: " + variant.stock());
+        }
+
+        if (line == null) {
+            line = new Line(null, product.id(), size, color, 0, product.effectivePrice());
+            lines.add(line);
+        }
+        line.quantity = current + quantity;
+        if (variant != null) {
+            line.unitPrice = variant.priceOverride() != null ? variant.priceOverride() : product.effectivePrice();
+        }
+        CartLineResultDTO result = new CartLineResultDTO(index, Outcome.ADDED, line.currentId(), product.id(),
+                line.quantity, line.unitPrice, null, null);
+        if (line.id == null) {
+            pending.add(new Pending(result, line));
+        }
+        return result;
+    }
+
+    // Stock not held by other shoppers, looked up once per product per batch
+    private int available(Long userId, ProductRow product, Map<Long, Integer> available) {
+        return available.computeIfAbsent(product.id(),
+                id -> product.stock() - inventoryReservations.getHeldByOthers(id, userId));
+    }
+
+    private static int heldQuantity(List<Line> lines, Long productId) {
+        return lines.stream().filter(l -> l.productId.equals(productId)).mapToInt(l -> l.quantity).sum();
+    }
+
+    private static Set<Long> touchedProducts(List<Line> lines) {
+        Set<Long> touched = new LinkedHashSet<>();
+        for (Line line : lines) {
+            if (line.changed()) {
+                touched.add(line.productId);
+            }
+        }
+        return touched;
+    }
+
+    private static BigDecimal subTotal(int quantity, BigDecimal unitPrice) {
+        return unitPrice.multiply(BigDecimal.valueOf(quantity));
+    }
+
+    // Updates and deletes in id order, then inserts, then one totals update for the whole batch
+    private void write(Long cartId, List<Line> lines) {
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int lineDelta = 0;
+        BigDecimal amountDelta = BigDecimal.ZERO;
+        List<Line> existing = lines.stream()
+                .filter(l -> l.id != null)
+                .sorted(Comparator.comparing(l -> l.id))
+                .toList();
+        for (Line line : existing) {
+            if (line.quantity == 0) {
+                deletes.add(new Object[] {line.id, line.originalQuantity});
+                lineDelta--;
+            } else if (line.changed()) {
+                updates.add(new Object[] {line.quantity, line.unitPrice, line.id, line.originalQuantity});
+            } else {
+                continue;
+            }
+            amountDelta = amountDelta.add(subTotal(line.quantity, line.unitPrice))
+                    .subtract(subTotal(line.originalQuantity, line.originalPrice));
+        }
+        List<Line> added = lines.stream().filter(l -> l.id == null).toList();
+        for (Line line : added) {
+            inserts.add(new Object[] {cartId, line.productId, line.quantity, line.unitPrice, line.size, line.color, now,
+                    cartId, line.productId, line.size, line.color});
+            lineDelta++;
+            amountDelta = amountDelta.add(subTotal(line.quantity, line.unitPrice));
+        }
+
+        requireAll(jdbcTemplate.batchUpdate(UPDATE_LINE_SQL, updates));
+        requireAll(jdbcTemplate.batchUpdate(DELETE_LINE_SQL, deletes));
+        if (!inserts.isEmpty()) {
+            try {
+                requireAll(jdbcTemplate.batchUpdate(CartService.INSERT_LINE_SQL, inserts));
+            } catch (DuplicateKeyException e) {
+                throw new LostRace();
+            }
+            assignNewIds(cartId, added);
+        }
+        cartRepository.adjustTotals(cartId, lineDelta, amountDelta, now.toLocalDateTime());
+    }
+
+    private void assignNewIds(Long cartId, List<Line> added) {
+        Map<List<Object>, Long> ids = new HashMap<>();
+        jdbcTemplate.query(LINES_SQL, rs -> {
+            ids.put(Arrays.asList(rs.getLong("product_id"), rs.getString("size"), rs.getString("color")), rs.getLong("id"));
+        }, cartId);
+        for (Line line : added) {
+            line.newId = ids.get(Arrays.asList(line.productId, line.size, line.color));
+        }
+    }
+
+    // An update or delete that matched nothing means the line moved since it was read
+    private static void requireAll(int[] counts) {
+        for (int count : counts) {
+            if (count == 0) {
+                throw new LostRace();
+            }
+        }
+    }
+
+    private Map<Long, ProductRow> loadProducts(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Object[] args = ids.toArray();
+        String in = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        Map<Long, Set<String>> sizes = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, size FROM product_sizes WHERE product_id IN (" + in + ")", rs -> {
+            sizes.computeIfAbsent(rs.getLong(1), id -> new HashSet<>()).add(rs.getString(2));
+        }, args);
+        Map<Long, Set<String>> colors = new HashMap<>();
+        jdbcTemplate.query("SELECT product_id, color FROM product_colors WHERE product_id IN (" + in + ")", rs -> {
+            colors.computeIfAbsent(rs.getLong(1), id -> new HashSet<>()).add(rs.getString(2));
+        }, args);
+        Map<Long, List<VariantRow>> variants = new HashMap<>();
+        jdbcTemplate.query("SELECT id, product_id, sku, size, color, stock_quantity, price_override, active "
+                + "FROM product_variants WHERE product_id IN (" + in + ") ORDER BY id", rs -> {
+            variants.computeIfAbsent(rs.getLong("product_id"), id -> new ArrayList<>()).add(new VariantRow(
+                    rs.getLong("id"), rs.getString("sku"), rs.getString("size"), rs.getString("color"),
+                    rs.getInt("stock_quantity"), rs.getBigDecimal("price_override"), rs.getBoolean("active")));
+        }, args);
+        Map<Long, ProductRow> products = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name, active, price, discount_price, stock_quantity FROM products WHERE id IN ("
+                + in + ")", rs -> {
+            long id = rs.getLong("id");
+            products.put(id, new ProductRow(id, rs.getString("name"), rs.getObject("active", Boolean.class),
+                    rs.getBigDecimal("price"), rs.getBigDecimal("discount_price"), rs.getInt("stock_quantity"),
+                    sizes.getOrDefault(id, Set.of()), colors.getOrDefault(id, Set.of()),
+                    variants.getOrDefault(id, List.of())));
+        }, args);
+        return products;
+    }
+}
@@ -5,17 +5,36 @@ import com.lincee.dto.CartItemDTO;
 import com.lincee.entity.Cart;
 import com.lincee.entity.CartItem;
 import com.lincee.entity.Product;
+import com.lincee.entity.ProductVariant;
 import com.lincee.entity.User;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
 import com.lincee.repository.CartRepository;
 import com.lincee.repository.CartItemRepository;
-import com.lincee.repository.ProductRepository;
 import com.lincee.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -23,6 +42,70 @@ import java.util.stream.Collectors;
 @Transactional
 public class CartService {
     
+    static final int ADD_ATTEMPTS = 3;
+    
+    // Everything add-to-cart checks, in one round trip: the user's cart, the product, the first active
+    // variant matching size/color, whether the size and color are offered, the line the item merges
+    // into, and how much of the product the cart already holds. No row means no such user.
+    private static final String ADD_CONTEXT_SQL =
+            "SELECT c.id AS cart_id, p.id AS product_id, p.name AS product_name, p.active, p.price, p.discount_price, "
+            + "p.stock_quantity, "
+            + "(SELECT pi.image_url FROM product_images pi WHERE pi.product_id = p.id FETCH FIRST 1 ROWS ONLY) AS image_url, "
+            + "(SELECT COUNT(*) FROM product_variants pv WHERE pv.product_id = p.id) AS variant_count, "
+            + "v.id AS variant_id, v.sku AS variant_sku, v.size AS variant_size, v.color AS variant_color, "
+            + "v.price_override, v.stock_quantity AS variant_stock, "
+            + "(SELECT COUNT(*) FROM product_sizes ps WHERE ps.product_id = p.id) AS size_count, "
+            + "(SELECT COUNT(*) FROM product_sizes ps WHERE ps.product_id = p.id AND ps.size = CAST(? AS VARCHAR(255))) AS size_matches, "
+            + "(SELECT COUNT(*) FROM product_colors pc WHERE pc.product_id = p.id) AS color_count, "
+            + "(SELECT COUNT(*) FROM product_colors pc WHERE pc.product_id = p.id AND pc.color = CAST(? AS VARCHAR(255))) AS color_matches, "
+            + "li.id AS line_id, li.quantity AS line_quantity, li.unit_price AS line_unit_price, li.created_at AS line_created_at, "
+            + "(SELECT COALESCE(SUM(ci.quantity), 0) FROM cart_items ci WHERE ci.cart_id = c.id AND ci.product_id = p.id) AS cart_held "
+            + "FROM users u "
+            + "LEFT JOIN carts c ON c.user_id = u.id "
+            + "LEFT JOIN products p ON p.id = ? "
+            + "LEFT JOIN product_variants v ON v.product_id = p.id AND v.active = TRUE "
+            + "AND (v.size IS NULL OR UPPER(v.size) = UPPER(CAST(? AS VARCHAR(255)))) "
+            + "AND (v.color IS NULL OR UPPER(v.color) = UPPER(CAST(? AS VARCHAR(255)))) "
+            + "LEFT JOIN cart_items li ON li.cart_id = c.id AND li.product_id = p.id "
+            + "AND li.size IS NOT DISTINCT FROM CAST(? AS VARCHAR(255)) AND li.color IS NOT DISTINCT FROM CAST(? AS VARCHAR(255)) "
+            + "WHERE u.id = ? "
+            + "ORDER BY v.id FETCH FIRST 1 ROWS ONLY";
+    
+    // Atomic increment, only while the line stays within its stock limit. A variant reprices the line.
+    private static final String INCREMENT_LINE_SQL =
+            "UPDATE cart_items SET quantity = quantity + ?, unit_price = COALESCE(CAST(? AS DECIMAL(10, 2)), unit_price) "
+            + "WHERE id = ? AND quantity + ? <= ?";
+    
+    // Insert only while no line with the same (cart, product, size, color) key exists; the
+    // unique key alone does not catch this when size or color is null.
+    static final String INSERT_LINE_SQL =
+            "INSERT INTO cart_items (cart_id, product_id, quantity, unit_price, size, color, created_at) "
+            + "SELECT ?, ?, ?, ?, ?, ?, ? FROM (VALUES (0)) AS one(x) WHERE NOT EXISTS (SELECT 1 FROM cart_items ci "
+            + "WHERE ci.cart_id = ? AND ci.product_id = ? AND ci.size IS NOT DISTINCT FROM CAST(? AS VARCHAR(255)) "
+            + "AND ci.color IS NOT DISTINCT FROM CAST(? AS VARCHAR(255)))";
+    
+    // On PostgreSQL the line write above also moves the cart's totals and upserts the stock hold,
+    // in the same statement: both only happen if the guarded line write does, and no id comes
+    // back when it lost a race
+    private static final String TOTALS_AND_HOLD_CTE =
+            "cart AS (UPDATE carts SET item_count = COALESCE(item_count, 0) + ?, "
+            + "total_price = COALESCE(total_price, 0) + ?, updated_at = ? WHERE id = ? AND EXISTS (SELECT 1 FROM line)), "
+            + "hold AS (INSERT INTO stock_holds (user_id, product_id, quantity, expires_at, created_at, updated_at) "
+            + "SELECT ?, ?, ?, ?, ?, ? FROM line ON CONFLICT (user_id, product_id) DO UPDATE SET "
+            + "quantity = EXCLUDED.quantity, expires_at = EXCLUDED.expires_at, updated_at = EXCLUDED.updated_at) "
+            + "SELECT id FROM line";
+    private static final String INCREMENT_LINE_CTE_SQL =
+            "WITH line AS (" + INCREMENT_LINE_SQL + " RETURNING id), " + TOTALS_AND_HOLD_CTE;
+    private static final String INSERT_LINE_CTE_SQL =
+            "WITH line AS (" + INSERT_LINE_SQL + " RETURNING id), " + TOTALS_AND_HOLD_CTE;
+    
+    private record AddContext(Long cartId, Long productId, String productName, Boolean active, BigDecimal price,
+                              BigDecimal discountPrice, int stock, String image, int variantCount, Long variantId,
+                              String variantSku, String variantSize, String variantColor, BigDecimal priceOverride,
+                              int variantStock, int sizeCount, int sizeMatches, int colorCount, int colorMatches,
+                              Long lineId, int lineQuantity, BigDecimal lineUnitPrice, LocalDateTime lineCreatedAt,
+                              int cartHeld) {}
+    
     @Autowired
     private CartRepository cartRepository;
     
@@ -33,9 +116,29 @@ public class CartService {
     private UserRepository userRepository;
     
     @Autowired
-    private ProductRepository productRepository;
+    private InventoryReservationService inventoryReservations;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private WriteBehindCartStore writeBehind;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    // Whether the database takes data-modifying WITH clauses, so a line is written together with
+    // the cart's totals and the stock hold
+    private boolean writableCtes;
+    
+    @PostConstruct
+    void detectDialect() {
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        writableCtes = dialect instanceof PostgreSQLDialect;
+    }
     
     public CartDTO getOrCreateCart(Long userId) {
+        writeBehind.flush(userId);
         Optional<User> user = userRepository.findById(userId);
         if (!user.isPresent()) {
             throw new RuntimeException("User not found");
@@ -52,6 +155,7 @@ public class CartService {
     }
     
     public CartDTO getCartByUserId(Long userId) {
+        writeBehind.flush(userId);
         Optional<Cart> cart = cartRepository.findByUserId(userId);
         if (!cart.isPresent()) {
             throw new RuntimeException("Cart not found");
@@ -59,97 +163,214 @@ public class CartService {
         return convertToDTO(cart.get());
     }
     
+    /**
+     * Add a product to the user's cart, merging into the line with the same size and color.
+     *
+     * Everything the checks need comes back from one query ({@link #ADD_CONTEXT_SQL}); the line is
+     * then written with one guarded statement: an atomic {@code quantity = quantity + ?} bounded by
+     * the stock still available to this cart, or an insert that only happens while no line with the
+     * same (cart, product, size, color) key exists. A write that matches no row means the cart or
+     * stock moved since the read, so the checks run again against fresh data.
+     *
+     * On PostgreSQL that statement also moves the cart's totals and writes the stock hold, so an add
+     * is two statements. Other databases take a statement each for the hold and the totals.
+     */
     public CartItemDTO addItemToCart(Long userId, Long productId, Integer quantity, String size, String color) {
-        // 1. Resolve user
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (!userOpt.isPresent()) {
-            throw new com.lincee.exception.ApiException(com.lincee.exception.ErrorCode.USER_NOT_FOUND, "User not found");
+        if (writeBehind.isEnabled()) {
+            return writeBehind.addItem(userId, productId, quantity, size, color);
+        }
+        for (int attempt = 0; attempt < ADD_ATTEMPTS; attempt++) {
+            CartItemDTO added = tryAddItem(userId, productId, quantity, size, color);
+            if (added != null) {
+                return added;
+            }
         }
+        throw new ApiException(ErrorCode.CONCURRENT_MODIFICATION, "Cart kept changing; try again");
+    }
 
-        // 2. Find or create cart
-        Cart cart = cartRepository.findByUserId(userId).orElseGet(() -> {
-            Cart newCart = new Cart(userOpt.get());
-            return cartRepository.save(newCart);
-        });
+    // One read, the checks, one write. Returns null when the write lost a race.
+    private CartItemDTO tryAddItem(Long userId, Long productId, Integer quantity, String size, String color) {
+        AddContext ctx = jdbcTemplate.query(ADD_CONTEXT_SQL, this::mapAddContext,
+                size, color, productId, size, color, size, color, userId).stream().findFirst()
+                .orElseThrow(() -> new ApiException(ErrorCode.USER_NOT_FOUND, "User not found"));
 
-        // 3. Validate product exists and is active
-        Optional<Product> productOpt = productRepository.findById(productId);
-        if (!productOpt.isPresent()) {
-            throw new com.lincee.exception.ApiException(com.lincee.exception.ErrorCode.PRODUCT_NOT_FOUND, "Product not found");
+        Long cartId = ctx.cartId();
+        if (cartId == null) {
+            cartId = cartRepository.save(new Cart(userRepository.getReferenceById(userId))).getId();
         }
-        Product product = productOpt.get();
-        if (!Boolean.TRUE.equals(product.getActive())) {
-            throw new com.lincee.exception.ApiException(com.lincee.exception.ErrorCode.PRODUCT_NOT_FOUND, "Product is not active");
+        if (ctx.productId() == null) {
+            throw new ApiException(ErrorCode.PRODUCT_NOT_FOUND, "Product not found");
+        }
+        if (!Boolean.TRUE.equals(ctx.active())) {
+            throw new ApiException(ErrorCode.PRODUCT_NOT_FOUND, "Product is not active");
         }
-
-        // 4. Validate quantity > 0
         if (quantity == null || quantity <= 0) {
-            throw new com.lincee.exception.ApiException(com.lincee.exception.ErrorCode.INVALID_QUANTITY, "Quantity must be greater than 0");
+            throw new ApiException(ErrorCode.INVALID_QUANTITY, "Quantity must be greater than 0");
         }
 
-        // 5. Validate size if required
-        if (product.getAvailableSizes() != null && !product.getAvailableSizes().isEmpty()) {
-            if (size == null || !product.getAvailableSizes().contains(size)) {
-                throw new com.lincee.exception.ApiException(com.lincee.exception.ErrorCode.VALIDATION_ERROR, "Invalid or missing size");
+        // Resolve the variant, or validate size/color for products without variants
+        boolean hasVariant = ctx.variantId() != null;
+        if (ctx.variantCount() > 0) {
+            if (!hasVariant) {
+                throw new ApiException(ErrorCode.VALIDATION_ERROR, "Invalid size/color combination");
             }
+        } else if (ctx.sizeCount() > 0 && (size == null || ctx.sizeMatches() == 0)) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, "Invalid or missing size");
         }
         // Make color optional: only validate if provided
-        if (color != null && product.getAvailableColors() != null && !product.getAvailableColors().isEmpty()) {
-            if (!product.getAvailableColors().contains(color)) {
-                throw new com.lincee.exception.ApiException(com.lincee.exception.ErrorCode.VALIDATION_ERROR, "Invalid color");
-            }
+        if (!hasVariant && color != null && ctx.colorCount() > 0 && ctx.colorMatches() == 0) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, "Invalid color");
         }
 
-        // 6. Upsert cart item by (cartId, productId, size, color)
-        Optional<CartItem> existingItemOpt = cartItemRepository.findByCartIdAndProductIdAndSizeAndColor(cart.getId(), productId, size, color);
-        CartItem cartItem;
-        if (existingItemOpt.isPresent()) {
-            cartItem = existingItemOpt.get();
-            int newQuantity = cartItem.getQuantity() + quantity;
-            if (product.getStockQuantity() < newQuantity) {
-                throw new com.lincee.exception.ApiException(com.lincee.exception.ErrorCode.INSUFFICIENT_STOCK, "Insufficient stock. Available: " + product.getStockQuantity());
-            }
-            cartItem.setQuantity(newQuantity);
+        // Stock held by other shoppers is not available to this cart
+        int available = ctx.stock() - inventoryReservations.getHeldByOthers(productId, userId);
+        int held = ctx.cartHeld() + quantity;
+        if (available < held) {
+            throw new ApiException(ErrorCode.INSUFFICIENT_STOCK, "Insufficient stock. Available: " + Math.max(0, available));
+        }
+        boolean existing = ctx.lineId() != null;
+        int lineQuantity = (existing ? ctx.lineQuantity() : 0) + quantity;
+        if (hasVariant && ctx.variantStock() < lineQuantity) {
+            throw new ApiException(ErrorCode.INSUFFICIENT_STOCK, "Insufficient stock for "
+                    + ProductVariant.label(ctx.variantSize(), ctx.variantColor(), ctx.variantSku())
+                    + ". Available: " + ctx.variantStock());
+        }
+
+        BigDecimal productPrice = ctx.discountPrice() != null ? ctx.discountPrice() : ctx.price();
+        BigDecimal variantPrice = hasVariant ? (ctx.priceOverride() != null ? ctx.priceOverride() : productPrice) : null;
+        // The most this line may hold: what is left for the cart after its other lines, and the variant's stock
+        int lineLimit = available - (ctx.cartHeld() - (existing ? ctx.lineQuantity() : 0));
+        if (hasVariant) {
+            lineLimit = Math.min(lineLimit, ctx.variantStock());
+        }
+
+        BigDecimal unitPrice = variantPrice != null ? variantPrice : existing ? ctx.lineUnitPrice() : productPrice;
+        BigDecimal subTotalBefore = existing
+                ? ctx.lineUnitPrice().multiply(BigDecimal.valueOf(ctx.lineQuantity())) : BigDecimal.ZERO;
+        BigDecimal subTotal = unitPrice.multiply(BigDecimal.valueOf(lineQuantity));
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime createdAt = existing ? ctx.lineCreatedAt() : now;
+
+        Long lineId;
+        if (writableCtes) {
+            LocalDateTime holdUntil = inventoryReservations.reserve(userId, productId, held, ctx.stock());
+            Object[] line = existing
+                    ? new Object[] {quantity, variantPrice, ctx.lineId(), quantity, lineLimit}
+                    : new Object[] {cartId, productId, quantity, unitPrice, size, color, Timestamp.valueOf(createdAt),
+                            cartId, productId, size, color};
+            Object[] totalsAndHold = {existing ? 0 : 1, subTotal.subtract(subTotalBefore), Timestamp.valueOf(now), cartId,
+                    userId, productId, held, Timestamp.valueOf(holdUntil), Timestamp.valueOf(now), Timestamp.valueOf(now)};
+            lineId = writeLine(existing ? INCREMENT_LINE_CTE_SQL : INSERT_LINE_CTE_SQL, line, totalsAndHold);
         } else {
-            if (product.getStockQuantity() < quantity) {
-                throw new com.lincee.exception.ApiException(com.lincee.exception.ErrorCode.INSUFFICIENT_STOCK, "Insufficient stock. Available: " + product.getStockQuantity());
+            if (existing) {
+                lineId = jdbcTemplate.update(INCREMENT_LINE_SQL, quantity, variantPrice, ctx.lineId(), quantity, lineLimit) == 0
+                        ? null : ctx.lineId();
+            } else {
+                lineId = insertLine(cartId, productId, quantity, unitPrice, size, color, createdAt);
             }
-            cartItem = new CartItem(cart, product, quantity);
-            cartItem.setSize(size);
-            cartItem.setColor(color);
+            if (lineId != null) {
+                inventoryReservations.hold(userId, productId, held, ctx.stock());
+                cartRepository.adjustTotals(cartId, existing ? 0 : 1, subTotal.subtract(subTotalBefore), now);
+            }
+        }
+        if (lineId == null) {
+            return null;
+        }
+
+        CartItemDTO dto = new CartItemDTO();
+        dto.setId(lineId);
+        dto.setCartId(cartId);
+        dto.setProductId(productId);
+        dto.setProductName(ctx.productName());
+        dto.setProductImage(ctx.image());
+        dto.setQuantity(lineQuantity);
+        dto.setUnitPrice(unitPrice);
+        dto.setSubTotal(subTotal);
+        dto.setSize(size);
+        dto.setColor(color);
+        dto.setCreatedAt(createdAt);
+        return dto;
+    }
+
+    // The line's id from a combined line, totals and hold write, or null if the line write lost a race
+    private Long writeLine(String sql, Object[] line, Object[] totalsAndHold) {
+        Object[] args = Arrays.copyOf(line, line.length + totalsAndHold.length);
+        System.arraycopy(totalsAndHold, 0, args, line.length, totalsAndHold.length);
+        try {
+            return jdbcTemplate.queryForList(sql, Long.class, args).stream().findFirst().orElse(null);
+        } catch (DuplicateKeyException e) {
+            throw new ApiException(ErrorCode.CONCURRENT_MODIFICATION, "Cart changed while adding; try again");
         }
+    }
 
-        // 7. Save and return DTO
-        CartItem savedItem;
+    // The new line's id, or null if a concurrent add created the same line first. Two adds that
+    // both insert at the same instant still meet the unique key; the loser reports a conflict.
+    private Long insertLine(Long cartId, Long productId, int quantity, BigDecimal unitPrice,
+                            String size, String color, LocalDateTime createdAt) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int inserted;
         try {
-            savedItem = cartItemRepository.save(cartItem);
-        } catch (org.springframework.dao.DataIntegrityViolationException e) {
-            // Handle unique constraint violation by merging
-            existingItemOpt = cartItemRepository.findByCartIdAndProductIdAndSizeAndColor(cart.getId(), productId, size, color);
-            if (existingItemOpt.isPresent()) {
-                cartItem = existingItemOpt.get();
-                int newQuantity = cartItem.getQuantity() + quantity;
-                if (product.getStockQuantity() < newQuantity) {
-                    throw new com.lincee.exception.ApiException(com.lincee.exception.ErrorCode.INSUFFICIENT_STOCK, "Insufficient stock. Available: " + product.getStockQuantity());
-                }
-                cartItem.setQuantity(newQuantity);
-                savedItem = cartItemRepository.save(cartItem);
-            } else {
-                throw new com.lincee.exception.ApiException(com.lincee.exception.ErrorCode.INTERNAL_ERROR, "Failed to upsert cart item");
-            }
+            inserted = jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(INSERT_LINE_SQL, new String[] {"id"});
+                ps.setLong(1, cartId);
+                ps.setLong(2, productId);
+                ps.setInt(3, quantity);
+                ps.setBigDecimal(4, unitPrice);
+                ps.setString(5, size);
+                ps.setString(6, color);
+                ps.setTimestamp(7, Timestamp.valueOf(createdAt));
+                ps.setLong(8, cartId);
+                ps.setLong(9, productId);
+                ps.setString(10, size);
+                ps.setString(11, color);
+                return ps;
+            }, keyHolder);
+        } catch (DuplicateKeyException e) {
+            throw new ApiException(ErrorCode.CONCURRENT_MODIFICATION, "Cart changed while adding; try again");
         }
-        cart.updateTotals();
-        cartRepository.save(cart);
-        return convertCartItemToDTO(savedItem);
+        return inserted == 0 ? null : keyHolder.getKey().longValue();
+    }
+
+    private AddContext mapAddContext(ResultSet rs, int row) throws SQLException {
+        Timestamp lineCreatedAt = rs.getTimestamp("line_created_at");
+        return new AddContext(
+                rs.getObject("cart_id", Long.class),
+                rs.getObject("product_id", Long.class),
+                rs.getString("product_name"),
+                rs.getObject("active", Boolean.class),
+                rs.getBigDecimal("price"),
+                rs.getBigDecimal("discount_price"),
+                rs.getInt("stock_quantity"),
+                rs.getString("image_url"),
+                rs.getInt("variant_count"),
+                rs.getObject("variant_id", Long.class),
+                rs.getString("variant_sku"),
+                rs.getString("variant_size"),
+                rs.getString("variant_color"),
+                rs.getBigDecimal("price_override"),
+                rs.getInt("variant_stock"),
+                rs.getInt("size_count"),
+                rs.getInt("size_matches"),
+                rs.getInt("color_count"),
+                rs.getInt("color_matches"),
+                rs.getObject("line_id", Long.class),
+                rs.getInt("line_quantity"),
+                rs.getBigDecimal("line_unit_price"),
+                lineCreatedAt != null ? lineCreatedAt.toLocalDateTime() : null,
+                rs.getInt("cart_held"));
     }
     
     public CartItemDTO updateCartItem(Long userId, Long cartItemId, Integer quantity) {
+        if (writeBehind.isEnabled()) {
+            return writeBehind.updateItem(userId, cartItemId, quantity);
+        }
         Optional<Cart> cart = cartRepository.findByUserId(userId);
         if (!cart.isPresent()) {
             throw new RuntimeException("Cart not found");
         }
         
-        Optional<CartItem> cartItem = cartItemRepository.findById(cartItemId);
+        Optional<CartItem> cartItem = cartItemRepository.findById(cartItemId)
+                .filter(item -> item.getCart().getId().equals(cart.get().getId()));
         if (!cartItem.isPresent()) {
             throw new RuntimeException("Cart item not found");
         }
@@ -159,46 +380,66 @@ public class CartService {
             return convertCartItemToDTO(cartItem.get()); // Return the removed item state or handle differently
         }
 
-        if (cartItem.get().getProduct().getStockQuantity() < quantity) {
-            throw new RuntimeException("Insufficient stock. Available: " + cartItem.get().getProduct().getStockQuantity());
+        CartItem item = cartItem.get();
+        Product product = item.getProduct();
+        Cart existingCart = cart.get();
+        int available = product.getStockQuantity() - inventoryReservations.getHeldByOthers(product.getId(), userId);
+        int held = heldQuantity(existingCart, product.getId(), item, quantity);
+        if (available < held) {
+            throw new RuntimeException("Insufficient stock. Available: " + Math.max(0, available));
         }
 
-        CartItem item = cartItem.get();
+        BigDecimal subTotalBefore = item.getSubTotal();
         item.setQuantity(quantity);
         CartItem updatedItem = cartItemRepository.save(item);
-        
-        Cart existingCart = cart.get();
-        existingCart.updateTotals();
-        cartRepository.save(existingCart);
+        inventoryReservations.hold(userId, product.getId(), held, product.getStockQuantity());
+        cartRepository.adjustTotals(existingCart.getId(), 0, updatedItem.getSubTotal().subtract(subTotalBefore),
+                LocalDateTime.now());
         
         return convertCartItemToDTO(updatedItem);
     }
     
     public void removeItemFromCart(Long userId, Long cartItemId) {
+        if (writeBehind.isEnabled()) {
+            writeBehind.removeItem(userId, cartItemId);
+            return;
+        }
         Optional<Cart> cart = cartRepository.findByUserId(userId);
         if (!cart.isPresent()) {
             throw new RuntimeException("Cart not found");
         }
         
-        Optional<CartItem> cartItem = cartItemRepository.findById(cartItemId);
+        Optional<CartItem> cartItem = cartItemRepository.findById(cartItemId)
+                .filter(item -> item.getCart().getId().equals(cart.get().getId()));
         if (!cartItem.isPresent()) {
             throw new RuntimeException("Cart item not found");
         }
         
-        cartItemRepository.deleteById(cartItemId);
+        CartItem item = cartItem.get();
+        cartItemRepository.delete(item);
         
         Cart existingCart = cart.get();
-        existingCart.updateTotals();
-        cartRepository.save(existingCart);
+        Product product = item.getProduct();
+        inventoryReservations.hold(userId, product.getId(), heldQuantity(existingCart, product.getId(), item, 0),
+                product.getStockQuantity());
+        cartRepository.adjustTotals(existingCart.getId(), -1, item.getSubTotal().negate(), LocalDateTime.now());
     }
     
     public CartDTO clearCart(Long userId) {
+        if (writeBehind.isEnabled()) {
+            inventoryReservations.releaseAll(userId, writeBehind.clear(userId));
+            return getCartByUserId(userId);
+        }
         Optional<Cart> cart = cartRepository.findByUserId(userId);
         if (!cart.isPresent()) {
             throw new RuntimeException("Cart not found");
         }
         
         Cart existingCart = cart.get();
+        inventoryReservations.releaseAll(userId, existingCart.getItems().stream()
+                .map(item -> item.getProduct().getId())
+                .distinct()
+                .collect(Collectors.toList()));
         existingCart.clearCart();
         cartItemRepository.deleteByCartId(existingCart.getId());
         Cart updatedCart = cartRepository.save(existingCart);
@@ -206,6 +447,9 @@ public class CartService {
     }
     
     public List<CartItemDTO> getCartItems(Long userId) {
+        if (writeBehind.isEnabled()) {
+            return writeBehind.getItems(userId);
+        }
         Optional<Cart> cart = cartRepository.findByUserId(userId);
         if (!cart.isPresent()) {
             throw new RuntimeException("Cart not found");
@@ -217,6 +461,10 @@ public class CartService {
     }
     
     public CartDTO getCartById(Long cartId) {
+        if (writeBehind.isEnabled()) {
+            jdbcTemplate.queryForList("SELECT user_id FROM carts WHERE id = ?", Long.class, cartId)
+                    .forEach(writeBehind::flush);
+        }
         Optional<Cart> cart = cartRepository.findById(cartId);
         if (!cart.isPresent()) {
             throw new RuntimeException("Cart not found");
@@ -224,6 +472,36 @@ public class CartService {
         return convertToDTO(cart.get());
     }
     
+    /**
+     * Refresh the holds on every product in the cart before payment starts, so the
+     * stock stays reserved for the full hold period while the shopper checks out.
+     */
+    public CartDTO holdCartForCheckout(Long userId) {
+        writeBehind.flush(userId);
+        Optional<Cart> cart = cartRepository.findByUserId(userId);
+        if (!cart.isPresent()) {
+            throw new RuntimeException("Cart not found");
+        }
+        
+        Cart existingCart = cart.get();
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        Map<Long, Integer> onHand = new LinkedHashMap<>();
+        for (CartItem item : existingCart.getItems()) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+            onHand.put(item.getProduct().getId(), item.getProduct().getStockQuantity());
+        }
+        quantities.forEach((productId, quantity) ->
+                inventoryReservations.hold(userId, productId, quantity, onHand.get(productId)));
+        return convertToDTO(existingCart);
+    }
+    
+    // What the user's cart holds of a product once {@code changed} has {@code quantity} units
+    // (pass a null item for a line that is not in the cart yet).
+    private int heldQuantity(Cart cart, Long productId, CartItem changed, int quantity) {
+        Long excludeId = changed != null && changed.getId() != null ? changed.getId() : -1L;
+        return quantity + (int) cartItemRepository.sumQuantityByCartIdAndProductIdExcept(cart.getId(), productId, excludeId);
+    }
+    
     private CartDTO convertToDTO(Cart cart) {
         CartDTO dto = new CartDTO();
         dto.setId(cart.getId());
@@ -0,0 +1,180 @@
+package com.lincee.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes carts nobody has touched for {@code app.carts.sweep.after-days}, with their items.
+ *
+ * Stale carts are walked through idx_cart_updated_at in (updated_at, id) keyset order, one
+ * small transaction per chunk, with a short pause between chunks. The cursor moves forward
+ * instead of restarting at the oldest row, so each chunk does not rescan the index entries of
+ * the carts the previous chunks just deleted, which PostgreSQL keeps until vacuum. A cart is
+ * only deleted if it is still stale when its row is locked, so a shopper coming back mid-sweep
+ * keeps their cart.
+ *
+ * Metrics: carts.sweep.carts and carts.sweep.items (rows deleted), carts.sweep.duration (per
+ * run) and carts.sweep.lag.seconds (how far past the cutoff the oldest remaining cart is; zero
+ * when the sweeper is keeping up).
+ */
+@Service
+public class CartSweepService {
+
+    private static final Logger log = LoggerFactory.getLogger(CartSweepService.class);
+
+    private record Key(LocalDateTime updatedAt, long id) {}
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+    private final Duration sweepAfter;
+    private final int batchSize;
+    private final long pauseMillis;
+    private final Counter cartsDeleted;
+    private final Counter itemsDeleted;
+    private final Timer runTimer;
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private Clock clock = Clock.systemDefaultZone();
+
+    public CartSweepService(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                            @Value("${app.carts.sweep.after-days:30}") long sweepAfterDays,
+                            @Value("${app.carts.sweep.batch-size:200}") int batchSize,
+                            @Value("${app.carts.sweep.pause-millis:50}") long pauseMillis) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sweepAfter = Duration.ofDays(sweepAfterDays);
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+        this.cartsDeleted = Counter.builder("carts.sweep.carts").description("Abandoned carts deleted")
+                .register(meterRegistry);
+        this.itemsDeleted = Counter.builder("carts.sweep.items").description("Items of abandoned carts deleted")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("carts.sweep.duration").description("Time per abandoned-cart sweep")
+                .register(meterRegistry);
+        Gauge.builder("carts.sweep.lag.seconds", lagSeconds, AtomicLong::get)
+                .description("Age past the cutoff of the oldest cart still waiting to be swept")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.carts.sweep.interval-minutes:60}",
+            initialDelayString = "${app.carts.sweep.interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    void runSweep() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.warn("Abandoned-cart sweep failed", e);
+        }
+    }
+
+    /**
+     * Delete every cart last updated before the cutoff, chunk by chunk. Returns the number of
+     * carts deleted.
+     */
+    public int sweep() {
+        long started = System.nanoTime();
+        LocalDateTime cutoff = LocalDateTime.now(clock).minus(sweepAfter);
+        Key after = new Key(LocalDateTime.of(1970, 1, 1, 0, 0), 0);
+        int carts = 0;
+        int items = 0;
+        while (true) {
+            List<Key> chunk = nextChunk(cutoff, after);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            int[] deleted = transactionTemplate.execute(status -> deleteChunk(chunk, cutoff));
+            carts += deleted[0];
+            items += deleted[1];
+            cartsDeleted.increment(deleted[0]);
+            itemsDeleted.increment(deleted[1]);
+            if (chunk.size() < batchSize) {
+                break;
+            }
+            after = chunk.get(chunk.size() - 1);
+            pause();
+        }
+        long elapsed = System.nanoTime() - started;
+        runTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        updateLag(cutoff);
+        if (carts > 0) {
+            long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            log.info("Swept {} abandoned carts ({} items) in {} ms, {} carts/s", carts, items, millis,
+                    carts * 1000L / millis);
+        }
+        return carts;
+    }
+
+    private List<Key> nextChunk(LocalDateTime cutoff, Key after) {
+        Timestamp afterTs = Timestamp.valueOf(after.updatedAt());
+        return jdbcTemplate.query(
+                "SELECT id, updated_at FROM carts WHERE updated_at < ? "
+                + "AND (updated_at > ? OR (updated_at = ? AND id > ?)) "
+                + "ORDER BY updated_at, id FETCH FIRST " + batchSize + " ROWS ONLY",
+                (rs, i) -> new Key(rs.getTimestamp("updated_at").toLocalDateTime(), rs.getLong("id")),
+                Timestamp.valueOf(cutoff), afterTs, afterTs, after.id());
+    }
+
+    // Lock the carts that are still stale, then delete their items and them. Returns {carts, items}.
+    private int[] deleteChunk(List<Key> chunk, LocalDateTime cutoff) {
+        String in = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+        Object[] args = new Object[chunk.size() + 1];
+        for (int i = 0; i < chunk.size(); i++) {
+            args[i] = chunk.get(i).id();
+        }
+        args[chunk.size()] = Timestamp.valueOf(cutoff);
+        List<Long> stale = jdbcTemplate.queryForList(
+                "SELECT id FROM carts WHERE id IN (" + in + ") AND updated_at < ? FOR UPDATE", Long.class, args);
+        if (stale.isEmpty()) {
+            return new int[] {0, 0};
+        }
+        String staleIn = String.join(", ", Collections.nCopies(stale.size(), "?"));
+        Object[] staleIds = stale.toArray();
+        int items = jdbcTemplate.update("DELETE FROM cart_items WHERE cart_id IN (" + staleIn + ")", staleIds);
+        int carts = jdbcTemplate.update("DELETE FROM carts WHERE id IN (" + staleIn + ")", staleIds);
+        return new int[] {carts, items};
+    }
+
+    private void updateLag(LocalDateTime cutoff) {
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(updated_at) FROM carts", Timestamp.class);
+        long lag = oldest == null ? 0 : Duration.between(oldest.toLocalDateTime(), cutoff).getSeconds();
+        lagSeconds.set(Math.max(0, lag));
+    }
+
+    private void pause() {
+        if (pauseMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long getLagSeconds() {
+        return lagSeconds.get();
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+}
@@ -0,0 +1,275 @@
+package com.lincee.service;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of cart edits on local disk, written before an edit is acknowledged.
+ *
+ * The log is a sequence of numbered segment files. Each record holds the absolute state of one
+ * cart line (or a cart clear) with a timestamp, so replaying a record that is already in the
+ * database changes nothing. Records carry a length and CRC32; a record torn by a crash ends the
+ * segment on replay. {@link #sync} forces the file to disk, and threads that arrive while a
+ * force is running are covered by the next one, so concurrent edits share fsyncs. A position
+ * counts as synced only once the segment it was written to has been forced, by a sync or by the
+ * rotation that sealed it.
+ */
+final class CartWriteAheadLog implements AutoCloseable {
+
+    static final byte SET_LINE = 1;
+    static final byte CLEAR_CART = 2;
+
+    private static final String PREFIX = "cart-wal-";
+    private static final String SUFFIX = ".log";
+
+    record Entry(long stamp, long userId, byte type, long productId, String size, String color, int quantity,
+                 BigDecimal unitPrice) {}
+
+    // Where a record ended: the segment it went to and the byte offset after it
+    record Position(long segment, long offset) {}
+
+    private final Path directory;
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    private long segment;
+    private long written;
+    // The end of what is known to be on disk, published as one value so the segment and offset
+    // are always read together. Only ever moves forward
+    private volatile Position durable;
+
+    CartWriteAheadLog(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            List<Long> existing = segments();
+            segment = existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1;
+            open();
+            durable = new Position(segment, written);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    synchronized Position append(Entry entry) {
+        byte[] payload = encode(entry);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(12 + payload.length);
+        buffer.putInt(payload.length).putLong(crc.getValue()).put(payload).flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        written += 12 + payload.length;
+        return new Position(segment, written);
+    }
+
+    /**
+     * Return once everything up to {@code position} is on disk.
+     */
+    void sync(Position position) {
+        if (isSynced(position)) {
+            return;
+        }
+        // rotate() takes the same lock, so the channel cannot be closed under the force; appends
+        // only need the log's own lock and carry on meanwhile
+        synchronized (syncLock) {
+            if (isSynced(position)) {
+                return;
+            }
+            FileChannel target;
+            Position end;
+            synchronized (this) {
+                target = channel;
+                end = new Position(segment, written);
+            }
+            try {
+                target.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // A position in an older segment was covered by the rotation that sealed it
+            durable = end;
+        }
+    }
+
+    private boolean isSynced(Position position) {
+        Position end = durable;
+        return position.segment() < end.segment()
+                || (position.segment() == end.segment() && position.offset() <= end.offset());
+    }
+
+    /**
+     * Start a new segment and return the number of the last one written before it. Everything in
+     * that segment and older ones can be deleted once the edits they hold are in the database.
+     */
+    long rotate() {
+        synchronized (syncLock) {
+            synchronized (this) {
+                try {
+                    channel.force(false);
+                    channel.close();
+                    durable = new Position(segment, written);
+                    long previous = segment;
+                    segment++;
+                    open();
+                    return previous;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    void deleteUpTo(long lastSegment) {
+        try {
+            for (long number : segments()) {
+                if (number <= lastSegment) {
+                    Files.deleteIfExists(path(number));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Every intact record in segments up to {@code lastSegment}, oldest first.
+     */
+    List<Entry> read(long lastSegment) {
+        List<Entry> entries = new ArrayList<>();
+        try {
+            for (long number : segments()) {
+                if (number > lastSegment) {
+                    break;
+                }
+                try (DataInputStream in = new DataInputStream(Files.newInputStream(path(number)))) {
+                    while (true) {
+                        int length;
+                        try {
+                            length = in.readInt();
+                        } catch (EOFException e) {
+                            break;
+                        }
+                        byte[] payload = new byte[Math.max(0, length)];
+                        long expected;
+                        try {
+                            expected = in.readLong();
+                            in.readFully(payload);
+                        } catch (EOFException e) {
+                            break;
+                        }
+                        CRC32 crc = new CRC32();
+                        crc.update(payload);
+                        if (length <= 0 || crc.getValue() != expected) {
+                            break;
+                        }
+                        entries.add(decode(payload));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return entries;
+    }
+
+    synchronized long currentSegment() {
+        return segment;
+    }
+
+    @Override
+    public void close() {
+        synchronized (syncLock) {
+            synchronized (this) {
+                try {
+                    channel.force(false);
+                    channel.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(path(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        written = channel.size();
+    }
+
+    private Path path(long number) {
+        return directory.resolve(PREFIX + String.format("%012d", number) + SUFFIX);
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static byte[] encode(Entry entry) {
+        byte[] size = bytes(entry.size());
+        byte[] color = bytes(entry.color());
+        byte[] price = bytes(entry.unitPrice() != null ? entry.unitPrice().toPlainString() : null);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 8 + 1 + 8 + 4 + 3 * 4 + size.length + color.length + price.length);
+        buffer.putLong(entry.stamp()).putLong(entry.userId()).put(entry.type()).putLong(entry.productId())
+                .putInt(entry.quantity());
+        putString(buffer, entry.size(), size);
+        putString(buffer, entry.color(), color);
+        putString(buffer, entry.unitPrice(), price);
+        return buffer.array();
+    }
+
+    private static Entry decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long stamp = buffer.getLong();
+        long userId = buffer.getLong();
+        byte type = buffer.get();
+        long productId = buffer.getLong();
+        int quantity = buffer.getInt();
+        String size = getString(buffer);
+        String color = getString(buffer);
+        String price = getString(buffer);
+        return new Entry(stamp, userId, type, productId, size, color, quantity, price != null ? new BigDecimal(price) : null);
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+    }
+
+    // Length -1 stands for null
+    private static void putString(ByteBuffer buffer, Object value, byte[] bytes) {
+        buffer.putInt(value != null ? bytes.length : -1).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
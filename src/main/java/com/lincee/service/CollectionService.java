@@ -21,6 +21,9 @@ public class CollectionService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
     public List<CollectionDTO> getAllCollections() {
         return collectionRepository.findAll().stream()
                 .map(this::convertToDTO)
@@ -93,6 +96,7 @@ public class CollectionService {
         collection.setDisplayOrder(collectionDetails.getDisplayOrder());
 
         Collection updatedCollection = collectionRepository.save(collection);
+        catalogCache.evictProducts(productIds(updatedCollection));
         return convertToDTO(updatedCollection);
     }
 
@@ -103,6 +107,7 @@ public class CollectionService {
         
         // Remove all product associations before deleting
         collection.getProducts().forEach(product -> product.getCollections().remove(collection));
+        catalogCache.evictProducts(productIds(collection));
         collectionRepository.delete(collection);
     }
 
@@ -116,6 +121,7 @@ public class CollectionService {
 
         collection.addProduct(product);
         Collection updatedCollection = collectionRepository.save(collection);
+        catalogCache.evictProducts(List.of(productId));
         return convertToDTO(updatedCollection);
     }
 
@@ -129,6 +135,7 @@ public class CollectionService {
 
         collection.removeProduct(product);
         Collection updatedCollection = collectionRepository.save(collection);
+        catalogCache.evictProducts(List.of(productId));
         return convertToDTO(updatedCollection);
     }
 
@@ -144,9 +151,16 @@ public class CollectionService {
         }
 
         Collection updatedCollection = collectionRepository.save(collection);
+        catalogCache.evictProducts(productIds);
         return convertToDTO(updatedCollection);
     }
 
+    private List<Long> productIds(Collection collection) {
+        return collection.getProducts().stream()
+                .map(Product::getId)
+                .collect(Collectors.toList());
+    }
+
     private CollectionDTO convertToDTO(Collection collection) {
         CollectionDTO dto = new CollectionDTO();
         dto.setId(collection.getId());
@@ -0,0 +1,312 @@
+package com.lincee.service;
+
+import com.lincee.entity.Product;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.repository.ProductRepository;
+import com.lincee.repository.ProductVariantRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drop mode: checkout for a limited release without touching the product row.
+ *
+ * While a product is in drop mode its sellable stock lives in a {@link StripedCounter}, and
+ * OrderService takes units from it with CAS instead of a guarded UPDATE on
+ * products.stock_quantity, so checkouts no longer queue on that row's lock. Each sale is
+ * written to drop_stock_ledger in the order's own transaction; a flusher applies the ledger to
+ * products.stock_quantity in batches and deletes the applied entries.
+ *
+ * The counter always equals products.stock_quantity minus the unapplied ledger. Units taken by
+ * a transaction that rolls back are returned. After a crash, committed orders have committed
+ * ledger entries, so startup applies the ledger and rebuilds each counter from the product row
+ * and never sells the same unit twice. The counters are per instance, so a drop must be served
+ * by a single instance.
+ */
+@Service
+public class DropStockService {
+
+    private static final Logger log = LoggerFactory.getLogger(DropStockService.class);
+
+    private static final String LEDGER_INSERT_SQL =
+            "INSERT INTO drop_stock_ledger (product_id, quantity, order_number, created_at) VALUES (?, ?, ?, ?)";
+    private static final String LEDGER_DELETE_SQL = "DELETE FROM drop_stock_ledger WHERE id = ?";
+    private static final String PRODUCT_APPLY_SQL = "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ?";
+    private static final int FLUSH_BATCH = 5000;
+    // Pauses while disable() waits for checkouts, doubling from the first to the last
+    private static final long MIN_CLOSE_PAUSE_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_CLOSE_PAUSE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final class Drop {
+        private final StripedCounter counter;
+        // Transactions holding units from this counter that have not completed yet
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean closed;
+
+        private Drop(StripedCounter counter) {
+            this.counter = counter;
+        }
+    }
+
+    private record LedgerRow(long id, long productId, int quantity) {}
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int stripes;
+    private final long closeWaitNanos;
+    private final Map<Long, Drop> drops = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public DropStockService(PlatformTransactionManager transactionManager,
+                            @Value("${app.drop.stripes:16}") int stripes,
+                            @Value("${app.drop.close-wait-millis:5000}") long closeWaitMillis) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stripes = stripes;
+        this.closeWaitNanos = TimeUnit.MILLISECONDS.toNanos(closeWaitMillis);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        loadDrops();
+        loaded = true;
+    }
+
+    // Scheduling starts before the application is ready; the ledger is left to loadDrops until then
+    @Scheduled(fixedDelayString = "${app.drop.flush-interval-millis:500}",
+            initialDelayString = "${app.drop.flush-interval-millis:500}")
+    void runFlush() {
+        if (!loaded) {
+            return;
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Drop stock flush failed", e);
+        }
+    }
+
+    /**
+     * Apply whatever the ledger still holds, then start a counter for every product in drop mode.
+     */
+    void loadDrops() {
+        flush();
+        List<Product> products = productRepository.findByDropModeTrue();
+        for (Product product : products) {
+            drops.put(product.getId(), new Drop(new StripedCounter(stripes, Math.max(0, product.getStockQuantity()))));
+        }
+        log.info("Loaded {} drop-mode products", products.size());
+    }
+
+    public boolean isActive(Long productId) {
+        Drop drop = drops.get(productId);
+        return drop != null && !drop.closed;
+    }
+
+    public long getAvailable(Long productId) {
+        Drop drop = drops.get(productId);
+        return drop != null ? drop.counter.sum() : 0;
+    }
+
+    /**
+     * Take {@code quantity} units for the current transaction. Returns false when the drop has
+     * sold out (or is being switched off). Units go back to the counter unless the transaction
+     * commits; the caller records committed sales with {@link #record}.
+     */
+    public boolean take(Long productId, int quantity) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Drop stock can only be taken inside a transaction");
+        }
+        Drop drop = drops.get(productId);
+        if (drop == null) {
+            return false;
+        }
+        drop.inFlight.incrementAndGet();
+        if (drop.closed || !drop.counter.tryTake(quantity)) {
+            drop.inFlight.decrementAndGet();
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    drop.counter.add(quantity);
+                }
+                drop.inFlight.decrementAndGet();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Write the ledger entries for units taken in the current transaction, as one batch.
+     */
+    public void record(String orderNumber, Map<Long, Integer> quantitiesByProduct) {
+        if (quantitiesByProduct.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(quantitiesByProduct.size());
+        quantitiesByProduct.forEach((productId, quantity) -> rows.add(new Object[] {productId, quantity, orderNumber, now}));
+        jdbcTemplate.batchUpdate(LEDGER_INSERT_SQL, rows);
+    }
+
+    /**
+     * Apply pending ledger entries to products.stock_quantity. Returns the number applied.
+     */
+    public int flush() {
+        int total = 0;
+        while (true) {
+            Integer applied = transactionTemplate.execute(status -> flushBatch());
+            total += applied;
+            if (applied < FLUSH_BATCH) {
+                return total;
+            }
+        }
+    }
+
+    // Only entries this call actually deleted are applied, so a concurrent flush (here or on
+    // another instance) can never subtract the same sale twice.
+    private int flushBatch() {
+        List<LedgerRow> rows = jdbcTemplate.query(
+                "SELECT id, product_id, quantity FROM drop_stock_ledger ORDER BY id LIMIT " + FLUSH_BATCH,
+                (rs, i) -> new LedgerRow(rs.getLong(1), rs.getLong(2), rs.getInt(3)));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        int[][] deleted = jdbcTemplate.batchUpdate(LEDGER_DELETE_SQL, rows, rows.size(),
+                (ps, row) -> ps.setLong(1, row.id()));
+        Map<Long, Long> byProduct = new TreeMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (deleted[0][i] != 0) {
+                byProduct.merge(rows.get(i).productId(), (long) rows.get(i).quantity(), Long::sum);
+            }
+        }
+        List<Object[]> updates = new ArrayList<>(byProduct.size());
+        byProduct.forEach((productId, quantity) -> updates.add(new Object[] {quantity, productId}));
+        jdbcTemplate.batchUpdate(PRODUCT_APPLY_SQL, updates);
+        catalogCache.evictStock(byProduct.keySet());
+        return rows.size();
+    }
+
+    /**
+     * Put a product in drop mode. Its current stock becomes the counter; from the moment the
+     * flag is set, the row-update path in OrderService no longer sells it.
+     */
+    public long enable(Long productId) {
+        flush();
+        return transactionTemplate.execute(status -> {
+            // The row lock waits out checkouts already updating the row, so the stock read here is final
+            Product product = productRepository.findByIdForUpdate(productId)
+                    .orElseThrow(() -> new ApiException(ErrorCode.PRODUCT_NOT_FOUND, "Product not found"));
+            Drop existing = drops.get(productId);
+            if (existing != null && !existing.closed) {
+                return existing.counter.sum();
+            }
+            if (variantRepository.existsByProductId(productId)) {
+                throw new ApiException(ErrorCode.VALIDATION_ERROR, "Drop mode is only available for products without variants");
+            }
+            product.setDropMode(true);
+            productRepository.save(product);
+            int stock = Math.max(0, product.getStockQuantity());
+            Drop drop = new Drop(new StripedCounter(stripes, stock));
+            drops.put(productId, drop);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        drops.remove(productId, drop);
+                    }
+                }
+            });
+            return (long) stock;
+        });
+    }
+
+    /**
+     * Take a product out of drop mode: stop selling from the counter, wait for checkouts holding
+     * units to finish, apply the ledger and hand the product back to the row-update path. Fails
+     * with CONCURRENT_MODIFICATION, leaving the drop on sale, if checkouts are still holding units
+     * after {@code app.drop.close-wait-millis}.
+     */
+    public void disable(Long productId) {
+        Drop drop = drops.get(productId);
+        if (drop != null) {
+            drop.closed = true;
+            awaitCheckouts(drop);
+        }
+        flush();
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = productRepository.findByIdForUpdate(productId)
+                    .orElseThrow(() -> new ApiException(ErrorCode.PRODUCT_NOT_FOUND, "Product not found"));
+            product.setDropMode(false);
+            productRepository.save(product);
+        });
+        if (drop != null) {
+            drops.remove(productId, drop);
+        }
+    }
+
+    // Checkouts finish within milliseconds, so the thread parks for a short, growing pause between
+    // checks rather than spinning
+    private void awaitCheckouts(Drop drop) {
+        long deadline = System.nanoTime() + closeWaitNanos;
+        long pause = MIN_CLOSE_PAUSE_NANOS;
+        while (drop.inFlight.get() > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                drop.closed = false;
+                throw new ApiException(ErrorCode.CONCURRENT_MODIFICATION, "Checkouts are still running; try again");
+            }
+            LockSupport.parkNanos(Math.min(pause, remaining));
+            pause = Math.min(pause * 2, MAX_CLOSE_PAUSE_NANOS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loaded = false;
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Final drop stock flush failed; the ledger is applied on next start", e);
+        }
+    }
+
+    void clearCounters() {
+        drops.clear();
+    }
+}
@@ -18,6 +18,9 @@ public class ExcelService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
     /**
      * Parse Excel file and update products
      * Expected Excel columns: id, name, description, price, discountPrice, category, subCategory, 
@@ -27,6 +30,7 @@ public class ExcelService {
     public Map<String, Object> importProductsFromExcel(MultipartFile file) throws IOException {
         List<Product> updatedProducts = new ArrayList<>();
         List<String> errors = new ArrayList<>();
+        List<ProductCatalogCache.Footprint> touched = new ArrayList<>();
         int successCount = 0;
         int errorCount = 0;
 
@@ -42,9 +46,10 @@ public class ExcelService {
             while (rowIterator.hasNext()) {
                 Row row = rowIterator.next();
                 try {
-                    Product product = parseRowToProduct(row);
+                    Product product = parseRowToProduct(row, touched);
                     if (product != null) {
                         Product savedProduct = productRepository.save(product);
+                        touched.add(ProductCatalogCache.Footprint.of(savedProduct));
                         updatedProducts.add(savedProduct);
                         successCount++;
                     }
@@ -53,6 +58,8 @@ public class ExcelService {
                     errors.add("Row " + (row.getRowNum() + 1) + ": " + e.getMessage());
                 }
             }
+        } finally {
+            catalogCache.invalidate(touched);
         }
 
         Map<String, Object> result = new HashMap<>();
@@ -69,7 +76,7 @@ public class ExcelService {
         return result;
     }
 
-    private Product parseRowToProduct(Row row) {
+    private Product parseRowToProduct(Row row, List<ProductCatalogCache.Footprint> touched) {
         Product product = new Product();
         
         // Column 0: Product ID (if exists, update; if not, create new)
@@ -79,6 +86,7 @@ public class ExcelService {
             Optional<Product> existingProduct = productRepository.findById(productId);
             if (existingProduct.isPresent()) {
                 product = existingProduct.get();
+                touched.add(ProductCatalogCache.Footprint.of(product));
             } else {
                 product.setId(productId);
             }
@@ -0,0 +1,240 @@
+package com.lincee.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lincee.entity.IdempotencyRecord;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs a request at most once per Idempotency-Key.
+ *
+ * The first request with a key claims it in idempotency_keys, runs, and stores its successful
+ * response. Retries with the same key and the same request are answered from an in-process
+ * cache (or the table after a restart) without running the operation again. Duplicates that
+ * arrive while the first is still running wait for its result on the same instance, and get
+ * IDEMPOTENCY_KEY_IN_USE when it runs on another one. Failed and non-2xx outcomes are not
+ * stored, so the client can retry them.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    // How long a claim is honoured while its request is still running
+    private static final Duration IN_PROGRESS_LEASE = Duration.ofMinutes(5);
+    private static final long WAIT_SECONDS = 30;
+    private static final long PURGE_INTERVAL_MILLIS = 60_000;
+
+    private record CacheKey(String scope, String key) {}
+
+    private record StoredResponse(String requestHash, int status, String body) {}
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Duration ttl;
+    private final Cache<CacheKey, StoredResponse> completed;
+    private final Map<CacheKey, CompletableFuture<Optional<StoredResponse>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong lastPurge = new AtomicLong();
+    private Clock clock = Clock.systemDefaultZone();
+
+    public IdempotencyService(@Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${app.idempotency.cache-size:10000}") long cacheSize) {
+        this.ttl = Duration.ofHours(ttlHours);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Run {@code action} once for the key within {@code scope}. {@code request} is everything
+     * that identifies the call (path parameters and body); reusing a key with a different
+     * request fails with IDEMPOTENCY_KEY_MISMATCH. Without a key the action simply runs.
+     */
+    public <T> ResponseEntity<T> execute(String scope, String idempotencyKey, Object request,
+                                         Class<?> bodyType, Supplier<ResponseEntity<T>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = fingerprint(scope, request);
+        CacheKey cacheKey = new CacheKey(scope, idempotencyKey);
+
+        StoredResponse cached = completed.getIfPresent(cacheKey);
+        if (cached != null) {
+            return replay(cached, requestHash, bodyType);
+        }
+
+        CompletableFuture<Optional<StoredResponse>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<StoredResponse>> running = inFlight.putIfAbsent(cacheKey, mine);
+        if (running != null) {
+            Optional<StoredResponse> outcome = await(running);
+            if (outcome.isPresent()) {
+                return replay(outcome.get(), requestHash, bodyType);
+            }
+            // The first attempt failed and left nothing behind; this one gets its own try
+            return execute(scope, idempotencyKey, request, bodyType, action);
+        }
+        try {
+            return runOnce(cacheKey, requestHash, bodyType, action, mine);
+        } finally {
+            mine.complete(Optional.empty());
+            inFlight.remove(cacheKey, mine);
+        }
+    }
+
+    private <T> ResponseEntity<T> runOnce(CacheKey cacheKey, String requestHash, Class<?> bodyType,
+                                          Supplier<ResponseEntity<T>> action,
+                                          CompletableFuture<Optional<StoredResponse>> outcome) {
+        purgeExpired();
+        LocalDateTime now = LocalDateTime.now(clock);
+        Optional<IdempotencyRecord> existing =
+                idempotencyRecordRepository.findByScopeAndIdempotencyKey(cacheKey.scope(), cacheKey.key());
+        if (existing.isPresent()) {
+            IdempotencyRecord record = existing.get();
+            if (record.getExpiresAt().isBefore(now)) {
+                idempotencyRecordRepository.delete(record);
+            } else if (!record.getRequestHash().equals(requestHash)) {
+                throw new ApiException(ErrorCode.IDEMPOTENCY_KEY_MISMATCH);
+            } else if (record.getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                StoredResponse stored = new StoredResponse(record.getRequestHash(), record.getResponseStatus(), record.getResponseBody());
+                completed.put(cacheKey, stored);
+                outcome.complete(Optional.of(stored));
+                return replay(stored, requestHash, bodyType);
+            } else {
+                throw new ApiException(ErrorCode.IDEMPOTENCY_KEY_IN_USE);
+            }
+        }
+
+        IdempotencyRecord claim;
+        try {
+            claim = idempotencyRecordRepository.saveAndFlush(
+                    new IdempotencyRecord(cacheKey.scope(), cacheKey.key(), requestHash, now.plus(IN_PROGRESS_LEASE)));
+        } catch (DataIntegrityViolationException e) {
+            throw new ApiException(ErrorCode.IDEMPOTENCY_KEY_IN_USE);
+        }
+
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.delete(claim);
+            throw e;
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            idempotencyRecordRepository.delete(claim);
+            return response;
+        }
+
+        StoredResponse stored = new StoredResponse(requestHash, response.getStatusCode().value(), toJson(response.getBody()));
+        claim.setStatus(IdempotencyRecord.Status.COMPLETED);
+        claim.setResponseStatus(stored.status());
+        claim.setResponseBody(stored.body());
+        claim.setExpiresAt(LocalDateTime.now(clock).plus(ttl));
+        idempotencyRecordRepository.save(claim);
+        completed.put(cacheKey, stored);
+        outcome.complete(Optional.of(stored));
+        return response;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> ResponseEntity<T> replay(StoredResponse stored, String requestHash, Class<?> bodyType) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new ApiException(ErrorCode.IDEMPOTENCY_KEY_MISMATCH);
+        }
+        try {
+            T body = (T) objectMapper.readValue(stored.body(), bodyType);
+            return ResponseEntity.status(stored.status()).header(REPLAYED_HEADER, "true").body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response is not readable", e);
+        }
+    }
+
+    private Optional<StoredResponse> await(CompletableFuture<Optional<StoredResponse>> running) {
+        try {
+            return running.get(WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new ApiException(ErrorCode.IDEMPOTENCY_KEY_IN_USE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(ErrorCode.IDEMPOTENCY_KEY_IN_USE);
+        } catch (ExecutionException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Expired rows are cleared at most once a minute, by whichever request comes along
+    private void purgeExpired() {
+        long nowMillis = clock.millis();
+        long last = lastPurge.get();
+        if (nowMillis - last >= PURGE_INTERVAL_MILLIS && lastPurge.compareAndSet(last, nowMillis)) {
+            idempotencyRecordRepository.deleteExpired(LocalDateTime.now(clock));
+        }
+    }
+
+    private String fingerprint(String scope, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scope.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            // Map entries are sorted so the hash does not depend on iteration order, which for
+            // Map.of differs between JVMs and would turn a retry after a restart into a mismatch
+            digest.update(objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                    .writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Could not fingerprint request", e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response is not serializable", e);
+        }
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    void clearCache() {
+        completed.invalidateAll();
+    }
+}
@@ -0,0 +1,263 @@
+package com.lincee.service;
+
+import com.lincee.entity.Product;
+import com.lincee.entity.StockHold;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.repository.StockHoldRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time-limited stock holds for carts and checkouts.
+ *
+ * Active holds live in memory per product with a running total, so available stock
+ * (on-hand minus held) is read without touching the products row. Each hold is also
+ * written to stock_holds and reloaded on startup. Expiry is driven by a {@link TimerWheel}
+ * ticking once a second rather than by polling the table.
+ */
+@Service
+public class InventoryReservationService {
+
+    private static final Logger log = LoggerFactory.getLogger(InventoryReservationService.class);
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SLOTS = 512;
+
+    private record Expiry(Long userId, Long productId, long expiresAtMillis) {}
+
+    private record Hold(int quantity, long expiresAtMillis) {}
+
+    private record HoldKey(Long userId, Long productId) {}
+
+    private static final class ProductHolds {
+        private final Map<Long, Hold> byUser = new HashMap<>();
+        private volatile int total;
+    }
+
+    @Autowired
+    private StockHoldRepository stockHoldRepository;
+
+    private final Duration holdTtl;
+    private Clock clock = Clock.systemDefaultZone();
+    private final Map<Long, ProductHolds> holdsByProduct = new ConcurrentHashMap<>();
+    private final TimerWheel<Expiry> wheel = new TimerWheel<>(TICK_MILLIS, WHEEL_SLOTS, System.currentTimeMillis());
+
+    public InventoryReservationService(@Value("${app.inventory.hold-ttl-seconds:900}") long holdTtlSeconds) {
+        this.holdTtl = Duration.ofSeconds(holdTtlSeconds);
+    }
+
+    /**
+     * Stock that can still be put in a cart: on-hand minus every active hold.
+     */
+    public int getAvailableStock(Product product) {
+        int onHand = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+        return Math.max(0, onHand - getHeldQuantity(product.getId()));
+    }
+
+    public int getHeldQuantity(Long productId) {
+        ProductHolds holds = holdsByProduct.get(productId);
+        return holds != null ? holds.total : 0;
+    }
+
+    /**
+     * Quantity held on a product by everyone except the given user.
+     */
+    public int getHeldByOthers(Long productId, Long userId) {
+        ProductHolds holds = holdsByProduct.get(productId);
+        if (holds == null) {
+            return 0;
+        }
+        synchronized (holds) {
+            Hold own = holds.byUser.get(userId);
+            return holds.total - (own != null ? own.quantity() : 0);
+        }
+    }
+
+    /**
+     * Set the user's hold on a product to {@code quantity} and restart its TTL.
+     * A quantity of zero releases the hold. Fails with INSUFFICIENT_STOCK when the
+     * on-hand stock minus other users' holds cannot cover it.
+     */
+    @Transactional
+    public void hold(Long userId, Long productId, int quantity, int onHand) {
+        if (quantity <= 0) {
+            release(userId, productId);
+            return;
+        }
+        LocalDateTime deadline = reserve(userId, productId, quantity, onHand);
+
+        // One statement for a hold the user already has; only the first hold on a product inserts
+        if (stockHoldRepository.updateHold(userId, productId, quantity, deadline, LocalDateTime.now()) == 0) {
+            StockHold row = new StockHold(userId, productId);
+            row.setQuantity(quantity);
+            row.setExpiresAt(deadline);
+            stockHoldRepository.save(row);
+        }
+    }
+
+    /**
+     * The in-memory half of {@link #hold}, for a caller that writes the stock_holds row itself in
+     * the same transaction. {@code quantity} must be positive. Returns the hold's deadline.
+     */
+    LocalDateTime reserve(Long userId, Long productId, int quantity, int onHand) {
+        long expiresAt = clock.millis() + holdTtl.toMillis();
+        ProductHolds holds = holdsByProduct.computeIfAbsent(productId, id -> new ProductHolds());
+        Hold previous;
+        synchronized (holds) {
+            previous = holds.byUser.get(userId);
+            int others = holds.total - (previous != null ? previous.quantity() : 0);
+            if (onHand - others < quantity) {
+                throw new ApiException(ErrorCode.INSUFFICIENT_STOCK,
+                        "Insufficient stock. Available: " + Math.max(0, onHand - others));
+            }
+            holds.byUser.put(userId, new Hold(quantity, expiresAt));
+            holds.total = others + quantity;
+        }
+        wheel.schedule(new Expiry(userId, productId, expiresAt), expiresAt);
+        restoreOnRollback(userId, productId, previous);
+        return toLocalDateTime(expiresAt);
+    }
+
+    @Transactional
+    public void release(Long userId, Long productId) {
+        Hold previous = removeHold(userId, productId, null);
+        if (previous != null) {
+            stockHoldRepository.deleteByUserIdAndProductId(userId, productId);
+            restoreOnRollback(userId, productId, previous);
+        }
+    }
+
+    @Transactional
+    public void releaseAll(Long userId, Collection<Long> productIds) {
+        productIds.forEach(productId -> release(userId, productId));
+    }
+
+    /**
+     * Advance the wheel and drop every hold whose deadline has passed.
+     * Runs once a tick of the wheel.
+     */
+    @Scheduled(fixedRate = TICK_MILLIS, initialDelay = TICK_MILLIS)
+    void tick() {
+        long nowMillis = clock.millis();
+        try {
+            List<Expiry> expired = new ArrayList<>();
+            wheel.advance(nowMillis, expired::add);
+            int released = 0;
+            for (Expiry expiry : expired) {
+                if (removeHold(expiry.userId(), expiry.productId(), expiry.expiresAtMillis()) != null) {
+                    released++;
+                }
+            }
+            if (released > 0) {
+                stockHoldRepository.deleteExpired(toLocalDateTime(nowMillis));
+                log.debug("Released {} expired stock holds", released);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Stock hold expiry tick failed", e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadActiveHolds() {
+        long now = clock.millis();
+        stockHoldRepository.deleteExpired(toLocalDateTime(now));
+        List<StockHold> active = stockHoldRepository.findByExpiresAtAfter(toLocalDateTime(now));
+        for (StockHold row : active) {
+            long expiresAt = row.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            ProductHolds holds = holdsByProduct.computeIfAbsent(row.getProductId(), id -> new ProductHolds());
+            synchronized (holds) {
+                Hold previous = holds.byUser.put(row.getUserId(), new Hold(row.getQuantity(), expiresAt));
+                holds.total += row.getQuantity() - (previous != null ? previous.quantity() : 0);
+            }
+            wheel.schedule(new Expiry(row.getUserId(), row.getProductId(), expiresAt), expiresAt);
+        }
+        log.info("Loaded {} active stock holds", active.size());
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    // With an expected deadline, a hold that was refreshed since is left alone.
+    private Hold removeHold(Long userId, Long productId, Long expectedExpiresAt) {
+        ProductHolds holds = holdsByProduct.get(productId);
+        if (holds == null) {
+            return null;
+        }
+        synchronized (holds) {
+            Hold current = holds.byUser.get(userId);
+            if (current == null || (expectedExpiresAt != null && current.expiresAtMillis() != expectedExpiresAt)) {
+                return null;
+            }
+            holds.byUser.remove(userId);
+            holds.total -= current.quantity();
+            return current;
+        }
+    }
+
+    // The in-memory change is made up front so concurrent holds see it. If the surrounding
+    // transaction does not commit, every hold it touched goes back to its state before the
+    // transaction's first change.
+    private void restoreOnRollback(Long userId, Long productId, Hold previous) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<HoldKey, Optional<Hold>> originals = (Map<HoldKey, Optional<Hold>>) TransactionSynchronizationManager.getResource(this);
+        if (originals == null) {
+            Map<HoldKey, Optional<Hold>> touched = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, touched);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(InventoryReservationService.this);
+                    if (status != STATUS_COMMITTED) {
+                        touched.forEach((key, original) -> restore(key, original.orElse(null)));
+                    }
+                }
+            });
+            originals = touched;
+        }
+        originals.putIfAbsent(new HoldKey(userId, productId), Optional.ofNullable(previous));
+    }
+
+    private void restore(HoldKey key, Hold original) {
+        ProductHolds holds = holdsByProduct.computeIfAbsent(key.productId(), id -> new ProductHolds());
+        synchronized (holds) {
+            Hold current = original != null
+                    ? holds.byUser.put(key.userId(), original)
+                    : holds.byUser.remove(key.userId());
+            holds.total += (original != null ? original.quantity() : 0) - (current != null ? current.quantity() : 0);
+        }
+        if (original != null) {
+            wheel.schedule(new Expiry(key.userId(), key.productId(), original.expiresAtMillis()), original.expiresAtMillis());
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
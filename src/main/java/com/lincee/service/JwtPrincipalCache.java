@@ -0,0 +1,156 @@
+package com.lincee.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lincee.entity.User;
+import com.lincee.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Turns a bearer token into the authenticated user, without a database read on the common path.
+ *
+ * The token is verified once and the principal is built from its role and userId claims; the
+ * result is kept in a bounded cache keyed by the token until the token expires, so repeat
+ * requests skip signature verification as well. Tokens without those claims, and tokens issued
+ * before {@link #revokeUser} was called for their user, are resolved against the users table
+ * instead, so a role change or deactivation takes effect on the next request. Every lookup,
+ * cached or not, is checked against the {@link TokenRevocationService} list.
+ * Hit/miss/eviction counts are published under the "jwtPrincipals" cache name.
+ */
+@Component
+public class JwtPrincipalCache {
+
+    public static final String CACHE_NAME = "jwtPrincipals";
+
+    /**
+     * The authenticated user, as carried by the token.
+     */
+    public record TokenUser(Long userId, String username, String role, String tokenId, long expiresAt)
+            implements Principal {
+        @Override
+        public String getName() {
+            return username;
+        }
+    }
+
+    private final JwtService jwtService;
+    private final UserRepository userRepository;
+    private final TokenRevocationService revocations;
+    private final Cache<String, TokenUser> principals;
+    // userId -> when their claims stopped being trusted; kept as long as a token can live
+    private final Cache<Long, Long> revokedBefore;
+    private Clock clock = Clock.systemUTC();
+
+    public JwtPrincipalCache(JwtService jwtService, UserRepository userRepository, TokenRevocationService revocations,
+                             MeterRegistry meterRegistry, @Value("${app.auth.principal-cache.max-size:10000}") long maxSize) {
+        this.jwtService = jwtService;
+        this.userRepository = userRepository;
+        this.revocations = revocations;
+        Duration tokenLifetime = Duration.ofMillis(jwtService.getExpirationMs());
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(tokenLifetime)
+                .recordStats()
+                .build();
+        this.revokedBefore = Caffeine.newBuilder()
+                .expireAfterWrite(tokenLifetime)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principals, CACHE_NAME);
+    }
+
+    /**
+     * The user the token authenticates, or empty if the token is invalid, expired, revoked or
+     * names a user that no longer exists.
+     */
+    public Optional<TokenUser> resolve(String token) {
+        long now = clock.millis();
+        TokenUser cached = principals.getIfPresent(token);
+        if (cached != null) {
+            if (cached.expiresAt() > now && !revocations.isRevoked(cached.tokenId())) {
+                return Optional.of(cached);
+            }
+            principals.invalidate(token);
+            return Optional.empty();
+        }
+
+        Claims claims = jwtService.parseValidClaims(token);
+        if (claims == null || revocations.isRevoked(JwtService.tokenId(claims, token))) {
+            return Optional.empty();
+        }
+        TokenUser user = fromClaims(claims, token);
+        if (user != null) {
+            principals.put(token, user);
+            // A revokeUser that ran while this token was being resolved must not leave its claims cached
+            if (!isRevoked(user.userId(), claims)) {
+                return Optional.of(user);
+            }
+            principals.invalidate(token);
+        }
+        user = fromDatabase(claims, token);
+        if (user == null) {
+            return Optional.empty();
+        }
+        principals.put(token, user);
+        return Optional.of(user);
+    }
+
+    /**
+     * Stop trusting the claims in the user's current tokens, e.g. after their role changed or
+     * the account was disabled. Their tokens are checked against the users table from now on.
+     */
+    public void revokeUser(Long userId) {
+        revokedBefore.put(userId, clock.millis());
+        principals.asMap().values().removeIf(user -> Objects.equals(user.userId(), userId));
+    }
+
+    /**
+     * Forget one token's principal, e.g. on logout.
+     */
+    public void revokeToken(String token) {
+        principals.invalidate(token);
+    }
+
+    private TokenUser fromClaims(Claims claims, String token) {
+        Long userId = claims.get("userId", Long.class);
+        String role = claims.get("role", String.class);
+        if (userId == null || role == null || isRevoked(userId, claims)) {
+            return null;
+        }
+        return new TokenUser(userId, claims.getSubject(), role, JwtService.tokenId(claims, token), expiresAt(claims));
+    }
+
+    private boolean isRevoked(Long userId, Claims claims) {
+        Long revoked = revokedBefore.getIfPresent(userId);
+        Date issuedAt = claims.getIssuedAt();
+        return revoked != null && (issuedAt == null || issuedAt.getTime() <= revoked);
+    }
+
+    private TokenUser fromDatabase(Claims claims, String token) {
+        Optional<User> found = userRepository.findByUsername(claims.getSubject());
+        if (found.isEmpty() || Boolean.FALSE.equals(found.get().getActive())) {
+            return null;
+        }
+        User user = found.get();
+        return new TokenUser(user.getId(), user.getUsername(), user.getRole().name(), JwtService.tokenId(claims, token),
+                expiresAt(claims));
+    }
+
+    private static long expiresAt(Claims claims) {
+        return claims.getExpiration() != null ? claims.getExpiration().getTime() : Long.MAX_VALUE;
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+}
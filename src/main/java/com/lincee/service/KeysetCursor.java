@@ -0,0 +1,104 @@
+package com.lincee.service;
+
+import com.lincee.dto.CursorPageDTO;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Opaque position in a keyset-paginated listing: the sort value and id of the last row
+ * returned. Clients get it base64url-encoded and must not rely on its contents.
+ */
+public final class KeysetCursor {
+
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 100;
+
+    public enum Kind { CREATED_AT, PRICE }
+
+    private final Kind kind;
+    private final String value;
+    private final Long id;
+
+    private KeysetCursor(Kind kind, String value, Long id) {
+        this.kind = kind;
+        this.value = value;
+        this.id = id;
+    }
+
+    public static String ofCreatedAt(LocalDateTime createdAt, Long id) {
+        return new KeysetCursor(Kind.CREATED_AT, createdAt.toString(), id).encode();
+    }
+
+    public static String ofPrice(BigDecimal price, Long id) {
+        return new KeysetCursor(Kind.PRICE, price.toPlainString(), id).encode();
+    }
+
+    /**
+     * Decode a client-supplied cursor, rejecting anything that was not issued
+     * for a listing of the expected kind.
+     */
+    public static KeysetCursor decode(String cursor, Kind expected) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 3);
+            KeysetCursor decoded = new KeysetCursor(Kind.valueOf(parts[0]), parts[1], Long.valueOf(parts[2]));
+            if (decoded.kind != expected) {
+                throw new IllegalArgumentException("Cursor kind " + decoded.kind + " does not match " + expected);
+            }
+            // Parse eagerly so a malformed value fails here rather than in the query
+            if (expected == Kind.CREATED_AT) {
+                decoded.createdAt();
+            } else {
+                decoded.price();
+            }
+            return decoded;
+        } catch (RuntimeException e) {
+            throw new ApiException(ErrorCode.INVALID_PAGINATION, "Invalid cursor");
+        }
+    }
+
+    public static int validateSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_SIZE;
+        }
+        if (size < 1 || size > MAX_SIZE) {
+            throw new ApiException(ErrorCode.INVALID_PAGINATION, "Size must be between 1 and " + MAX_SIZE);
+        }
+        return size;
+    }
+
+    /**
+     * Build a page from a query that fetched {@code size + 1} rows; the extra row
+     * only signals that another page exists.
+     */
+    public static <E, T> CursorPageDTO<T> page(List<E> rows, int size, Function<E, String> cursorOf,
+                                               Function<E, T> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<E> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(content.get(content.size() - 1)) : null;
+        return new CursorPageDTO<>(content.stream().map(mapper).toList(), nextCursor);
+    }
+
+    public LocalDateTime createdAt() {
+        return LocalDateTime.parse(value);
+    }
+
+    public BigDecimal price() {
+        return new BigDecimal(value);
+    }
+
+    public Long id() {
+        return id;
+    }
+
+    private String encode() {
+        String raw = kind.name() + "|" + value + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,53 @@
+package com.lincee.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.lincee.dto.OrderDTO;
+import com.lincee.dto.PaymentDTO;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact form of an archived order: the order DTO (with its items) and its payment as
+ * gzip-compressed JSON. Uses its own mapper rather than the web one, so changes to the API's
+ * JSON settings never make archived orders unreadable.
+ */
+public final class OrderArchiveCodec {
+
+    public record Payload(OrderDTO order, PaymentDTO payment) {}
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    private OrderArchiveCodec() {}
+
+    public static byte[] encode(Payload payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            MAPPER.writeValue(out, payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode archived order", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Payload decode(byte[] data) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return MAPPER.readValue(in, Payload.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not decode archived order", e);
+        }
+    }
+}
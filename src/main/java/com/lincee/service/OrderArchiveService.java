@@ -0,0 +1,169 @@
+package com.lincee.service;
+
+import com.lincee.entity.ArchivedOrder;
+import com.lincee.entity.Order;
+import com.lincee.entity.Order.OrderStatus;
+import com.lincee.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the orders tables limited to recent orders.
+ *
+ * Finished orders (delivered, cancelled or returned) older than the archive age are moved in
+ * batches into archived_orders as one compressed document each, together with their items
+ * and payment, and removed from orders, order_items and payments. OrderService falls back to
+ * the archive when an order is looked up by id or number.
+ *
+ * When orders or order_items is a PostgreSQL table partitioned by range on created_at, the
+ * monthly partitions for the current and coming months are created ahead of time; for plain
+ * tables and other databases that step does nothing.
+ */
+@Service
+public class OrderArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderArchiveService.class);
+
+    static final Set<OrderStatus> ARCHIVABLE = EnumSet.of(OrderStatus.DELIVERED, OrderStatus.CANCELLED, OrderStatus.RETURNED);
+
+    private static final List<String> PARTITIONED_TABLES = List.of("orders", "order_items");
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final Duration archiveAfter;
+    private final int batchSize;
+    private final int partitionMonthsAhead;
+    private Clock clock = Clock.systemDefaultZone();
+
+    public OrderArchiveService(PlatformTransactionManager transactionManager,
+                               @Value("${app.orders.archive.after-days:365}") long archiveAfterDays,
+                               @Value("${app.orders.archive.batch-size:500}") int batchSize,
+                               @Value("${app.orders.partitions.months-ahead:3}") int partitionMonthsAhead) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archiveAfter = Duration.ofDays(archiveAfterDays);
+        this.batchSize = batchSize;
+        this.partitionMonthsAhead = partitionMonthsAhead;
+    }
+
+    // Runs once at startup, then every interval
+    @Scheduled(fixedDelayString = "${app.orders.archive.interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    void runMaintenance() {
+        try {
+            ensureFuturePartitions();
+            int archived = archiveExpired();
+            if (archived > 0) {
+                log.info("Archived {} orders older than {} days", archived, archiveAfter.toDays());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Order archiving failed", e);
+        }
+    }
+
+    /**
+     * Archive every finished order past the archive age, one transaction per batch.
+     * Returns the number of orders moved.
+     */
+    public int archiveExpired() {
+        LocalDateTime cutoff = LocalDateTime.now(clock).minus(archiveAfter);
+        int total = 0;
+        while (true) {
+            Integer moved = transactionTemplate.execute(status -> archiveBatch(cutoff));
+            total += moved;
+            if (moved < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    private int archiveBatch(LocalDateTime cutoff) {
+        List<Long> ids = orderRepository.findIdsToArchive(ARCHIVABLE, cutoff, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        for (Order order : orderRepository.findWithItemsByIdIn(ids)) {
+            OrderArchiveCodec.Payload payload = new OrderArchiveCodec.Payload(orderService.convertToDTO(order),
+                    order.getPayment() != null ? paymentService.convertToDTO(order.getPayment()) : null);
+            // Ids are assigned, so persist directly instead of save(), which would select first
+            entityManager.persist(new ArchivedOrder(order.getId(), order.getOrderNumber(), order.getUser().getId(),
+                    order.getStatus(), order.getCreatedAt(), now, OrderArchiveCodec.encode(payload)));
+        }
+        entityManager.flush();
+        orderRepository.deleteItemsByOrderIdIn(ids);
+        orderRepository.deletePaymentsByOrderIdIn(ids);
+        orderRepository.deleteByIdIn(ids);
+        return ids.size();
+    }
+
+    /**
+     * Create the monthly partitions from this month through {@code months-ahead} months out
+     * for each partitioned orders table. Existing partitions are left as they are.
+     */
+    public void ensureFuturePartitions() {
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        if (!(dialect instanceof PostgreSQLDialect)) {
+            return;
+        }
+        List<String> partitioned = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid " +
+                "WHERE c.relname IN ('orders', 'order_items')", String.class);
+        YearMonth current = YearMonth.now(clock);
+        for (String table : PARTITIONED_TABLES) {
+            if (!partitioned.contains(table)) {
+                continue;
+            }
+            for (int i = 0; i <= partitionMonthsAhead; i++) {
+                YearMonth month = current.plusMonths(i);
+                String partition = table + "_" + month.format(PARTITION_SUFFIX);
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + table +
+                        " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+            }
+        }
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+}
@@ -0,0 +1,230 @@
+package com.lincee.service;
+
+import com.lincee.dto.OrderStatusBulkResultDTO;
+import com.lincee.dto.OrderStatusUpdateDTO;
+import com.lincee.dto.OrderStatusUpdateResultDTO;
+import com.lincee.dto.OrderStatusUpdateResultDTO.Outcome;
+import com.lincee.entity.Order.OrderStatus;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.repository.OrderRepository;
+import com.lincee.repository.OrderRepository.StatusSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies thousands of order status changes in one request, for fulfilment runs.
+ *
+ * Rows are processed in chunks, one transaction each. A chunk reads the status and version of
+ * all its orders with two IN queries, checks every row against the transition table, and writes
+ * the accepted ones as one JDBC batch of version-checked UPDATEs. Rows whose version moved in
+ * between are re-read and retried, as in {@link OrderService#updateOrderStatus}, so a bulk run
+ * never overwrites a concurrent change. Every row gets its own result; a failing chunk does not
+ * undo the chunks before it.
+ */
+@Service
+public class OrderBulkStatusService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderBulkStatusService.class);
+
+    public static final int MAX_ROWS = 10_000;
+
+    private static final String UPDATE_SQL =
+            "UPDATE orders SET status = ?, tracking_number = COALESCE(?, tracking_number), version = version + 1, "
+            + "updated_at = ? WHERE id = ? AND version = ?";
+
+    private record Row(int index, OrderStatusUpdateDTO request, OrderStatus status) {}
+
+    private record Write(Row row, StatusSnapshot current) {}
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public OrderBulkStatusService(PlatformTransactionManager transactionManager,
+                                  @Value("${app.orders.bulk-status.chunk-size:500}") int chunkSize) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public OrderStatusBulkResultDTO apply(List<OrderStatusUpdateDTO> updates) {
+        if (updates == null || updates.isEmpty()) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, "At least one update is required");
+        }
+        if (updates.size() > MAX_ROWS) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, "At most " + MAX_ROWS + " updates per request");
+        }
+        OrderStatusUpdateResultDTO[] results = new OrderStatusUpdateResultDTO[updates.size()];
+        List<Row> rows = new ArrayList<>(updates.size());
+        for (int i = 0; i < updates.size(); i++) {
+            OrderStatusUpdateDTO update = updates.get(i);
+            if (update == null || (update.getOrderId() == null && isBlank(update.getOrderNumber()))) {
+                results[i] = result(i, update, null, Outcome.INVALID, "orderId or orderNumber is required");
+            } else if (isBlank(update.getStatus())) {
+                results[i] = result(i, update, null, Outcome.INVALID, "status is required");
+            } else {
+                try {
+                    rows.add(new Row(i, update, OrderService.parseStatus(update.getStatus())));
+                } catch (ApiException e) {
+                    results[i] = result(i, update, null, Outcome.INVALID, e.getDetails());
+                }
+            }
+        }
+
+        Set<Long> seen = new HashSet<>();
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            List<Row> chunk = rows.subList(from, Math.min(rows.size(), from + chunkSize));
+            List<OrderStatusUpdateResultDTO> applied;
+            try {
+                applied = transactionTemplate.execute(status -> applyChunk(chunk, seen));
+            } catch (DataAccessException e) {
+                log.warn("Bulk status chunk of {} rows failed", chunk.size(), e);
+                applied = chunk.stream()
+                        .map(row -> result(row.index(), row.request(), null, Outcome.ERROR, "Not applied; retry this row"))
+                        .collect(Collectors.toList());
+            }
+            for (OrderStatusUpdateResultDTO result : applied) {
+                results[result.getIndex()] = result;
+            }
+        }
+        OrderStatusBulkResultDTO summary = new OrderStatusBulkResultDTO(Arrays.asList(results));
+        log.info("Bulk status update: {} updated, {} unchanged, {} failed",
+                summary.getUpdated(), summary.getUnchanged(), summary.getFailed());
+        return summary;
+    }
+
+    private List<OrderStatusUpdateResultDTO> applyChunk(List<Row> chunk, Set<Long> seen) {
+        Set<Long> ids = new HashSet<>();
+        Set<String> orderNumbers = new HashSet<>();
+        for (Row row : chunk) {
+            if (row.request().getOrderId() != null) {
+                ids.add(row.request().getOrderId());
+            } else {
+                orderNumbers.add(row.request().getOrderNumber().trim());
+            }
+        }
+        Map<Long, StatusSnapshot> byId = ids.isEmpty() ? Map.of() : orderRepository.findStatusSnapshotsByIdIn(ids).stream()
+                .collect(Collectors.toMap(StatusSnapshot::getId, Function.identity()));
+        Map<String, StatusSnapshot> byNumber = orderNumbers.isEmpty() ? Map.of()
+                : orderRepository.findStatusSnapshotsByOrderNumberIn(orderNumbers).stream()
+                .collect(Collectors.toMap(StatusSnapshot::getOrderNumber, Function.identity()));
+
+        List<OrderStatusUpdateResultDTO> results = new ArrayList<>(chunk.size());
+        List<Write> writes = new ArrayList<>();
+        for (Row row : chunk) {
+            StatusSnapshot current = row.request().getOrderId() != null
+                    ? byId.get(row.request().getOrderId())
+                    : byNumber.get(row.request().getOrderNumber().trim());
+            if (current == null) {
+                results.add(result(row.index(), row.request(), null, Outcome.NOT_FOUND, "Order not found"));
+            } else if (!seen.add(current.getId())) {
+                results.add(result(row, current, Outcome.INVALID, "Order appears more than once in this request"));
+            } else {
+                check(row, current, results, writes);
+            }
+        }
+
+        for (int attempt = 0; attempt < OrderService.STATUS_UPDATE_ATTEMPTS && !writes.isEmpty(); attempt++) {
+            writes = write(writes, results);
+        }
+        for (Write lost : writes) {
+            results.add(result(lost.row(), lost.current(), Outcome.CONFLICT, "Order kept changing; try again"));
+        }
+        return results;
+    }
+
+    private void check(Row row, StatusSnapshot current, List<OrderStatusUpdateResultDTO> results, List<Write> writes) {
+        String trackingNumber = row.request().getTrackingNumber();
+        boolean sameStatus = current.getStatus() == row.status();
+        if (sameStatus && (trackingNumber == null || trackingNumber.equals(current.getTrackingNumber()))) {
+            results.add(result(row, current, Outcome.UNCHANGED, null));
+        } else if (!sameStatus && !current.getStatus().canTransitionTo(row.status())) {
+            results.add(result(row, current, Outcome.INVALID_TRANSITION,
+                    "Cannot go from " + current.getStatus() + " to " + row.status()));
+        } else {
+            writes.add(new Write(row, current));
+        }
+    }
+
+    // One batch for all accepted rows, in id order so concurrent bulk runs lock rows in the same
+    // order. Returns the rows that lost their version check, re-read and still valid.
+    private List<Write> write(List<Write> writes, List<OrderStatusUpdateResultDTO> results) {
+        writes.sort(Comparator.comparing(w -> w.current().getId()));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> args = new ArrayList<>(writes.size());
+        for (Write write : writes) {
+            args.add(new Object[] {write.row().status().name(), write.row().request().getTrackingNumber(), now,
+                    write.current().getId(), write.current().getVersion()});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, args);
+
+        List<Write> lost = new ArrayList<>();
+        for (int i = 0; i < writes.size(); i++) {
+            Write write = writes.get(i);
+            if (counts[i] != 0) {
+                results.add(new OrderStatusUpdateResultDTO(write.row().index(), write.current().getId(),
+                        write.current().getOrderNumber(), Outcome.UPDATED, write.row().status().name(), null));
+            } else {
+                lost.add(write);
+            }
+        }
+        if (lost.isEmpty()) {
+            return lost;
+        }
+        Map<Long, StatusSnapshot> reread = new HashMap<>();
+        for (StatusSnapshot snapshot : orderRepository.findStatusSnapshotsByIdIn(
+                lost.stream().map(w -> w.current().getId()).collect(Collectors.toList()))) {
+            reread.put(snapshot.getId(), snapshot);
+        }
+        List<Write> retry = new ArrayList<>();
+        for (Write write : lost) {
+            StatusSnapshot current = reread.get(write.current().getId());
+            if (current == null) {
+                results.add(result(write.row().index(), write.row().request(), null, Outcome.NOT_FOUND, "Order not found"));
+            } else {
+                check(write.row(), current, results, retry);
+            }
+        }
+        return retry;
+    }
+
+    private static OrderStatusUpdateResultDTO result(Row row, StatusSnapshot current, Outcome outcome, String message) {
+        return new OrderStatusUpdateResultDTO(row.index(), current.getId(), current.getOrderNumber(), outcome,
+                current.getStatus().name(), message);
+    }
+
+    private static OrderStatusUpdateResultDTO result(int index, OrderStatusUpdateDTO request, String status,
+                                                     Outcome outcome, String message) {
+        return new OrderStatusUpdateResultDTO(index, request != null ? request.getOrderId() : null,
+                request != null ? request.getOrderNumber() : null, outcome, status, message);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
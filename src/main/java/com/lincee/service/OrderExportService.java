@@ -0,0 +1,209 @@
+package com.lincee.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lincee.dto.OrderExportRow;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Streams every order in a date range as CSV (one line per order item) or NDJSON (one object
+ * per order with its items nested). Rows are read through a forward-only cursor and written
+ * straight to the caller's stream, flushing every few hundred rows, so neither the heap nor
+ * the response buffer grows with the size of the range.
+ */
+@Service
+public class OrderExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return value == null ? CSV : valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(ErrorCode.VALIDATION_ERROR, "Unsupported export format: " + value);
+            }
+        }
+    }
+
+    static final String CSV_HEADER = "order_number,created_at,status,user_id,order_total,"
+            + "product_id,product_name,size,color,quantity,unit_price,line_total";
+
+    private static final int FLUSH_EVERY_ROWS = Integer.parseInt(OrderRepository.EXPORT_FETCH_SIZE);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Check the range before the response is committed, so a bad request still gets a 400.
+     */
+    public void validateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, "startDate must not be after endDate");
+        }
+    }
+
+    /**
+     * Write the orders created between {@code startDate} and {@code endDate} (inclusive) to
+     * {@code out}, oldest first. The stream is flushed but not closed.
+     */
+    @Transactional(readOnly = true)
+    public void export(LocalDateTime startDate, LocalDateTime endDate, Format format, OutputStream out) throws IOException {
+        validateRange(startDate, endDate);
+        try (Stream<OrderExportRow> rows = orderRepository.streamExportRows(startDate, endDate)) {
+            if (format == Format.NDJSON) {
+                writeNdjson(rows.iterator(), out);
+            } else {
+                writeCsv(rows.iterator(), out);
+            }
+        }
+    }
+
+    private void writeCsv(Iterator<OrderExportRow> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        int written = 0;
+        while (rows.hasNext()) {
+            OrderExportRow row = rows.next();
+            writer.write(csv(row.getOrderNumber()));
+            writer.write(',');
+            writer.write(csv(row.getCreatedAt()));
+            writer.write(',');
+            writer.write(csv(row.getStatus()));
+            writer.write(',');
+            writer.write(csv(row.getUserId()));
+            writer.write(',');
+            writer.write(csv(row.getTotalAmount()));
+            writer.write(',');
+            writer.write(csv(row.getProductId()));
+            writer.write(',');
+            writer.write(csv(row.getProductName()));
+            writer.write(',');
+            writer.write(csv(row.getSize()));
+            writer.write(',');
+            writer.write(csv(row.getColor()));
+            writer.write(',');
+            writer.write(csv(row.getQuantity()));
+            writer.write(',');
+            writer.write(csv(row.getUnitPrice()));
+            writer.write(',');
+            writer.write(csv(row.getTotalPrice()));
+            writer.write('\n');
+            if (++written % FLUSH_EVERY_ROWS == 0) {
+                writer.flush();
+            }
+        }
+        writer.flush();
+    }
+
+    // Rows arrive ordered by order, so each order's items are consecutive and only the
+    // current order is ever open.
+    private void writeNdjson(Iterator<OrderExportRow> rows, OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.setRootValueSeparator(null);
+        Long currentOrderId = null;
+        int written = 0;
+        while (rows.hasNext()) {
+            OrderExportRow row = rows.next();
+            if (!row.getOrderId().equals(currentOrderId)) {
+                if (currentOrderId != null) {
+                    endOrder(json);
+                }
+                currentOrderId = row.getOrderId();
+                json.writeStartObject();
+                json.writeStringField("orderNumber", row.getOrderNumber());
+                json.writeStringField("createdAt", row.getCreatedAt().toString());
+                json.writeStringField("status", row.getStatus().name());
+                json.writeNumberField("userId", row.getUserId());
+                writeDecimal(json, "totalAmount", row.getTotalAmount());
+                json.writeArrayFieldStart("items");
+            }
+            if (row.hasItem()) {
+                json.writeStartObject();
+                json.writeNumberField("productId", row.getProductId());
+                json.writeStringField("productName", row.getProductName());
+                json.writeStringField("size", row.getSize());
+                json.writeStringField("color", row.getColor());
+                json.writeNumberField("quantity", row.getQuantity());
+                writeDecimal(json, "unitPrice", row.getUnitPrice());
+                writeDecimal(json, "totalPrice", row.getTotalPrice());
+                json.writeEndObject();
+            }
+            if (++written % FLUSH_EVERY_ROWS == 0) {
+                json.flush();
+            }
+        }
+        if (currentOrderId != null) {
+            endOrder(json);
+        }
+        json.flush();
+    }
+
+    private static void endOrder(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static void writeDecimal(JsonGenerator json, String field, BigDecimal value) throws IOException {
+        if (value == null) {
+            json.writeNullField(field);
+        } else {
+            json.writeNumberField(field, value);
+        }
+    }
+
+    // RFC 4180: quote fields containing a delimiter, quote or line break, doubling inner quotes
+    static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + text.replace("\"", "\"\"") + '"';
+            }
+        }
+        return text;
+    }
+}
@@ -0,0 +1,110 @@
+package com.lincee.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-ordered order numbers such as {@code ORD-0PQ8M3X1G00A7}.
+ *
+ * Each number packs 41 bits of milliseconds since 2024-01-01, a 10-bit node id and a 12-bit
+ * per-millisecond sequence into one long, written as 13 fixed-width Crockford base32 digits.
+ * Numbers from one node are strictly increasing and sort in creation order, so inserts land
+ * at the right edge of the order_number index. Nodes with distinct ids never collide, with no
+ * database round trip. The clock and sequence advance with a single CAS; if the wall clock
+ * steps back or a millisecond's 4096 numbers run out, the generator keeps counting from the
+ * last timestamp it issued instead of waiting.
+ */
+@Component
+public class OrderNumberGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderNumberGenerator.class);
+
+    public static final String PREFIX = "ORD-";
+
+    static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int DIGITS = 13;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    // Last issued (timestamp << SEQUENCE_BITS | sequence)
+    private final AtomicLong state = new AtomicLong();
+
+    @Autowired
+    public OrderNumberGenerator(@Value("${app.order-number.node-id:-1}") long nodeId) {
+        this(nodeId >= 0 ? nodeId : derivedNodeId(), System::currentTimeMillis);
+    }
+
+    OrderNumberGenerator(long nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Order number node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    public String next() {
+        return format(nextId());
+    }
+
+    long nextId() {
+        while (true) {
+            long previous = state.get();
+            long previousMillis = previous >>> SEQUENCE_BITS;
+            long now = Math.max(clock.getAsLong() - EPOCH_MILLIS, previousMillis);
+            long next;
+            if (now > previousMillis) {
+                next = now << SEQUENCE_BITS;
+            } else if ((previous & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                next = previous + 1;
+            } else {
+                next = (previousMillis + 1) << SEQUENCE_BITS;
+            }
+            if (state.compareAndSet(previous, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    static String format(long id) {
+        char[] out = new char[PREFIX.length() + DIGITS];
+        PREFIX.getChars(0, PREFIX.length(), out, 0);
+        for (int i = out.length - 1; i >= PREFIX.length(); i--) {
+            out[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(out);
+    }
+
+    // Without a configured id, fall back to host name and process id. Instances sharing a
+    // database should set app.order-number.node-id explicitly to rule out collisions.
+    private static long derivedNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        long pid = ProcessHandle.current().pid();
+        long derived = ((host + "/" + pid).hashCode() & 0x7fffffffL) % (MAX_NODE_ID + 1);
+        log.warn("app.order-number.node-id is not set; using {} derived from host {} and pid {}", derived, host, pid);
+        return derived;
+    }
+}
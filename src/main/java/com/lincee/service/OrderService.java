@@ -1,32 +1,74 @@
 package com.lincee.service;
 
+import com.lincee.dto.CursorPageDTO;
 import com.lincee.dto.OrderDTO;
+import com.lincee.entity.ArchivedOrder;
 import com.lincee.entity.Order;
 import com.lincee.entity.Order.OrderStatus;
 import com.lincee.entity.OrderItem;
 import com.lincee.entity.Product;
+import com.lincee.entity.ProductVariant;
 import com.lincee.entity.User;
 import com.lincee.dto.OrderItemDTO;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.exception.InsufficientStockException;
+import com.lincee.repository.ArchivedOrderRepository;
 import com.lincee.repository.OrderRepository;
 import com.lincee.repository.ProductRepository;
+import com.lincee.repository.ProductVariantRepository;
 import com.lincee.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class OrderService {
     
+    private static final Logger log = LoggerFactory.getLogger(OrderService.class);
+    
+    // The oversell guards: an update touches its row only while enough stock remains beyond
+    // what other shoppers hold (and, for products, outside a drop), so concurrent checkouts can
+    // never take a quantity below zero. In SQL so every line of an order goes out in one JDBC batch
+    private static final String PRODUCT_DECREMENT_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity - ? >= ? "
+            + "AND (drop_mode IS NULL OR drop_mode = FALSE)";
+    private static final String VARIANT_DECREMENT_SQL =
+            "UPDATE product_variants SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+    
+    // A status write that keeps losing its compare-and-set gives up after this many reads
+    static final int STATUS_UPDATE_ATTEMPTS = 5;
+    
+    private static final String ORDER_ITEM_SEQUENCE = "order_items_seq";
+    private static final int ORDER_ITEM_ID_BLOCK = 20;
+    
     @Autowired
     private OrderRepository orderRepository;
     
@@ -36,6 +78,30 @@ public class OrderService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private ProductVariantRepository variantRepository;
+    
+    @Autowired
+    private ProductCatalogCache catalogCache;
+    
+    @Autowired
+    private InventoryReservationService inventoryReservations;
+    
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+    
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+    
+    @Autowired
+    private DropStockService dropStock;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
     public OrderDTO createOrder(Long userId, OrderDTO orderDTO) {
         Optional<User> user = userRepository.findById(userId);
         if (!user.isPresent()) {
@@ -84,25 +150,43 @@ public class OrderService {
         
         // Process Order Items and Calculate Total
         BigDecimal calculatedTotal = BigDecimal.ZERO;
+        List<OrderItemDTO> lines = orderDTO.getOrderItems();
+        for (OrderItemDTO itemDTO : lines) {
+            if (itemDTO.getQuantity() == null || itemDTO.getQuantity() <= 0) {
+                throw new ApiException(ErrorCode.INVALID_QUANTITY, "Product " + itemDTO.getProductId());
+            }
+        }
+        // Every product and variant the order references, one query each. Products are loaded
+        // first so the variants' product references resolve from the persistence context.
+        Set<Long> productIds = lines.stream().map(OrderItemDTO::getProductId).filter(Objects::nonNull).collect(Collectors.toSet());
+        Map<Long, Product> products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        Map<Long, List<ProductVariant>> variantsByProduct = productIds.isEmpty() ? Map.of()
+                : variantRepository.findByProductIdIn(productIds).stream()
+                        .collect(Collectors.groupingBy(v -> v.getProduct().getId()));
+        ProductVariant[] lineVariants = new ProductVariant[lines.size()];
         
-        for (OrderItemDTO itemDTO : orderDTO.getOrderItems()) {
-            Product product = productRepository.findById(itemDTO.getProductId())
-                    .orElseThrow(() -> new RuntimeException("Product not found: " + itemDTO.getProductId()));
-            
-            // Check Stock
-            if (product.getStockQuantity() < itemDTO.getQuantity()) {
-                throw new RuntimeException("Insufficient stock for product: " + product.getName());
+        for (int line = 0; line < lines.size(); line++) {
+            OrderItemDTO itemDTO = lines.get(line);
+            Product product = products.get(itemDTO.getProductId());
+            if (product == null) {
+                throw new RuntimeException("Product not found: " + itemDTO.getProductId());
+            }
+            List<ProductVariant> variants = variantsByProduct.get(product.getId());
+            if (variants != null) {
+                lineVariants[line] = variants.stream()
+                        .filter(v -> Boolean.TRUE.equals(v.getActive()) && v.matches(itemDTO.getSize(), itemDTO.getColor()))
+                        .findFirst()
+                        .orElseThrow(() -> new ApiException(ErrorCode.VALIDATION_ERROR,
+                                "Invalid size/color combination for product " + product.getId()));
             }
-            
-            // Deduct Stock
-            product.setStockQuantity(product.getStockQuantity() - itemDTO.getQuantity());
-            productRepository.save(product);
             
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
             orderItem.setProduct(product);
             orderItem.setQuantity(itemDTO.getQuantity());
-            orderItem.setUnitPrice(product.getDiscountPrice() != null ? product.getDiscountPrice() : product.getPrice());
+            orderItem.setUnitPrice(lineVariants[line] != null ? lineVariants[line].getEffectivePrice()
+                    : product.getDiscountPrice() != null ? product.getDiscountPrice() : product.getPrice());
             orderItem.setTotalPrice(orderItem.getUnitPrice().multiply(new BigDecimal(itemDTO.getQuantity())));
             orderItem.setSize(itemDTO.getSize());
             orderItem.setColor(itemDTO.getColor());
@@ -111,6 +195,8 @@ public class OrderService {
             calculatedTotal = calculatedTotal.add(orderItem.getTotalPrice());
         }
         
+        reserveStock(userId, order.getOrderNumber(), lines, lineVariants);
+        
         // Set final total (Items + Tax + Shipping - Discount)
         order.setTotalAmount(calculatedTotal.add(order.getTaxAmount()).add(order.getShippingCost()).subtract(order.getDiscountAmount()));
 
@@ -118,42 +204,103 @@ public class OrderService {
         return convertToDTO(savedOrder);
     }
     
+    @Transactional(readOnly = true)
     public OrderDTO getOrderById(Long orderId) {
-        Optional<Order> order = orderRepository.findById(orderId);
-        return order.map(this::convertToDTO)
+        return toDTOs(List.of(orderId)).stream().findFirst()
+                .or(() -> archivedOrderRepository.findById(orderId).map(OrderService::fromArchive))
                 .orElseThrow(() -> new RuntimeException("Order not found"));
     }
     
+    @Transactional(readOnly = true)
     public OrderDTO getOrderByNumber(String orderNumber) {
-        Optional<Order> order = orderRepository.findByOrderNumber(orderNumber);
+        Optional<Order> order = orderRepository.findWithItemsByOrderNumber(orderNumber);
         return order.map(this::convertToDTO)
+                .or(() -> archivedOrderRepository.findByOrderNumber(orderNumber).map(OrderService::fromArchive))
                 .orElseThrow(() -> new RuntimeException("Order not found"));
     }
     
+    @Transactional(readOnly = true)
     public Page<OrderDTO> getUserOrders(Long userId, Pageable pageable) {
-        return orderRepository.findByUserId(userId, pageable).map(this::convertToDTO);
+        return toDTOs(orderRepository.findIdsByUserId(userId, pageable));
     }
     
+    @Transactional(readOnly = true)
     public List<OrderDTO> getUserOrderList(Long userId) {
-        return orderRepository.findByUserId(userId).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return toDTOs(orderRepository.findIdsByUserId(userId));
     }
     
+    @Transactional(readOnly = true)
     public Page<OrderDTO> getOrdersByStatus(OrderStatus status, Pageable pageable) {
-        return orderRepository.findByStatus(status, pageable).map(this::convertToDTO);
+        return toDTOs(orderRepository.findIdsByStatus(status, pageable));
+    }
+    
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderDTO> getUserOrdersByCursor(Long userId, String cursor, Integer size) {
+        int pageSize = KeysetCursor.validateSize(size);
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<Order> rows;
+        if (cursor == null) {
+            rows = orderRepository.findUserOrdersNewest(userId, limit);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor, KeysetCursor.Kind.CREATED_AT);
+            rows = orderRepository.findUserOrdersNewestAfter(userId, position.createdAt(), position.id(), limit);
+        }
+        loadItems(rows);
+        return KeysetCursor.page(rows, pageSize, o -> KeysetCursor.ofCreatedAt(o.getCreatedAt(), o.getId()), this::convertToDTO);
+    }
+    
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderDTO> getOrdersByStatusCursor(OrderStatus status, String cursor, Integer size) {
+        int pageSize = KeysetCursor.validateSize(size);
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<Order> rows;
+        if (cursor == null) {
+            rows = orderRepository.findByStatusNewest(status, limit);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor, KeysetCursor.Kind.CREATED_AT);
+            rows = orderRepository.findByStatusNewestAfter(status, position.createdAt(), position.id(), limit);
+        }
+        loadItems(rows);
+        return KeysetCursor.page(rows, pageSize, o -> KeysetCursor.ofCreatedAt(o.getCreatedAt(), o.getId()), this::convertToDTO);
     }
     
     public OrderDTO updateOrderStatus(Long orderId, OrderStatus status) {
-        Optional<Order> order = orderRepository.findById(orderId);
-        if (!order.isPresent()) {
-            throw new RuntimeException("Order not found");
+        changeStatus(orderId, status, true);
+        return getOrderById(orderId);
+    }
+    
+    /**
+     * Move an order to {@code status} if the transition table allows it, for callers reacting to
+     * events that may repeat or arrive late (payment webhooks). Returns false instead of failing
+     * when the order has already moved elsewhere.
+     */
+    public boolean advanceStatus(Long orderId, OrderStatus status) {
+        return changeStatus(orderId, status, false);
+    }
+    
+    // Read status and version, check the transition, then write with one conditional UPDATE on
+    // that version. Losing the race means another writer changed the order in between, so the
+    // transition is checked again against what it did rather than overwriting it. Setting the
+    // current status again is a no-op.
+    private boolean changeStatus(Long orderId, OrderStatus status, boolean strict) {
+        for (int attempt = 0; attempt < STATUS_UPDATE_ATTEMPTS; attempt++) {
+            OrderRepository.StatusVersion current = orderRepository.findStatusVersionById(orderId)
+                    .orElseThrow(() -> new RuntimeException("Order not found"));
+            if (current.getStatus() == status) {
+                return true;
+            }
+            if (!current.getStatus().canTransitionTo(status)) {
+                if (strict) {
+                    throw new ApiException(ErrorCode.INVALID_STATUS_TRANSITION,
+                            "Order " + orderId + " cannot go from " + current.getStatus() + " to " + status);
+                }
+                return false;
+            }
+            if (orderRepository.updateStatusIfVersion(orderId, current.getVersion(), status, LocalDateTime.now()) == 1) {
+                return true;
+            }
         }
-        
-        Order existingOrder = order.get();
-        existingOrder.setStatus(status);
-        Order updatedOrder = orderRepository.save(existingOrder);
-        return convertToDTO(updatedOrder);
+        throw new ApiException(ErrorCode.CONCURRENT_MODIFICATION, "Order " + orderId + " kept changing; try again");
     }
     
     public OrderDTO updateOrder(Long orderId, OrderDTO orderDTO) {
@@ -163,6 +310,10 @@ public class OrderService {
         }
         
         Order existingOrder = order.get();
+        if (orderDTO.getVersion() != null && !orderDTO.getVersion().equals(existingOrder.getVersion())) {
+            throw new ApiException(ErrorCode.CONCURRENT_MODIFICATION,
+                    "Order " + orderId + " is at version " + existingOrder.getVersion() + ", not " + orderDTO.getVersion());
+        }
         if (orderDTO.getTotalAmount() != null) {
             existingOrder.setTotalAmount(orderDTO.getTotalAmount());
         }
@@ -181,12 +332,21 @@ public class OrderService {
         if (orderDTO.getTrackingNumber() != null) {
             existingOrder.setTrackingNumber(orderDTO.getTrackingNumber());
         }
+        
+        // Field edits are checked against the version read above when they flush
+        orderRepository.saveAndFlush(existingOrder);
         if (orderDTO.getStatus() != null) {
-            existingOrder.setStatus(OrderStatus.valueOf(orderDTO.getStatus()));
+            changeStatus(orderId, parseStatus(orderDTO.getStatus()), true);
+        }
+        return getOrderById(orderId);
+    }
+    
+    static OrderStatus parseStatus(String status) {
+        try {
+            return OrderStatus.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(ErrorCode.INVALID_ORDER_STATUS, "Unknown order status: " + status);
         }
-        
-        Order updatedOrder = orderRepository.save(existingOrder);
-        return convertToDTO(updatedOrder);
     }
     
     public void deleteOrder(Long orderId) {
@@ -196,10 +356,9 @@ public class OrderService {
         orderRepository.deleteById(orderId);
     }
     
+    @Transactional(readOnly = true)
     public List<OrderDTO> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return orderRepository.findOrdersByDateRange(startDate, endDate).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return toDTOs(orderRepository.findIdsByDateRange(startDate, endDate));
     }
     
     public Long getTotalOrderCount() {
@@ -214,11 +373,159 @@ public class OrderService {
         return orderRepository.countByUserId(userId);
     }
     
+    /**
+     * Deduct stock with one guarded UPDATE per line, leaving what other shoppers hold
+     * untouched. Lines are applied in product id order so concurrent orders lock rows in the
+     * same sequence. Every short line is collected and reported together; the thrown
+     * exception rolls back the lines that did succeed. The buyer's own holds are released.
+     */
+    private void reserveStock(Long userId, String orderNumber, List<OrderItemDTO> lines, ProductVariant[] lineVariants) {
+        List<Integer> byProduct = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            byProduct.add(i);
+        }
+        byProduct.sort(Comparator.comparing((Integer i) -> lines.get(i).getProductId())
+                .thenComparing(i -> lineVariants[i] != null ? lineVariants[i].getId() : 0L));
+        
+        String[] shortages = new String[lines.size()];
+        boolean anyShort = false;
+        
+        // Variant rows first, as one batch; a line whose variant is short never touches the product total
+        List<Integer> variantLines = byProduct.stream().filter(i -> lineVariants[i] != null).collect(Collectors.toList());
+        int[] variantUpdates = batchDecrement(VARIANT_DECREMENT_SQL, variantLines,
+                line -> new Object[] {lines.get(line).getQuantity(), lineVariants[line].getId(), lines.get(line).getQuantity()});
+        List<Integer> productLines = new ArrayList<>(byProduct);
+        
+        // Drop-mode products sell from DropStockService's counter; their row is updated later in batches
+        List<Integer> dropLines = byProduct.stream()
+                .filter(i -> lineVariants[i] == null && dropStock.isActive(lines.get(i).getProductId()))
+                .collect(Collectors.toList());
+        productLines.removeAll(dropLines);
+        Map<Long, Integer> dropSales = new LinkedHashMap<>();
+        for (int line : dropLines) {
+            OrderItemDTO item = lines.get(line);
+            if (dropStock.take(item.getProductId(), item.getQuantity())) {
+                dropSales.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            } else {
+                shortages[line] = "Product " + item.getProductId() + ": requested " + item.getQuantity()
+                        + ", available " + dropStock.getAvailable(item.getProductId());
+                anyShort = true;
+            }
+        }
+        
+        for (int i = 0; i < variantLines.size(); i++) {
+            if (variantUpdates[i] == 0) {
+                int line = variantLines.get(i);
+                OrderItemDTO item = lines.get(line);
+                Integer onHand = variantRepository.findStockQuantityById(lineVariants[line].getId());
+                shortages[line] = "Product " + item.getProductId() + " (" + lineVariants[line].getLabel() + "): requested "
+                        + item.getQuantity() + ", available " + (onHand != null ? onHand : 0);
+                productLines.remove(Integer.valueOf(line));
+                anyShort = true;
+            }
+        }
+        
+        int[] heldByOthers = new int[lines.size()];
+        for (int line : productLines) {
+            heldByOthers[line] = inventoryReservations.getHeldByOthers(lines.get(line).getProductId(), userId);
+        }
+        int[] productUpdates = batchDecrement(PRODUCT_DECREMENT_SQL, productLines, line -> new Object[] {
+                lines.get(line).getQuantity(), lines.get(line).getProductId(), heldByOthers[line], lines.get(line).getQuantity()});
+        for (int i = 0; i < productLines.size(); i++) {
+            if (productUpdates[i] == 0) {
+                int line = productLines.get(i);
+                OrderItemDTO item = lines.get(line);
+                Integer onHand = productRepository.findStockQuantityById(item.getProductId());
+                int available = Math.max(0, (onHand != null ? onHand : 0) - heldByOthers[line]);
+                shortages[line] = "Product " + item.getProductId() + ": requested " + item.getQuantity()
+                        + ", available " + available;
+                anyShort = true;
+            }
+        }
+        if (anyShort) {
+            Map<String, String> shortLines = new LinkedHashMap<>();
+            for (int line = 0; line < shortages.length; line++) {
+                if (shortages[line] != null) {
+                    shortLines.put("orderItems[" + line + "]", shortages[line]);
+                }
+            }
+            throw new InsufficientStockException(shortLines);
+        }
+        dropStock.record(orderNumber, dropSales);
+        List<Long> productIds = lines.stream().map(OrderItemDTO::getProductId).distinct().collect(Collectors.toList());
+        inventoryReservations.releaseAll(userId, productIds);
+        catalogCache.evictStock(productIds);
+    }
+    
+    // One statement per line, sent as a single JDBC batch; returns the update count of each line
+    private int[] batchDecrement(String sql, List<Integer> lines, Function<Integer, Object[]> parameters) {
+        if (lines.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(sql, lines.stream().map(parameters).collect(Collectors.toList()));
+    }
+    
+    /**
+     * Order item ids come from a pooled sequence so their inserts can be batched. On a database
+     * whose order_items rows were numbered by the old identity column, move the sequence past
+     * the highest existing id once.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void alignOrderItemSequence() {
+        try {
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM order_items", Long.class);
+            if (maxId == null) {
+                return;
+            }
+            Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+            Long next = jdbcTemplate.queryForObject(
+                    dialect.getSequenceSupport().getSequenceNextValString(ORDER_ITEM_SEQUENCE), Long.class);
+            // The pooled optimizer hands out the block (next - ORDER_ITEM_ID_BLOCK, next]
+            if (next != null && next - ORDER_ITEM_ID_BLOCK < maxId) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + ORDER_ITEM_SEQUENCE + " RESTART WITH " + (maxId + ORDER_ITEM_ID_BLOCK + 1));
+                log.info("Moved {} past existing order item id {}", ORDER_ITEM_SEQUENCE, maxId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not align {}", ORDER_ITEM_SEQUENCE, e);
+        }
+    }
+    
     private String generateOrderNumber() {
-        return "ORD-" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        return orderNumberGenerator.next();
+    }
+    
+    private Page<OrderDTO> toDTOs(Page<Long> ids) {
+        return new PageImpl<>(toDTOs(ids.getContent()), ids.getPageable(), ids.getTotalElements());
+    }
+    
+    // Hydrates orders with their payment, items and products in one statement, in the order of ids
+    private List<OrderDTO> toDTOs(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Order> orders = orderRepository.findWithItemsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        return ids.stream()
+                .map(orders::get)
+                .filter(Objects::nonNull)
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+    
+    // Initializes the items of orders already in the persistence context with one statement
+    private void loadItems(List<Order> orders) {
+        if (!orders.isEmpty()) {
+            orderRepository.findWithItemsByIdIn(orders.stream().map(Order::getId).collect(Collectors.toList()));
+        }
+    }
+    
+    // Orders moved out by OrderArchiveService are served from their archived snapshot
+    private static OrderDTO fromArchive(ArchivedOrder archived) {
+        return OrderArchiveCodec.decode(archived.getPayload()).order();
     }
     
-    private OrderDTO convertToDTO(Order order) {
+    OrderDTO convertToDTO(Order order) {
         OrderDTO dto = new OrderDTO();
         dto.setId(order.getId());
         dto.setUserId(order.getUser().getId());
@@ -234,6 +541,7 @@ public class OrderService {
         dto.setDeliveryDate(order.getDeliveryDate());
         dto.setCreatedAt(order.getCreatedAt());
         dto.setUpdatedAt(order.getUpdatedAt());
+        dto.setVersion(order.getVersion());
 
         // Map order items to DTOs
         if (order.getOrderItems() != null) {
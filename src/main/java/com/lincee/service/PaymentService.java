@@ -2,31 +2,44 @@ package com.lincee.service;
 
 import com.lincee.dto.PaymentDTO;
 import com.lincee.entity.Order;
+import com.lincee.entity.Order.OrderStatus;
 import com.lincee.entity.Payment;
 import com.lincee.entity.Payment.PaymentMethod;
 import com.lincee.entity.Payment.PaymentStatus;
 import com.lincee.repository.OrderRepository;
 import com.lincee.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class PaymentService {
     
+    private static final Logger log = LoggerFactory.getLogger(PaymentService.class);
+    
+    // A gateway result never moves a payment out of these
+    private static final Set<PaymentStatus> SETTLED = EnumSet.of(PaymentStatus.COMPLETED, PaymentStatus.REFUNDED);
+    
     @Autowired
     private PaymentRepository paymentRepository;
     
     @Autowired
     private OrderRepository orderRepository;
     
+    @Autowired
+    private OrderService orderService;
+    
     public PaymentDTO createPayment(Long orderId, PaymentDTO paymentDTO) {
         Optional<Order> order = orderRepository.findById(orderId);
         if (!order.isPresent()) {
@@ -107,6 +120,40 @@ public class PaymentService {
         return convertToDTO(updatedPayment);
     }
     
+    /**
+     * Record a successful gateway payment and confirm its order. A repeated delivery changes
+     * nothing, and the order is only confirmed while it is still PENDING. Returns false when no
+     * payment has this transaction id.
+     */
+    public boolean recordGatewaySuccess(String transactionId, String referenceNumber) {
+        Optional<Long> orderId = paymentRepository.findOrderIdByTransactionId(transactionId);
+        if (orderId.isEmpty()) {
+            return false;
+        }
+        if (paymentRepository.markCompleted(transactionId, referenceNumber, LocalDateTime.now(),
+                PaymentStatus.COMPLETED, SETTLED) == 0) {
+            log.info("Payment {} was already settled; ignoring repeated success", transactionId);
+        }
+        if (!orderService.advanceStatus(orderId.get(), OrderStatus.CONFIRMED)) {
+            log.info("Order {} is past PENDING; payment {} does not change it", orderId.get(), transactionId);
+        }
+        return true;
+    }
+    
+    /**
+     * Record a failed gateway payment. A failure that arrives after the payment completed (or
+     * was refunded) is ignored. Returns false when no payment has this transaction id.
+     */
+    public boolean recordGatewayFailure(String transactionId) {
+        if (paymentRepository.findOrderIdByTransactionId(transactionId).isEmpty()) {
+            return false;
+        }
+        if (paymentRepository.markFailed(transactionId, LocalDateTime.now(), PaymentStatus.FAILED, SETTLED) == 0) {
+            log.info("Payment {} was already settled; ignoring late failure", transactionId);
+        }
+        return true;
+    }
+    
     public PaymentDTO updatePayment(Long paymentId, PaymentDTO paymentDTO) {
         Optional<Payment> payment = paymentRepository.findById(paymentId);
         if (!payment.isPresent()) {
@@ -153,7 +200,7 @@ public class PaymentService {
         return paymentRepository.countByStatus(PaymentStatus.PENDING);
     }
     
-    private PaymentDTO convertToDTO(Payment payment) {
+    PaymentDTO convertToDTO(Payment payment) {
         PaymentDTO dto = new PaymentDTO();
         dto.setId(payment.getId());
         dto.setOrderId(payment.getOrder().getId());
@@ -0,0 +1,203 @@
+package com.lincee.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lincee.dto.ProductDTO;
+import com.lincee.entity.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache for the public product catalog reads.
+ * Entries are weighed by the number of products they hold and expire after a fixed TTL.
+ * Writers invalidate only the detail entry and the listings the product appears in,
+ * before and after the change. Stock changes drop the listing pages that currently show
+ * the product, since listings carry stock levels too. Hit/miss/eviction counts are published under the
+ * "productCatalog" cache name on the actuator metrics endpoint.
+ */
+@Component
+public class ProductCatalogCache {
+
+    public static final String CACHE_NAME = "productCatalog";
+
+    enum Scope { ALL, ACTIVE, CATEGORY, BRAND, FEATURED }
+
+    private record DetailKey(Long productId) {}
+
+    private record ListingKey(Scope scope, String value, Pageable pageable) {}
+
+    private final Cache<Object, Object> cache;
+
+    public ProductCatalogCache(@Value("${app.cache.products.max-weight:10000}") long maxWeight,
+                               @Value("${app.cache.products.ttl-seconds:300}") long ttlSeconds,
+                               MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Object key, Object value) -> weigh(value))
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public ProductDTO getProduct(Long productId, Supplier<ProductDTO> loader) {
+        return (ProductDTO) cache.get(new DetailKey(productId), key -> loader.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    public Page<ProductDTO> getAll(Pageable pageable, Supplier<Page<ProductDTO>> loader) {
+        return (Page<ProductDTO>) cache.get(new ListingKey(Scope.ALL, null, pageable), key -> loader.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    public Page<ProductDTO> getActive(Pageable pageable, Supplier<Page<ProductDTO>> loader) {
+        return (Page<ProductDTO>) cache.get(new ListingKey(Scope.ACTIVE, null, pageable), key -> loader.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    public Page<ProductDTO> getByCategory(String category, Pageable pageable, Supplier<Page<ProductDTO>> loader) {
+        return (Page<ProductDTO>) cache.get(new ListingKey(Scope.CATEGORY, category, pageable), key -> loader.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    public Page<ProductDTO> getByBrand(String brand, Pageable pageable, Supplier<Page<ProductDTO>> loader) {
+        return (Page<ProductDTO>) cache.get(new ListingKey(Scope.BRAND, brand, pageable), key -> loader.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<ProductDTO> getFeatured(Supplier<List<ProductDTO>> loader) {
+        return (List<ProductDTO>) cache.get(new ListingKey(Scope.FEATURED, null, null), key -> loader.get());
+    }
+
+    /**
+     * Evict every entry that could contain one of the given products.
+     * Pass the footprint taken before a change together with the one taken after it
+     * so that listings the product moved out of are dropped as well.
+     */
+    public void invalidate(Collection<Footprint> footprints) {
+        if (footprints.isEmpty()) {
+            return;
+        }
+        List<Footprint> snapshot = new ArrayList<>(footprints);
+        runNowAndAfterCommit(() -> cache.asMap().keySet().removeIf(key -> affects(key, snapshot)));
+    }
+
+    public void invalidate(Footprint... footprints) {
+        invalidate(List.of(footprints));
+    }
+
+    /**
+     * Evict only the detail entries, for changes that listings do not show (collection membership).
+     */
+    public void evictProducts(Collection<Long> productIds) {
+        List<Long> ids = new ArrayList<>(productIds);
+        runNowAndAfterCommit(() -> ids.forEach(id -> cache.invalidate(new DetailKey(id))));
+    }
+
+    /**
+     * Evict the detail entries and every cached listing that shows one of the products, after
+     * their stock changed. Stock does not move a product between listings, so the pages to drop
+     * are exactly the ones holding it; no footprint (and no product read) is needed.
+     */
+    public void evictStock(Collection<Long> productIds) {
+        Set<Long> ids = new HashSet<>(productIds);
+        if (ids.isEmpty()) {
+            return;
+        }
+        runNowAndAfterCommit(() -> cache.asMap().entrySet()
+                .removeIf(entry -> shows(entry.getKey(), entry.getValue(), ids)));
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    private static boolean affects(Object key, List<Footprint> footprints) {
+        if (key instanceof DetailKey detail) {
+            return footprints.stream().anyMatch(f -> Objects.equals(f.productId, detail.productId()));
+        }
+        ListingKey listing = (ListingKey) key;
+        return switch (listing.scope()) {
+            case ALL -> true;
+            case ACTIVE -> footprints.stream().anyMatch(f -> f.active);
+            case FEATURED -> footprints.stream().anyMatch(f -> f.featured);
+            case CATEGORY -> footprints.stream().anyMatch(f -> Objects.equals(f.category, listing.value()));
+            case BRAND -> footprints.stream().anyMatch(f -> Objects.equals(f.brand, listing.value()));
+        };
+    }
+
+    private static boolean shows(Object key, Object value, Set<Long> productIds) {
+        if (key instanceof DetailKey detail) {
+            return productIds.contains(detail.productId());
+        }
+        Iterable<?> products = value instanceof Page<?> page ? page.getContent() : (List<?>) value;
+        for (Object product : products) {
+            if (productIds.contains(((ProductDTO) product).getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int weigh(Object value) {
+        if (value instanceof Page<?> page) {
+            return Math.max(1, page.getNumberOfElements());
+        }
+        if (value instanceof List<?> list) {
+            return Math.max(1, list.size());
+        }
+        return 1;
+    }
+
+    // A reader racing the writer can re-populate an entry with pre-commit data,
+    // so evict once immediately and once more when the transaction commits.
+    private static void runNowAndAfterCommit(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * The catalog listings a product belongs to at a point in time.
+     */
+    public static final class Footprint {
+        private final Long productId;
+        private final String category;
+        private final String brand;
+        private final boolean active;
+        private final boolean featured;
+
+        private Footprint(Product product) {
+            this.productId = product.getId();
+            this.category = product.getCategory();
+            this.brand = product.getBrand();
+            this.active = Boolean.TRUE.equals(product.getActive());
+            this.featured = Boolean.TRUE.equals(product.getFeatured());
+        }
+
+        public static Footprint of(Product product) {
+            return new Footprint(product);
+        }
+    }
+}
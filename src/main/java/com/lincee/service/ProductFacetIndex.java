@@ -0,0 +1,313 @@
+package com.lincee.service;
+
+import com.lincee.entity.Product;
+import org.hibernate.Hibernate;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory facet index over the storefront filters, one compressed bitmap of product ids
+ * per facet value and per price point.
+ *
+ * Values selected within one facet are OR-ed and facets are AND-ed. The count for a facet
+ * value is taken against every filter except the one on its own facet, so selecting
+ * "Black" still shows how many products the other colors would add.
+ */
+@Component
+public class ProductFacetIndex {
+
+    public enum Facet {
+        CATEGORY("category"), SUB_CATEGORY("subCategory"), BRAND("brand"),
+        SIZE("size"), COLOR("color"), FEATURED("featured");
+
+        private final String key;
+
+        Facet(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private record Entry(Map<Facet, Set<String>> values, BigDecimal price, boolean active) {}
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Facet, Map<String, RoaringBitmap>> postings = new EnumMap<>(Facet.class);
+    private final TreeMap<BigDecimal, RoaringBitmap> prices = new TreeMap<>();
+    private final RoaringBitmap active = new RoaringBitmap();
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private volatile boolean ready;
+
+    public ProductFacetIndex() {
+        for (Facet facet : Facet.values()) {
+            postings.put(facet, new HashMap<>());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void markReady() {
+        this.ready = true;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return all.getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace a product after a write. Size and color collections that were never
+     * loaded in the writing session cannot have changed, so the indexed values are kept.
+     */
+    public void index(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        List<String> sizes = Hibernate.isInitialized(product.getAvailableSizes()) ? product.getAvailableSizes() : null;
+        List<String> colors = Hibernate.isInitialized(product.getAvailableColors()) ? product.getAvailableColors() : null;
+        index(product, sizes, colors);
+    }
+
+    /**
+     * Add or replace a product whose sizes and colors were loaded separately;
+     * a null collection keeps the currently indexed values.
+     */
+    public void index(Product product, Collection<String> sizes, Collection<String> colors) {
+        int id = Math.toIntExact(product.getId());
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.get(id);
+            Map<Facet, Set<String>> values = new EnumMap<>(Facet.class);
+            values.put(Facet.CATEGORY, valueSet(List.of(nullToEmpty(product.getCategory()))));
+            values.put(Facet.SUB_CATEGORY, valueSet(List.of(nullToEmpty(product.getSubCategory()))));
+            values.put(Facet.BRAND, valueSet(List.of(nullToEmpty(product.getBrand()))));
+            values.put(Facet.FEATURED, Set.of(String.valueOf(Boolean.TRUE.equals(product.getFeatured()))));
+            values.put(Facet.SIZE, sizes != null ? valueSet(sizes)
+                    : previous != null ? previous.values().get(Facet.SIZE) : Set.of());
+            values.put(Facet.COLOR, colors != null ? valueSet(colors)
+                    : previous != null ? previous.values().get(Facet.COLOR) : Set.of());
+            Entry entry = new Entry(values, product.getPrice(), Boolean.TRUE.equals(product.getActive()));
+
+            if (previous != null) {
+                unlink(id, previous);
+            }
+            values.forEach((facet, facetValues) -> facetValues.forEach(value ->
+                    postings.get(facet).computeIfAbsent(value, v -> new RoaringBitmap()).add(id)));
+            if (entry.price() != null) {
+                prices.computeIfAbsent(entry.price(), p -> new RoaringBitmap()).add(id);
+            }
+            if (entry.active()) {
+                active.add(id);
+            }
+            all.add(id);
+            entries.put(id, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        int id = Math.toIntExact(productId);
+        lock.writeLock().lock();
+        try {
+            Entry previous = entries.remove(id);
+            if (previous != null) {
+                unlink(id, previous);
+                all.remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Apply the filter and return one page of matching product ids, newest (highest id)
+     * first, together with the per-facet counts and the price bounds of the result.
+     */
+    public Result search(Filter filter, long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap base = filter.activeOnly ? active : all;
+            Map<Facet, RoaringBitmap> selections = new EnumMap<>(Facet.class);
+            filter.selected.forEach((facet, values) -> selections.put(facet, union(postings.get(facet), values)));
+            RoaringBitmap priceRange = priceRange(filter.minPrice, filter.maxPrice);
+
+            RoaringBitmap withoutPrice = and(base, selections.values());
+            RoaringBitmap matches = priceRange == null ? withoutPrice : RoaringBitmap.and(withoutPrice, priceRange);
+
+            Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+            for (Facet facet : Facet.values()) {
+                List<RoaringBitmap> others = new ArrayList<>();
+                selections.forEach((other, bitmap) -> {
+                    if (other != facet) {
+                        others.add(bitmap);
+                    }
+                });
+                if (priceRange != null) {
+                    others.add(priceRange);
+                }
+                RoaringBitmap facetBase = and(base, others);
+                Map<String, Integer> valueCounts = new TreeMap<>();
+                postings.get(facet).forEach((value, bitmap) -> {
+                    int count = RoaringBitmap.andCardinality(bitmap, facetBase);
+                    if (count > 0) {
+                        valueCounts.put(value, count);
+                    }
+                });
+                counts.put(facet.getKey(), valueCounts);
+            }
+
+            int total = matches.getCardinality();
+            List<Long> page = new ArrayList<>();
+            for (long rank = total - 1 - offset; rank >= 0 && page.size() < limit; rank--) {
+                page.add((long) matches.select((int) rank));
+            }
+            return new Result(page, total, counts, lowestPrice(withoutPrice), highestPrice(withoutPrice));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void unlink(int id, Entry entry) {
+        entry.values().forEach((facet, facetValues) -> facetValues.forEach(value -> {
+            Map<String, RoaringBitmap> facetPostings = postings.get(facet);
+            RoaringBitmap bitmap = facetPostings.get(value);
+            if (bitmap != null) {
+                bitmap.remove(id);
+                if (bitmap.isEmpty()) {
+                    facetPostings.remove(value);
+                }
+            }
+        }));
+        if (entry.price() != null) {
+            RoaringBitmap bitmap = prices.get(entry.price());
+            if (bitmap != null) {
+                bitmap.remove(id);
+                if (bitmap.isEmpty()) {
+                    prices.remove(entry.price());
+                }
+            }
+        }
+        active.remove(id);
+    }
+
+    private RoaringBitmap priceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice == null && maxPrice == null) {
+            return null;
+        }
+        NavigableMap<BigDecimal, RoaringBitmap> range = prices;
+        if (minPrice != null) {
+            range = range.tailMap(minPrice, true);
+        }
+        if (maxPrice != null) {
+            range = range.headMap(maxPrice, true);
+        }
+        return range.isEmpty() ? new RoaringBitmap() : FastAggregation.or(range.values().iterator());
+    }
+
+    private BigDecimal lowestPrice(RoaringBitmap candidates) {
+        for (Map.Entry<BigDecimal, RoaringBitmap> entry : prices.entrySet()) {
+            if (RoaringBitmap.intersects(entry.getValue(), candidates)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private BigDecimal highestPrice(RoaringBitmap candidates) {
+        for (Map.Entry<BigDecimal, RoaringBitmap> entry : prices.descendingMap().entrySet()) {
+            if (RoaringBitmap.intersects(entry.getValue(), candidates)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private static RoaringBitmap union(Map<String, RoaringBitmap> facetPostings, Set<String> values) {
+        List<RoaringBitmap> bitmaps = new ArrayList<>();
+        for (String value : values) {
+            RoaringBitmap bitmap = facetPostings.get(value);
+            if (bitmap != null) {
+                bitmaps.add(bitmap);
+            }
+        }
+        return bitmaps.isEmpty() ? new RoaringBitmap() : FastAggregation.or(bitmaps.iterator());
+    }
+
+    private static RoaringBitmap and(RoaringBitmap base, Collection<RoaringBitmap> filters) {
+        RoaringBitmap result = base.clone();
+        for (RoaringBitmap filter : filters) {
+            result.and(filter);
+        }
+        return result;
+    }
+
+    private static Set<String> valueSet(Collection<String> values) {
+        Set<String> set = new LinkedHashSet<>();
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                set.add(value);
+            }
+        }
+        return set;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    /**
+     * Facet selections plus an optional inclusive price range.
+     */
+    public static final class Filter {
+        private final Map<Facet, Set<String>> selected = new EnumMap<>(Facet.class);
+        private BigDecimal minPrice;
+        private BigDecimal maxPrice;
+        private boolean activeOnly = true;
+
+        public Filter select(Facet facet, Collection<String> values) {
+            if (values != null && !values.isEmpty()) {
+                selected.computeIfAbsent(facet, f -> new LinkedHashSet<>()).addAll(values);
+            }
+            return this;
+        }
+
+        public Filter priceBetween(BigDecimal minPrice, BigDecimal maxPrice) {
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+            return this;
+        }
+
+        public Filter includeInactive() {
+            this.activeOnly = false;
+            return this;
+        }
+    }
+
+    public record Result(List<Long> productIds, long totalHits, Map<String, Map<String, Integer>> facetCounts,
+                         BigDecimal minPrice, BigDecimal maxPrice) {}
+}
@@ -0,0 +1,56 @@
+package com.lincee.service;
+
+import com.lincee.entity.Product;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener that keeps {@link ProductSearchIndex} and {@link ProductFacetIndex}
+ * in step with product writes.
+ * Changes are applied once the surrounding transaction commits, so rolled-back saves
+ * never reach the index.
+ */
+public class ProductIndexingListener {
+
+    @Autowired
+    private ObjectProvider<ProductSearchIndex> searchIndex;
+
+    @Autowired
+    private ObjectProvider<ProductFacetIndex> facetIndex;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Product product) {
+        afterCommit(() -> {
+            searchIndex.ifAvailable(index -> index.index(product));
+            facetIndex.ifAvailable(index -> index.index(product));
+        });
+    }
+
+    @PostRemove
+    public void onRemove(Product product) {
+        Long productId = product.getId();
+        afterCommit(() -> {
+            searchIndex.ifAvailable(index -> index.remove(productId));
+            facetIndex.ifAvailable(index -> index.remove(productId));
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.lincee.service;
+
+import com.lincee.entity.Product;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over the searchable product fields with BM25 ranking.
+ *
+ * Every indexed product gets an increasing ordinal, so posting lists are append-only and
+ * stay sorted; a query walks the lists of its terms in a single merge pass and keeps only
+ * the top offset+limit hits. Re-indexing a product retires its old ordinal, and the retired
+ * postings are compacted away once they make up a quarter of the index.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MIN_PREFIX_LENGTH = 3;
+    private static final int MAX_PREFIX_EXPANSIONS = 32;
+    private static final float PREFIX_MATCH_WEIGHT = 0.5f;
+    private static final int MIN_COMPACTION_GARBAGE = 1024;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    enum Field {
+        NAME(3.0f), TAGS(2.0f), CATEGORY(1.5f), BRAND(1.5f), DESCRIPTION(1.0f);
+
+        private final float boost;
+
+        Field(float boost) {
+            this.boost = boost;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<Long, Integer> ordinalsByProduct = new HashMap<>();
+    private final Map<Long, Integer> fingerprintsByProduct = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private long[] productIds = new long[1024];
+    private float[] lengths = new float[1024];
+    private int nextOrdinal;
+    private int liveCount;
+    private double totalLength;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void markReady() {
+        this.ready = true;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add or replace a product. Calls that do not change any indexed field
+     * (stock or price updates) return without touching the postings.
+     */
+    public void index(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        int fingerprint = Objects.hash(product.getName(), product.getDescription(), product.getTags(),
+                product.getCategory(), product.getBrand());
+
+        lock.writeLock().lock();
+        try {
+            Integer previous = fingerprintsByProduct.get(product.getId());
+            if (previous != null && previous == fingerprint) {
+                return;
+            }
+            Map<String, Float> termWeights = new HashMap<>();
+            float length = 0;
+            length += collect(termWeights, product.getName(), Field.NAME);
+            length += collect(termWeights, product.getTags(), Field.TAGS);
+            length += collect(termWeights, product.getCategory(), Field.CATEGORY);
+            length += collect(termWeights, product.getBrand(), Field.BRAND);
+            length += collect(termWeights, product.getDescription(), Field.DESCRIPTION);
+
+            retire(product.getId());
+            int ordinal = nextOrdinal++;
+            ensureCapacity(ordinal);
+            productIds[ordinal] = product.getId();
+            lengths[ordinal] = length;
+            for (Map.Entry<String, Float> entry : termWeights.entrySet()) {
+                postings.computeIfAbsent(entry.getKey(), term -> new PostingList()).add(ordinal, entry.getValue());
+            }
+            live.set(ordinal);
+            liveCount++;
+            totalLength += length;
+            ordinalsByProduct.put(product.getId(), ordinal);
+            fingerprintsByProduct.put(product.getId(), fingerprint);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            retire(productId);
+            fingerprintsByProduct.remove(productId);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rank products against the query and return the requested slice of product ids.
+     * Query terms are OR-ed; terms of three or more characters also match longer
+     * indexed terms they are a prefix of, at a reduced weight.
+     */
+    public Hits search(String query, long offset, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return new Hits(List.of(), 0);
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0) {
+                return new Hits(List.of(), 0);
+            }
+            List<Cursor> cursors = cursorsFor(terms);
+            double averageLength = totalLength / liveCount;
+            int wanted = (int) Math.min(Integer.MAX_VALUE, offset + limit);
+            PriorityQueue<ScoredDoc> top = new PriorityQueue<>(Math.min(wanted, 1024) + 1, ScoredDoc.WORST_FIRST);
+            PriorityQueue<Cursor> merge = new PriorityQueue<>(Math.max(1, cursors.size()),
+                    (a, b) -> Integer.compare(a.ordinal(), b.ordinal()));
+            for (Cursor cursor : cursors) {
+                if (cursor.advanceToLive()) {
+                    merge.add(cursor);
+                }
+            }
+
+            long totalHits = 0;
+            while (!merge.isEmpty()) {
+                int ordinal = merge.peek().ordinal();
+                float score = 0;
+                while (!merge.isEmpty() && merge.peek().ordinal() == ordinal) {
+                    Cursor cursor = merge.poll();
+                    score += cursor.score(lengths[ordinal], averageLength);
+                    cursor.next();
+                    if (cursor.advanceToLive()) {
+                        merge.add(cursor);
+                    }
+                }
+                totalHits++;
+                ScoredDoc doc = new ScoredDoc(productIds[ordinal], score);
+                if (top.size() < wanted) {
+                    top.add(doc);
+                } else if (ScoredDoc.WORST_FIRST.compare(doc, top.peek()) > 0) {
+                    top.poll();
+                    top.add(doc);
+                }
+            }
+
+            List<ScoredDoc> ranked = new ArrayList<>(top);
+            ranked.sort(ScoredDoc.WORST_FIRST.reversed());
+            List<Long> page = new ArrayList<>();
+            for (int i = (int) Math.min(offset, ranked.size()); i < ranked.size(); i++) {
+                page.add(ranked.get(i).productId);
+            }
+            return new Hits(page, totalHits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : split(text)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    private List<Cursor> cursorsFor(List<String> queryTerms) {
+        Map<String, Float> weights = new LinkedHashMap<>();
+        for (String term : queryTerms) {
+            weights.merge(term, 1.0f, Math::max);
+            if (term.length() >= MIN_PREFIX_LENGTH) {
+                int expansions = 0;
+                for (String candidate : postings.subMap(term, false, term + Character.MAX_VALUE, false).keySet()) {
+                    if (expansions++ == MAX_PREFIX_EXPANSIONS) {
+                        break;
+                    }
+                    weights.merge(candidate, PREFIX_MATCH_WEIGHT, Math::max);
+                }
+            }
+        }
+        List<Cursor> cursors = new ArrayList<>();
+        for (Map.Entry<String, Float> entry : weights.entrySet()) {
+            PostingList list = postings.get(entry.getKey());
+            if (list != null) {
+                double documentFrequency = Math.min(list.size, liveCount);
+                float idf = (float) Math.log(1 + (liveCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                cursors.add(new Cursor(list, idf * entry.getValue()));
+            }
+        }
+        return cursors;
+    }
+
+    private static float collect(Map<String, Float> termWeights, String text, Field field) {
+        float length = 0;
+        if (text == null) {
+            return length;
+        }
+        for (String token : split(text)) {
+            if (!token.isEmpty()) {
+                termWeights.merge(token, field.boost, Float::sum);
+                length += field.boost;
+            }
+        }
+        return length;
+    }
+
+    // Lower-cases and strips accents so "Café" and "cafe" index to the same term.
+    private static String[] split(String text) {
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return TOKEN_SEPARATOR.split(folded.toLowerCase());
+    }
+
+    private void retire(Long productId) {
+        Integer ordinal = ordinalsByProduct.remove(productId);
+        if (ordinal != null && live.get(ordinal)) {
+            live.clear(ordinal);
+            liveCount--;
+            totalLength -= lengths[ordinal];
+        }
+    }
+
+    private void ensureCapacity(int ordinal) {
+        if (ordinal >= productIds.length) {
+            int capacity = Math.max(ordinal + 1, productIds.length * 2);
+            productIds = Arrays.copyOf(productIds, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+    }
+
+    // Renumbers live ordinals densely in their existing order, so every posting list stays sorted.
+    private void compactIfNeeded() {
+        int garbage = nextOrdinal - liveCount;
+        if (garbage < MIN_COMPACTION_GARBAGE || garbage < liveCount / 4) {
+            return;
+        }
+        int[] remap = new int[nextOrdinal];
+        int compacted = 0;
+        for (int ordinal = live.nextSetBit(0); ordinal >= 0; ordinal = live.nextSetBit(ordinal + 1)) {
+            remap[ordinal] = compacted;
+            productIds[compacted] = productIds[ordinal];
+            lengths[compacted] = lengths[ordinal];
+            compacted++;
+        }
+        postings.values().removeIf(list -> list.retain(live, remap) == 0);
+        ordinalsByProduct.replaceAll((productId, ordinal) -> remap[ordinal]);
+        live.clear();
+        live.set(0, compacted);
+        nextOrdinal = compacted;
+    }
+
+    public record Hits(List<Long> productIds, long totalHits) {}
+
+    private static final class PostingList {
+        private int[] ordinals = new int[4];
+        private float[] weights = new float[4];
+        private int size;
+
+        void add(int ordinal, float weight) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            ordinals[size] = ordinal;
+            weights[size] = weight;
+            size++;
+        }
+
+        int retain(BitSet live, int[] remap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (live.get(ordinals[i])) {
+                    ordinals[kept] = remap[ordinals[i]];
+                    weights[kept] = weights[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            return kept;
+        }
+    }
+
+    private final class Cursor {
+        private final PostingList list;
+        private final float idf;
+        private int position;
+
+        Cursor(PostingList list, float idf) {
+            this.list = list;
+            this.idf = idf;
+        }
+
+        boolean advanceToLive() {
+            while (position < list.size && !live.get(list.ordinals[position])) {
+                position++;
+            }
+            return position < list.size;
+        }
+
+        int ordinal() {
+            return list.ordinals[position];
+        }
+
+        void next() {
+            position++;
+        }
+
+        float score(float documentLength, double averageLength) {
+            float tf = list.weights[position];
+            return idf * (tf * (K1 + 1)) / (float) (tf + K1 * (1 - B + B * documentLength / averageLength));
+        }
+    }
+
+    private record ScoredDoc(long productId, float score) {
+        static final Comparator<ScoredDoc> WORST_FIRST = Comparator
+                .comparingDouble(ScoredDoc::score)
+                .thenComparing(Comparator.comparingLong(ScoredDoc::productId).reversed());
+    }
+}
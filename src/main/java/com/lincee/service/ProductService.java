@@ -0,0 +1,401 @@
+package com.lincee.service;
+
+import com.lincee.dto.CursorPageDTO;
+import com.lincee.dto.ProductDTO;
+import com.lincee.dto.ProductFacetResultDTO;
+import com.lincee.dto.ProductVariantDTO;
+import com.lincee.entity.Product;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.repository.ProductRepository;
+import com.lincee.repository.ProductVariantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@Transactional
+public class ProductService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductService.class);
+
+    private static final int INDEX_BATCH_SIZE = 500;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductFacetIndex facetIndex;
+
+    @Autowired
+    private InventoryReservationService inventoryReservations;
+
+    @Transactional(readOnly = true)
+    public Page<ProductDTO> getAllProducts(Boolean active, Pageable pageable) {
+        if (active != null && active) {
+            return catalogCache.getActive(pageable, () -> toDTOs(productRepository.findByActiveTrue(pageable)));
+        }
+        return catalogCache.getAll(pageable, () -> toDTOs(productRepository.findAll(pageable)));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<ProductDTO> getProductById(Long id) {
+        return Optional.ofNullable(catalogCache.getProduct(id,
+                () -> productRepository.findById(id).map(product -> toDTOs(List.of(product)).get(0)).orElse(null)));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ProductDTO> getProductsByCategory(String category, Pageable pageable) {
+        return catalogCache.getByCategory(category, pageable,
+                () -> toDTOs(productRepository.findByCategory(category, pageable)));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ProductDTO> getProductsByBrand(String brand, Pageable pageable) {
+        return catalogCache.getByBrand(brand, pageable,
+                () -> toDTOs(productRepository.findByBrand(brand, pageable)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductDTO> getFeaturedProducts() {
+        return catalogCache.getFeatured(() -> toDTOs(productRepository.findByFeaturedTrue()));
+    }
+
+    /**
+     * On-hand stock, active holds and what is left to sell. On-hand comes from the
+     * cached detail entry and holds from memory, so the products row is never locked.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Map<String, Integer>> getAvailability(Long id) {
+        return getProductById(id).map(product -> {
+            int onHand = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+            int held = inventoryReservations.getHeldQuantity(id);
+            Map<String, Integer> availability = new LinkedHashMap<>();
+            availability.put("onHand", onHand);
+            availability.put("held", held);
+            availability.put("available", Math.max(0, onHand - held));
+            return availability;
+        });
+    }
+
+    /**
+     * Keyset-paginated listing, newest first or cheapest first. Every page costs
+     * one index seek regardless of how deep it is, and no total is counted.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductDTO> getProductsByCursor(String sort, Boolean active, String cursor, Integer size) {
+        int pageSize = KeysetCursor.validateSize(size);
+        boolean activeOnly = Boolean.TRUE.equals(active);
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        CursorPageDTO<Product> page;
+        if ("price".equalsIgnoreCase(sort)) {
+            List<Product> rows = cursor == null
+                    ? findCheapest(activeOnly, limit)
+                    : findCheapestAfter(activeOnly, KeysetCursor.decode(cursor, KeysetCursor.Kind.PRICE), limit);
+            page = KeysetCursor.page(rows, pageSize, p -> KeysetCursor.ofPrice(p.getPrice(), p.getId()), Function.identity());
+        } else if (sort == null || "newest".equalsIgnoreCase(sort)) {
+            List<Product> rows = cursor == null
+                    ? findNewest(activeOnly, limit)
+                    : findNewestAfter(activeOnly, KeysetCursor.decode(cursor, KeysetCursor.Kind.CREATED_AT), limit);
+            page = KeysetCursor.page(rows, pageSize, p -> KeysetCursor.ofCreatedAt(p.getCreatedAt(), p.getId()), Function.identity());
+        } else {
+            throw new ApiException(ErrorCode.INVALID_PAGINATION, "Sort must be 'newest' or 'price'");
+        }
+        return new CursorPageDTO<>(toDTOs(page.getContent()), page.getNextCursor());
+    }
+
+    private List<Product> findCheapest(boolean activeOnly, Pageable limit) {
+        return activeOnly ? productRepository.findCheapestActive(limit) : productRepository.findCheapest(limit);
+    }
+
+    private List<Product> findCheapestAfter(boolean activeOnly, KeysetCursor position, Pageable limit) {
+        return activeOnly
+                ? productRepository.findCheapestActiveAfter(position.price(), position.id(), limit)
+                : productRepository.findCheapestAfter(position.price(), position.id(), limit);
+    }
+
+    private List<Product> findNewest(boolean activeOnly, Pageable limit) {
+        return activeOnly ? productRepository.findNewestActive(limit) : productRepository.findNewest(limit);
+    }
+
+    private List<Product> findNewestAfter(boolean activeOnly, KeysetCursor position, Pageable limit) {
+        return activeOnly
+                ? productRepository.findNewestActiveAfter(position.createdAt(), position.id(), limit)
+                : productRepository.findNewestAfter(position.createdAt(), position.id(), limit);
+    }
+
+    /**
+     * Relevance-ranked search through the in-memory index. Until the index has been
+     * built at startup the LIKE query is used instead.
+     */
+    @Transactional(readOnly = true)
+    public Page<ProductDTO> searchProducts(String keyword, Pageable pageable) {
+        if (!searchIndex.isReady()) {
+            return toDTOs(productRepository.searchProducts(keyword, pageable));
+        }
+        ProductSearchIndex.Hits hits = searchIndex.search(keyword, pageable.getOffset(), pageable.getPageSize());
+        Map<Long, Product> productsById = productRepository.findAllById(hits.productIds()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<Product> ranked = hits.productIds().stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new PageImpl<>(toDTOs(ranked), pageable, hits.totalHits());
+    }
+
+    /**
+     * Combined facet filtering with live per-value counts, served from the in-memory
+     * bitmap index. Results are ordered newest first.
+     */
+    @Transactional(readOnly = true)
+    public ProductFacetResultDTO filterProducts(ProductFacetIndex.Filter filter, int page, Integer size) {
+        if (!facetIndex.isReady()) {
+            throw new ApiException(ErrorCode.SERVICE_UNAVAILABLE, "Product filters are still being built");
+        }
+        if (page < 0) {
+            throw new ApiException(ErrorCode.INVALID_PAGINATION, "Page must not be negative");
+        }
+        int pageSize = KeysetCursor.validateSize(size);
+        ProductFacetIndex.Result result = facetIndex.search(filter, (long) page * pageSize, pageSize);
+
+        Map<Long, Product> productsById = productRepository.findAllById(result.productIds()).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<Product> ordered = result.productIds().stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        ProductFacetResultDTO dto = new ProductFacetResultDTO();
+        dto.setContent(toDTOs(ordered));
+        dto.setTotalElements(result.totalHits());
+        dto.setPage(page);
+        dto.setSize(pageSize);
+        dto.setFacets(result.facetCounts());
+        dto.setMinPrice(result.minPrice());
+        dto.setMaxPrice(result.maxPrice());
+        return dto;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void buildIndexes() {
+        long lastId = 0;
+        List<Product> batch;
+        do {
+            batch = productRepository.findByIdGreaterThanOrderByIdAsc(lastId, PageRequest.of(0, INDEX_BATCH_SIZE));
+            if (!batch.isEmpty()) {
+                List<Long> ids = batch.stream().map(Product::getId).collect(Collectors.toList());
+                Map<Long, List<String>> sizes = groupValues(productRepository.findSizesByProductIds(ids));
+                Map<Long, List<String>> colors = groupValues(productRepository.findColorsByProductIds(ids));
+                Map<Long, List<ProductVariantDTO>> variants = groupVariants(variantRepository.findActiveVariantRowsByProductIds(ids));
+                variants.forEach((productId, productVariants) -> {
+                    sizes.put(productId, inStockValues(productVariants, ProductVariantDTO::getSize));
+                    colors.put(productId, inStockValues(productVariants, ProductVariantDTO::getColor));
+                });
+                for (Product product : batch) {
+                    searchIndex.index(product);
+                    facetIndex.index(product, sizes.getOrDefault(product.getId(), List.of()),
+                            colors.getOrDefault(product.getId(), List.of()));
+                }
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == INDEX_BATCH_SIZE);
+        searchIndex.markReady();
+        facetIndex.markReady();
+        log.info("Product search and facet indexes built with {} products", searchIndex.size());
+    }
+
+    public Product createProduct(Product product) {
+        Product savedProduct = productRepository.save(product);
+        catalogCache.invalidate(ProductCatalogCache.Footprint.of(savedProduct));
+        return savedProduct;
+    }
+
+    public Optional<Product> updateProduct(Long id, Product productDetails) {
+        Optional<Product> optionalProduct = productRepository.findById(id);
+        if (!optionalProduct.isPresent()) {
+            return Optional.empty();
+        }
+        Product product = optionalProduct.get();
+        if (!Objects.equals(product.getStockQuantity(), productDetails.getStockQuantity())) {
+            requireNotInDrop(product);
+        }
+        ProductCatalogCache.Footprint before = ProductCatalogCache.Footprint.of(product);
+        product.setName(productDetails.getName());
+        product.setDescription(productDetails.getDescription());
+        product.setPrice(productDetails.getPrice());
+        product.setDiscountPrice(productDetails.getDiscountPrice());
+        product.setCategory(productDetails.getCategory());
+        product.setSubCategory(productDetails.getSubCategory());
+        product.setBrand(productDetails.getBrand());
+        product.setStockQuantity(productDetails.getStockQuantity());
+        product.setAvailableSizes(productDetails.getAvailableSizes());
+        product.setAvailableColors(productDetails.getAvailableColors());
+        product.setImageUrls(productDetails.getImageUrls());
+        product.setActive(productDetails.getActive());
+        product.setFeatured(productDetails.getFeatured());
+        product.setWeightGrams(productDetails.getWeightGrams());
+        product.setTags(productDetails.getTags());
+        Product savedProduct = productRepository.save(product);
+        catalogCache.invalidate(before, ProductCatalogCache.Footprint.of(savedProduct));
+        return Optional.of(savedProduct);
+    }
+
+    public boolean deleteProduct(Long id) {
+        Optional<Product> product = productRepository.findById(id);
+        if (!product.isPresent()) {
+            return false;
+        }
+        ProductCatalogCache.Footprint before = ProductCatalogCache.Footprint.of(product.get());
+        productRepository.deleteById(id);
+        catalogCache.invalidate(before);
+        return true;
+    }
+
+    public Optional<Product> updateStock(Long id, Integer quantity) {
+        Optional<Product> optionalProduct = productRepository.findById(id);
+        if (!optionalProduct.isPresent()) {
+            return Optional.empty();
+        }
+        Product product = optionalProduct.get();
+        requireNotInDrop(product);
+        product.setStockQuantity(quantity);
+        Product savedProduct = productRepository.save(product);
+        catalogCache.invalidate(ProductCatalogCache.Footprint.of(savedProduct));
+        return Optional.of(savedProduct);
+    }
+
+    // A drop-mode product's stock is owned by DropStockService until drop mode is switched off
+    private static void requireNotInDrop(Product product) {
+        if (Boolean.TRUE.equals(product.getDropMode())) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, "Turn off drop mode before changing the stock of product " + product.getId());
+        }
+    }
+
+    private Page<ProductDTO> toDTOs(Page<Product> page) {
+        return new PageImpl<>(toDTOs(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
+
+    // Reads variants, images and collection memberships of the whole batch with one statement
+    // each, so a page costs the same number of queries whatever its size. Sizes and colors come
+    // from the variants; the legacy size/color collections are only read for products that
+    // have no variants yet.
+    private List<ProductDTO> toDTOs(List<Product> products) {
+        if (products.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> ids = products.stream().map(Product::getId).collect(Collectors.toList());
+        Map<Long, List<ProductVariantDTO>> variants = groupVariants(variantRepository.findActiveVariantRowsByProductIds(ids));
+        List<Long> legacyIds = ids.stream().filter(id -> !variants.containsKey(id)).collect(Collectors.toList());
+        Map<Long, List<String>> sizes = legacyIds.isEmpty() ? new HashMap<>()
+                : groupValues(productRepository.findSizesByProductIds(legacyIds));
+        Map<Long, List<String>> colors = legacyIds.isEmpty() ? new HashMap<>()
+                : groupValues(productRepository.findColorsByProductIds(legacyIds));
+        variants.forEach((productId, productVariants) -> {
+            sizes.put(productId, inStockValues(productVariants, ProductVariantDTO::getSize));
+            colors.put(productId, inStockValues(productVariants, ProductVariantDTO::getColor));
+        });
+        Map<Long, List<String>> images = groupValues(productRepository.findImageUrlsByProductIds(ids));
+        Map<Long, List<ProductDTO.CollectionSummaryDTO>> collections = new HashMap<>();
+        for (Object[] row : productRepository.findCollectionSummariesByProductIds(ids)) {
+            collections.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+                    .add(new ProductDTO.CollectionSummaryDTO((Long) row[1], (String) row[2], (String) row[3]));
+        }
+
+        List<ProductDTO> dtos = new ArrayList<>(products.size());
+        for (Product product : products) {
+            ProductDTO dto = new ProductDTO();
+            dto.setId(product.getId());
+            dto.setName(product.getName());
+            dto.setDescription(product.getDescription());
+            dto.setPrice(product.getPrice());
+            dto.setDiscountPrice(product.getDiscountPrice());
+            dto.setCategory(product.getCategory());
+            dto.setSubCategory(product.getSubCategory());
+            dto.setBrand(product.getBrand());
+            dto.setStockQuantity(product.getStockQuantity());
+            dto.setMinStockLevel(product.getMinStockLevel());
+            dto.setAvailableSizes(sizes.getOrDefault(product.getId(), new ArrayList<>()));
+            dto.setAvailableColors(colors.getOrDefault(product.getId(), new ArrayList<>()));
+            dto.setImageUrls(images.getOrDefault(product.getId(), new ArrayList<>()));
+            dto.setActive(product.getActive());
+            dto.setFeatured(product.getFeatured());
+            dto.setWeightGrams(product.getWeightGrams());
+            dto.setTags(product.getTags());
+            dto.setCreatedAt(product.getCreatedAt());
+            dto.setUpdatedAt(product.getUpdatedAt());
+            dto.setCollections(collections.getOrDefault(product.getId(), new ArrayList<>()));
+            List<ProductVariantDTO> productVariants = variants.getOrDefault(product.getId(), new ArrayList<>());
+            BigDecimal basePrice = product.getDiscountPrice() != null ? product.getDiscountPrice() : product.getPrice();
+            productVariants.forEach(v -> v.setPrice(v.getPriceOverride() != null ? v.getPriceOverride() : basePrice));
+            dto.setVariants(productVariants);
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+    // Rows are (productId, id, sku, size, color, stockQuantity, priceOverride)
+    private static Map<Long, List<ProductVariantDTO>> groupVariants(List<Object[]> rows) {
+        Map<Long, List<ProductVariantDTO>> variants = new HashMap<>();
+        for (Object[] row : rows) {
+            ProductVariantDTO variant = new ProductVariantDTO();
+            variant.setId((Long) row[1]);
+            variant.setSku((String) row[2]);
+            variant.setSize((String) row[3]);
+            variant.setColor((String) row[4]);
+            variant.setStockQuantity((Integer) row[5]);
+            variant.setPriceOverride((BigDecimal) row[6]);
+            variant.setInStock((Integer) row[5] > 0);
+            variant.setActive(true);
+            variants.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add(variant);
+        }
+        return variants;
+    }
+
+    private static List<String> inStockValues(List<ProductVariantDTO> variants, Function<ProductVariantDTO, String> value) {
+        return variants.stream()
+                .filter(ProductVariantDTO::getInStock)
+                .map(value)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private static Map<Long, List<String>> groupValues(List<Object[]> rows) {
+        Map<Long, List<String>> grouped = new HashMap<>();
+        for (Object[] row : rows) {
+            grouped.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        return grouped;
+    }
+}
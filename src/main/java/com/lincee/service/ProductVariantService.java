@@ -0,0 +1,109 @@
+package com.lincee.service;
+
+import com.lincee.dto.ProductVariantDTO;
+import com.lincee.entity.Product;
+import com.lincee.entity.ProductVariant;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.repository.ProductRepository;
+import com.lincee.repository.ProductVariantRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Size/color variants of a product, each with its own SKU and stock.
+ * A product's stockQuantity is kept equal to the sum of its variants' stock.
+ */
+@Service
+@Transactional
+public class ProductVariantService {
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    @Transactional(readOnly = true)
+    public List<ProductVariantDTO> getVariants(Long productId) {
+        Product product = findProduct(productId);
+        return variantRepository.findByProductIdOrderByIdAsc(product.getId()).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    public ProductVariantDTO createVariant(Long productId, ProductVariantDTO variantDTO) {
+        Product product = findProduct(productId);
+        if (Boolean.TRUE.equals(product.getDropMode())) {
+            throw new ApiException(ErrorCode.VALIDATION_ERROR, "Drop-mode products cannot have variants");
+        }
+        if (variantRepository.existsBySku(variantDTO.getSku())) {
+            throw new ApiException(ErrorCode.DUPLICATE_RESOURCE, "SKU already exists: " + variantDTO.getSku());
+        }
+        boolean duplicate = variantRepository.findByProductIdOrderByIdAsc(productId).stream()
+                .anyMatch(v -> equalsIgnoreCase(v.getSize(), variantDTO.getSize())
+                        && equalsIgnoreCase(v.getColor(), variantDTO.getColor()));
+        if (duplicate) {
+            throw new ApiException(ErrorCode.DUPLICATE_RESOURCE, "Variant already exists for this size/color");
+        }
+        ProductVariant variant = new ProductVariant(product, variantDTO.getSku(), variantDTO.getSize(),
+                variantDTO.getColor(), variantDTO.getStockQuantity() != null ? variantDTO.getStockQuantity() : 0);
+        variant.setPriceOverride(variantDTO.getPriceOverride());
+        if (variantDTO.getActive() != null) {
+            variant.setActive(variantDTO.getActive());
+        }
+        ProductVariant saved = variantRepository.save(variant);
+        syncProductStock(product);
+        return convertToDTO(saved);
+    }
+
+    public ProductVariantDTO updateStock(Long productId, Long variantId, Integer quantity) {
+        if (quantity == null || quantity < 0) {
+            throw new ApiException(ErrorCode.INVALID_QUANTITY, "Stock quantity cannot be negative");
+        }
+        ProductVariant variant = variantRepository.findById(variantId)
+                .filter(v -> v.getProduct().getId().equals(productId))
+                .orElseThrow(() -> new ApiException(ErrorCode.RESOURCE_NOT_FOUND, "Variant not found"));
+        variant.setStockQuantity(quantity);
+        ProductVariant saved = variantRepository.save(variant);
+        syncProductStock(variant.getProduct());
+        return convertToDTO(saved);
+    }
+
+    private Product findProduct(Long productId) {
+        return productRepository.findById(productId)
+                .orElseThrow(() -> new ApiException(ErrorCode.PRODUCT_NOT_FOUND, "Product not found"));
+    }
+
+    private void syncProductStock(Product product) {
+        variantRepository.flush();
+        product.setStockQuantity(variantRepository.sumStockByProductId(product.getId()));
+        productRepository.save(product);
+        catalogCache.invalidate(ProductCatalogCache.Footprint.of(product));
+    }
+
+    private ProductVariantDTO convertToDTO(ProductVariant variant) {
+        ProductVariantDTO dto = new ProductVariantDTO();
+        dto.setId(variant.getId());
+        dto.setSku(variant.getSku());
+        dto.setSize(variant.getSize());
+        dto.setColor(variant.getColor());
+        dto.setStockQuantity(variant.getStockQuantity());
+        dto.setPriceOverride(variant.getPriceOverride());
+        dto.setPrice(variant.getEffectivePrice());
+        dto.setActive(variant.getActive());
+        dto.setInStock(variant.getStockQuantity() > 0);
+        return dto;
+    }
+
+    private static boolean equalsIgnoreCase(String a, String b) {
+        return a == null ? b == null : a.equalsIgnoreCase(b);
+    }
+}
@@ -0,0 +1,262 @@
+package com.lincee.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lincee.entity.RefreshToken;
+import com.lincee.entity.User;
+import com.lincee.repository.RefreshTokenRepository;
+import com.lincee.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refresh tokens, rotated on every use with reuse detection.
+ *
+ * A login starts a chain (one row in refresh_tokens) and each refresh replaces the presented
+ * token with the next generation of the same chain. A token is "chain id.generation.signature",
+ * so it is checked without a read, and the row only needs the current generation. Presenting a
+ * generation older than the current one means the token was copied: the whole chain is revoked
+ * and its holder has to sign in again.
+ *
+ * Chains in use are held in a bounded front cache, so a refresh is one guarded update by
+ * primary key, and reuse detection one revoking update. The guard makes the database the
+ * arbiter when two requests, or two instances, rotate the same token. A chain's user is
+ * re-read at most every {@link #USER_RECHECK}, so a deactivated user stops refreshing.
+ *
+ * Metrics: auth.refreshes (tagged rotated, invalid or reused) and the "refreshTokens" cache.
+ */
+@Service
+public class RefreshTokenStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenStore.class);
+
+    public static final String CACHE_NAME = "refreshTokens";
+    static final Duration USER_RECHECK = Duration.ofMinutes(15);
+
+    /**
+     * The user a rotated token belongs to, and the token that replaces it.
+     */
+    public record Rotation(Long userId, String username, String role, String refreshToken) {}
+
+    // The cached state of a chain; checkedAt is when its user was last read
+    private record Chain(long id, Long userId, String username, String role, int generation, long expiresAt,
+                         boolean revoked, long checkedAt) {
+        Chain next(long expiresAt) {
+            return new Chain(id, userId, username, role, generation + 1, expiresAt, false, checkedAt);
+        }
+    }
+
+    private record Presented(long chainId, int generation) {}
+
+    private final RefreshTokenRepository repository;
+    private final UserRepository userRepository;
+    private final Duration lifetime;
+    private final SecretKeySpec signingKey;
+    private final ThreadLocal<Mac> macs;
+    private final SecureRandom random = new SecureRandom();
+    private final Cache<Long, Chain> chains;
+    private final Counter rotated;
+    private final Counter invalid;
+    private final Counter reused;
+    private Clock clock = Clock.systemDefaultZone();
+
+    public RefreshTokenStore(RefreshTokenRepository repository, UserRepository userRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.jwt.secret}") String secret,
+                             @Value("${app.auth.refresh.expiration-days:30}") long lifetimeDays,
+                             @Value("${app.auth.refresh.cache-size:100000}") long cacheSize) {
+        this.repository = repository;
+        this.userRepository = userRepository;
+        this.lifetime = Duration.ofDays(lifetimeDays);
+        // Kept apart from the access token key so one token type can never pass for the other
+        this.signingKey = new SecretKeySpec(("refresh:" + secret).getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        this.chains = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(lifetime)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, chains, CACHE_NAME);
+        this.rotated = refreshes(meterRegistry, "rotated");
+        this.invalid = refreshes(meterRegistry, "invalid");
+        this.reused = refreshes(meterRegistry, "reused");
+    }
+
+    private static Counter refreshes(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("auth.refreshes").tag("result", result)
+                .description("Refresh token presentations by outcome").register(meterRegistry);
+    }
+
+    /**
+     * Start a chain for a user who just signed in and return its first token.
+     */
+    public String issue(Long userId, String username, String role) {
+        long now = clock.millis();
+        long expiresAt = now + lifetime.toMillis();
+        RefreshToken row = repository.save(new RefreshToken(random.nextLong() & Long.MAX_VALUE, userId,
+                toLocalDateTime(expiresAt)));
+        chains.put(row.getId(), new Chain(row.getId(), userId, username, role, row.getGeneration(), expiresAt,
+                false, now));
+        return token(row.getId(), row.getGeneration());
+    }
+
+    /**
+     * Exchange a refresh token for the next one in its chain. Empty if the token is malformed,
+     * expired, revoked or was already used; the last also revokes the chain.
+     */
+    public Optional<Rotation> rotate(String refreshToken) {
+        Presented presented = parse(refreshToken);
+        if (presented == null) {
+            invalid.increment();
+            return Optional.empty();
+        }
+        long now = clock.millis();
+        Chain chain = chains.getIfPresent(presented.chainId());
+        // A newer generation than cached means another instance rotated the chain
+        if (chain == null || now - chain.checkedAt() >= USER_RECHECK.toMillis()
+                || presented.generation() > chain.generation()) {
+            chain = load(presented.chainId(), now);
+        }
+        // A second pass only follows a lost race, after which the reloaded chain settles it
+        for (int attempt = 0; attempt < 3 && chain != null; attempt++) {
+            if (chain.revoked() || chain.expiresAt() <= now || presented.generation() > chain.generation()) {
+                break;
+            }
+            if (presented.generation() < chain.generation()) {
+                repository.revoke(chain.id());
+                chains.invalidate(chain.id());
+                reused.increment();
+                log.warn("Refresh token reused for user {}; revoked its chain", chain.userId());
+                return Optional.empty();
+            }
+            long expiresAt = now + lifetime.toMillis();
+            if (repository.rotate(chain.id(), chain.generation(), toLocalDateTime(expiresAt)) == 1) {
+                Chain next = chain.next(expiresAt);
+                chains.put(next.id(), next);
+                rotated.increment();
+                return Optional.of(new Rotation(next.userId(), next.username(), next.role(),
+                        token(next.id(), next.generation())));
+            }
+            chain = load(presented.chainId(), now);
+        }
+        invalid.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Revoke the chain a refresh token belongs to, as on logout. Malformed tokens are ignored.
+     */
+    public void revoke(String refreshToken) {
+        Presented presented = parse(refreshToken);
+        if (presented != null) {
+            repository.revoke(presented.chainId());
+            chains.invalidate(presented.chainId());
+        }
+    }
+
+    private Chain load(long chainId, long now) {
+        chains.invalidate(chainId);
+        RefreshToken row = repository.findById(chainId).orElse(null);
+        if (row == null) {
+            return null;
+        }
+        Optional<User> user = userRepository.findById(row.getUserId());
+        if (user.isEmpty() || Boolean.FALSE.equals(user.get().getActive())) {
+            return null;
+        }
+        Chain chain = new Chain(chainId, row.getUserId(), user.get().getUsername(), user.get().getRole().name(),
+                row.getGeneration(), row.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                Boolean.TRUE.equals(row.getRevoked()), now);
+        chains.put(chainId, chain);
+        return chain;
+    }
+
+    @Scheduled(fixedDelayString = "${app.auth.refresh.sweep-interval-minutes:60}",
+            initialDelayString = "${app.auth.refresh.sweep-interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    void sweep() {
+        try {
+            int deleted = repository.deleteExpired(LocalDateTime.now(clock));
+            if (deleted > 0) {
+                log.info("Deleted {} expired refresh token chains", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Refresh token sweep failed", e);
+        }
+    }
+
+    private String token(long chainId, int generation) {
+        String body = Long.toHexString(chainId) + "." + generation;
+        return body + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(sign(body));
+    }
+
+    // Null unless the token is well formed and carries our signature
+    private Presented parse(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.lastIndexOf('.');
+        int first = token.indexOf('.');
+        if (first <= 0 || dot <= first + 1) {
+            return null;
+        }
+        String body = token.substring(0, dot);
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(sign(body), signature)) {
+            return null;
+        }
+        try {
+            return new Presented(Long.parseLong(body.substring(0, first), 16),
+                    Integer.parseInt(body.substring(first + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String body) {
+        return macs.get().doFinal(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(signingKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+}
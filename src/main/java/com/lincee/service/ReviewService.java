@@ -1,5 +1,6 @@
 package com.lincee.service;
 
+import com.lincee.dto.CursorPageDTO;
 import com.lincee.dto.ReviewDTO;
 import com.lincee.entity.Product;
 import com.lincee.entity.Review;
@@ -10,6 +11,7 @@ import com.lincee.repository.ReviewRepository;
 import com.lincee.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -76,6 +78,20 @@ public class ReviewService {
         return reviewRepository.findByProductId(productId, pageable).map(this::convertToDTO);
     }
     
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ReviewDTO> getProductReviewsByCursor(Long productId, String cursor, Integer size) {
+        int pageSize = KeysetCursor.validateSize(size);
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<Review> rows;
+        if (cursor == null) {
+            rows = reviewRepository.findProductReviewsNewest(productId, limit);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor, KeysetCursor.Kind.CREATED_AT);
+            rows = reviewRepository.findProductReviewsNewestAfter(productId, position.createdAt(), position.id(), limit);
+        }
+        return KeysetCursor.page(rows, pageSize, r -> KeysetCursor.ofCreatedAt(r.getCreatedAt(), r.getId()), this::convertToDTO);
+    }
+    
     public List<ReviewDTO> getProductReviewsList(Long productId) {
         return reviewRepository.findByProductId(productId).stream()
                 .map(this::convertToDTO)
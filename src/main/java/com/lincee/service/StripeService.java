@@ -3,6 +3,7 @@ package com.lincee.service;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCreateParams;
 import com.stripe.param.checkout.SessionCreateParams;
 import org.springframework.beans.factory.annotation.Value;
@@ -29,6 +30,15 @@ public class StripeService {
      * Create a Payment Intent for processing payments
      */
     public PaymentIntent createPaymentIntent(BigDecimal amount, String currency, Map<String, String> metadata) throws StripeException {
+        return createPaymentIntent(amount, currency, metadata, null);
+    }
+
+    /**
+     * Create a Payment Intent, passing the client's idempotency key on to Stripe
+     * so a retried call cannot create a second intent
+     */
+    public PaymentIntent createPaymentIntent(BigDecimal amount, String currency, Map<String, String> metadata,
+                                             String idempotencyKey) throws StripeException {
         // Convert amount to cents (Stripe uses smallest currency unit)
         long amountInCents = amount.multiply(new BigDecimal("100")).longValue();
         
@@ -42,13 +52,21 @@ public class StripeService {
             paramsBuilder.putAllMetadata(metadata);
         }
 
-        return PaymentIntent.create(paramsBuilder.build());
+        return PaymentIntent.create(paramsBuilder.build(), requestOptions("payment-intent:", idempotencyKey));
     }
 
     /**
      * Create a Checkout Session for hosted checkout page
      */
     public Session createCheckoutSession(Long orderId, BigDecimal amount, String customerEmail, List<Map<String, Object>> lineItems) throws StripeException {
+        return createCheckoutSession(orderId, amount, customerEmail, lineItems, null);
+    }
+
+    /**
+     * Create a Checkout Session, passing the client's idempotency key on to Stripe
+     */
+    public Session createCheckoutSession(Long orderId, BigDecimal amount, String customerEmail, List<Map<String, Object>> lineItems,
+                                         String idempotencyKey) throws StripeException {
         // Convert amount to cents
         long amountInCents = amount.multiply(new BigDecimal("100")).longValue();
 
@@ -105,7 +123,7 @@ public class StripeService {
             );
         }
 
-        return Session.create(paramsBuilder.build());
+        return Session.create(paramsBuilder.build(), requestOptions("checkout-session:", idempotencyKey));
     }
 
     /**
@@ -140,4 +158,12 @@ public class StripeService {
         if (orderNumber != null) metadata.put("orderNumber", orderNumber);
         return metadata;
     }
+
+    // Stripe keys are account-wide, so each endpoint gets its own prefix
+    private RequestOptions requestOptions(String prefix, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return RequestOptions.getDefault();
+        }
+        return RequestOptions.builder().setIdempotencyKey(prefix + idempotencyKey).build();
+    }
 }
@@ -0,0 +1,79 @@
+package com.lincee.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A non-negative stock count split across padded stripes so concurrent takers rarely CAS the
+ * same cache line. A take starts at a random stripe and drains stripes with CAS until it has
+ * enough; if the stripes together fall short it puts back what it took and fails, so the
+ * total never goes below zero and no lock is ever held.
+ *
+ * Close to sell-out, a take can fail while another taker briefly holds units it is about to
+ * give back. Callers see that as "sold out" for that attempt, which is the same answer they
+ * would get a moment later.
+ */
+public final class StripedCounter {
+
+    // 8 longs = 64 bytes between stripes, one cache line each
+    private static final int PAD = 8;
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+
+    public StripedCounter(int stripes, long total) {
+        if (stripes <= 0 || total < 0) {
+            throw new IllegalArgumentException("Stripes must be positive and total non-negative");
+        }
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PAD);
+        long share = total / stripes;
+        for (int i = 0; i < stripes; i++) {
+            cells.set(i * PAD, share + (i < total % stripes ? 1 : 0));
+        }
+    }
+
+    public boolean tryTake(long quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        long remaining = quantity;
+        for (int n = 0; n < stripes && remaining > 0; n++) {
+            int cell = ((start + n) % stripes) * PAD;
+            while (true) {
+                long current = cells.get(cell);
+                if (current == 0) {
+                    break;
+                }
+                long taken = Math.min(current, remaining);
+                if (cells.compareAndSet(cell, current, current - taken)) {
+                    remaining -= taken;
+                    break;
+                }
+            }
+        }
+        if (remaining > 0) {
+            add(quantity - remaining);
+            return false;
+        }
+        return true;
+    }
+
+    public void add(long quantity) {
+        if (quantity > 0) {
+            cells.getAndAdd(ThreadLocalRandom.current().nextInt(stripes) * PAD, quantity);
+        }
+    }
+
+    /**
+     * Current total. Exact when no take is in progress, otherwise a moment-in-time estimate.
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PAD);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,71 @@
+package com.lincee.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: deadlines are bucketed into a fixed ring of slots, one slot per
+ * tick. Scheduling is O(1) and each tick only looks at the entries of a single slot;
+ * deadlines further out than one revolution wait out the remaining rounds in place.
+ * Expiry is accurate to one tick.
+ */
+public final class TimerWheel<T> {
+
+    private record Timeout<T>(T item, long deadlineMillis) {}
+
+    private final long tickMillis;
+    private final List<Timeout<T>>[] slots;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, int slotCount, long startMillis) {
+        if (tickMillis <= 0 || slotCount <= 0) {
+            throw new IllegalArgumentException("Tick and slot count must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.slots = new List[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    public synchronized void schedule(T item, long deadlineMillis) {
+        long tick = Math.max(deadlineMillis / tickMillis, currentTick);
+        slots[(int) (tick % slots.length)].add(new Timeout<>(item, deadlineMillis));
+        size++;
+    }
+
+    /**
+     * Move the wheel up to {@code nowMillis} and hand every entry whose deadline
+     * has passed to {@code onExpiry}, outside the wheel's lock.
+     */
+    public void advance(long nowMillis, Consumer<T> onExpiry) {
+        List<T> expired = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = nowMillis / tickMillis;
+            // A stalled clock thread never needs more than one revolution to catch up
+            long firstTick = Math.max(currentTick, targetTick - slots.length + 1);
+            for (long tick = firstTick; tick <= targetTick; tick++) {
+                Iterator<Timeout<T>> it = slots[(int) (tick % slots.length)].iterator();
+                while (it.hasNext()) {
+                    Timeout<T> timeout = it.next();
+                    if (timeout.deadlineMillis() <= nowMillis) {
+                        it.remove();
+                        size--;
+                        expired.add(timeout.item());
+                    }
+                }
+            }
+            currentTick = targetTick;
+        }
+        expired.forEach(onExpiry);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
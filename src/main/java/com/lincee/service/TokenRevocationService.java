@@ -0,0 +1,169 @@
+package com.lincee.service;
+
+import com.lincee.entity.RevokedToken;
+import com.lincee.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access tokens logged out before they expire.
+ *
+ * Revoked token ids are kept in memory in an exact map (id to expiry) fronted by a
+ * {@link BloomFilter}. The check on every authenticated request is the filter's fixed handful
+ * of bit probes; only ids the filter flags go on to the map, so the cost does not grow with
+ * the number of revocations. Each revocation is also written to revoked_tokens: the list is
+ * reloaded on startup, and a timer picks up rows written by other instances, drops entries
+ * whose token has expired by now and rebuilds the filter without them.
+ *
+ * Metrics: auth.revocations.active and auth.revocations.false-positives (filter hits the map
+ * did not confirm).
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+    // Rows from other instances are re-read this far back, to cover clock skew between them
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final RevokedTokenRepository repository;
+    private final int expectedTokens;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private volatile BloomFilter filter;
+    private final Counter falsePositives;
+    private volatile LocalDateTime syncedAt;
+    private Clock clock = Clock.systemDefaultZone();
+
+    public TokenRevocationService(RevokedTokenRepository repository, MeterRegistry meterRegistry,
+                                  @Value("${app.auth.revocation.expected-tokens:100000}") int expectedTokens) {
+        this.repository = repository;
+        this.expectedTokens = expectedTokens;
+        this.filter = new BloomFilter(expectedTokens, FALSE_POSITIVE_RATE);
+        this.falsePositives = Counter.builder("auth.revocations.false-positives")
+                .description("Token ids the filter flagged that were not revoked").register(meterRegistry);
+        Gauge.builder("auth.revocations.active", revoked, Map::size).description("Revoked tokens not yet expired")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<RevokedToken> rows = repository.findByExpiresAtAfter(now);
+        rows.forEach(this::remember);
+        syncedAt = now;
+        if (!rows.isEmpty()) {
+            log.info("Loaded {} revoked tokens", rows.size());
+        }
+    }
+
+    /**
+     * Whether the token with this id was revoked. Safe to call on every request.
+     */
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(tokenId)) {
+            return false;
+        }
+        if (revoked.containsKey(tokenId)) {
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    /**
+     * Revoke a token until it expires. Revoking an expired token does nothing.
+     */
+    public void revoke(String tokenId, Long userId, long expiresAtMillis) {
+        if (expiresAtMillis <= clock.millis() || revoked.containsKey(tokenId)) {
+            return;
+        }
+        repository.save(new RevokedToken(tokenId, userId, toLocalDateTime(expiresAtMillis), LocalDateTime.now(clock)));
+        remember(tokenId, expiresAtMillis);
+    }
+
+    // Nothing to sync until start() has loaded the list
+    @Scheduled(fixedDelayString = "${app.auth.revocation.sync-seconds:10}",
+            initialDelayString = "${app.auth.revocation.sync-seconds:10}", timeUnit = TimeUnit.SECONDS)
+    void runSync() {
+        if (syncedAt == null) {
+            return;
+        }
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            log.warn("Token revocation sync failed", e);
+        }
+    }
+
+    /**
+     * Pick up revocations written by other instances and drop the ones that have expired.
+     * Returns the number of revoked tokens still active.
+     */
+    public int sync() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime since = (syncedAt != null ? syncedAt : now).minus(SYNC_OVERLAP);
+        repository.findByRevokedAtAfterAndExpiresAtAfter(since, now).forEach(this::remember);
+        syncedAt = now;
+
+        long nowMillis = clock.millis();
+        if (revoked.values().removeIf(expiresAt -> expiresAt <= nowMillis)) {
+            rebuild();
+        }
+        repository.deleteExpired(now);
+        return revoked.size();
+    }
+
+    private void remember(RevokedToken row) {
+        remember(row.getTokenId(), row.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    // The filter is only ever swapped under the lock, so an id added here cannot be lost to a
+    // concurrent rebuild
+    private void remember(String tokenId, long expiresAtMillis) {
+        synchronized (writeLock) {
+            if (revoked.put(tokenId, expiresAtMillis) == null) {
+                filter.add(tokenId);
+                if (revoked.size() > filter.capacity()) {
+                    rebuild();
+                }
+            }
+        }
+    }
+
+    // A fresh filter holding only the live ids, sized for twice as many so it stays accurate
+    private void rebuild() {
+        synchronized (writeLock) {
+            BloomFilter fresh = new BloomFilter(Math.max(expectedTokens, revoked.size() * 2), FALSE_POSITIVE_RATE);
+            revoked.keySet().forEach(fresh::add);
+            filter = fresh;
+        }
+    }
+
+    private LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+}
@@ -0,0 +1,763 @@
+package com.lincee.service;
+
+import com.lincee.dto.CartItemDTO;
+import com.lincee.dto.ProductDTO;
+import com.lincee.dto.ProductVariantDTO;
+import com.lincee.entity.ProductVariant;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Optional cart storage for hot interactive traffic ({@code app.carts.write-behind.enabled}).
+ *
+ * Active carts live in memory, one {@link CartState} per user. An edit locks only its own cart,
+ * checks against the cached catalog, appends the new line state to the {@link CartWriteAheadLog}
+ * and applies it in memory; the caller gets its answer once the log record is on disk, so an
+ * acknowledged edit survives a crash. A background flusher writes every changed cart to
+ * carts/cart_items in one transaction of JDBC batches, coalescing all edits made to a line
+ * between flushes into one row write, then drops the log segments it covered. On startup the
+ * log left by a crash is replayed: every record carries a timestamp and the flush stamps
+ * carts.updated_at with the last one it wrote, so records already in the database are skipped.
+ *
+ * Lines added since the last flush have a temporary negative id until they are written; the
+ * temporary id keeps resolving while the cart stays in memory. Edits here do not place stock
+ * holds; {@link CartService#holdCartForCheckout} flushes the cart and holds everything in it.
+ * Clean carts leave memory after {@code idle-minutes} or, oldest first, when more than
+ * {@code max-carts} are resident; carts with unflushed edits stay until they are written.
+ *
+ * Metrics: carts.write-behind.resident, carts.write-behind.flushed (cart writes) and
+ * carts.write-behind.flush.duration.
+ */
+@Service
+public class WriteBehindCartStore {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+    private static final String CART_SQL = "SELECT id, updated_at FROM carts WHERE user_id = ?";
+    private static final String LINES_SQL =
+            "SELECT id, product_id, quantity, unit_price, size, color, created_at FROM cart_items WHERE cart_id = ? ORDER BY id";
+    private static final String LINE_IDS_SQL = "SELECT id, product_id, size, color FROM cart_items WHERE cart_id = ?";
+    private static final String INSERT_CART_SQL =
+            "INSERT INTO carts (user_id, total_price, item_count, created_at, updated_at) VALUES (?, 0, 0, ?, ?)";
+    private static final String INSERT_LINE_SQL =
+            "INSERT INTO cart_items (cart_id, product_id, quantity, unit_price, size, color, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_LINE_SQL = "UPDATE cart_items SET quantity = ?, unit_price = ? WHERE id = ?";
+    private static final String DELETE_LINE_SQL = "DELETE FROM cart_items WHERE id = ?";
+    private static final String UPDATE_CART_SQL =
+            "UPDATE carts SET item_count = ?, total_price = ?, updated_at = ? WHERE id = ?";
+    private static final int LOAD_STRIPES = 64;
+
+    record LineKey(long productId, String size, String color) {}
+
+    static final class Line {
+        final LineKey key;
+        long id;
+        int quantity;
+        BigDecimal unitPrice;
+        final LocalDateTime createdAt;
+        long version;
+        long flushedVersion;
+        boolean removed;
+
+        Line(LineKey key, long id, LocalDateTime createdAt) {
+            this.key = key;
+            this.id = id;
+            this.createdAt = createdAt;
+        }
+
+        BigDecimal subTotal() {
+            return unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+
+    static final class CartState {
+        final long userId;
+        final long cartId;
+        final Map<LineKey, Line> lines = new LinkedHashMap<>();
+        // Lines by real id and by the temporary id they had before their first flush
+        final Map<Long, Line> byId = new HashMap<>();
+        final Set<Long> removedIds = new HashSet<>();
+        final long dbStamp;
+        long lastStamp;
+        long version;
+        long flushedVersion;
+        volatile long lastAccess;
+        boolean evicted;
+        CartWriteAheadLog.Position pending;
+
+        CartState(long userId, long cartId, long dbStamp) {
+            this.userId = userId;
+            this.cartId = cartId;
+            this.dbStamp = dbStamp;
+            this.lastStamp = dbStamp;
+        }
+
+        boolean dirty() {
+            return version != flushedVersion || !removedIds.isEmpty();
+        }
+    }
+
+    private record LineWrite(Line line, long id, long productId, String size, String color, int quantity,
+                             BigDecimal unitPrice, LocalDateTime createdAt, long version) {}
+
+    private record Snapshot(long cartId, long version, long stamp, List<Long> removed, List<LineWrite> writes,
+                            int itemCount, BigDecimal total) {}
+
+    // The cart row is gone (swept or deleted elsewhere); its in-memory copy is dropped
+    private static final class CartGone extends RuntimeException {
+        CartGone() {
+            super(null, null, false, false);
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectProvider<ProductService> productService;
+
+    @Autowired
+    private InventoryReservationService inventoryReservations;
+
+    private final boolean enabled;
+    private final int maxCarts;
+    private final long idleMillis;
+    private final CartWriteAheadLog wal;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, CartState> carts = new ConcurrentHashMap<>();
+    private final Object[] loadLocks = new Object[LOAD_STRIPES];
+    private final Object flushLock = new Object();
+    private final AtomicLong nextTemporaryId = new AtomicLong();
+    private final Counter flushedCarts;
+    private final Timer flushTimer;
+    private Clock clock = Clock.systemDefaultZone();
+    private volatile boolean recovered;
+
+    public WriteBehindCartStore(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                @Value("${app.carts.write-behind.enabled:false}") boolean enabled,
+                                @Value("${app.carts.write-behind.wal-dir:data/cart-wal}") String walDir,
+                                @Value("${app.carts.write-behind.max-carts:100000}") int maxCarts,
+                                @Value("${app.carts.write-behind.idle-minutes:30}") long idleMinutes) {
+        this.enabled = enabled;
+        this.maxCarts = maxCarts;
+        this.idleMillis = TimeUnit.MINUTES.toMillis(idleMinutes);
+        this.wal = enabled ? new CartWriteAheadLog(Path.of(walDir)) : null;
+        // Flushes commit on their own, whatever transaction the caller is in
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int i = 0; i < LOAD_STRIPES; i++) {
+            loadLocks[i] = new Object();
+        }
+        this.flushedCarts = Counter.builder("carts.write-behind.flushed").description("Carts written to the database")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("carts.write-behind.flush.duration").description("Time per write-behind flush")
+                .register(meterRegistry);
+        Gauge.builder("carts.write-behind.resident", carts, Map::size).description("Carts held in memory")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        recover();
+        recovered = true;
+    }
+
+    // Scheduling starts before the application is ready; nothing is flushed until recover() has run
+    @Scheduled(fixedDelayString = "${app.carts.write-behind.flush-interval-millis:200}",
+            initialDelayString = "${app.carts.write-behind.flush-interval-millis:200}")
+    void runFlush() {
+        if (!recovered) {
+            return;
+        }
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Write-behind cart flush failed", e);
+        }
+    }
+
+    /**
+     * Add a product to the user's cart, merging into the line with the same size and color. Same
+     * checks and errors as {@link CartService#addItemToCart}, against the cached catalog.
+     */
+    public CartItemDTO addItem(Long userId, Long productId, Integer quantity, String size, String color) {
+        return withCart(userId, true, state -> {
+            ProductDTO product = productService.getObject().getProductById(productId)
+                    .orElseThrow(() -> new ApiException(ErrorCode.PRODUCT_NOT_FOUND, "Product not found"));
+            if (!Boolean.TRUE.equals(product.getActive())) {
+                throw new ApiException(ErrorCode.PRODUCT_NOT_FOUND, "Product is not active");
+            }
+            if (quantity == null || quantity <= 0) {
+                throw new ApiException(ErrorCode.INVALID_QUANTITY, "Quantity must be greater than 0");
+            }
+
+            List<ProductVariantDTO> variants = product.getVariants() != null ? product.getVariants() : List.of();
+            ProductVariantDTO variant = variants.stream()
+                    .filter(v -> Boolean.TRUE.equals(v.getActive()))
+                    .filter(v -> v.getSize() == null || v.getSize().equalsIgnoreCase(size))
+                    .filter(v -> v.getColor() == null || v.getColor().equalsIgnoreCase(color))
+                    .min(Comparator.comparing(ProductVariantDTO::getId))
+                    .orElse(null);
+            List<String> sizes = product.getAvailableSizes() != null ? product.getAvailableSizes() : List.of();
+            List<String> colors = product.getAvailableColors() != null ? product.getAvailableColors() : List.of();
+            if (!variants.isEmpty()) {
+                if (variant == null) {
+                    throw new ApiException(ErrorCode.VALIDATION_ERROR, "Invalid size/color combination");
+                }
+            } else if (!sizes.isEmpty() && (size == null || !sizes.contains(size))) {
+                throw new ApiException(ErrorCode.VALIDATION_ERROR, "Invalid or missing size");
+            }
+            if (variant == null && color != null && !colors.isEmpty() && !colors.contains(color)) {
+                throw new ApiException(ErrorCode.VALIDATION_ERROR, "Invalid color");
+            }
+
+            int available = stock(product) - inventoryReservations.getHeldByOthers(productId, userId);
+            int held = heldQuantity(state, productId) + quantity;
+            if (available < held) {
+                throw new ApiException(ErrorCode.INSUFFICIENT_STOCK, "Insufficient stock. Available: " + Math.max(0, available));
+            }
+            Line line = state.lines.get(new LineKey(productId, size, color));
+            int lineQuantity = (line != null ? line.quantity : 0) + quantity;
+            int variantStock = variant != null && variant.getStockQuantity() != null ? variant.getStockQuantity() : 0;
+            if (variant != null && variantStock < lineQuantity) {
+                throw new ApiException(ErrorCode.INSUFFICIENT_STOCK, "Insufficient stock for "
+                        + ProductVariant.label(variant.getSize(), variant.getColor(), variant.getSku())
+                        + ". Available: " + variantStock);
+            }
+
+            BigDecimal productPrice = product.getDiscountPrice() != null ? product.getDiscountPrice() : product.getPrice();
+            BigDecimal unitPrice;
+            if (variant != null) {
+                unitPrice = variant.getPriceOverride() != null ? variant.getPriceOverride() : productPrice;
+            } else {
+                unitPrice = line != null ? line.unitPrice : productPrice;
+            }
+            return toDTO(state, record(state, CartWriteAheadLog.SET_LINE, productId, size, color, lineQuantity, unitPrice),
+                    product);
+        });
+    }
+
+    /**
+     * Set a line's quantity; zero or less removes it and returns the removed line.
+     */
+    public CartItemDTO updateItem(Long userId, Long cartItemId, Integer quantity) {
+        return withCart(userId, false, state -> {
+            Line line = line(state, cartItemId);
+            ProductDTO product = productService.getObject().getProductById(line.key.productId()).orElse(null);
+            if (quantity <= 0) {
+                CartItemDTO removed = toDTO(state, line, product);
+                record(state, CartWriteAheadLog.SET_LINE, line.key.productId(), line.key.size(), line.key.color(), 0,
+                        line.unitPrice);
+                return removed;
+            }
+            int stock = product != null ? stock(product) : 0;
+            int available = stock - inventoryReservations.getHeldByOthers(line.key.productId(), userId);
+            int held = heldQuantity(state, line.key.productId()) - line.quantity + quantity;
+            if (available < held) {
+                throw new RuntimeException("Insufficient stock. Available: " + Math.max(0, available));
+            }
+            return toDTO(state, record(state, CartWriteAheadLog.SET_LINE, line.key.productId(), line.key.size(),
+                    line.key.color(), quantity, line.unitPrice), product);
+        });
+    }
+
+    public void removeItem(Long userId, Long cartItemId) {
+        withCart(userId, false, state -> {
+            Line line = line(state, cartItemId);
+            return record(state, CartWriteAheadLog.SET_LINE, line.key.productId(), line.key.size(), line.key.color(), 0,
+                    line.unitPrice);
+        });
+    }
+
+    /**
+     * Empty the cart. Returns the ids of the products it held.
+     */
+    public List<Long> clear(Long userId) {
+        return withCart(userId, false, state -> {
+            List<Long> productIds = state.lines.keySet().stream().map(LineKey::productId).distinct().toList();
+            record(state, CartWriteAheadLog.CLEAR_CART, 0, null, null, 0, null);
+            return productIds;
+        });
+    }
+
+    public List<CartItemDTO> getItems(Long userId) {
+        return withCart(userId, false, state -> {
+            List<CartItemDTO> items = new ArrayList<>(state.lines.size());
+            for (Line line : state.lines.values()) {
+                items.add(toDTO(state, line, productService.getObject().getProductById(line.key.productId()).orElse(null)));
+            }
+            return items;
+        });
+    }
+
+    /**
+     * Write the user's cart to the database now if it has unflushed edits, so the next read of
+     * carts/cart_items sees them.
+     */
+    public void flush(Long userId) {
+        if (!enabled) {
+            return;
+        }
+        CartState state = carts.get(userId);
+        if (state != null) {
+            synchronized (flushLock) {
+                flushCart(state);
+            }
+        }
+    }
+
+    /**
+     * Write the user's cart and take it out of memory, for callers that change carts/cart_items
+     * directly.
+     */
+    public void flushAndEvict(Long userId) {
+        flush(userId);
+        CartState state = enabled ? carts.get(userId) : null;
+        if (state != null) {
+            evict(state);
+        }
+    }
+
+    /**
+     * Write every cart with unflushed edits, then drop the log segments they came from. Returns
+     * the number of carts written.
+     */
+    public int flush() {
+        if (!enabled) {
+            return 0;
+        }
+        synchronized (flushLock) {
+            long started = System.nanoTime();
+            long sealed = wal.rotate();
+            int written = 0;
+            boolean complete = true;
+            for (CartState state : carts.values()) {
+                try {
+                    if (flushCart(state)) {
+                        written++;
+                    }
+                } catch (RuntimeException e) {
+                    complete = false;
+                    log.warn("Could not write cart {} for user {}", state.cartId, state.userId, e);
+                }
+            }
+            // A segment may only go once every edit in it is in the database
+            if (complete) {
+                wal.deleteUpTo(sealed);
+            }
+            evictIdle();
+            flushTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return written;
+        }
+    }
+
+    /**
+     * Replay what the log holds beyond the database, write it, and start from an empty log.
+     */
+    void recover() {
+        synchronized (flushLock) {
+            long sealed = wal.rotate();
+            List<CartWriteAheadLog.Entry> entries = wal.read(sealed);
+            int replayed = 0;
+            for (CartWriteAheadLog.Entry entry : entries) {
+                CartState state;
+                try {
+                    state = resident(entry.userId(), true);
+                } catch (ApiException e) {
+                    log.warn("Skipping logged cart edit for missing user {}", entry.userId());
+                    continue;
+                }
+                synchronized (state) {
+                    if (entry.stamp() > state.dbStamp) {
+                        apply(state, entry);
+                        replayed++;
+                    }
+                }
+            }
+            for (CartState state : carts.values()) {
+                flushCart(state);
+            }
+            wal.deleteUpTo(sealed);
+            if (replayed > 0) {
+                log.info("Replayed {} logged cart edits", replayed);
+            }
+        }
+    }
+
+    // Run an edit or read against the user's cart under its lock, then wait for the log record it
+    // wrote to reach the disk.
+    private <T> T withCart(Long userId, boolean create, Function<CartState, T> action) {
+        while (true) {
+            CartState state = resident(userId, create);
+            T result;
+            CartWriteAheadLog.Position position;
+            synchronized (state) {
+                if (state.evicted) {
+                    continue;
+                }
+                state.lastAccess = clock.millis();
+                try {
+                    result = action.apply(state);
+                } finally {
+                    position = state.pending;
+                    state.pending = null;
+                }
+            }
+            if (position != null) {
+                wal.sync(position);
+            }
+            return result;
+        }
+    }
+
+    private CartState resident(long userId, boolean create) {
+        CartState state = carts.get(userId);
+        if (state != null) {
+            return state;
+        }
+        synchronized (loadLocks[(int) Math.floorMod(userId, (long) LOAD_STRIPES)]) {
+            state = carts.get(userId);
+            if (state == null) {
+                state = load(userId, create);
+                state.lastAccess = clock.millis();
+                carts.put(userId, state);
+            }
+            return state;
+        }
+    }
+
+    private CartState load(long userId, boolean create) {
+        List<CartState> found = jdbcTemplate.query(CART_SQL, (rs, i) -> new CartState(userId, rs.getLong("id"),
+                toMillis(rs.getTimestamp("updated_at").toLocalDateTime())), userId);
+        if (found.isEmpty()) {
+            if (!create) {
+                throw new RuntimeException("Cart not found");
+            }
+            return createCart(userId);
+        }
+        CartState state = found.get(0);
+        jdbcTemplate.query(LINES_SQL, rs -> {
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            Line line = new Line(new LineKey(rs.getLong("product_id"), rs.getString("size"), rs.getString("color")),
+                    rs.getLong("id"), createdAt != null ? createdAt.toLocalDateTime() : null);
+            line.quantity = rs.getInt("quantity");
+            line.unitPrice = rs.getBigDecimal("unit_price");
+            state.lines.put(line.key, line);
+            state.byId.put(line.id, line);
+        }, state.cartId);
+        return state;
+    }
+
+    private CartState createCart(long userId) {
+        Integer users = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, userId);
+        if (users == null || users == 0) {
+            throw new ApiException(ErrorCode.USER_NOT_FOUND, "User not found");
+        }
+        LocalDateTime now = LocalDateTime.now(clock);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try {
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(INSERT_CART_SQL, new String[] {"id"});
+                ps.setLong(1, userId);
+                ps.setTimestamp(2, Timestamp.valueOf(now));
+                ps.setTimestamp(3, Timestamp.valueOf(now));
+                return ps;
+            }, keyHolder);
+        } catch (DuplicateKeyException e) {
+            // Created through the database path meanwhile
+            return load(userId, false);
+        }
+        return new CartState(userId, keyHolder.getKey().longValue(), toMillis(now));
+    }
+
+    private Line line(CartState state, Long cartItemId) {
+        Line line = cartItemId != null ? state.byId.get(cartItemId) : null;
+        if (line == null || line.removed) {
+            throw new RuntimeException("Cart item not found");
+        }
+        return line;
+    }
+
+    // Log the new state of a line (or a clear), then apply it. Returns the line, or null if it
+    // was removed.
+    private Line record(CartState state, byte type, long productId, String size, String color, int quantity,
+                        BigDecimal unitPrice) {
+        long stamp = Math.max(clock.millis(), state.lastStamp + 1);
+        CartWriteAheadLog.Entry entry = new CartWriteAheadLog.Entry(stamp, state.userId, type, productId, size, color,
+                quantity, unitPrice);
+        state.pending = wal.append(entry);
+        return apply(state, entry);
+    }
+
+    private Line apply(CartState state, CartWriteAheadLog.Entry entry) {
+        state.lastStamp = Math.max(state.lastStamp, entry.stamp());
+        state.version++;
+        if (entry.type() == CartWriteAheadLog.CLEAR_CART) {
+            state.lines.values().forEach(line -> drop(state, line));
+            state.lines.clear();
+            return null;
+        }
+        LineKey key = new LineKey(entry.productId(), entry.size(), entry.color());
+        Line line = state.lines.get(key);
+        if (entry.quantity() <= 0) {
+            if (line != null) {
+                state.lines.remove(key);
+                drop(state, line);
+            }
+            return null;
+        }
+        if (line == null) {
+            line = new Line(key, nextTemporaryId.decrementAndGet(), toDateTime(entry.stamp()));
+            state.lines.put(key, line);
+            state.byId.put(line.id, line);
+        }
+        line.quantity = entry.quantity();
+        line.unitPrice = entry.unitPrice();
+        line.version++;
+        return line;
+    }
+
+    private void drop(CartState state, Line line) {
+        line.removed = true;
+        state.byId.values().removeIf(l -> l == line);
+        if (line.id > 0) {
+            state.removedIds.add(line.id);
+        }
+    }
+
+    private boolean flushCart(CartState state) {
+        Snapshot snapshot;
+        synchronized (state) {
+            if (state.evicted || !state.dirty()) {
+                return false;
+            }
+            snapshot = snapshot(state);
+        }
+        Map<LineKey, Long> ids;
+        try {
+            ids = transactionTemplate.execute(status -> write(snapshot));
+        } catch (CartGone e) {
+            log.warn("Cart {} for user {} no longer exists; dropping its unflushed edits", state.cartId, state.userId);
+            synchronized (state) {
+                state.evicted = true;
+                carts.remove(state.userId, state);
+            }
+            return false;
+        }
+        synchronized (state) {
+            state.flushedVersion = snapshot.version();
+            snapshot.removed().forEach(state.removedIds::remove);
+            for (LineWrite write : snapshot.writes()) {
+                Line line = write.line();
+                line.flushedVersion = write.version();
+                if (write.id() < 0) {
+                    long id = ids.get(write.line().key);
+                    line.id = id;
+                    if (line.removed) {
+                        // Removed while its insert was in flight
+                        state.removedIds.add(id);
+                    } else {
+                        state.byId.put(id, line);
+                    }
+                }
+            }
+        }
+        flushedCarts.increment();
+        return true;
+    }
+
+    private Snapshot snapshot(CartState state) {
+        List<LineWrite> writes = new ArrayList<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (Line line : state.lines.values()) {
+            total = total.add(line.subTotal());
+            if (line.version != line.flushedVersion) {
+                writes.add(new LineWrite(line, line.id, line.key.productId(), line.key.size(), line.key.color(),
+                        line.quantity, line.unitPrice, line.createdAt, line.version));
+            }
+        }
+        return new Snapshot(state.cartId, state.version, state.lastStamp, new ArrayList<>(state.removedIds), writes,
+                state.lines.size(), total);
+    }
+
+    // One transaction per cart: the totals and stamp first (which also tells us the row still
+    // exists), then deletes, updates and inserts as batches. Returns the ids of inserted lines.
+    private Map<LineKey, Long> write(Snapshot snapshot) {
+        if (jdbcTemplate.update(UPDATE_CART_SQL, snapshot.itemCount(), snapshot.total(),
+                Timestamp.valueOf(toDateTime(snapshot.stamp())), snapshot.cartId()) == 0) {
+            throw new CartGone();
+        }
+        if (!snapshot.removed().isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_LINE_SQL, snapshot.removed().stream().map(id -> new Object[] {id}).toList());
+        }
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        for (LineWrite write : snapshot.writes()) {
+            if (write.id() > 0) {
+                updates.add(new Object[] {write.quantity(), write.unitPrice(), write.id()});
+            } else {
+                inserts.add(new Object[] {snapshot.cartId(), write.productId(), write.quantity(), write.unitPrice(),
+                        write.size(), write.color(), Timestamp.valueOf(write.createdAt())});
+            }
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_LINE_SQL, updates);
+        }
+        Map<LineKey, Long> ids = new HashMap<>();
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_LINE_SQL, inserts);
+            jdbcTemplate.query(LINE_IDS_SQL, rs -> {
+                ids.put(new LineKey(rs.getLong("product_id"), rs.getString("size"), rs.getString("color")), rs.getLong("id"));
+            }, snapshot.cartId());
+        }
+        return ids;
+    }
+
+    private void evictIdle() {
+        long cutoff = clock.millis() - idleMillis;
+        for (CartState state : carts.values()) {
+            if (state.lastAccess < cutoff) {
+                evict(state);
+            }
+        }
+        int excess = carts.size() - maxCarts;
+        if (excess > 0) {
+            List<CartState> oldestFirst = new ArrayList<>(carts.values());
+            oldestFirst.sort(Comparator.comparingLong(state -> state.lastAccess));
+            for (CartState state : oldestFirst) {
+                if (excess == 0) {
+                    break;
+                }
+                if (evict(state)) {
+                    excess--;
+                }
+            }
+        }
+    }
+
+    // Only a cart with nothing left to write may leave memory
+    private boolean evict(CartState state) {
+        synchronized (loadLocks[(int) Math.floorMod(state.userId, (long) LOAD_STRIPES)]) {
+            synchronized (state) {
+                if (state.evicted || state.dirty()) {
+                    return false;
+                }
+                state.evicted = true;
+                carts.remove(state.userId, state);
+                return true;
+            }
+        }
+    }
+
+    private static int heldQuantity(CartState state, long productId) {
+        int held = 0;
+        for (Line line : state.lines.values()) {
+            if (line.key.productId() == productId) {
+                held += line.quantity;
+            }
+        }
+        return held;
+    }
+
+    private static int stock(ProductDTO product) {
+        return product.getStockQuantity() != null ? product.getStockQuantity() : 0;
+    }
+
+    private CartItemDTO toDTO(CartState state, Line line, ProductDTO product) {
+        CartItemDTO dto = new CartItemDTO();
+        dto.setId(line.id);
+        dto.setCartId(state.cartId);
+        dto.setProductId(line.key.productId());
+        if (product != null) {
+            dto.setProductName(product.getName());
+            dto.setProductImage(product.getImageUrls() == null || product.getImageUrls().isEmpty()
+                    ? null : product.getImageUrls().get(0));
+        }
+        dto.setQuantity(line.quantity);
+        dto.setUnitPrice(line.unitPrice);
+        dto.setSubTotal(line.subTotal());
+        dto.setSize(line.key.size());
+        dto.setColor(line.key.color());
+        dto.setCreatedAt(line.createdAt);
+        return dto;
+    }
+
+    private long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    int residentCarts() {
+        return carts.size();
+    }
+
+    // Lose everything held in memory, as a crash would
+    void discardResident() {
+        carts.clear();
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled) {
+            runFlush();
+            recovered = false;
+            wal.close();
+        }
+    }
+}
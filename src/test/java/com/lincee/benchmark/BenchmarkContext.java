@@ -0,0 +1,47 @@
+package com.lincee.benchmark;
+
+import com.lincee.LinceeApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application for a benchmark trial without a web server.
+ *
+ * By default it runs against an in-memory H2 database. To measure against a real database,
+ * pass its connection through the forked JVM, e.g.
+ * {@code -jvmArgsAppend "-Dbench.datasource.url=jdbc:postgresql://... -Dbench.datasource.username=... -Dbench.datasource.password=..."}.
+ * Extra {@code key=value} application properties can be passed per trial.
+ */
+final class BenchmarkContext {
+
+    private BenchmarkContext() {}
+
+    static ConfigurableApplicationContext start(String name, String... properties) {
+        List<String> args = new ArrayList<>();
+        String url = System.getProperty("bench.datasource.url");
+        if (url == null) {
+            args.add("--spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+            args.add("--spring.datasource.username=sa");
+            args.add("--spring.datasource.password=");
+            args.add("--spring.datasource.driver-class-name=org.h2.Driver");
+            args.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+            args.add("--spring.jpa.hibernate.ddl-auto=create-drop");
+            args.add("--spring.jpa.properties.hibernate.hbm2ddl.auto=create-drop");
+        } else {
+            args.add("--spring.datasource.url=" + url);
+            args.add("--spring.datasource.username=" + System.getProperty("bench.datasource.username", ""));
+            args.add("--spring.datasource.password=" + System.getProperty("bench.datasource.password", ""));
+        }
+        args.add("--logging.level.root=WARN");
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(LinceeApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+    }
+}
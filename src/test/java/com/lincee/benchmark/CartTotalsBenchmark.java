@@ -0,0 +1,84 @@
+package com.lincee.benchmark;
+
+import com.lincee.dto.CartItemDTO;
+import com.lincee.entity.Product;
+import com.lincee.entity.User;
+import com.lincee.repository.ProductRepository;
+import com.lincee.repository.UserRepository;
+import com.lincee.service.CartService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of adding to and editing a cart that already holds 1 or 200 lines. Cart totals move
+ * by the changed line in one UPDATE, so both operations should cost the same for either size;
+ * before, every mutation loaded and re-summed all lines and merged the whole cart.
+ *
+ * Run with {@code mvn -Pbenchmark verify -Dbenchmark=CartTotals}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartTotalsBenchmark {
+
+    @Param({"1", "200"})
+    private int cartSize;
+
+    private ConfigurableApplicationContext context;
+    private CartService cartService;
+    private Long userId;
+    private Long hotProductId;
+    private Long hotItemId;
+    private int quantity = 1;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start("cart-totals-" + cartSize);
+        cartService = context.getBean(CartService.class);
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+        userId = context.getBean(UserRepository.class)
+                .save(new User("bench-cart", "bench-cart@example.com", "password123")).getId();
+        for (int i = 0; i < cartSize; i++) {
+            Product product = new Product("Bench tee " + i, new BigDecimal("25.00"), "T-Shirts", "Lincee");
+            product.setStockQuantity(Integer.MAX_VALUE / 2);
+            Long productId = productRepository.save(product).getId();
+            CartItemDTO item = cartService.addItemToCart(userId, productId, 1, null, null);
+            hotProductId = productId;
+            hotItemId = item.getId();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public CartItemDTO addToCart() {
+        return cartService.addItemToCart(userId, hotProductId, 1, null, null);
+    }
+
+    @Benchmark
+    public CartItemDTO updateQuantity() {
+        quantity = quantity == 1 ? 2 : 1;
+        return cartService.updateCartItem(userId, hotItemId, quantity);
+    }
+}
@@ -0,0 +1,120 @@
+package com.lincee.benchmark;
+
+import com.lincee.dto.CartItemDTO;
+import com.lincee.entity.Product;
+import com.lincee.entity.User;
+import com.lincee.repository.ProductRepository;
+import com.lincee.repository.UserRepository;
+import com.lincee.service.CartService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency distribution (read the p0.99 rows) of add, update and remove under concurrent
+ * shoppers, each editing their own cart, with carts written straight to the database or kept
+ * in the write-behind store. In write-behind mode an edit costs a cart lock, the catalog cache
+ * and one log append whose fsync is shared with concurrent edits; the rows are written later in
+ * batches.
+ *
+ * Run with {@code mvn -Pbenchmark verify -Dbenchmark=CartWriteBehind}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class CartWriteBehindBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Store {
+
+        @Param({"database", "write-behind"})
+        private String store;
+
+        private ConfigurableApplicationContext context;
+        private CartService cartService;
+        private UserRepository userRepository;
+        private Long productId;
+        private final AtomicInteger shoppers = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            context = BenchmarkContext.start("cart-write-behind-" + store,
+                    "app.carts.write-behind.enabled=" + store.equals("write-behind"),
+                    "app.carts.write-behind.wal-dir=" + Files.createTempDirectory("cart-wal"));
+            cartService = context.getBean(CartService.class);
+            userRepository = context.getBean(UserRepository.class);
+            Product product = new Product("Bench hoodie", new BigDecimal("59.99"), "Hoodies", "Lincee");
+            product.setStockQuantity(Integer.MAX_VALUE / 2);
+            productId = context.getBean(ProductRepository.class).save(product).getId();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Shopper {
+
+        private Long userId;
+        private Long itemId;
+        private int quantity = 1;
+
+        @Setup(Level.Trial)
+        public void start(Store store) {
+            int n = store.shoppers.incrementAndGet();
+            userId = store.userRepository.save(new User("bench-shopper-" + n, "bench-shopper-" + n + "@example.com",
+                    "password123")).getId();
+            itemId = store.cartService.addItemToCart(userId, store.productId, 1, null, null).getId();
+        }
+
+        // remove needs a line to take out
+        @Setup(Level.Invocation)
+        public void ensureLine(Store store) {
+            if (itemId == null) {
+                itemId = store.cartService.addItemToCart(userId, store.productId, 1, null, null).getId();
+            }
+        }
+    }
+
+    @Benchmark
+    public CartItemDTO add(Store store, Shopper shopper) {
+        CartItemDTO item = store.cartService.addItemToCart(shopper.userId, store.productId, 1, null, null);
+        shopper.itemId = item.getId();
+        return item;
+    }
+
+    @Benchmark
+    public CartItemDTO update(Store store, Shopper shopper) {
+        shopper.quantity = shopper.quantity == 1 ? 2 : 1;
+        return store.cartService.updateCartItem(shopper.userId, shopper.itemId, shopper.quantity);
+    }
+
+    @Benchmark
+    public void remove(Store store, Shopper shopper) {
+        store.cartService.removeItemFromCart(shopper.userId, shopper.itemId);
+        shopper.itemId = null;
+    }
+}
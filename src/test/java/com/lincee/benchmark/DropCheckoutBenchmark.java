@@ -0,0 +1,85 @@
+package com.lincee.benchmark;
+
+import com.lincee.dto.OrderDTO;
+import com.lincee.dto.OrderItemDTO;
+import com.lincee.entity.Product;
+import com.lincee.entity.User;
+import com.lincee.repository.ProductRepository;
+import com.lincee.repository.UserRepository;
+import com.lincee.service.DropStockService;
+import com.lincee.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkouts per second for one hot product under 16 concurrent buyers, through the regular
+ * guarded row update ({@code rowUpdate}) and through drop mode ({@code drop}). Row updates
+ * serialize on the product row's lock; drop mode only contends on counter stripes and appends
+ * to the ledger. The gap is widest against PostgreSQL, where the row lock is held until commit:
+ * run with {@code -Dbench.datasource.url=...} passed through {@code -jvmArgsAppend}.
+ *
+ * Run with {@code mvn -Pbenchmark verify -Dbenchmark=DropCheckout}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class DropCheckoutBenchmark {
+
+    @Param({"rowUpdate", "drop"})
+    private String stockPath;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private Long userId;
+    private Long productId;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start("drop");
+        orderService = context.getBean(OrderService.class);
+        userId = context.getBean(UserRepository.class)
+                .save(new User("bench-drop", "bench-drop@example.com", "password123")).getId();
+        Product product = new Product("Bench drop", new BigDecimal("180.00"), "Shoes", "Lincee");
+        product.setStockQuantity(Integer.MAX_VALUE);
+        productId = context.getBean(ProductRepository.class).save(product).getId();
+        if ("drop".equals(stockPath)) {
+            context.getBean(DropStockService.class).enable(productId);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public OrderDTO checkout() {
+        OrderItemDTO line = new OrderItemDTO();
+        line.setProductId(productId);
+        line.setQuantity(1);
+        OrderDTO order = new OrderDTO();
+        order.setOrderItems(List.of(line));
+        return orderService.createOrder(userId, order);
+    }
+}
@@ -0,0 +1,127 @@
+package com.lincee.benchmark;
+
+import com.lincee.config.JwtAuthenticationFilter;
+import com.lincee.entity.User;
+import com.lincee.repository.UserRepository;
+import com.lincee.service.JwtService;
+import com.lincee.service.TokenRevocationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost the JWT filter adds to one request: without a token, with a token whose principal is
+ * cached, and with the principal cache turned off (one signature check and claims parse per
+ * request). previousPath repeats what the filter did before: parse the token twice and read
+ * the user by username.
+ *
+ * The revocation list holds 100,000 logged-out tokens throughout, as after a busy day;
+ * revokedCheck and activeCheck time the per-request lookup for a revoked and a live token id.
+ *
+ * Run with {@code mvn -Pbenchmark verify -Dbenchmark=JwtFilter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private static final int REVOKED_TOKENS = 100_000;
+
+    @Param({"anonymous", "cached", "uncached"})
+    private String request;
+
+    private ConfigurableApplicationContext context;
+    private JwtAuthenticationFilter filter;
+    private JwtService jwtService;
+    private UserRepository userRepository;
+    private MockHttpServletRequest httpRequest;
+    private String token;
+    private TokenRevocationService revocations;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start("jwt-filter-" + request,
+                "app.auth.principal-cache.max-size=" + (request.equals("uncached") ? 0 : 10000));
+        filter = context.getBean(JwtAuthenticationFilter.class);
+        jwtService = context.getBean(JwtService.class);
+        userRepository = context.getBean(UserRepository.class);
+        User user = userRepository.save(new User("bench-jwt", "bench-jwt@example.com", "password123"));
+        revocations = context.getBean(TokenRevocationService.class);
+        revokeTokens(context.getBean(JdbcTemplate.class), user.getId());
+        httpRequest = new MockHttpServletRequest("GET", "/api/v1/products");
+        if (!request.equals("anonymous")) {
+            token = jwtService.generateToken(user.getUsername(), user.getRole().name(), user.getId());
+            httpRequest.addHeader("Authorization", "Bearer " + token);
+        }
+    }
+
+    private void revokeTokens(JdbcTemplate jdbcTemplate, Long userId) {
+        Timestamp expiresAt = Timestamp.valueOf(LocalDateTime.now().plusHours(1));
+        Timestamp revokedAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < REVOKED_TOKENS; i++) {
+            rows.add(new Object[]{"revoked-" + i, userId, expiresAt, revokedAt});
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO revoked_tokens (token_id, user_id, expires_at, revoked_at) VALUES (?, ?, ?, ?)", rows);
+        revocations.sync();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public Authentication filter() throws Exception {
+        filter.doFilter(httpRequest, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    @Benchmark
+    public Optional<User> previousPath() {
+        if (token == null || !jwtService.validateToken(token)) {
+            return Optional.empty();
+        }
+        return userRepository.findByUsername(jwtService.getUsernameFromToken(token));
+    }
+
+    @Benchmark
+    public boolean revokedCheck() {
+        return revocations.isRevoked("revoked-4242");
+    }
+
+    @Benchmark
+    public boolean activeCheck() {
+        return revocations.isRevoked("7d3c1f0e-5b8a-4c2d-9e6f-0a1b2c3d4e5f");
+    }
+}
@@ -0,0 +1,87 @@
+package com.lincee.benchmark;
+
+import com.lincee.dto.OrderDTO;
+import com.lincee.dto.OrderItemDTO;
+import com.lincee.entity.Product;
+import com.lincee.entity.User;
+import com.lincee.repository.ProductRepository;
+import com.lincee.repository.UserRepository;
+import com.lincee.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order creation latency by number of order lines. With products loaded in one query and
+ * stock updates and item inserts batched, the cost per extra line should stay small and
+ * roughly flat rather than adding round trips.
+ *
+ * Run with {@code mvn -Pbenchmark verify -Dbenchmark=OrderCreation}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderCreationBenchmark {
+
+    private static final int PRODUCTS = 50;
+
+    @Param({"1", "5", "20", "50"})
+    private int lineCount;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private Long userId;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start("orders");
+        orderService = context.getBean(OrderService.class);
+        userId = context.getBean(UserRepository.class)
+                .save(new User("bench-orders", "bench-orders@example.com", "password123")).getId();
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product("Bench product " + i, new BigDecimal("25.00"), "Hoodies", "Lincee");
+            product.setStockQuantity(Integer.MAX_VALUE);
+            productIds.add(productRepository.save(product).getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public OrderDTO createOrder() {
+        List<OrderItemDTO> lines = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            OrderItemDTO line = new OrderItemDTO();
+            line.setProductId(productIds.get(i % PRODUCTS));
+            line.setQuantity(1);
+            lines.add(line);
+        }
+        OrderDTO order = new OrderDTO();
+        order.setOrderItems(lines);
+        return orderService.createOrder(userId, order);
+    }
+}
@@ -0,0 +1,90 @@
+package com.lincee.benchmark;
+
+import com.lincee.entity.User;
+import com.lincee.repository.UserRepository;
+import com.lincee.service.JwtService;
+import com.lincee.service.RefreshTokenStore;
+import com.lincee.service.RefreshTokenStore.Rotation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sustained refresh throughput: concurrent sessions, each refreshing its own chain over and
+ * over, as /api/v1/auth/refresh does (rotate the refresh token, sign a new access token). With
+ * the front cache a refresh is one guarded update; without it (cache size 0) every refresh
+ * also reads the chain and its user.
+ *
+ * Run with {@code mvn -Pbenchmark verify -Dbenchmark=RefreshToken}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RefreshTokenBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Store {
+
+        @Param({"cached", "uncached"})
+        private String cache;
+
+        private ConfigurableApplicationContext context;
+        private RefreshTokenStore refreshTokens;
+        private JwtService jwtService;
+        private UserRepository userRepository;
+        private final AtomicInteger sessions = new AtomicInteger();
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = BenchmarkContext.start("refresh-token-" + cache,
+                    "app.auth.refresh.cache-size=" + (cache.equals("cached") ? 100000 : 0));
+            refreshTokens = context.getBean(RefreshTokenStore.class);
+            jwtService = context.getBean(JwtService.class);
+            userRepository = context.getBean(UserRepository.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+
+        private String refreshToken;
+
+        @Setup(Level.Trial)
+        public void start(Store store) {
+            int n = store.sessions.incrementAndGet();
+            User user = store.userRepository.save(new User("bench-refresh-" + n, "bench-refresh-" + n + "@example.com",
+                    "password123"));
+            refreshToken = store.refreshTokens.issue(user.getId(), user.getUsername(), user.getRole().name());
+        }
+    }
+
+    @Benchmark
+    public String refresh(Store store, Session session) {
+        Rotation rotation = store.refreshTokens.rotate(session.refreshToken).orElseThrow();
+        session.refreshToken = rotation.refreshToken();
+        return store.jwtService.generateToken(rotation.username(), rotation.role(), rotation.userId());
+    }
+}
@@ -0,0 +1,77 @@
+package com.lincee.config;
+
+import com.lincee.controller.ProductController;
+import com.lincee.service.DropStockService;
+import com.lincee.service.JwtPrincipalCache;
+import com.lincee.service.JwtPrincipalCache.TokenUser;
+import com.lincee.service.ProductService;
+import com.lincee.service.ProductVariantService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+@WebMvcTest(ProductController.class)
+class SecurityConfigTest {
+
+    // Used instead of LinceeApplication, whose @EnableJpaRepositories would pull JPA into the web slice
+    @Configuration
+    @Import({ProductController.class, SecurityConfig.class, CorsConfig.class, JwtAuthenticationFilter.class})
+    static class Web {}
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ProductService productService;
+
+    @MockBean
+    private ProductVariantService productVariantService;
+
+    @MockBean
+    private DropStockService dropStockService;
+
+    @MockBean
+    private JwtPrincipalCache principalCache;
+
+    @Test
+    void anonymousClientsCannotCreateVariantsOrChangeTheirStock() throws Exception {
+        assertDenied(perform(post("/api/v1/products/1/variants")
+                .content("{\"sku\":\"HD-M-BLK\",\"size\":\"M\",\"color\":\"Black\",\"stockQuantity\":5}")));
+        assertDenied(perform(patch("/api/v1/products/1/variants/2/stock").content("{\"stockQuantity\":100}")));
+        verifyNoInteractions(productVariantService);
+    }
+
+    @Test
+    void customersCannotCreateVariantsOrChangeTheirStock() throws Exception {
+        when(principalCache.resolve("customer-token"))
+                .thenReturn(Optional.of(new TokenUser(7L, "shopper", "CUSTOMER", "jti", Long.MAX_VALUE)));
+
+        assertDenied(perform(post("/api/v1/products/1/variants").header("Authorization", "Bearer customer-token")
+                .content("{\"sku\":\"HD-M-BLK\",\"size\":\"M\",\"color\":\"Black\",\"stockQuantity\":5}")));
+        assertDenied(perform(patch("/api/v1/products/1/variants/2/stock")
+                .header("Authorization", "Bearer customer-token").content("{\"stockQuantity\":100}")));
+        verifyNoInteractions(productVariantService);
+    }
+
+    private ResultActions perform(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request.contentType(MediaType.APPLICATION_JSON));
+    }
+
+    private static void assertDenied(ResultActions result) {
+        int status = result.andReturn().getResponse().getStatus();
+        assertTrue(status == 401 || status == 403, "expected 401 or 403 but was " + status);
+    }
+}
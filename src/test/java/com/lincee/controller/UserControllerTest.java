@@ -0,0 +1,73 @@
+package com.lincee.controller;
+
+import com.lincee.entity.User;
+import com.lincee.repository.UserRepository;
+import com.lincee.service.JwtPrincipalCache;
+import com.lincee.service.JwtService;
+import com.lincee.service.TokenRevocationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({UserController.class, JwtPrincipalCache.class, JwtService.class, TokenRevocationService.class,
+        UserControllerTest.Metrics.class})
+class UserControllerTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private UserController userController;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private JwtPrincipalCache principalCache;
+
+    private User user;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("shopper", "shopper@example.com", "password123"));
+        token = jwtService.generateToken(user.getUsername(), user.getRole().name(), user.getId());
+        // Resolved once from the claims and cached, as on a first authenticated request
+        assertTrue(principalCache.resolve(token).isPresent());
+    }
+
+    @Test
+    void tokensStopResolvingOnceTheirUserIsDeleted() {
+        userController.deleteUser(user.getId());
+
+        assertTrue(principalCache.resolve(token).isEmpty());
+    }
+
+    @Test
+    void tokensStopResolvingOnceTheirUserIsRenamed() {
+        User details = new User("renamed", "shopper@example.com", "password123");
+
+        userController.updateUser(user.getId(), details);
+
+        assertTrue(principalCache.resolve(token).isEmpty());
+        String renamed = jwtService.generateToken("renamed", user.getRole().name(), user.getId());
+        assertEquals("renamed", principalCache.resolve(renamed).orElseThrow().username());
+    }
+}
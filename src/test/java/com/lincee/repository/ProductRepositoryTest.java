@@ -0,0 +1,85 @@
+package com.lincee.repository;
+
+import com.lincee.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class ProductRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        // Several products share a timestamp and a price so the id tie-breaker is exercised
+        LocalDateTime sameInstant = LocalDateTime.of(2024, 5, 1, 12, 0);
+        for (int i = 0; i < 7; i++) {
+            Product product = new Product("Product " + i, new BigDecimal(i % 3 == 0 ? "20.00" : "35.00"), "Hoodies", "Lincee");
+            product.setActive(i != 4);
+            productRepository.save(product);
+            entityManager.flush();
+            entityManager.getEntityManager()
+                    .createQuery("UPDATE Product p SET p.createdAt = :createdAt WHERE p.id = :id")
+                    .setParameter("createdAt", i < 5 ? sameInstant : sameInstant.plusDays(i))
+                    .setParameter("id", product.getId())
+                    .executeUpdate();
+        }
+        entityManager.clear();
+    }
+
+    @Test
+    void newestKeysetPagesVisitEveryProductOnce() {
+        List<Product> all = productRepository.findNewest(PageRequest.of(0, 100));
+        List<Long> seen = new ArrayList<>();
+        List<Product> page = productRepository.findNewest(PageRequest.of(0, 2));
+        while (!page.isEmpty()) {
+            page.forEach(p -> seen.add(p.getId()));
+            Product last = page.get(page.size() - 1);
+            page = productRepository.findNewestAfter(last.getCreatedAt(), last.getId(), PageRequest.of(0, 2));
+        }
+        assertEquals(all.stream().map(Product::getId).toList(), seen);
+        assertEquals(7, seen.size());
+    }
+
+    @Test
+    void priceKeysetPagesRespectActiveFilter() {
+        List<Long> seen = new ArrayList<>();
+        List<Product> page = productRepository.findCheapestActive(PageRequest.of(0, 3));
+        while (!page.isEmpty()) {
+            page.forEach(p -> seen.add(p.getId()));
+            Product last = page.get(page.size() - 1);
+            page = productRepository.findCheapestActiveAfter(last.getPrice(), last.getId(), PageRequest.of(0, 3));
+        }
+        assertEquals(6, seen.size());
+        assertEquals(seen.stream().distinct().count(), seen.size());
+    }
+
+    @Test
+    void unfilteredPriceKeysetPagesIncludeInactiveProducts() {
+        List<Product> all = productRepository.findCheapest(PageRequest.of(0, 100));
+        List<Long> seen = new ArrayList<>();
+        List<Product> page = productRepository.findCheapest(PageRequest.of(0, 3));
+        while (!page.isEmpty()) {
+            page.forEach(p -> seen.add(p.getId()));
+            Product last = page.get(page.size() - 1);
+            page = productRepository.findCheapestAfter(last.getPrice(), last.getId(), PageRequest.of(0, 3));
+        }
+        assertEquals(all.stream().map(Product::getId).toList(), seen);
+        assertEquals(7, seen.size());
+    }
+}
@@ -0,0 +1,266 @@
+package com.lincee.service;
+
+import com.lincee.dto.CartItemDTO;
+import com.lincee.entity.Cart;
+import com.lincee.entity.Product;
+import com.lincee.entity.ProductVariant;
+import com.lincee.entity.User;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.repository.CartItemRepository;
+import com.lincee.repository.CartRepository;
+import com.lincee.repository.ProductRepository;
+import com.lincee.repository.ProductVariantRepository;
+import com.lincee.repository.StockHoldRepository;
+import com.lincee.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CartService.class, InventoryReservationService.class, WriteBehindCartStore.class,
+        CartAddItemTest.StatementCounting.class, CartAddItemTest.Metrics.class})
+class CartAddItemTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    /**
+     * Counts the JDBC statements the test thread prepares, so plain JdbcTemplate calls are counted
+     * along with Hibernate's.
+     */
+    @TestConfiguration
+    static class StatementCounting {
+        static final AtomicInteger statements = new AtomicInteger();
+        static volatile Thread counted;
+
+        @Bean
+        static BeanPostProcessor countingDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? new DelegatingDataSource(dataSource) {
+                        @Override
+                        public Connection getConnection() throws SQLException {
+                            return counting(super.getConnection());
+                        }
+                    } : bean;
+                }
+            };
+        }
+
+        private static Connection counting(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("prepareStatement") && Thread.currentThread() == counted) {
+                            statements.incrementAndGet();
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private StockHoldRepository stockHoldRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("shopper", "shopper@example.com", "password123"));
+        product = new Product("Hoodie", new BigDecimal("100.00"), "Hoodies", "Lincee");
+        product.setStockQuantity(10);
+        product.setAvailableSizes(new ArrayList<>(Arrays.asList("M", "L")));
+        product.setAvailableColors(new ArrayList<>(Arrays.asList("Black", "White")));
+        product.setImageUrls(new ArrayList<>(List.of("https://img.example.com/hoodie.jpg")));
+        product = productRepository.save(product);
+    }
+
+    @AfterEach
+    void tearDown() {
+        StatementCounting.counted = null;
+        stockHoldRepository.deleteAll();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        variantRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void addsItemWhenCartAbsent() {
+        CartItemDTO dto = cartService.addItemToCart(user.getId(), product.getId(), 1, "M", "Black");
+
+        assertEquals(product.getId(), dto.getProductId());
+        assertEquals(1, dto.getQuantity());
+        assertEquals("M", dto.getSize());
+        assertEquals("Black", dto.getColor());
+        assertEquals("https://img.example.com/hoodie.jpg", dto.getProductImage());
+        Cart cart = cartRepository.findByUserId(user.getId()).orElseThrow();
+        assertEquals(dto.getCartId(), cart.getId());
+        assertEquals(1, cart.getItemCount());
+        assertEquals(0, new BigDecimal("100.00").compareTo(cart.getTotalPrice()));
+    }
+
+    @Test
+    void mergesDuplicateLineItemInFourStatements() {
+        CartItemDTO first = cartService.addItemToCart(user.getId(), product.getId(), 2, "M", "Black");
+
+        StatementCounting.statements.set(0);
+        StatementCounting.counted = Thread.currentThread();
+        CartItemDTO dto = cartService.addItemToCart(user.getId(), product.getId(), 3, "M", "Black");
+        StatementCounting.counted = null;
+
+        // Validation read, guarded increment, stock hold update, cart totals. On PostgreSQL the last
+        // three are one statement, but H2 has no data-modifying WITH clauses.
+        assertEquals(4, StatementCounting.statements.get());
+        assertEquals(5, stockHoldRepository.findByUserIdAndProductId(user.getId(), product.getId())
+                .orElseThrow().getQuantity());
+        assertEquals(first.getId(), dto.getId());
+        assertEquals(5, dto.getQuantity());
+        assertEquals(0, new BigDecimal("500.00").compareTo(dto.getSubTotal()));
+        assertEquals(5, cartItemRepository.findById(dto.getId()).orElseThrow().getQuantity());
+        Cart cart = cartRepository.findByUserId(user.getId()).orElseThrow();
+        assertEquals(1, cart.getItemCount());
+        assertEquals(0, new BigDecimal("500.00").compareTo(cart.getTotalPrice()));
+    }
+
+    @Test
+    void invalidPayloadReturns400() {
+        assertError(ErrorCode.INVALID_QUANTITY, () -> cartService.addItemToCart(user.getId(), product.getId(), 0, "M", "Black"));
+        assertError(ErrorCode.VALIDATION_ERROR, () -> cartService.addItemToCart(user.getId(), product.getId(), 1, "XL", "Black"));
+        assertError(ErrorCode.VALIDATION_ERROR, () -> cartService.addItemToCart(user.getId(), product.getId(), 1, "M", "Pink"));
+        assertError(ErrorCode.USER_NOT_FOUND, () -> cartService.addItemToCart(-1L, product.getId(), 1, "M", "Black"));
+        assertEquals(0, cartItemRepository.count());
+    }
+
+    @Test
+    void missingOrInactiveProductReturns404() {
+        assertError(ErrorCode.PRODUCT_NOT_FOUND, () -> cartService.addItemToCart(user.getId(), -1L, 1, "M", "Black"));
+        product.setActive(false);
+        productRepository.save(product);
+        assertError(ErrorCode.PRODUCT_NOT_FOUND, () -> cartService.addItemToCart(user.getId(), product.getId(), 1, "M", "Black"));
+    }
+
+    @Test
+    void stockConflictReturns409() {
+        product.setStockQuantity(2);
+        productRepository.save(product);
+        cartService.addItemToCart(user.getId(), product.getId(), 1, "M", "Black");
+        // Lines of the same product in other sizes count against the same stock
+        cartService.addItemToCart(user.getId(), product.getId(), 1, "L", "Black");
+
+        assertError(ErrorCode.INSUFFICIENT_STOCK, () -> cartService.addItemToCart(user.getId(), product.getId(), 1, "M", "Black"));
+        assertEquals(2, cartRepository.findByUserId(user.getId()).orElseThrow().getItemCount());
+    }
+
+    @Test
+    void concurrentAddsToTheSameLineAllLand() throws Exception {
+        cartService.addItemToCart(user.getId(), product.getId(), 1, "M", "Black");
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return cartService.addItemToCart(user.getId(), product.getId(), 1, "M", "Black");
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(1, cartItemRepository.count());
+        assertEquals(1 + threads, cartItemRepository.findAll().get(0).getQuantity());
+        Cart cart = cartRepository.findByUserId(user.getId()).orElseThrow();
+        assertEquals(0, new BigDecimal("900.00").compareTo(cart.getTotalPrice()));
+    }
+
+    @Test
+    void variantPriceAndStockApplyToLineItem() {
+        variantRepository.save(new ProductVariant(product, "HD-L-BLK", "L", "Black", 5));
+        ProductVariant black = new ProductVariant(product, "HD-M-BLK", "M", "Black", 1);
+        black.setPriceOverride(new BigDecimal("120.00"));
+        variantRepository.save(black);
+
+        CartItemDTO dto = cartService.addItemToCart(user.getId(), product.getId(), 1, "m", "black");
+        assertEquals(0, new BigDecimal("120.00").compareTo(dto.getUnitPrice()));
+
+        ApiException ex = assertError(ErrorCode.INSUFFICIENT_STOCK,
+                () -> cartService.addItemToCart(user.getId(), product.getId(), 1, "m", "black"));
+        assertEquals("Insufficient stock for M / Black. Available: 1", ex.getDetails());
+    }
+
+    @Test
+    void unknownVariantCombinationReturns400() {
+        variantRepository.save(new ProductVariant(product, "HD-L-BLK", "L", "Black", 5));
+        assertError(ErrorCode.VALIDATION_ERROR, () -> cartService.addItemToCart(user.getId(), product.getId(), 1, "M", "White"));
+    }
+
+    private static ApiException assertError(ErrorCode expected, Runnable call) {
+        ApiException ex = assertThrows(ApiException.class, call::run);
+        assertEquals(expected, ex.getErrorCode());
+        return ex;
+    }
+}
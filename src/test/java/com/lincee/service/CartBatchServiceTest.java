@@ -0,0 +1,161 @@
+package com.lincee.service;
+
+import com.lincee.dto.CartBatchResultDTO;
+import com.lincee.dto.CartItemDTO;
+import com.lincee.dto.CartLineOperationDTO;
+import com.lincee.dto.CartLineOperationDTO.Action;
+import com.lincee.dto.CartLineResultDTO;
+import com.lincee.dto.CartLineResultDTO.Outcome;
+import com.lincee.entity.Cart;
+import com.lincee.entity.CartItem;
+import com.lincee.entity.Product;
+import com.lincee.entity.User;
+import com.lincee.exception.ApiException;
+import com.lincee.repository.CartItemRepository;
+import com.lincee.repository.CartRepository;
+import com.lincee.repository.ProductRepository;
+import com.lincee.repository.StockHoldRepository;
+import com.lincee.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CartBatchService.class, CartService.class, InventoryReservationService.class, WriteBehindCartStore.class,
+        CartBatchServiceTest.Metrics.class})
+class CartBatchServiceTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private CartBatchService cartBatchService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockHoldRepository stockHoldRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private Product hoodie;
+    private Product tee;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("restorer", "restorer@example.com", "password123"));
+        hoodie = new Product("Hoodie", new BigDecimal("100.00"), "Hoodies", "Lincee");
+        hoodie.setStockQuantity(10);
+        hoodie.setAvailableSizes(new ArrayList<>(Arrays.asList("M", "L")));
+        hoodie = productRepository.save(hoodie);
+        tee = new Product("Tee", new BigDecimal("25.00"), "T-shirts", "Lincee");
+        tee.setStockQuantity(3);
+        tee = productRepository.save(tee);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stockHoldRepository.deleteAll();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void appliesAddsUpdatesAndRemovesTogether() {
+        CartItemDTO medium = cartService.addItemToCart(user.getId(), hoodie.getId(), 2, "M", null);
+        CartItemDTO large = cartService.addItemToCart(user.getId(), hoodie.getId(), 1, "L", null);
+
+        CartBatchResultDTO result = cartBatchService.apply(user.getId(), List.of(
+                new CartLineOperationDTO(Action.ADD, tee.getId(), null, 2, null, null),
+                new CartLineOperationDTO(Action.UPDATE, null, medium.getId(), 4, null, null),
+                new CartLineOperationDTO(Action.REMOVE, null, large.getId(), null, null, null),
+                new CartLineOperationDTO(Action.ADD, tee.getId(), null, 1, null, null)));
+
+        assertTrue(result.isApplied());
+        assertEquals(List.of(Outcome.ADDED, Outcome.UPDATED, Outcome.REMOVED, Outcome.ADDED),
+                result.getResults().stream().map(CartLineResultDTO::getOutcome).toList());
+        Long teeLine = result.getResults().get(0).getCartItemId();
+        assertNotNull(teeLine);
+        assertEquals(teeLine, result.getResults().get(3).getCartItemId());
+        assertEquals(3, result.getResults().get(3).getQuantity());
+
+        assertEquals(3, cartItemRepository.findById(teeLine).orElseThrow().getQuantity());
+        assertEquals(4, cartItemRepository.findById(medium.getId()).orElseThrow().getQuantity());
+        assertFalse(cartItemRepository.existsById(large.getId()));
+        Cart cart = cartRepository.findByUserId(user.getId()).orElseThrow();
+        assertEquals(2, cart.getItemCount());
+        assertEquals(0, new BigDecimal("475.00").compareTo(cart.getTotalPrice()));
+        assertEquals(cart.getItemCount(), result.getItemCount());
+        assertEquals(0, cart.getTotalPrice().compareTo(result.getTotalPrice()));
+    }
+
+    @Test
+    void oneRejectedLineLeavesTheCartUntouched() {
+        CartItemDTO medium = cartService.addItemToCart(user.getId(), hoodie.getId(), 2, "M", null);
+
+        CartBatchResultDTO result = cartBatchService.apply(user.getId(), List.of(
+                new CartLineOperationDTO(Action.ADD, tee.getId(), null, 2, null, null),
+                new CartLineOperationDTO(Action.ADD, -1L, null, 1, null, null),
+                new CartLineOperationDTO(Action.ADD, tee.getId(), null, 2, null, null),
+                new CartLineOperationDTO(Action.ADD, hoodie.getId(), null, 1, "XL", null),
+                new CartLineOperationDTO(Action.UPDATE, null, -1L, 1, null, null),
+                new CartLineOperationDTO(Action.REMOVE, null, medium.getId(), null, null, null)));
+
+        assertFalse(result.isApplied());
+        assertEquals(List.of(Outcome.SKIPPED, Outcome.REJECTED, Outcome.REJECTED, Outcome.REJECTED, Outcome.REJECTED,
+                Outcome.SKIPPED), result.getResults().stream().map(CartLineResultDTO::getOutcome).toList());
+        assertEquals(Arrays.asList(null, "PRODUCT_NOT_FOUND", "INSUFFICIENT_STOCK", "VALIDATION_ERROR",
+                "RESOURCE_NOT_FOUND", null), result.getResults().stream().map(CartLineResultDTO::getErrorCode).toList());
+
+        List<CartItem> items = cartItemRepository.findAll();
+        assertEquals(1, items.size());
+        assertEquals(2, items.get(0).getQuantity());
+        assertEquals(1, result.getItemCount());
+        assertEquals(0, new BigDecimal("200.00").compareTo(result.getTotalPrice()));
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedBatches() {
+        assertThrows(ApiException.class, () -> cartBatchService.apply(user.getId(), List.of()));
+        List<CartLineOperationDTO> tooMany = Collections.nCopies(CartBatchService.MAX_LINES + 1,
+                new CartLineOperationDTO(Action.ADD, tee.getId(), null, 1, null, null));
+        assertThrows(ApiException.class, () -> cartBatchService.apply(user.getId(), tooMany));
+    }
+}
@@ -1,14 +1,11 @@
 package com.lincee.service;
 
-import com.lincee.dto.CartItemDTO;
 import com.lincee.entity.Cart;
 import com.lincee.entity.CartItem;
 import com.lincee.entity.Product;
 import com.lincee.entity.User;
-import com.lincee.exception.ApiException;
 import com.lincee.repository.CartItemRepository;
 import com.lincee.repository.CartRepository;
-import com.lincee.repository.ProductRepository;
 import com.lincee.repository.UserRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,7 +15,6 @@ import org.mockito.MockitoAnnotations;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -33,7 +29,9 @@ class CartServiceTest {
     @Mock
     private UserRepository userRepository;
     @Mock
-    private ProductRepository productRepository;
+    private InventoryReservationService inventoryReservations;
+    @Mock
+    private WriteBehindCartStore writeBehind;
 
     @InjectMocks
     private CartService cartService;
@@ -59,80 +57,33 @@ class CartServiceTest {
     }
 
     @Test
-    void addsItemWhenCartAbsent() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.empty());
-        when(cartRepository.save(any(Cart.class))).thenReturn(cart);
-        when(productRepository.findById(25L)).thenReturn(Optional.of(product));
-        when(cartItemRepository.findByCartIdAndProductIdAndSizeAndColor(100L, 25L, "M", "Black")).thenReturn(Optional.empty());
-        when(cartItemRepository.save(any(CartItem.class))).thenAnswer(i -> i.getArgument(0));
-
-        CartItemDTO dto = cartService.addItemToCart(1L, 25L, 1, "M", "Black");
-        assertEquals(25L, dto.getProductId());
-        assertEquals(1, dto.getQuantity());
-        assertEquals("M", dto.getSize());
-        assertEquals("Black", dto.getColor());
-    }
-
-    @Test
-    void mergesDuplicateLineItem() {
-        CartItem existing = new CartItem(cart, product, 2);
-        existing.setSize("M");
-        existing.setColor("Black");
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+    void cartTotalsMoveByTheChangedLineOnly() {
+        CartItem line = new CartItem(cart, product, 2);
+        line.setId(7L);
         when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
-        when(productRepository.findById(25L)).thenReturn(Optional.of(product));
-        when(cartItemRepository.findByCartIdAndProductIdAndSizeAndColor(100L, 25L, "M", "Black")).thenReturn(Optional.of(existing));
+        when(cartItemRepository.findById(7L)).thenReturn(Optional.of(line));
         when(cartItemRepository.save(any(CartItem.class))).thenAnswer(i -> i.getArgument(0));
 
-        CartItemDTO dto = cartService.addItemToCart(1L, 25L, 3, "M", "Black");
-        assertEquals(5, dto.getQuantity());
-    }
+        cartService.updateCartItem(1L, 7L, 3);
+        verify(cartRepository).adjustTotals(eq(100L), eq(0), eq(new BigDecimal("100.00")), any());
 
-    @Test
-    void invalidPayloadReturns400() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
-        when(productRepository.findById(25L)).thenReturn(Optional.of(product));
-        ApiException ex = assertThrows(ApiException.class, () -> cartService.addItemToCart(1L, 25L, 0, "M", "Black"));
-        assertEquals("INVALID_QUANTITY", ex.getErrorCode().getCode());
-    }
-
-    @Test
-    void missingProductReturns404() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
-        when(productRepository.findById(99L)).thenReturn(Optional.empty());
-        ApiException ex = assertThrows(ApiException.class, () -> cartService.addItemToCart(1L, 99L, 1, "M", "Black"));
-        assertEquals("PRODUCT_NOT_FOUND", ex.getErrorCode().getCode());
-    }
-
-    @Test
-    void stockConflictReturns409() {
-        product.setStockQuantity(2);
-        CartItem existing = new CartItem(cart, product, 2);
-        existing.setSize("M");
-        existing.setColor("Black");
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
-        when(productRepository.findById(25L)).thenReturn(Optional.of(product));
-        when(cartItemRepository.findByCartIdAndProductIdAndSizeAndColor(100L, 25L, "M", "Black")).thenReturn(Optional.of(existing));
-        ApiException ex = assertThrows(ApiException.class, () -> cartService.addItemToCart(1L, 25L, 2, "M", "Black"));
-        assertEquals("INSUFFICIENT_STOCK", ex.getErrorCode().getCode());
+        cartService.removeItemFromCart(1L, 7L);
+        verify(cartRepository).adjustTotals(eq(100L), eq(-1), eq(new BigDecimal("-300.00")), any());
+        verify(cartItemRepository).delete(line);
+        verify(cartRepository, never()).save(any(Cart.class));
     }
 
     @Test
-    void concurrentAddsDoNotCrash() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+    void itemsOfAnotherCartAreNotFound() {
+        Cart otherCart = new Cart(new User());
+        otherCart.setId(200L);
+        CartItem foreign = new CartItem(otherCart, product, 1);
+        foreign.setId(8L);
         when(cartRepository.findByUserId(1L)).thenReturn(Optional.of(cart));
-        when(productRepository.findById(25L)).thenReturn(Optional.of(product));
-        when(cartItemRepository.findByCartIdAndProductIdAndSizeAndColor(100L, 25L, "M", "Black"))
-                .thenReturn(Optional.empty())
-                .thenReturn(Optional.of(new CartItem(cart, product, 1)));
-        when(cartItemRepository.save(any(CartItem.class))).thenThrow(new org.springframework.dao.DataIntegrityViolationException("Duplicate"))
-                .thenAnswer(i -> i.getArgument(0));
+        when(cartItemRepository.findById(8L)).thenReturn(Optional.of(foreign));
 
-        CartItemDTO dto = cartService.addItemToCart(1L, 25L, 1, "M", "Black");
-        assertEquals(2, dto.getQuantity());
+        assertThrows(RuntimeException.class, () -> cartService.updateCartItem(1L, 8L, 2));
+        assertThrows(RuntimeException.class, () -> cartService.removeItemFromCart(1L, 8L));
+        verify(cartRepository, never()).adjustTotals(any(), anyInt(), any(), any());
     }
 }
@@ -0,0 +1,105 @@
+package com.lincee.service;
+
+import com.lincee.entity.Cart;
+import com.lincee.entity.CartItem;
+import com.lincee.entity.Product;
+import com.lincee.entity.User;
+import com.lincee.repository.CartItemRepository;
+import com.lincee.repository.CartRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.carts.sweep.batch-size=3",
+        "app.carts.sweep.pause-millis=0"
+})
+@Import({CartSweepService.class, CartSweepServiceTest.Metrics.class})
+class CartSweepServiceTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private CartSweepService cartSweepService;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Product hoodie;
+
+    @BeforeEach
+    void setUp() {
+        hoodie = entityManager.persist(new Product("Hoodie", new BigDecimal("59.99"), "Hoodies", "Lincee"));
+    }
+
+    @Test
+    void deletesStaleCartsAndTheirItemsInChunks() {
+        for (int i = 0; i < 7; i++) {
+            persistCart("stale" + i, 40 + i, i % 2 == 0 ? 2 : 0);
+        }
+        Cart active = persistCart("active", 3, 1);
+        // A day short of the cutoff is kept
+        Cart borderline = persistCart("borderline", 29, 1);
+
+        assertEquals(7, cartSweepService.sweep());
+
+        assertEquals(2, cartRepository.count());
+        assertTrue(cartRepository.existsById(active.getId()));
+        assertTrue(cartRepository.existsById(borderline.getId()));
+        assertEquals(2, cartItemRepository.count());
+        assertEquals(7.0, meterRegistry.get("carts.sweep.carts").counter().count());
+        assertEquals(8.0, meterRegistry.get("carts.sweep.items").counter().count());
+        assertEquals(1, meterRegistry.get("carts.sweep.duration").timer().count());
+        assertEquals(0.0, meterRegistry.get("carts.sweep.lag.seconds").gauge().value());
+
+        // Nothing left to do
+        assertEquals(0, cartSweepService.sweep());
+    }
+
+    private Cart persistCart(String username, int daysIdle, int items) {
+        User user = entityManager.persist(new User(username, username + "@example.com", "password123"));
+        Cart cart = entityManager.persist(new Cart(user));
+        for (int i = 0; i < items; i++) {
+            CartItem item = new CartItem(cart, hoodie, 1);
+            item.setSize("S" + i);
+            entityManager.persist(item);
+        }
+        entityManager.flush();
+        jdbcTemplate.update("UPDATE carts SET updated_at = ? WHERE id = ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(daysIdle)), cart.getId());
+        return cart;
+    }
+}
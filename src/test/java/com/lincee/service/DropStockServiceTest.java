@@ -0,0 +1,271 @@
+package com.lincee.service;
+
+import com.lincee.dto.OrderDTO;
+import com.lincee.dto.OrderItemDTO;
+import com.lincee.entity.Product;
+import com.lincee.entity.ProductVariant;
+import com.lincee.entity.User;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.exception.InsufficientStockException;
+import com.lincee.repository.OrderRepository;
+import com.lincee.repository.ProductRepository;
+import com.lincee.repository.ProductVariantRepository;
+import com.lincee.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// The background flusher is kept out of the way so tests decide when the ledger is applied
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.drop.flush-interval-millis=3600000",
+        "app.drop.close-wait-millis=200"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DropStockService.class, OrderService.class, OrderNumberGenerator.class, ProductCatalogCache.class,
+        InventoryReservationService.class, DropStockServiceTest.Metrics.class})
+class DropStockServiceTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private DropStockService dropStockService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+    private Product sneaker;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("dropper", "dropper@example.com", "password123"));
+        sneaker = new Product("Drop Sneaker", new BigDecimal("180.00"), "Shoes", "Lincee");
+        sneaker.setStockQuantity(50);
+        sneaker = productRepository.save(sneaker);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dropStockService.clearCounters();
+        jdbcTemplate.update("DELETE FROM drop_stock_ledger");
+        orderRepository.deleteAll();
+        variantRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentDropCheckoutsSellExactlyTheStock() throws Exception {
+        assertEquals(50, dropStockService.enable(sneaker.getId()));
+
+        int threads = 16;
+        int attemptsPerThread = 10;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    try {
+                        orderService.createOrder(user.getId(), order(sneaker.getId(), 1));
+                        placed.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(50, placed.get());
+        assertEquals(threads * attemptsPerThread - 50, rejected.get());
+        assertEquals(0, dropStockService.getAvailable(sneaker.getId()));
+        // Sales reach the product row only when the ledger is flushed
+        assertEquals(50, productRepository.findStockQuantityById(sneaker.getId()));
+        assertEquals(50, dropStockService.flush());
+        assertEquals(0, productRepository.findStockQuantityById(sneaker.getId()));
+        assertEquals(50, orderRepository.count());
+    }
+
+    @Test
+    void rolledBackOrdersReturnTheirUnits() {
+        Product tee = new Product("Tee", new BigDecimal("20.00"), "T-Shirts", "Lincee");
+        tee.setStockQuantity(1);
+        Long teeId = productRepository.save(tee).getId();
+        dropStockService.enable(sneaker.getId());
+
+        InsufficientStockException ex = assertThrows(InsufficientStockException.class, () ->
+                orderService.createOrder(user.getId(), order(sneaker.getId(), 2, teeId, 5)));
+
+        assertEquals(Map.of("orderItems[1]", "Product " + teeId + ": requested 5, available 1"), ex.getShortLines());
+        assertEquals(50, dropStockService.getAvailable(sneaker.getId()));
+        assertEquals(0, dropStockService.flush());
+    }
+
+    @Test
+    void restartAppliesTheLedgerAndRebuildsTheCounter() {
+        dropStockService.enable(sneaker.getId());
+        orderService.createOrder(user.getId(), order(sneaker.getId(), 3));
+        orderService.createOrder(user.getId(), order(sneaker.getId(), 4));
+
+        // A crash loses the counters and anything not yet flushed stays in the ledger
+        dropStockService.clearCounters();
+        assertFalse(dropStockService.isActive(sneaker.getId()));
+        dropStockService.loadDrops();
+
+        assertTrue(dropStockService.isActive(sneaker.getId()));
+        assertEquals(43, dropStockService.getAvailable(sneaker.getId()));
+        assertEquals(43, productRepository.findStockQuantityById(sneaker.getId()));
+    }
+
+    @Test
+    void disablingHandsTheProductBackToRowUpdates() {
+        dropStockService.enable(sneaker.getId());
+        orderService.createOrder(user.getId(), order(sneaker.getId(), 5));
+
+        dropStockService.disable(sneaker.getId());
+
+        assertFalse(dropStockService.isActive(sneaker.getId()));
+        assertEquals(45, productRepository.findStockQuantityById(sneaker.getId()));
+        orderService.createOrder(user.getId(), order(sneaker.getId(), 5));
+        assertEquals(40, productRepository.findStockQuantityById(sneaker.getId()));
+    }
+
+    @Test
+    void disablingGivesUpWhileACheckoutStillHoldsUnits() throws Exception {
+        dropStockService.enable(sneaker.getId());
+        CountDownLatch taken = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<?> checkout = pool.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertTrue(dropStockService.take(sneaker.getId(), 2));
+            taken.countDown();
+            try {
+                finish.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(taken.await(30, TimeUnit.SECONDS));
+
+        ApiException ex = assertThrows(ApiException.class, () -> dropStockService.disable(sneaker.getId()));
+        assertEquals(ErrorCode.CONCURRENT_MODIFICATION, ex.getErrorCode());
+        assertTrue(dropStockService.isActive(sneaker.getId()), "the drop stays on sale");
+
+        finish.countDown();
+        checkout.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+        dropStockService.disable(sneaker.getId());
+        assertFalse(dropStockService.isActive(sneaker.getId()));
+    }
+
+    @Test
+    void productsWithVariantsCannotEnterDropMode() {
+        variantRepository.save(new ProductVariant(sneaker, "SNK-42", "42", "White", 10));
+
+        assertThrows(ApiException.class, () -> dropStockService.enable(sneaker.getId()));
+        assertFalse(dropStockService.isActive(sneaker.getId()));
+    }
+
+    @Test
+    void stripedCounterNeverGoesNegative() throws Exception {
+        StripedCounter counter = new StripedCounter(8, 1000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        AtomicInteger taken = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    if (counter.tryTake(3)) {
+                        taken.addAndGet(3);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(1000, taken.get() + counter.sum());
+        assertTrue(counter.sum() < 3);
+    }
+
+    private OrderDTO order(Long productId, int quantity) {
+        OrderDTO order = new OrderDTO();
+        order.setOrderItems(List.of(line(productId, quantity)));
+        return order;
+    }
+
+    private OrderDTO order(Long productId, int quantity, Long otherProductId, int otherQuantity) {
+        OrderDTO order = new OrderDTO();
+        order.setOrderItems(List.of(line(productId, quantity), line(otherProductId, otherQuantity)));
+        return order;
+    }
+
+    private OrderItemDTO line(Long productId, int quantity) {
+        OrderItemDTO item = new OrderItemDTO();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
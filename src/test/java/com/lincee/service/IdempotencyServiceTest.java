@@ -0,0 +1,156 @@
+package com.lincee.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({IdempotencyService.class, IdempotencyServiceTest.Json.class})
+class IdempotencyServiceTest {
+
+    @TestConfiguration
+    static class Json {
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+    }
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        idempotencyRecordRepository.deleteAll();
+        idempotencyService.clearCache();
+    }
+
+    @Test
+    void retryIsReplayedWithoutRunningAgain() {
+        ResponseEntity<Map<String, Object>> first = createOrder("key-1", 7L);
+        ResponseEntity<Map<String, Object>> retry = createOrder("key-1", 7L);
+
+        assertEquals(1, runs.get());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+
+        // After a restart the response comes from the table
+        idempotencyService.clearCache();
+        assertEquals(first.getBody(), createOrder("key-1", 7L).getBody());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void simultaneousDuplicatesRunOnce() throws Exception {
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ResponseEntity<Map<String, Object>>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                return idempotencyService.execute("orders:create", "key-2", Map.of("userId", 7L), Map.class, () -> {
+                    sleep(200);
+                    return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("orderNumber", "ORD-" + runs.incrementAndGet()));
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<ResponseEntity<Map<String, Object>>> future : futures) {
+            assertEquals(Map.of("orderNumber", "ORD-1"), future.get(30, TimeUnit.SECONDS).getBody());
+        }
+        pool.shutdown();
+
+        assertEquals(1, runs.get());
+        assertEquals(1, idempotencyRecordRepository.count());
+    }
+
+    @Test
+    void keyReusedForADifferentRequestIsRejected() {
+        createOrder("key-3", 7L);
+
+        ApiException ex = assertThrows(ApiException.class, () -> createOrder("key-3", 8L));
+        assertEquals(ErrorCode.IDEMPOTENCY_KEY_MISMATCH, ex.getErrorCode());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void fingerprintDoesNotDependOnMapOrder() {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("userId", 7L);
+        request.put("order", Map.of("shippingAddress", "1 Main St", "notes", "leave at door"));
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("order", Map.of("notes", "leave at door", "shippingAddress", "1 Main St"));
+        reordered.put("userId", 7L);
+
+        execute("key-5", request);
+        // As after a restart on an instance that iterates the map the other way round
+        idempotencyService.clearCache();
+        ResponseEntity<Map<String, Object>> retry = execute("key-5", reordered);
+
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void failuresAreNotStored() {
+        assertThrows(ApiException.class, () -> idempotencyService.execute("orders:create", "key-4", Map.of("userId", 7L),
+                Map.class, () -> {
+                    runs.incrementAndGet();
+                    throw new ApiException(ErrorCode.INSUFFICIENT_STOCK);
+                }));
+
+        createOrder("key-4", 7L);
+        assertEquals(2, runs.get());
+        assertEquals(1, idempotencyRecordRepository.count());
+    }
+
+    private ResponseEntity<Map<String, Object>> createOrder(String key, Long userId) {
+        return execute(key, Map.of("userId", userId));
+    }
+
+    private ResponseEntity<Map<String, Object>> execute(String key, Map<String, Object> request) {
+        return idempotencyService.execute("orders:create", key, request, Map.class,
+                () -> ResponseEntity.status(HttpStatus.CREATED).body(Map.of("orderNumber", "ORD-" + runs.incrementAndGet())));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.lincee.service;
+
+import com.lincee.entity.Product;
+import com.lincee.entity.StockHold;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.repository.StockHoldRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InventoryReservationServiceTest {
+
+    private static final long TTL_SECONDS = 60;
+
+    @Mock
+    private StockHoldRepository stockHoldRepository;
+
+    @InjectMocks
+    private InventoryReservationService reservations = new InventoryReservationService(TTL_SECONDS);
+
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(stockHoldRepository.findByUserIdAndProductId(anyLong(), anyLong())).thenReturn(Optional.empty());
+        when(stockHoldRepository.save(any(StockHold.class))).thenAnswer(i -> i.getArgument(0));
+        product = new Product("Hoodie", new BigDecimal("59.99"), "Hoodies", "Lincee");
+        product.setId(7L);
+        product.setStockQuantity(5);
+    }
+
+    @Test
+    void availableStockIsOnHandMinusActiveHolds() {
+        reservations.hold(1L, 7L, 2, 5);
+        reservations.hold(2L, 7L, 3, 5);
+
+        assertEquals(0, reservations.getAvailableStock(product));
+        assertEquals(3, reservations.getHeldByOthers(7L, 1L));
+
+        ApiException ex = assertThrows(ApiException.class, () -> reservations.hold(3L, 7L, 1, 5));
+        assertEquals(ErrorCode.INSUFFICIENT_STOCK, ex.getErrorCode());
+    }
+
+    @Test
+    void resizingOwnHoldOnlyCompetesWithOtherShoppers() {
+        reservations.hold(1L, 7L, 2, 5);
+        reservations.hold(1L, 7L, 5, 5);
+        assertEquals(5, reservations.getHeldQuantity(7L));
+
+        reservations.hold(1L, 7L, 0, 5);
+        assertEquals(5, reservations.getAvailableStock(product));
+        verify(stockHoldRepository).deleteByUserIdAndProductId(1L, 7L);
+    }
+
+    @Test
+    void holdsExpireOnTheWheelAndRefreshingExtendsThem() {
+        Clock start = Clock.systemDefaultZone();
+        reservations.setClock(start);
+        reservations.hold(1L, 7L, 2, 5);
+        reservations.hold(2L, 7L, 1, 5);
+
+        reservations.setClock(Clock.offset(start, Duration.ofSeconds(30)));
+        reservations.tick();
+        assertEquals(3, reservations.getHeldQuantity(7L), "nothing is due yet");
+
+        reservations.hold(2L, 7L, 1, 5);
+        reservations.setClock(Clock.offset(start, Duration.ofSeconds(TTL_SECONDS + 2)));
+        reservations.tick();
+        assertEquals(1, reservations.getHeldQuantity(7L), "only the hold that was not refreshed expires");
+        verify(stockHoldRepository).deleteExpired(any());
+    }
+
+    @Test
+    void timerWheelFiresEachDeadlineOnceAcrossRevolutions() {
+        TimerWheel<String> wheel = new TimerWheel<>(1000, 8, 0);
+        wheel.schedule("soon", 2_500);
+        wheel.schedule("later", 20_000);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advance(3_000, fired::add);
+        assertEquals(List.of("soon"), fired);
+        wheel.advance(10_000, fired::add);
+        assertEquals(List.of("soon"), fired, "an entry one revolution out stays in its slot");
+        wheel.advance(20_000, fired::add);
+        assertEquals(List.of("soon", "later"), fired);
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,114 @@
+package com.lincee.service;
+
+import com.lincee.entity.User;
+import com.lincee.repository.RevokedTokenRepository;
+import com.lincee.repository.UserRepository;
+import com.lincee.service.JwtPrincipalCache.TokenUser;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class JwtPrincipalCacheTest {
+
+    private JwtService jwtService;
+    private UserRepository userRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private TokenRevocationService revocations;
+    private JwtPrincipalCache cache;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService("principal-cache-test-secret-of-at-least-256-bits", 60_000);
+        userRepository = mock(UserRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        revocations = new TokenRevocationService(mock(RevokedTokenRepository.class), meterRegistry, 1000);
+        cache = new JwtPrincipalCache(jwtService, userRepository, revocations, meterRegistry, 100);
+    }
+
+    @Test
+    void buildsThePrincipalFromClaimsWithoutTheDatabase() {
+        String token = jwtService.generateToken("shopper", "CUSTOMER", 7L);
+
+        TokenUser user = cache.resolve(token).orElseThrow();
+        TokenUser again = cache.resolve(token).orElseThrow();
+
+        assertEquals(new TokenUser(7L, "shopper", "CUSTOMER", user.tokenId(), user.expiresAt()), user);
+        assertNotNull(user.tokenId());
+        assertSame(user, again);
+        verifyNoInteractions(userRepository);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", JwtPrincipalCache.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void rejectsTamperedAndForeignTokens() {
+        String token = jwtService.generateToken("shopper", "CUSTOMER", 7L);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        String foreign = new JwtService("some-other-secret-that-is-also-long-enough-xx", 60_000)
+                .generateToken("shopper", "ADMIN", 7L);
+
+        assertTrue(cache.resolve(tampered).isEmpty());
+        assertTrue(cache.resolve(foreign).isEmpty());
+        assertTrue(cache.resolve("not-a-jwt").isEmpty());
+    }
+
+    @Test
+    void tokensWithoutRoleClaimsAreResolvedOnceFromTheUsersTable() {
+        when(userRepository.findByUsername("legacy")).thenReturn(Optional.of(user(3L, "legacy", User.Role.CUSTOMER, true)));
+        String token = jwtService.generateToken("legacy");
+
+        assertEquals("CUSTOMER", cache.resolve(token).orElseThrow().role());
+        assertEquals(3L, cache.resolve(token).orElseThrow().userId());
+        verify(userRepository, times(1)).findByUsername(anyString());
+
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+        assertTrue(cache.resolve(jwtService.generateToken("ghost")).isEmpty());
+    }
+
+    @Test
+    void revokedUsersAreCheckedAgainstTheUsersTable() {
+        String token = jwtService.generateToken("shopper", "CUSTOMER", 7L);
+        assertEquals("CUSTOMER", cache.resolve(token).orElseThrow().role());
+
+        when(userRepository.findByUsername("shopper")).thenReturn(Optional.of(user(7L, "shopper", User.Role.ADMIN, true)));
+        cache.revokeUser(7L);
+        assertEquals("ADMIN", cache.resolve(token).orElseThrow().role());
+
+        when(userRepository.findByUsername("shopper")).thenReturn(Optional.of(user(7L, "shopper", User.Role.ADMIN, false)));
+        cache.revokeUser(7L);
+        assertTrue(cache.resolve(token).isEmpty());
+
+        // Other users keep their cached principals
+        String other = jwtService.generateToken("other", "CUSTOMER", 8L);
+        cache.resolve(other);
+        cache.revokeUser(7L);
+        cache.resolve(other);
+        verify(userRepository, never()).findByUsername("other");
+    }
+
+    @Test
+    void revokedTokensStopResolvingEvenWhenCached() {
+        String token = jwtService.generateToken("shopper", "CUSTOMER", 7L);
+        String other = jwtService.generateToken("shopper", "CUSTOMER", 7L);
+        TokenUser user = cache.resolve(token).orElseThrow();
+
+        revocations.revoke(user.tokenId(), 7L, user.expiresAt());
+
+        assertTrue(cache.resolve(token).isEmpty());
+        assertTrue(cache.resolve(other).isPresent());
+    }
+
+    private static User user(Long id, String username, User.Role role, boolean active) {
+        User user = new User(username, username + "@example.com", "password123");
+        user.setId(id);
+        user.setRole(role);
+        user.setActive(active);
+        return user;
+    }
+}
@@ -0,0 +1,135 @@
+package com.lincee.service;
+
+import com.lincee.dto.OrderDTO;
+import com.lincee.entity.Order;
+import com.lincee.entity.OrderItem;
+import com.lincee.entity.Payment;
+import com.lincee.entity.Product;
+import com.lincee.entity.User;
+import com.lincee.repository.ArchivedOrderRepository;
+import com.lincee.repository.OrderRepository;
+import com.lincee.repository.PaymentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.orders.archive.batch-size=2"
+})
+@Import({OrderArchiveService.class, OrderService.class, PaymentService.class, OrderNumberGenerator.class,
+        ProductCatalogCache.class, InventoryReservationService.class,
+        DropStockService.class, OrderArchiveServiceTest.Metrics.class})
+class OrderArchiveServiceTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User user;
+    private Product hoodie;
+
+    @BeforeEach
+    void setUp() {
+        user = entityManager.persist(new User("archived", "archived@example.com", "password123"));
+        hoodie = entityManager.persist(new Product("Hoodie", new BigDecimal("59.99"), "Hoodies", "Lincee"));
+    }
+
+    @Test
+    void movesOldFinishedOrdersToTheArchiveInBatches() {
+        Order delivered = persistOrder("ORD-OLD-1", Order.OrderStatus.DELIVERED, 400);
+        persistOrder("ORD-OLD-2", Order.OrderStatus.CANCELLED, 500);
+        persistOrder("ORD-OLD-3", Order.OrderStatus.RETURNED, 600);
+        persistOrder("ORD-OLD-PENDING", Order.OrderStatus.PENDING, 400);
+        persistOrder("ORD-RECENT", Order.OrderStatus.DELIVERED, 10);
+        entityManager.persist(new Payment(delivered, Payment.PaymentMethod.CREDIT_CARD, delivered.getTotalAmount()));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(3, orderArchiveService.archiveExpired());
+
+        assertEquals(3, archivedOrderRepository.count());
+        assertEquals(2, orderRepository.count());
+        assertTrue(orderRepository.findByOrderNumber("ORD-OLD-PENDING").isPresent());
+        assertTrue(orderRepository.findByOrderNumber("ORD-RECENT").isPresent());
+        assertEquals(0, paymentRepository.count());
+        assertEquals(0, orderArchiveService.archiveExpired());
+    }
+
+    @Test
+    void archivedOrdersAreStillFoundByNumberAndId() {
+        Order order = persistOrder("ORD-OLD-1", Order.OrderStatus.DELIVERED, 400);
+        entityManager.flush();
+        entityManager.clear();
+        OrderDTO before = orderService.getOrderByNumber("ORD-OLD-1");
+
+        orderArchiveService.archiveExpired();
+        entityManager.clear();
+
+        assertTrue(orderRepository.findByOrderNumber("ORD-OLD-1").isEmpty());
+        OrderDTO archived = orderService.getOrderByNumber("ORD-OLD-1");
+        assertEquals(before.getId(), archived.getId());
+        assertEquals("DELIVERED", archived.getStatus());
+        assertEquals(0, before.getTotalAmount().compareTo(archived.getTotalAmount()));
+        assertEquals(1, archived.getOrderItems().size());
+        assertEquals("Hoodie", archived.getOrderItems().get(0).getProductName());
+        assertEquals(before.getCreatedAt(), archived.getCreatedAt());
+        assertEquals("ORD-OLD-1", orderService.getOrderById(order.getId()).getOrderNumber());
+        assertThrows(RuntimeException.class, () -> orderService.getOrderByNumber("ORD-MISSING"));
+    }
+
+    private Order persistOrder(String orderNumber, Order.OrderStatus status, int ageDays) {
+        Order order = new Order(user, new BigDecimal("119.98"));
+        order.setOrderNumber(orderNumber);
+        order.setStatus(status);
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setProduct(hoodie);
+        item.setQuantity(2);
+        item.setUnitPrice(hoodie.getPrice());
+        item.setTotalPrice(new BigDecimal("119.98"));
+        order.getOrderItems().add(item);
+        entityManager.persist(order);
+        entityManager.flush();
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Order o SET o.createdAt = :createdAt WHERE o.id = :id")
+                .setParameter("createdAt", LocalDateTime.now().minusDays(ageDays))
+                .setParameter("id", order.getId())
+                .executeUpdate();
+        return order;
+    }
+}
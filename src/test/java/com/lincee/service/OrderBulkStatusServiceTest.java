@@ -0,0 +1,130 @@
+package com.lincee.service;
+
+import com.lincee.dto.OrderStatusBulkResultDTO;
+import com.lincee.dto.OrderStatusUpdateDTO;
+import com.lincee.dto.OrderStatusUpdateResultDTO;
+import com.lincee.dto.OrderStatusUpdateResultDTO.Outcome;
+import com.lincee.entity.Order;
+import com.lincee.entity.Order.OrderStatus;
+import com.lincee.entity.User;
+import com.lincee.exception.ApiException;
+import com.lincee.repository.OrderRepository;
+import com.lincee.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.orders.bulk-status.chunk-size=300"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import(OrderBulkStatusService.class)
+class OrderBulkStatusServiceTest {
+
+    @Autowired
+    private OrderBulkStatusService bulkStatusService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("warehouse", "warehouse@example.com", "password123"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void reportsAResultForEveryRow() {
+        List<Order> orders = saveOrders(4, OrderStatus.PROCESSING);
+        Order shipped = orders.get(3);
+        shipped.setStatus(OrderStatus.SHIPPED);
+        shipped = orderRepository.save(shipped);
+
+        OrderStatusBulkResultDTO result = bulkStatusService.apply(List.of(
+                new OrderStatusUpdateDTO(orders.get(0).getId(), null, "SHIPPED", "TRK-0"),
+                new OrderStatusUpdateDTO(null, orders.get(1).getOrderNumber(), "shipped", "TRK-1"),
+                new OrderStatusUpdateDTO(orders.get(2).getId(), null, "PENDING", null),
+                new OrderStatusUpdateDTO(shipped.getId(), null, "SHIPPED", null),
+                new OrderStatusUpdateDTO(-1L, null, "SHIPPED", null),
+                new OrderStatusUpdateDTO(null, "ORD-MISSING", "SHIPPED", null),
+                new OrderStatusUpdateDTO(orders.get(2).getId(), null, "LOST", null),
+                new OrderStatusUpdateDTO(null, null, "SHIPPED", null),
+                new OrderStatusUpdateDTO(null, orders.get(0).getOrderNumber(), "DELIVERED", null)));
+
+        assertEquals(List.of(Outcome.UPDATED, Outcome.UPDATED, Outcome.INVALID_TRANSITION, Outcome.UNCHANGED,
+                Outcome.NOT_FOUND, Outcome.NOT_FOUND, Outcome.INVALID, Outcome.INVALID, Outcome.INVALID),
+                result.getResults().stream().map(OrderStatusUpdateResultDTO::getOutcome).toList());
+        assertEquals(2, result.getUpdated());
+        assertEquals(1, result.getUnchanged());
+        assertEquals(6, result.getFailed());
+
+        Order first = orderRepository.findById(orders.get(0).getId()).orElseThrow();
+        assertEquals(OrderStatus.SHIPPED, first.getStatus());
+        assertEquals("TRK-0", first.getTrackingNumber());
+        assertEquals(1L, first.getVersion());
+        assertEquals("TRK-1", orderRepository.findById(orders.get(1).getId()).orElseThrow().getTrackingNumber());
+        assertEquals(OrderStatus.PROCESSING, orderRepository.findById(orders.get(2).getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void appliesLargeBatchesAcrossChunks() {
+        List<Order> orders = saveOrders(1000, OrderStatus.PROCESSING);
+        List<OrderStatusUpdateDTO> updates = new ArrayList<>();
+        for (Order order : orders) {
+            updates.add(new OrderStatusUpdateDTO(null, order.getOrderNumber(), "SHIPPED", "TRK-" + order.getId()));
+        }
+
+        OrderStatusBulkResultDTO result = bulkStatusService.apply(updates);
+
+        assertEquals(orders.size(), result.getUpdated());
+        assertEquals(orders.size(), orderRepository.countByStatus(OrderStatus.SHIPPED));
+        for (int i = 0; i < orders.size(); i++) {
+            assertEquals(i, result.getResults().get(i).getIndex());
+            assertEquals(orders.get(i).getId(), result.getResults().get(i).getOrderId());
+        }
+        // A second run changes nothing
+        assertEquals(orders.size(), bulkStatusService.apply(updates).getUnchanged());
+    }
+
+    @Test
+    void rejectsEmptyAndOversizedBatches() {
+        assertThrows(ApiException.class, () -> bulkStatusService.apply(List.of()));
+        OrderStatusUpdateDTO[] tooMany = new OrderStatusUpdateDTO[OrderBulkStatusService.MAX_ROWS + 1];
+        Arrays.fill(tooMany, new OrderStatusUpdateDTO(1L, null, "SHIPPED", null));
+        assertThrows(ApiException.class, () -> bulkStatusService.apply(Arrays.asList(tooMany)));
+    }
+
+    private List<Order> saveOrders(int count, OrderStatus status) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Order order = new Order(user, new BigDecimal("59.99"));
+            order.setOrderNumber("ORD-BULK-" + i);
+            order.setStatus(status);
+            orders.add(order);
+        }
+        return orderRepository.saveAll(orders);
+    }
+}
@@ -0,0 +1,138 @@
+package com.lincee.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lincee.entity.Order;
+import com.lincee.entity.OrderItem;
+import com.lincee.entity.Product;
+import com.lincee.entity.User;
+import com.lincee.exception.ApiException;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({OrderExportService.class, OrderExportServiceTest.Json.class})
+class OrderExportServiceTest {
+
+    @TestConfiguration
+    static class Json {
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().findAndRegisterModules();
+        }
+    }
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private LocalDateTime start;
+    private LocalDateTime end;
+
+    @BeforeEach
+    void setUp() {
+        User user = entityManager.persist(new User("exporter", "exporter@example.com", "password123"));
+        Product hoodie = entityManager.persist(new Product("Hoodie, \"Heavy\"", new BigDecimal("59.99"), "Hoodies", "Lincee"));
+        Product tee = entityManager.persist(new Product("Tee", new BigDecimal("19.99"), "T-Shirts", "Lincee"));
+
+        persistOrder(user, "ORD-EXPORT-1", item(hoodie, 2, "L", "Black"), item(tee, 1, null, null));
+        persistOrder(user, "ORD-EXPORT-2");
+        persistOrder(user, "ORD-EXPORT-3", item(tee, 3, "M", null));
+        entityManager.flush();
+        entityManager.clear();
+
+        start = LocalDateTime.now().minusHours(1);
+        end = LocalDateTime.now().plusHours(1);
+    }
+
+    @Test
+    void csvHasOneLinePerItemWithQuotedFields() throws Exception {
+        List<String> lines = export(OrderExportService.Format.CSV, start, end).lines().toList();
+
+        assertEquals(OrderExportService.CSV_HEADER, lines.get(0));
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(1).startsWith("ORD-EXPORT-1,"));
+        assertTrue(lines.get(1).contains(",\"Hoodie, \"\"Heavy\"\"\",L,Black,2,59.99,119.98"));
+        assertTrue(lines.get(2).endsWith(",Tee,,,1,19.99,19.99"));
+        assertTrue(lines.get(3).startsWith("ORD-EXPORT-2,"));
+        assertTrue(lines.get(3).endsWith(",,,,,,,"));
+        assertTrue(lines.get(4).startsWith("ORD-EXPORT-3,"));
+    }
+
+    @Test
+    void ndjsonHasOneOrderPerLineWithItsItems() throws Exception {
+        List<String> lines = export(OrderExportService.Format.NDJSON, start, end).lines().toList();
+
+        assertEquals(3, lines.size());
+        JsonNode first = objectMapper.readTree(lines.get(0));
+        assertEquals("ORD-EXPORT-1", first.get("orderNumber").asText());
+        assertEquals(2, first.get("items").size());
+        assertEquals("Hoodie, \"Heavy\"", first.get("items").get(0).get("productName").asText());
+        assertEquals(new BigDecimal("119.98"), first.get("items").get(0).get("totalPrice").decimalValue());
+        assertEquals(0, objectMapper.readTree(lines.get(1)).get("items").size());
+        assertEquals("ORD-EXPORT-3", objectMapper.readTree(lines.get(2)).get("orderNumber").asText());
+    }
+
+    @Test
+    void rowsAreNotKeptInThePersistenceContext() throws Exception {
+        export(OrderExportService.Format.NDJSON, start, end);
+
+        assertEquals(0, entityManager.getEntityManager().unwrap(Session.class).getStatistics().getEntityCount());
+    }
+
+    @Test
+    void outOfRangeOrdersAreLeftOutAndInvertedRangesRejected() throws Exception {
+        assertEquals(List.of(OrderExportService.CSV_HEADER),
+                export(OrderExportService.Format.CSV, end, end.plusDays(1)).lines().toList());
+        assertThrows(ApiException.class, () -> export(OrderExportService.Format.CSV, end, start));
+        assertThrows(ApiException.class, () -> OrderExportService.Format.parse("xml"));
+        assertEquals(OrderExportService.Format.NDJSON, OrderExportService.Format.parse("ndjson"));
+    }
+
+    private String export(OrderExportService.Format format, LocalDateTime from, LocalDateTime to) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        orderExportService.export(from, to, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private void persistOrder(User user, String orderNumber, OrderItem... items) {
+        Order order = new Order(user, new BigDecimal("100.00"));
+        order.setOrderNumber(orderNumber);
+        for (OrderItem item : items) {
+            item.setOrder(order);
+            order.getOrderItems().add(item);
+        }
+        entityManager.persist(order);
+    }
+
+    private OrderItem item(Product product, int quantity, String size, String color) {
+        OrderItem item = new OrderItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        item.setSize(size);
+        item.setColor(color);
+        item.setUnitPrice(product.getPrice());
+        item.setTotalPrice(product.getPrice().multiply(BigDecimal.valueOf(quantity)));
+        return item;
+    }
+}
@@ -0,0 +1,139 @@
+package com.lincee.service;
+
+import com.lincee.dto.CursorPageDTO;
+import com.lincee.dto.OrderDTO;
+import com.lincee.entity.Order;
+import com.lincee.entity.OrderItem;
+import com.lincee.entity.Payment;
+import com.lincee.entity.Product;
+import com.lincee.entity.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({OrderService.class, OrderNumberGenerator.class, ProductCatalogCache.class, InventoryReservationService.class,
+        DropStockService.class, OrderHistoryQueryCountTest.Metrics.class})
+class OrderHistoryQueryCountTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        User user = entityManager.persist(new User("history", "history@example.com", "password123"));
+        userId = user.getId();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            products.add(entityManager.persist(new Product("Product " + i, new BigDecimal("20.00"), "Hoodies", "Lincee")));
+        }
+        for (int i = 0; i < 30; i++) {
+            Order order = new Order(user, new BigDecimal("60.00"));
+            order.setOrderNumber("ORD-HISTORY-" + i);
+            for (int line = 0; line < 3; line++) {
+                OrderItem item = new OrderItem();
+                item.setOrder(order);
+                item.setProduct(products.get((i + line) % products.size()));
+                item.setQuantity(1);
+                item.setUnitPrice(new BigDecimal("20.00"));
+                item.setTotalPrice(new BigDecimal("20.00"));
+                order.getOrderItems().add(item);
+            }
+            entityManager.persist(order);
+            if (i % 2 == 0) {
+                entityManager.persist(new Payment(order, Payment.PaymentMethod.CREDIT_CARD, order.getTotalAmount()));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void orderPagesCostTheSameNumberOfStatementsWhateverTheirSize() {
+        long smallPage = statementsFor(() -> orderService.getUserOrders(userId, PageRequest.of(0, 5, Sort.by("createdAt"))));
+        long largePage = statementsFor(() -> orderService.getUserOrders(userId, PageRequest.of(0, 25, Sort.by("createdAt"))));
+
+        // ids + count + hydrate
+        assertEquals(3, smallPage);
+        assertEquals(smallPage, largePage);
+        assertEquals(3, statementsFor(() -> orderService.getOrdersByStatus(Order.OrderStatus.PENDING, PageRequest.of(0, 25))));
+    }
+
+    @Test
+    void orderListsAndCursorPagesAreBounded() {
+        assertEquals(2, statementsFor(() -> orderService.getUserOrderList(userId)));
+        assertEquals(2, statementsFor(() -> orderService.getOrdersByDateRange(
+                LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1))));
+        // keyset page (with payments) + items
+        assertEquals(2, statementsFor(() -> orderService.getUserOrdersByCursor(userId, null, 20)));
+        assertEquals(1, statementsFor(() -> orderService.getOrderByNumber("ORD-HISTORY-3")));
+    }
+
+    @Test
+    void hydratedOrdersCarryItemsAndProductNamesInPageOrder() {
+        Page<OrderDTO> page = orderService.getUserOrders(userId, PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id")));
+        List<OrderDTO> content = page.getContent();
+
+        assertEquals(30, page.getTotalElements());
+        assertEquals(10, content.size());
+        for (int i = 1; i < content.size(); i++) {
+            assertTrue(content.get(i - 1).getId() > content.get(i).getId());
+        }
+        assertEquals(3, content.get(0).getOrderItems().size());
+        assertTrue(content.get(0).getOrderItems().get(0).getProductName().startsWith("Product "));
+        assertEquals(userId, content.get(0).getUserId());
+
+        CursorPageDTO<OrderDTO> cursorPage = orderService.getUserOrdersByCursor(userId, null, 20);
+        assertEquals(3, cursorPage.getContent().get(0).getOrderItems().size());
+    }
+
+    private long statementsFor(Supplier<?> read) {
+        entityManager.clear();
+        statistics.clear();
+        read.get();
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,90 @@
+package com.lincee.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderNumberGeneratorTest {
+
+    private static final long NOW = OrderNumberGenerator.EPOCH_MILLIS + 86_400_000L;
+
+    @Test
+    void numbersAreShortAndSortInIssueOrder() {
+        AtomicLong clock = new AtomicLong(NOW);
+        OrderNumberGenerator generator = new OrderNumberGenerator(3, clock::get);
+
+        String previous = generator.next();
+        assertEquals(17, previous.length());
+        assertTrue(previous.startsWith(OrderNumberGenerator.PREFIX));
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 100 == 0) {
+                clock.addAndGet(1);
+            }
+            String next = generator.next();
+            assertTrue(next.compareTo(previous) > 0, next + " should sort after " + previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void staysMonotonicWhenTheClockStepsBackOrASequenceRunsOut() {
+        AtomicLong clock = new AtomicLong(NOW);
+        OrderNumberGenerator generator = new OrderNumberGenerator(3, clock::get);
+
+        long previous = generator.nextId();
+        // More than one millisecond's worth of sequence numbers, then a clock step back
+        for (int i = 0; i < 5_000; i++) {
+            long next = generator.nextId();
+            assertTrue(next > previous);
+            previous = next;
+        }
+        clock.addAndGet(-10_000);
+        assertTrue(generator.nextId() > previous);
+    }
+
+    @Test
+    void nodesNeverCollideAndThreadsNeverDuplicate() throws Exception {
+        AtomicLong clock = new AtomicLong(NOW);
+        OrderNumberGenerator nodeA = new OrderNumberGenerator(1, clock::get);
+        OrderNumberGenerator nodeB = new OrderNumberGenerator(2, clock::get);
+        int threads = 8;
+        int perThread = 20_000;
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            OrderNumberGenerator generator = t % 2 == 0 ? nodeA : nodeB;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    assertTrue(seen.add(generator.next()));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(threads * perThread, seen.size());
+    }
+
+    @Test
+    void rejectsNodeIdsOutsideTheTenBitRange() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderNumberGenerator(1024, System::currentTimeMillis));
+    }
+}
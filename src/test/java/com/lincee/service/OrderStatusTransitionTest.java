@@ -0,0 +1,231 @@
+package com.lincee.service;
+
+import com.lincee.dto.OrderDTO;
+import com.lincee.dto.OrderItemDTO;
+import com.lincee.entity.Order;
+import com.lincee.entity.Order.OrderStatus;
+import com.lincee.entity.Payment;
+import com.lincee.entity.Product;
+import com.lincee.entity.User;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.repository.OrderRepository;
+import com.lincee.repository.PaymentRepository;
+import com.lincee.repository.ProductRepository;
+import com.lincee.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OrderService.class, PaymentService.class, OrderNumberGenerator.class, ProductCatalogCache.class,
+        InventoryReservationService.class, DropStockService.class, OrderStatusTransitionTest.Metrics.class})
+class OrderStatusTransitionTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private Product hoodie;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("buyer", "buyer@example.com", "password123"));
+        hoodie = new Product("Hoodie", new BigDecimal("59.99"), "Hoodies", "Lincee");
+        hoodie.setStockQuantity(1000);
+        hoodie = productRepository.save(hoodie);
+    }
+
+    @AfterEach
+    void tearDown() {
+        paymentRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void statusChangesFollowTheTransitionTable() {
+        Long orderId = placeOrder();
+
+        assertTransitionRejected(orderId, OrderStatus.SHIPPED);
+        assertEquals("CONFIRMED", orderService.updateOrderStatus(orderId, OrderStatus.CONFIRMED).getStatus());
+        // Repeating the current status is a no-op, not a new write
+        assertEquals(1L, orderService.updateOrderStatus(orderId, OrderStatus.CONFIRMED).getVersion());
+        assertEquals("CANCELLED", orderService.updateOrderStatus(orderId, OrderStatus.CANCELLED).getStatus());
+        assertTransitionRejected(orderId, OrderStatus.PROCESSING);
+        assertEquals(2L, orderService.getOrderById(orderId).getVersion());
+    }
+
+    @Test
+    void concurrentWritersNeverLoseOrRepeatATransition() throws Exception {
+        Long orderId = placeOrder();
+        List<OrderStatus> path = List.of(OrderStatus.CONFIRMED, OrderStatus.PROCESSING, OrderStatus.SHIPPED, OrderStatus.DELIVERED);
+
+        runConcurrently(16, t -> {
+            for (OrderStatus status : path) {
+                orderService.advanceStatus(orderId, status);
+            }
+        });
+
+        OrderDTO order = orderService.getOrderById(orderId);
+        assertEquals("DELIVERED", order.getStatus());
+        assertEquals(path.size(), order.getVersion());
+    }
+
+    @Test
+    void racingShipAndCancelLetsExactlyOneWin() throws Exception {
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Long orderId = placeOrder();
+            orderService.updateOrderStatus(orderId, OrderStatus.CONFIRMED);
+            orderService.updateOrderStatus(orderId, OrderStatus.PROCESSING);
+            orderIds.add(orderId);
+        }
+        AtomicInteger applied = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(2, t -> {
+            OrderStatus status = t == 0 ? OrderStatus.SHIPPED : OrderStatus.CANCELLED;
+            for (Long orderId : orderIds) {
+                try {
+                    orderService.updateOrderStatus(orderId, status);
+                    applied.incrementAndGet();
+                } catch (ApiException e) {
+                    assertEquals(ErrorCode.INVALID_STATUS_TRANSITION, e.getErrorCode());
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(orderIds.size(), applied.get());
+        assertEquals(orderIds.size(), rejected.get());
+        for (Long orderId : orderIds) {
+            assertEquals(3L, orderService.getOrderById(orderId).getVersion());
+        }
+    }
+
+    @Test
+    void updateWithAStaleVersionIsRejected() {
+        Long orderId = placeOrder();
+        OrderDTO seen = orderService.getOrderById(orderId);
+        orderService.updateOrderStatus(orderId, OrderStatus.CONFIRMED);
+
+        OrderDTO edit = new OrderDTO();
+        edit.setNotes("Leave at the door");
+        edit.setVersion(seen.getVersion());
+        ApiException ex = assertThrows(ApiException.class, () -> orderService.updateOrder(orderId, edit));
+        assertEquals(ErrorCode.CONCURRENT_MODIFICATION, ex.getErrorCode());
+
+        edit.setVersion(orderService.getOrderById(orderId).getVersion());
+        edit.setStatus("processing");
+        OrderDTO updated = orderService.updateOrder(orderId, edit);
+        assertEquals("Leave at the door", updated.getNotes());
+        assertEquals("PROCESSING", updated.getStatus());
+    }
+
+    @Test
+    void gatewayResultsAreIdempotentAndNeverDowngrade() {
+        Long orderId = placeOrder();
+        Payment payment = new Payment(orderRepository.findById(orderId).orElseThrow(),
+                Payment.PaymentMethod.CREDIT_CARD, new BigDecimal("59.99"));
+        payment.setStatus(Payment.PaymentStatus.PENDING);
+        payment.setTransactionId("pi_123");
+        paymentRepository.save(payment);
+
+        assertTrue(paymentService.recordGatewaySuccess("pi_123", "ch_1"));
+        assertTrue(paymentService.recordGatewaySuccess("pi_123", "ch_2"));
+        assertTrue(paymentService.recordGatewayFailure("pi_123"));
+        assertFalse(paymentService.recordGatewayFailure("pi_unknown"));
+
+        Payment stored = paymentRepository.findByTransactionId("pi_123").orElseThrow();
+        assertEquals(Payment.PaymentStatus.COMPLETED, stored.getStatus());
+        assertEquals("ch_1", stored.getReferenceNumber());
+        assertEquals(1L, stored.getVersion());
+        OrderDTO order = orderService.getOrderById(orderId);
+        assertEquals("CONFIRMED", order.getStatus());
+        assertEquals(1L, order.getVersion());
+    }
+
+    private void assertTransitionRejected(Long orderId, OrderStatus status) {
+        ApiException ex = assertThrows(ApiException.class, () -> orderService.updateOrderStatus(orderId, status));
+        assertEquals(ErrorCode.INVALID_STATUS_TRANSITION, ex.getErrorCode());
+    }
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    private void runConcurrently(int threads, Worker worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                worker.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    private Long placeOrder() {
+        OrderItemDTO line = new OrderItemDTO();
+        line.setProductId(hoodie.getId());
+        line.setQuantity(1);
+        OrderDTO order = new OrderDTO();
+        order.setOrderItems(List.of(line));
+        return orderService.createOrder(user.getId(), order).getId();
+    }
+}
@@ -0,0 +1,184 @@
+package com.lincee.service;
+
+import com.lincee.dto.OrderDTO;
+import com.lincee.dto.OrderItemDTO;
+import com.lincee.entity.Product;
+import com.lincee.entity.ProductVariant;
+import com.lincee.entity.User;
+import com.lincee.exception.InsufficientStockException;
+import com.lincee.repository.OrderRepository;
+import com.lincee.repository.ProductRepository;
+import com.lincee.repository.ProductVariantRepository;
+import com.lincee.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({OrderService.class, OrderNumberGenerator.class, ProductCatalogCache.class, InventoryReservationService.class,
+        DropStockService.class, OrderStockReservationTest.Metrics.class})
+class OrderStockReservationTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private Product hoodie;
+    private Product tee;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("buyer", "buyer@example.com", "password123"));
+        hoodie = new Product("Hoodie", new BigDecimal("59.99"), "Hoodies", "Lincee");
+        hoodie.setStockQuantity(50);
+        hoodie = productRepository.save(hoodie);
+        tee = new Product("Tee", new BigDecimal("19.99"), "T-Shirts", "Lincee");
+        tee.setStockQuantity(2);
+        tee = productRepository.save(tee);
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        variantRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        int threads = 16;
+        int attemptsPerThread = 10;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger placed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    try {
+                        orderService.createOrder(user.getId(), order(line(hoodie, 1)));
+                        placed.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(50, placed.get());
+        assertEquals(threads * attemptsPerThread - 50, rejected.get());
+        assertEquals(0, productRepository.findStockQuantityById(hoodie.getId()));
+        assertEquals(50, orderRepository.count());
+    }
+
+    @Test
+    void reportsEveryShortLineAndRollsBackTheOthers() {
+        InsufficientStockException ex = assertThrows(InsufficientStockException.class, () ->
+                orderService.createOrder(user.getId(), order(line(hoodie, 5), line(tee, 3), line(hoodie, 60))));
+
+        assertEquals(Map.of(
+                "orderItems[1]", "Product " + tee.getId() + ": requested 3, available 2",
+                "orderItems[2]", "Product " + hoodie.getId() + ": requested 60, available 45"), ex.getShortLines());
+        assertEquals(50, productRepository.findStockQuantityById(hoodie.getId()));
+        assertEquals(2, productRepository.findStockQuantityById(tee.getId()));
+        assertEquals(0, orderRepository.count());
+    }
+
+    @Test
+    void decrementsTheVariantAndTheProductTotal() {
+        Product jacket = new Product("Jacket", new BigDecimal("120.00"), "Jackets", "Lincee");
+        jacket.setStockQuantity(5);
+        jacket = productRepository.save(jacket);
+        ProductVariant large = new ProductVariant(jacket, "JK-L-BLK", "L", "Black", 3);
+        large.setPriceOverride(new BigDecimal("130.00"));
+        large = variantRepository.save(large);
+        variantRepository.save(new ProductVariant(jacket, "JK-M-BLK", "M", "Black", 2));
+
+        OrderDTO placed = orderService.createOrder(user.getId(), order(line(jacket, 2, "L", "Black")));
+        assertEquals(new BigDecimal("260.00"), placed.getTotalAmount());
+        assertEquals(1, variantRepository.findStockQuantityById(large.getId()));
+        assertEquals(3, productRepository.findStockQuantityById(jacket.getId()));
+
+        Long jacketId = jacket.getId();
+        InsufficientStockException ex = assertThrows(InsufficientStockException.class, () ->
+                orderService.createOrder(user.getId(), order(line(jacketId, 2, "L", "Black"))));
+        assertEquals(Map.of("orderItems[0]", "Product " + jacketId + " (L / Black): requested 2, available 1"),
+                ex.getShortLines());
+        assertEquals(3, productRepository.findStockQuantityById(jacketId));
+    }
+
+    private OrderDTO order(OrderItemDTO... lines) {
+        OrderDTO order = new OrderDTO();
+        order.setOrderItems(List.of(lines));
+        return order;
+    }
+
+    private OrderItemDTO line(Product product, int quantity) {
+        return line(product.getId(), quantity, null, null);
+    }
+
+    private OrderItemDTO line(Product product, int quantity, String size, String color) {
+        return line(product.getId(), quantity, size, color);
+    }
+
+    private OrderItemDTO line(Long productId, int quantity, String size, String color) {
+        OrderItemDTO item = new OrderItemDTO();
+        item.setProductId(productId);
+        item.setQuantity(quantity);
+        item.setSize(size);
+        item.setColor(color);
+        return item;
+    }
+}
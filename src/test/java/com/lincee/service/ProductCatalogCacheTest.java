@@ -0,0 +1,107 @@
+package com.lincee.service;
+
+import com.lincee.dto.ProductDTO;
+import com.lincee.entity.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCatalogCacheTest {
+
+    private final Pageable firstPage = PageRequest.of(0, 20);
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProductCatalogCache cache;
+    private Product hoodie;
+    private ProductDTO hoodieDTO;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ProductCatalogCache(1000, 300, meterRegistry);
+        hoodie = new Product("Hoodie", new BigDecimal("59.99"), "Hoodies", "Lincee");
+        hoodie.setId(1L);
+        hoodieDTO = new ProductDTO();
+        hoodieDTO.setId(1L);
+    }
+
+    @Test
+    void servesRepeatedReadsFromCache() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.getProduct(1L, () -> { loads.incrementAndGet(); return hoodieDTO; });
+        ProductDTO cached = cache.getProduct(1L, () -> { loads.incrementAndGet(); return hoodieDTO; });
+
+        assertSame(hoodieDTO, cached);
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", ProductCatalogCache.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void invalidationOnlyDropsListingsTheProductBelongsTo() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.getByCategory("Hoodies", firstPage, () -> page(loads));
+        cache.getByCategory("T-Shirts", firstPage, () -> page(loads));
+        cache.getByBrand("Other", firstPage, () -> page(loads));
+        cache.getFeatured(() -> { loads.incrementAndGet(); return List.of(); });
+
+        cache.invalidate(ProductCatalogCache.Footprint.of(hoodie));
+
+        loads.set(0);
+        cache.getByCategory("Hoodies", firstPage, () -> page(loads));
+        assertEquals(1, loads.get(), "listing of the product's category must be reloaded");
+        cache.getByCategory("T-Shirts", firstPage, () -> page(loads));
+        cache.getByBrand("Other", firstPage, () -> page(loads));
+        cache.getFeatured(() -> { loads.incrementAndGet(); return List.of(); });
+        assertEquals(1, loads.get(), "unrelated listings must stay cached");
+    }
+
+    @Test
+    void invalidationCoversListingTheProductMovedOutOf() {
+        AtomicInteger loads = new AtomicInteger();
+        ProductCatalogCache.Footprint before = ProductCatalogCache.Footprint.of(hoodie);
+        cache.getByCategory("Hoodies", firstPage, () -> page(loads));
+
+        hoodie.setCategory("Sweatshirts");
+        cache.invalidate(before, ProductCatalogCache.Footprint.of(hoodie));
+
+        cache.getByCategory("Hoodies", firstPage, () -> page(loads));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void stockChangesDropTheListingsShowingTheProduct() {
+        AtomicInteger loads = new AtomicInteger();
+        ProductDTO tee = new ProductDTO();
+        tee.setId(2L);
+        cache.getProduct(1L, () -> hoodieDTO);
+        cache.getActive(firstPage, () -> page(loads));
+        cache.getFeatured(() -> { loads.incrementAndGet(); return List.of(hoodieDTO); });
+        cache.getByCategory("T-Shirts", firstPage, () -> { loads.incrementAndGet(); return new PageImpl<>(List.of(tee)); });
+
+        cache.evictStock(List.of(1L));
+
+        loads.set(0);
+        cache.getActive(firstPage, () -> page(loads));
+        cache.getFeatured(() -> { loads.incrementAndGet(); return List.of(hoodieDTO); });
+        assertEquals(2, loads.get(), "listings showing the product must be reloaded");
+        cache.getByCategory("T-Shirts", firstPage, () -> { loads.incrementAndGet(); return new PageImpl<>(List.of(tee)); });
+        assertEquals(2, loads.get(), "listings without the product must stay cached");
+        assertNotSame(hoodieDTO, cache.getProduct(1L, ProductDTO::new));
+    }
+
+    private Page<ProductDTO> page(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return new PageImpl<>(List.of(hoodieDTO), firstPage, 1);
+    }
+}
@@ -0,0 +1,92 @@
+package com.lincee.service;
+
+import com.lincee.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductFacetIndexTest {
+
+    private ProductFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductFacetIndex();
+        index.index(product(1L, "Hoodies", "Lincee", "59.99", true), List.of("M", "L"), List.of("Black"));
+        index.index(product(2L, "Hoodies", "Other", "79.99", false), List.of("S", "M"), List.of("White"));
+        index.index(product(3L, "T-Shirts", "Lincee", "29.99", false), List.of("M"), List.of("Black", "White"));
+        index.index(product(4L, "T-Shirts", "Lincee", "19.99", false), List.of("XL"), List.of("Red"));
+    }
+
+    @Test
+    void orsValuesWithinAFacetAndAndsAcrossFacets() {
+        ProductFacetIndex.Result result = index.search(new ProductFacetIndex.Filter()
+                .select(ProductFacetIndex.Facet.COLOR, List.of("Black", "Red"))
+                .select(ProductFacetIndex.Facet.BRAND, List.of("Lincee")), 0, 10);
+
+        assertEquals(List.of(4L, 3L, 1L), result.productIds());
+        assertEquals(3, result.totalHits());
+    }
+
+    @Test
+    void countsIgnoreTheFacetsOwnSelection() {
+        ProductFacetIndex.Result result = index.search(new ProductFacetIndex.Filter()
+                .select(ProductFacetIndex.Facet.COLOR, List.of("Black"))
+                .select(ProductFacetIndex.Facet.CATEGORY, List.of("Hoodies")), 0, 10);
+
+        assertEquals(List.of(1L), result.productIds());
+        Map<String, Integer> colors = result.facetCounts().get("color");
+        assertEquals(Map.of("Black", 1, "White", 1), colors);
+        assertEquals(Map.of("Hoodies", 1, "T-Shirts", 1), result.facetCounts().get("category"));
+        assertEquals(Map.of("L", 1, "M", 1), result.facetCounts().get("size"));
+    }
+
+    @Test
+    void filtersByInclusivePriceRangeAndReportsBounds() {
+        ProductFacetIndex.Result result = index.search(new ProductFacetIndex.Filter()
+                .priceBetween(new BigDecimal("29.99"), new BigDecimal("59.99")), 0, 10);
+
+        assertEquals(List.of(3L, 1L), result.productIds());
+        assertEquals(new BigDecimal("19.99"), result.minPrice());
+        assertEquals(new BigDecimal("79.99"), result.maxPrice());
+    }
+
+    @Test
+    void updatesMoveProductsBetweenValuesAndRemoveDropsThem() {
+        index.index(product(2L, "Jackets", "Other", "79.99", false), null, List.of("Green"));
+
+        ProductFacetIndex.Result sizeM = index.search(new ProductFacetIndex.Filter()
+                .select(ProductFacetIndex.Facet.SIZE, List.of("M")), 0, 10);
+        assertEquals(List.of(3L, 2L, 1L), sizeM.productIds(), "sizes not passed are kept");
+        assertEquals(Map.of("Hoodies", 1, "Jackets", 1, "T-Shirts", 1), sizeM.facetCounts().get("category"));
+
+        index.remove(3L);
+        index.index(product(1L, "Hoodies", "Lincee", "59.99", true), null, null);
+        ProductFacetIndex.Result all = index.search(new ProductFacetIndex.Filter(), 0, 10);
+        assertEquals(List.of(4L, 2L, 1L), all.productIds());
+        assertEquals(Map.of("Black", 1, "Green", 1, "Red", 1), all.facetCounts().get("color"));
+    }
+
+    @Test
+    void excludesInactiveProductsAndPagesNewestFirst() {
+        Product retired = product(5L, "Hoodies", "Lincee", "49.99", false);
+        retired.setActive(false);
+        index.index(retired, List.of("M"), List.of("Black"));
+
+        assertEquals(4, index.search(new ProductFacetIndex.Filter(), 0, 10).totalHits());
+        assertEquals(5, index.search(new ProductFacetIndex.Filter().includeInactive(), 0, 10).totalHits());
+        assertEquals(List.of(2L, 1L), index.search(new ProductFacetIndex.Filter(), 2, 5).productIds());
+    }
+
+    private Product product(Long id, String category, String brand, String price, boolean featured) {
+        Product product = new Product("Product " + id, new BigDecimal(price), category, brand);
+        product.setId(id);
+        product.setFeatured(featured);
+        return product;
+    }
+}
@@ -0,0 +1,72 @@
+package com.lincee.service;
+
+import com.lincee.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.index(product(1L, "Classic Black Hoodie", "Heavyweight fleece", "Hoodies", "black,streetwear"));
+        index.index(product(2L, "Oversized Tee", "Pairs well with a black hoodie", "T-Shirts", "summer"));
+        index.index(product(3L, "Cargo Sweatshorts", "Relaxed fit shorts", "Sweatshorts", "summer,casual"));
+    }
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        ProductSearchIndex.Hits hits = index.search("black hoodie", 0, 10);
+        assertEquals(List.of(1L, 2L), hits.productIds());
+        assertEquals(2, hits.totalHits());
+    }
+
+    @Test
+    void matchesPrefixesAndIgnoresCaseAndAccents() {
+        assertEquals(List.of(1L, 2L), index.search("HOOD", 0, 10).productIds());
+        index.index(product(4L, "Café Crewneck", null, "Sweatshirts", null));
+        assertEquals(List.of(4L), index.search("cafe", 0, 10).productIds());
+    }
+
+    @Test
+    void pagesThroughRankedHits() {
+        ProductSearchIndex.Hits secondPage = index.search("summer black", 1, 1);
+        assertEquals(1, secondPage.productIds().size());
+        assertEquals(3, secondPage.totalHits());
+    }
+
+    @Test
+    void reindexingReplacesOldTermsAndRemoveDropsProduct() {
+        index.index(product(3L, "Cargo Joggers", "Tapered", "Pants", null));
+        assertTrue(index.search("sweatshorts", 0, 10).productIds().isEmpty());
+        assertEquals(List.of(3L), index.search("joggers", 0, 10).productIds());
+
+        index.remove(3L);
+        assertTrue(index.search("joggers", 0, 10).productIds().isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void survivesCompactionAfterManyUpdates() {
+        for (int i = 0; i < 5000; i++) {
+            index.index(product(1L, "Classic Black Hoodie v" + i, "Heavyweight fleece", "Hoodies", null));
+        }
+        assertEquals(3, index.size());
+        assertEquals(1L, index.search("hoodie", 0, 10).productIds().get(0));
+    }
+
+    private Product product(Long id, String name, String description, String category, String tags) {
+        Product product = new Product(name, new BigDecimal("49.99"), category, "Lincee");
+        product.setId(id);
+        product.setDescription(description);
+        product.setTags(tags);
+        return product;
+    }
+}
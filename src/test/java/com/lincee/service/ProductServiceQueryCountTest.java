@@ -0,0 +1,123 @@
+package com.lincee.service;
+
+import com.lincee.dto.ProductDTO;
+import com.lincee.entity.Collection;
+import com.lincee.entity.Product;
+import com.lincee.entity.ProductVariant;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({ProductService.class, ProductCatalogCache.class, ProductSearchIndex.class, ProductFacetIndex.class,
+        InventoryReservationService.class, ProductServiceQueryCountTest.Metrics.class})
+class ProductServiceQueryCountTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Collection drop = new Collection("Winter Drop", "winter-drop", "Winter collection");
+        for (int i = 0; i < 30; i++) {
+            Product product = new Product("Product " + i, new BigDecimal("49.99"), "Hoodies", "Lincee");
+            product.setImageUrls(List.of("https://cdn.example.com/" + i + ".jpg"));
+            entityManager.persist(product);
+            for (String size : List.of("S", "M", "L")) {
+                for (String color : List.of("Black", "White")) {
+                    // Small is sold out in every color
+                    int stock = size.equals("S") ? 0 : 4;
+                    entityManager.persist(new ProductVariant(product, "P" + i + "-" + size + "-" + color, size, color, stock));
+                }
+            }
+            drop.getProducts().add(product);
+        }
+        entityManager.persist(drop);
+        entityManager.flush();
+        entityManager.clear();
+        catalogCache.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void listingCostsTheSameNumberOfStatementsWhateverThePageSize() {
+        long smallPage = statementsFor(() -> productService.getAllProducts(null, PageRequest.of(0, 5)));
+        entityManager.clear();
+        long largePage = statementsFor(() -> productService.getAllProducts(null, PageRequest.of(0, 25)));
+
+        // page + count + variants + images + collections
+        assertEquals(5, smallPage);
+        assertEquals(smallPage, largePage);
+    }
+
+    @Test
+    void listingCarriesAssociationsWithoutTouchingLazyCollections() {
+        Page<ProductDTO> page = productService.getAllProducts(null, PageRequest.of(0, 25));
+
+        ProductDTO first = page.getContent().get(0);
+        assertEquals(25, page.getNumberOfElements());
+        assertEquals(30, page.getTotalElements());
+        assertEquals(List.of("M", "L"), first.getAvailableSizes());
+        assertEquals(List.of("Black", "White"), first.getAvailableColors());
+        assertEquals(6, first.getVariants().size());
+        assertFalse(first.getVariants().get(0).getInStock());
+        assertEquals(new BigDecimal("49.99"), first.getVariants().get(0).getPrice());
+        assertEquals(1, first.getImageUrls().size());
+        assertEquals("winter-drop", first.getCollections().get(0).getSlug());
+    }
+
+    @Test
+    void detailIsServedFromCacheAfterFirstRead() {
+        Long id = productService.getAllProducts(null, PageRequest.of(0, 1)).getContent().get(0).getId();
+        entityManager.clear();
+
+        assertEquals(4, statementsFor(() -> productService.getProductById(id)));
+        assertEquals(0, statementsFor(() -> productService.getProductById(id)));
+    }
+
+    private long statementsFor(Runnable read) {
+        statistics.clear();
+        read.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
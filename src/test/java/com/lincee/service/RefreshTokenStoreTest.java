@@ -0,0 +1,130 @@
+package com.lincee.service;
+
+import com.lincee.entity.User;
+import com.lincee.repository.RefreshTokenRepository;
+import com.lincee.repository.UserRepository;
+import com.lincee.service.RefreshTokenStore.Rotation;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({RefreshTokenStore.class, RefreshTokenStoreTest.Metrics.class})
+class RefreshTokenStoreTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private RefreshTokenStore store;
+
+    @Autowired
+    private RefreshTokenRepository repository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("refresher", "refresher@example.com", "password123"));
+    }
+
+    @Test
+    void rotatesOnceCachedWithASingleWrite() {
+        String first = store.issue(user.getId(), user.getUsername(), user.getRole().name());
+        repository.flush();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Rotation rotation = store.rotate(first).orElseThrow();
+        Rotation again = store.rotate(rotation.refreshToken()).orElseThrow();
+
+        assertEquals(new Rotation(user.getId(), "refresher", "CUSTOMER", rotation.refreshToken()), rotation);
+        assertNotEquals(first, rotation.refreshToken());
+        assertNotEquals(rotation.refreshToken(), again.refreshToken());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(2, repository.findById(chainId(first)).orElseThrow().getGeneration());
+    }
+
+    @Test
+    void reusingARotatedTokenRevokesTheChain() {
+        String first = store.issue(user.getId(), user.getUsername(), user.getRole().name());
+        String second = store.rotate(first).orElseThrow().refreshToken();
+
+        assertTrue(store.rotate(first).isEmpty());
+        // The legitimate holder is signed out too
+        assertTrue(store.rotate(second).isEmpty());
+        assertTrue(repository.findById(chainId(first)).orElseThrow().getRevoked());
+        assertEquals(1.0, meterRegistry.get("auth.refreshes").tag("result", "reused").counter().count());
+    }
+
+    @Test
+    void rejectsForgedExpiredAndLoggedOutTokens() {
+        String token = store.issue(user.getId(), user.getUsername(), user.getRole().name());
+        String forged = token.substring(0, token.indexOf('.')) + ".7" + token.substring(token.lastIndexOf('.'));
+
+        assertTrue(store.rotate(forged).isEmpty());
+        assertTrue(store.rotate("not-a-refresh-token").isEmpty());
+        assertTrue(store.rotate(null).isEmpty());
+        assertFalse(repository.findById(chainId(token)).orElseThrow().getRevoked());
+
+        store.setClock(Clock.offset(Clock.systemDefaultZone(), Duration.ofDays(31)));
+        assertTrue(store.rotate(token).isEmpty());
+        store.setClock(Clock.systemDefaultZone());
+
+        String loggedOut = store.issue(user.getId(), user.getUsername(), user.getRole().name());
+        store.revoke(loggedOut);
+        assertTrue(store.rotate(loggedOut).isEmpty());
+    }
+
+    @Test
+    void anotherInstanceSeesRotationsThroughTheTable() {
+        RefreshTokenStore other = new RefreshTokenStore(repository, userRepository, new SimpleMeterRegistry(),
+                "refresh-store-test-secret", 30, 100);
+        RefreshTokenStore peer = new RefreshTokenStore(repository, userRepository, new SimpleMeterRegistry(),
+                "refresh-store-test-secret", 30, 100);
+        String first = other.issue(user.getId(), user.getUsername(), user.getRole().name());
+
+        String second = peer.rotate(first).orElseThrow().refreshToken();
+        // Cached at generation 0 on the issuing instance; the table says the token was used
+        assertTrue(other.rotate(first).isEmpty());
+        assertTrue(peer.rotate(second).isEmpty());
+
+        // Tokens signed with another key are rejected
+        assertTrue(store.rotate(other.issue(user.getId(), user.getUsername(), user.getRole().name())).isEmpty());
+    }
+
+    private static long chainId(String token) {
+        return Long.parseLong(token.substring(0, token.indexOf('.')), 16);
+    }
+}
@@ -0,0 +1,88 @@
+package com.lincee.service;
+
+import com.lincee.entity.RevokedToken;
+import com.lincee.repository.RevokedTokenRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({TokenRevocationService.class, TokenRevocationServiceTest.Metrics.class})
+class TokenRevocationServiceTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private TokenRevocationService revocations;
+
+    @Autowired
+    private RevokedTokenRepository repository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void revokedTokensAreFoundAndOthersPass() {
+        double active = meterRegistry.get("auth.revocations.active").gauge().value();
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        revocations.revoke("logged-out", 1L, expiresAt);
+        // Already expired: nothing to remember
+        revocations.revoke("stale", 1L, System.currentTimeMillis() - 1);
+
+        assertTrue(revocations.isRevoked("logged-out"));
+        assertFalse(revocations.isRevoked("stale"));
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(revocations.isRevoked("active-" + i));
+        }
+        assertFalse(revocations.isRevoked(null));
+        assertEquals(1, repository.count());
+        assertEquals(active + 1, meterRegistry.get("auth.revocations.active").gauge().value());
+    }
+
+    @Test
+    void survivesARestartAndPicksUpOtherInstances() {
+        revocations.revoke("before-restart", 1L, System.currentTimeMillis() + 60_000);
+
+        TokenRevocationService restarted = new TokenRevocationService(repository, new SimpleMeterRegistry(), 1000);
+        restarted.start();
+        assertTrue(restarted.isRevoked("before-restart"));
+
+        // Written by another instance after this one started
+        repository.save(new RevokedToken("elsewhere", 2L, LocalDateTime.now().plusMinutes(5), LocalDateTime.now()));
+        assertFalse(restarted.isRevoked("elsewhere"));
+        restarted.sync();
+        assertTrue(restarted.isRevoked("elsewhere"));
+    }
+
+    @Test
+    void expiredRevocationsAreDropped() {
+        revocations.revoke("short", 1L, System.currentTimeMillis() + 1_000);
+        revocations.revoke("long", 1L, System.currentTimeMillis() + 3_600_000);
+
+        revocations.setClock(Clock.offset(Clock.systemDefaultZone(), Duration.ofMinutes(1)));
+        revocations.sync();
+
+        assertFalse(revocations.isRevoked("short"));
+        assertTrue(revocations.isRevoked("long"));
+        assertFalse(repository.existsById("short"));
+        assertTrue(repository.existsById("long"));
+        revocations.setClock(Clock.systemDefaultZone());
+    }
+}
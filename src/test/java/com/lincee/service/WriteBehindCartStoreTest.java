@@ -0,0 +1,218 @@
+package com.lincee.service;
+
+import com.lincee.dto.CartDTO;
+import com.lincee.dto.CartItemDTO;
+import com.lincee.entity.Cart;
+import com.lincee.entity.CartItem;
+import com.lincee.entity.Product;
+import com.lincee.entity.User;
+import com.lincee.exception.ApiException;
+import com.lincee.exception.ErrorCode;
+import com.lincee.repository.CartItemRepository;
+import com.lincee.repository.CartRepository;
+import com.lincee.repository.ProductRepository;
+import com.lincee.repository.StockHoldRepository;
+import com.lincee.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.carts.write-behind.enabled=true",
+        "app.carts.write-behind.wal-dir=target/cart-wal-${random.uuid}",
+        // Flushes happen when the tests ask for them
+        "app.carts.write-behind.flush-interval-millis=3600000"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CartService.class, WriteBehindCartStore.class, InventoryReservationService.class, ProductService.class,
+        ProductCatalogCache.class, ProductSearchIndex.class, ProductFacetIndex.class, WriteBehindCartStoreTest.Metrics.class})
+class WriteBehindCartStoreTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private WriteBehindCartStore store;
+
+    @Autowired
+    private ProductCatalogCache catalogCache;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockHoldRepository stockHoldRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private Product hoodie;
+    private Product tee;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("hot", "hot@example.com", "password123"));
+        hoodie = new Product("Hoodie", new BigDecimal("100.00"), "Hoodies", "Lincee");
+        hoodie.setStockQuantity(10);
+        hoodie.setAvailableSizes(new ArrayList<>(Arrays.asList("M", "L")));
+        hoodie = productRepository.save(hoodie);
+        tee = new Product("Tee", new BigDecimal("25.00"), "T-shirts", "Lincee");
+        tee.setStockQuantity(3);
+        tee = productRepository.save(tee);
+        catalogCache.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.flush();
+        store.discardResident();
+        stockHoldRepository.deleteAll();
+        cartItemRepository.deleteAll();
+        cartRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void editsStayInMemoryUntilFlushed() {
+        CartItemDTO added = cartService.addItemToCart(user.getId(), hoodie.getId(), 2, "M", null);
+        CartItemDTO merged = cartService.addItemToCart(user.getId(), hoodie.getId(), 1, "M", null);
+        cartService.addItemToCart(user.getId(), tee.getId(), 1, null, null);
+        cartService.updateCartItem(user.getId(), added.getId(), 4);
+
+        assertTrue(added.getId() < 0, "unflushed lines carry a temporary id");
+        assertEquals(added.getId(), merged.getId());
+        assertEquals(3, merged.getQuantity());
+        assertEquals(0, cartItemRepository.count());
+        assertEquals(2, cartService.getCartItems(user.getId()).size());
+
+        assertEquals(1, store.flush());
+        Cart cart = cartRepository.findByUserId(user.getId()).orElseThrow();
+        assertEquals(2, cart.getItemCount());
+        assertEquals(0, new BigDecimal("425.00").compareTo(cart.getTotalPrice()));
+        List<CartItem> rows = cartItemRepository.findAll();
+        assertEquals(2, rows.size());
+        CartItem hoodieRow = rows.stream().filter(row -> "M".equals(row.getSize())).findFirst().orElseThrow();
+        assertEquals(4, hoodieRow.getQuantity());
+
+        // The temporary id keeps working, and reads now report the real one
+        cartService.updateCartItem(user.getId(), added.getId(), 5);
+        assertEquals(hoodieRow.getId(), cartService.getCartItems(user.getId()).get(0).getId());
+        cartService.removeItemFromCart(user.getId(), hoodieRow.getId());
+        CartDTO flushed = cartService.getCartByUserId(user.getId());
+        assertEquals(1, flushed.getItemCount());
+        assertEquals(1, cartItemRepository.count());
+        assertEquals(0, store.flush());
+    }
+
+    @Test
+    void replaysTheLogAfterACrash() {
+        cartService.addItemToCart(user.getId(), hoodie.getId(), 2, "M", null);
+        cartService.addItemToCart(user.getId(), tee.getId(), 1, null, null);
+        store.flush();
+        Long hoodieId = cartService.getCartItems(user.getId()).get(0).getId();
+
+        // Acknowledged but never flushed
+        cartService.updateCartItem(user.getId(), hoodieId, 3);
+        cartService.removeItemFromCart(user.getId(), cartService.getCartItems(user.getId()).get(1).getId());
+        cartService.addItemToCart(user.getId(), hoodie.getId(), 1, "L", null);
+        assertEquals(2, cartItemRepository.count());
+
+        store.discardResident();
+        store.recover();
+
+        assertEquals(1, store.residentCarts());
+        List<CartItem> rows = cartItemRepository.findAll();
+        assertEquals(2, rows.size());
+        assertTrue(rows.stream().noneMatch(row -> row.getProduct().getId().equals(tee.getId())));
+        assertEquals(3, rows.stream().filter(row -> "M".equals(row.getSize())).findFirst().orElseThrow().getQuantity());
+        assertEquals(1, rows.stream().filter(row -> "L".equals(row.getSize())).findFirst().orElseThrow().getQuantity());
+        Cart cart = cartRepository.findByUserId(user.getId()).orElseThrow();
+        assertEquals(2, cart.getItemCount());
+        assertEquals(0, new BigDecimal("400.00").compareTo(cart.getTotalPrice()));
+
+        // Replaying again finds nothing newer than the database
+        store.discardResident();
+        store.recover();
+        assertEquals(2, cartItemRepository.count());
+    }
+
+    @Test
+    void rejectsWhatTheDatabasePathRejects() {
+        ApiException badSize = assertThrows(ApiException.class,
+                () -> cartService.addItemToCart(user.getId(), hoodie.getId(), 1, "XL", null));
+        assertEquals(ErrorCode.VALIDATION_ERROR, badSize.getErrorCode());
+        ApiException tooMany = assertThrows(ApiException.class,
+                () -> cartService.addItemToCart(user.getId(), tee.getId(), 4, null, null));
+        assertEquals(ErrorCode.INSUFFICIENT_STOCK, tooMany.getErrorCode());
+        ApiException missing = assertThrows(ApiException.class,
+                () -> cartService.addItemToCart(user.getId(), -1L, 1, null, null));
+        assertEquals(ErrorCode.PRODUCT_NOT_FOUND, missing.getErrorCode());
+        RuntimeException noLine = assertThrows(RuntimeException.class,
+                () -> cartService.updateCartItem(user.getId(), 12345L, 1));
+        assertEquals("Cart item not found", noLine.getMessage());
+    }
+
+    @Test
+    void concurrentAddsToTheSameLineAllLand() throws Exception {
+        int threads = 8;
+        hoodie.setStockQuantity(threads);
+        productRepository.save(hoodie);
+        catalogCache.clear();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<CartItemDTO>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return cartService.addItemToCart(user.getId(), hoodie.getId(), 1, "M", null);
+            }));
+        }
+        start.countDown();
+        for (Future<CartItemDTO> result : results) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThrows(ApiException.class, () -> cartService.addItemToCart(user.getId(), hoodie.getId(), 1, "M", null));
+        store.flush();
+        assertEquals(threads, cartItemRepository.findAll().get(0).getQuantity());
+    }
+}